@@ -17,7 +17,9 @@
 package com.offbynull.actors.core;
 
 import com.offbynull.actors.core.actor.ActorRunner;
+import com.offbynull.actors.core.actor.PassivationPolicy;
 import com.offbynull.actors.core.checkpoint.NullCheckpointer;
+import com.offbynull.actors.core.context.BatchedCreateActorCommand;
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_DIRECT;
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_LOG;
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_RUNNER;
@@ -58,7 +60,8 @@ public final class ActorSystem implements AutoCloseable {
             List<Supplier<Gateway>> gatewayFactories,
             String runnerName,
             int runnerCores,
-            Checkpointer runnerCheckpointer) {
+            Checkpointer runnerCheckpointer,
+            PassivationPolicy runnerPassivationPolicy) {
         ActorRunner runner = null;
         DirectGateway directGateway = null;
 
@@ -71,24 +74,28 @@ public final class ActorSystem implements AutoCloseable {
                 gateways.add(gatewayFactory.get());
             }
         
-            runner = ActorRunner.create(runnerName, runnerCores, runnerCheckpointer);
+            runner = ActorRunner.create(runnerName, runnerCores, runnerCheckpointer, runnerPassivationPolicy);
             
             directGateway = DirectGateway.create(DEFAULT_DIRECT);
             gateways.add(TimerGateway.create(DEFAULT_TIMER));
-            gateways.add(LogGateway.create(DEFAULT_LOG));
+            LogGateway logGateway = LogGateway.create(DEFAULT_LOG);
+            gateways.add(logGateway);
+            runner.setLogLevelFilter(logGateway.getLogLevelFilter());
             gateways.add(directGateway);
 
             for (Gateway gateway : gateways) {
                 bindGatewayToOthers(gateway, gateways, runner);
             }
 
+            List<BatchedCreateActorCommand> newActors = new ArrayList<>(actors.size());
             for (Entry<String, ImmutablePair<Coroutine, Object[]>> entry : actors.entrySet()) {
                 String id = entry.getKey();
                 Coroutine actor = entry.getValue().left;
                 Object[] primingMessages = entry.getValue().right;
 
-                runner.addActor(id, actor, primingMessages);
+                newActors.add(new BatchedCreateActorCommand(id, actor, primingMessages));
             }
+            runner.addActors(newActors);
         } catch (RuntimeException re) {
             if (runnerCheckpointer != null) {
                 try {
@@ -191,6 +198,7 @@ public final class ActorSystem implements AutoCloseable {
         private String runnerName;
         private int runnerCores;
         private Checkpointer runnerCheckpointer;
+        private PassivationPolicy runnerPassivationPolicy;
         
         private Builder() {
             actors = new LinkedHashMap<>();
@@ -198,6 +206,7 @@ public final class ActorSystem implements AutoCloseable {
             runnerName = DEFAULT_RUNNER;
             runnerCores = Runtime.getRuntime().availableProcessors();
             runnerCheckpointer = new NullCheckpointer();
+            runnerPassivationPolicy = PassivationPolicy.none();
         }
         
         /**
@@ -270,13 +279,24 @@ public final class ActorSystem implements AutoCloseable {
             return this;
         }
         
+        /**
+         * Passivation policy to use for actors. Passivated actors are checkpointed using the checkpointing backend.
+         * @param passivationPolicy passivation policy
+         * @return this builder
+         * @see PassivationPolicy
+         */
+        public Builder withRunnerPassivationPolicy(PassivationPolicy passivationPolicy) {
+            this.runnerPassivationPolicy = passivationPolicy;
+            return this;
+        }
+        
         /**
          * Build the actor system.
          * @return new actor system
          * @throws RuntimeException on bad build parameters
          */
         public ActorSystem build() {
-            return new ActorSystem(actors, gatewayFactories, runnerName, runnerCores, runnerCheckpointer);
+            return new ActorSystem(actors, gatewayFactories, runnerName, runnerCores, runnerCheckpointer, runnerPassivationPolicy);
         }
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import com.offbynull.actors.core.shuttle.Address;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Processing statistics for a single actor, as collected by {@link ActorRunner} when profiling is enabled. If profiling is sampled, the
+ * values are estimates (each sampled message is counted as many times as the sampling interval). This class is immutable.
+ * @author Kasra Faghihi
+ */
+public final class ActorProfile {
+
+    private final Address address;
+    private final long messagesHandled;
+    private final long executionTime;
+    private final long queueTime;
+    private final long messagesEmitted;
+
+    ActorProfile(Address address, long messagesHandled, long executionTime, long queueTime, long messagesEmitted) {
+        Validate.notNull(address);
+        this.address = address;
+        this.messagesHandled = messagesHandled;
+        this.executionTime = executionTime;
+        this.queueTime = queueTime;
+        this.messagesEmitted = messagesEmitted;
+    }
+
+    /**
+     * Get the address of the actor.
+     * @return actor address
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the number of messages the actor handled.
+     * @return number of messages handled
+     */
+    public long getMessagesHandled() {
+        return messagesHandled;
+    }
+
+    /**
+     * Get the time the actor spent handling messages.
+     * @return cumulative execution time in nanoseconds
+     */
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Get the time messages to the actor spent queued before being handled. Messages are queued in batches, so the time for each message
+     * is approximated by the time the oldest message in its batch was queued (an upper bound).
+     * @return cumulative queueing delay in nanoseconds
+     */
+    public long getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * Get the number of messages the actor (including its children) sent out.
+     * @return number of messages emitted
+     */
+    public long getMessagesEmitted() {
+        return messagesEmitted;
+    }
+
+    @Override
+    public String toString() {
+        return "ActorProfile{" + "address=" + address + ", messagesHandled=" + messagesHandled + ", executionTime=" + executionTime
+                + ", queueTime=" + queueTime + ", messagesEmitted=" + messagesEmitted + '}';
+    }
+}
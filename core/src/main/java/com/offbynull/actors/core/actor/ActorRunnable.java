@@ -20,6 +20,10 @@ import com.offbynull.actors.core.context.BatchedCreateActorCommand;
 import com.offbynull.actors.core.context.SourceContext;
 import com.offbynull.actors.core.context.BatchedOutgoingMessage;
 import com.offbynull.actors.core.context.Context.CheckpointRestoreLogic;
+import com.offbynull.actors.core.gateways.log.LogLevelFilter;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Histogram;
+import com.offbynull.actors.core.metrics.Metrics;
 import static com.offbynull.actors.core.context.Context.SuspendFlag.RELEASE;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttle.Message;
@@ -28,20 +32,31 @@ import com.offbynull.coroutines.user.CoroutineRunner;
 import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttles.simple.Bus;
 import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
+import com.offbynull.actors.core.trace.TraceContext;
+import static com.offbynull.actors.core.trace.TracePoint.FIRE_END;
+import static com.offbynull.actors.core.trace.TracePoint.FIRE_START;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.offbynull.actors.core.checkpoint.Checkpointer;
+import com.offbynull.actors.core.checkpoint.NullCheckpointer;
 
 final class ActorRunnable implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ActorRunnable.class);
+    
+    private static final int EVENT_RING_CAPACITY = 4096;
 
     private final String prefix;
     private final Bus bus;
@@ -49,19 +64,44 @@ final class ActorRunnable implements Runnable {
     private final Runnable failHandler;
     private final ActorRunner owner;
     private final Checkpointer checkpointer;
+    private final int maxResidentActors;
+    private final long idleTimeout; // in nanos, 0 if actors shouldn't be passivated for being idle
+    private final boolean passivating;
+
+    private final Counter messagesProcessedCounter;
+    private final Counter messagesDroppedCounter;
+    private final Histogram fireTimeHistogram;
+    private final Histogram batchSizeHistogram;
+    private final Histogram checkpointSaveTimeHistogram;
+    private final Histogram checkpointRestoreTimeHistogram;
+    private final Counter passivatedCounter;
+    private volatile int actorCount; // written only by this runnable's thread, read for metrics
+
+    private final EventRing events;
+    private final ConcurrentHashMap<String, ProfileStats> profiles; // written only by this runnable's thread, read for reports
+
+    private LogLevelFilter logLevelFilter; // only accessed by this runnable's thread
+    private int profileInterval; // only accessed by this runnable's thread -- 0 means profiling is off
+    private int profileCountdown; // only accessed by this runnable's thread
 
     ActorRunnable(
             String prefix,
             Bus bus,
             Runnable failHandler,
             ActorRunner owner,
-            Checkpointer checkpointer) {
+            Checkpointer checkpointer,
+            PassivationPolicy passivationPolicy,
+            int index,
+            Metrics metrics) {
         Validate.notNull(prefix);
         Validate.notNull(bus);
         Validate.notNull(failHandler);
         Validate.notNull(owner);
         Validate.notNull(checkpointer);
+        Validate.notNull(passivationPolicy);
+        Validate.notNull(metrics);
         Validate.notEmpty(prefix);
+        Validate.isTrue(index >= 0);
 
         this.prefix = prefix;
         this.bus = bus;
@@ -69,17 +109,39 @@ final class ActorRunnable implements Runnable {
         this.failHandler = failHandler;
         this.owner = owner;
         this.checkpointer = checkpointer;
+        this.maxResidentActors = passivationPolicy.getMaxResidentActors();
+        this.idleTimeout = passivationPolicy.getIdleTimeout() == null ? 0L : passivationPolicy.getIdleTimeout().toNanos();
+        this.passivating = (maxResidentActors != Integer.MAX_VALUE || idleTimeout != 0L)
+                && !(checkpointer instanceof NullCheckpointer); // NullCheckpointer can't save, so nothing could ever be passivated
+        this.profiles = new ConcurrentHashMap<>();
+        this.events = new EventRing(EVENT_RING_CAPACITY);
+
+        // Histograms that get recorded to frequently are per thread, so threads don't contend with each other when recording
+        String threadName = "thread." + index + ".";
+        this.messagesProcessedCounter = metrics.counter("messages.processed");
+        this.messagesDroppedCounter = metrics.counter("messages.dropped");
+        this.fireTimeHistogram = metrics.histogram(threadName + "fire.time");
+        this.batchSizeHistogram = metrics.histogram(threadName + "batch.size");
+        this.checkpointSaveTimeHistogram = metrics.histogram("checkpoint.save.time");
+        this.checkpointRestoreTimeHistogram = metrics.histogram("checkpoint.restore.time");
+        this.passivatedCounter = metrics.counter("actors.passivated");
+        metrics.gauge(threadName + "actors", () -> actorCount);
+        metrics.gauge(threadName + "bus.depth", bus::size);
+        metrics.gauge(threadName + "bus.enqueued", bus::enqueuedCount);
     }
 
     @Override
     public void run() {
         try {
             Map<String, Shuttle> outgoingShuttles = new HashMap<>(); // prefix -> shuttle
-            Map<String, LoadedActor> actors = new HashMap<>(); // id -> actor
+            ActorTable actors = new ActorTable(passivating); // id -> actor, in least-recently-used order if passivating
+            Map<String, PendingWarmUp> warmUps = new HashMap<>(); // id -> actor being restored ahead of time
 
             while (true) {
-                List<Object> incomingObjects = bus.pull();
+                // If actors get passivated for being idle, wake up periodically to passivate them even if no messages come in
+                List<Object> incomingObjects = idleTimeout == 0L ? bus.pull() : bus.pull(idleTimeout, TimeUnit.NANOSECONDS);
                 List<Message> outgoingMessages = new LinkedList<>(); // outgoing messages destined for destinations not in here
+                batchSizeHistogram.record(incomingObjects.size());
 
                 for (Object incomingObject : incomingObjects) {
                     if (incomingObject instanceof Message) {
@@ -89,13 +151,19 @@ final class ActorRunnable implements Runnable {
                         Address src = incomingMessage.getSourceAddress();
                         Address dst = incomingMessage.getDestinationAddress();
 
-                        processNormalMessage(msg, src, dst, actors, outgoingMessages);
+                        TraceContext trace = incomingMessage.getTrace();
+
+                        processNormalMessage(msg, src, dst, trace, actors, warmUps, outgoingMessages);
                     } else {
-                        processManagementMessage(incomingObject, actors, outgoingMessages, outgoingShuttles);
+                        processManagementMessage(incomingObject, actors, warmUps, outgoingMessages, outgoingShuttles);
                     }
                 }
 
                 sendOutgoingMessages(outgoingMessages, outgoingShuttles);
+                if (passivating) {
+                    passivateActors(actors);
+                }
+                actorCount = actors.size();
             }
         } catch (InterruptedException ie) {
             LOG.debug("Actor thread interrupted");
@@ -121,8 +189,8 @@ final class ActorRunnable implements Runnable {
         }
     }
 
-    private void processManagementMessage(Object msg, Map<String, LoadedActor> actors, List<Message> outgoingMessages,
-            Map<String, Shuttle> outgoingShuttles) {
+    private void processManagementMessage(Object msg, ActorTable actors, Map<String, PendingWarmUp> warmUps,
+            List<Message> outgoingMessages, Map<String, Shuttle> outgoingShuttles) {
         LOG.debug("Processing management message: {}" , msg);
         if (msg instanceof AddActor) {
             AddActor aam = (AddActor) msg;
@@ -130,12 +198,14 @@ final class ActorRunnable implements Runnable {
             Address self = Address.of(prefix, aam.getId());
             CoroutineRunner actorRunner = new CoroutineRunner(aam.getActor());
             SourceContext ctx = new SourceContext(actorRunner, self);
+            ctx.logLevelFilter(logLevelFilter);
             
             actorRunner.setContext(ctx.toNormalContext());
             
-            LoadedActor existingActor = actors.putIfAbsent(aam.getId(), new LoadedActor(ctx));
+            boolean added = actors.add(aam.getId(), ctx, System.nanoTime());
             
-            Validate.isTrue(existingActor == null); // unable to add a actor with id that already exists
+            Validate.isTrue(added); // unable to add a actor with id that already exists
+            events.record(EventRing.Type.ACTOR_ADDED, aam.getId(), 0L);
             
             List<Message> initialMessages = new LinkedList<>();
             for (Object primingMessage : aam.getPrimingMessages()) {
@@ -146,26 +216,83 @@ final class ActorRunnable implements Runnable {
             outgoingMessages.addAll(initialMessages);
         } else if (msg instanceof RemoveActor) {
             RemoveActor ram = (RemoveActor) msg;
-            LoadedActor existingActor = actors.remove(ram.getId());
+            SourceContext existingActor = actors.remove(ram.getId());
+            profiles.remove(ram.getId());
+            
+            // If the actor is being warmed up, stop it from being put in to memory once its restore finishes (WarmedUpActor ignores
+            // actors that aren't pending)
+            PendingWarmUp pending = warmUps.remove(ram.getId());
             
-            Validate.isTrue(existingActor != null); // unable to remove a actor that doesnt exist
+            if (existingActor == null) {
+                // Unable to remove a actor that doesnt exist, unless it may have been passivated or was being warmed up -- in which case
+                // its checkpoint is deleted so it doesn't get restored again (deleting a checkpoint that isn't there does nothing)
+                Validate.isTrue(passivating || pending != null);
+                checkpointer.delete(Address.of(prefix, ram.getId()));
+            }
+            
+            if (pending != null) {
+                pending.result.complete(false);
+            }
+            events.record(EventRing.Type.ACTOR_REMOVED, ram.getId(), 0L);
+        } else if (msg instanceof WarmUpActor) {
+            WarmUpActor wam = (WarmUpActor) msg;
+            String id = wam.getId();
+            if (actors.contains(id) || warmUps.containsKey(id)) {
+                wam.getResult().complete(false); // already in memory or already being warmed up
+                return;
+            }
+            
+            // Restoring is kicked off from this thread so that it can't race with this thread restoring the same actor (see
+            // processNormalMessage). Once done, this thread is notified so it can put the actor in to memory.
+            Address address = Address.of(prefix, id);
+            CompletableFuture<SourceContext> future = CompletableFuture.supplyAsync(() -> checkpointer.restore(address), wam.getExecutor());
+            warmUps.put(id, new PendingWarmUp(future, wam.getResult()));
+            future.whenComplete((ctx, t) -> bus.add(new WarmedUpActor(id)));
+        } else if (msg instanceof WarmedUpActor) {
+            WarmedUpActor wam = (WarmedUpActor) msg;
+            PendingWarmUp pending = warmUps.remove(wam.getId());
+            if (pending == null) {
+                return; // already taken care of by a message that came in for the actor
+            }
+            
+            SourceContext ctx = finishWarmUp(wam.getId(), pending);
+            if (ctx == null) {
+                return;
+            }
+            loadRestoredActor(wam.getId(), ctx, actors);
+            queueOutgoing(ctx, null, outgoingMessages); // restore logic may have sent stuff out
         } else if (msg instanceof AddShuttle) {
             AddShuttle asm = (AddShuttle) msg;
             Shuttle existingShuttle = outgoingShuttles.putIfAbsent(asm.getShuttle().getPrefix(), asm.getShuttle());
             
             Validate.isTrue(existingShuttle == null); // unable to add a prefix for a shuttle that already exists
+            events.record(EventRing.Type.SHUTTLE_ADDED, asm.getShuttle().getPrefix(), 0L);
         } else if (msg instanceof RemoveShuttle) {
             RemoveShuttle rsm = (RemoveShuttle) msg;
             Shuttle existingShuttle = outgoingShuttles.remove(rsm.getPrefix());
             
             Validate.isTrue(existingShuttle != null); // unable to remove a shuttle prefix that doesnt exist
+            events.record(EventRing.Type.SHUTTLE_REMOVED, rsm.getPrefix(), 0L);
+        } else if (msg instanceof SetLogLevelFilter) {
+            SetLogLevelFilter slm = (SetLogLevelFilter) msg;
+            logLevelFilter = slm.getLogLevelFilter();
+            
+            actors.forEach(ctx -> ctx.logLevelFilter(logLevelFilter));
+        } else if (msg instanceof SetProfiling) {
+            SetProfiling spm = (SetProfiling) msg;
+            profileInterval = spm.getInterval();
+            profileCountdown = profileInterval;
+            
+            if (profileInterval == 0) {
+                profiles.clear();
+            }
         } else {
             LOG.warn("No handler for management message: {}", msg);
         }
     }
 
-    private void processNormalMessage(Object msg, Address src, Address dst, Map<String, LoadedActor> actors,
-            List<Message> outgoingMessages) {
+    private void processNormalMessage(Object msg, Address src, Address dst, TraceContext trace, ActorTable actors,
+            Map<String, PendingWarmUp> warmUps, List<Message> outgoingMessages) {
         // Get actor to dump to
         Validate.isTrue(dst.size() >= 2); // sanity check
         
@@ -174,55 +301,96 @@ final class ActorRunnable implements Runnable {
         Validate.isTrue(dstPrefix.equals(prefix)); // sanity check
         
         Address actorAddr = Address.of(dstPrefix, dstActorId);
+        events.record(EventRing.Type.MESSAGE_RECEIVED, dstActorId, 0L);
 
-        LoadedActor loadedActor = actors.get(dstActorId);
+        int slot = actors.find(dstActorId);
         SourceContext ctx;
-        if (loadedActor == null) {
-            LOG.warn("Actor not found in memory for {} (dst={} msg={})", actorAddr, dst, msg);
-            ctx = checkpointer.restore(actorAddr);
+        if (slot == ActorTable.NIL) {
+            LOG.debug("Actor not found in memory for {} (dst={} msg={})", actorAddr, dst, msg);
+            
+            // If the actor is being warmed up, wait for that to finish rather than restoring it again
+            PendingWarmUp pending = warmUps.remove(dstActorId);
+            if (pending != null) {
+                ctx = finishWarmUp(dstActorId, pending);
+            } else {
+                long restoreStartTime = System.nanoTime();
+                ctx = checkpointer.restore(actorAddr);
+                long restoreTime = System.nanoTime() - restoreStartTime;
+                checkpointRestoreTimeHistogram.record(restoreTime);
+                events.record(EventRing.Type.CHECKPOINT_RESTORED, dstActorId, restoreTime);
+            }
             
             if (ctx == null) {
                 LOG.warn("Actor not found in checkpoint for {}", actorAddr);
+                messagesDroppedCounter.increment();
                 return;
             } else {
                 LOG.debug("Actor found in checkpoint: id={}", actorAddr);
-                actors.put(dstActorId, new LoadedActor(ctx));
-                
-                // Get restore logic to perform
-                CheckpointRestoreLogic restoreLogic = ctx.checkpoint();
-                
-                // Reset restored context state
-                ctx.copyAndClearOutgoingMessages();
-                ctx.checkpoint(null);
-                ctx.mode(RELEASE);
-                
-                // Perform restore logic
-                restoreLogic.perform(ctx);
+                loadRestoredActor(dstActorId, ctx, actors);
             }
         } else {
-            ctx = loadedActor.context;
+            ctx = actors.contextAt(slot);
+            actors.touchAt(slot, System.nanoTime());
         }
         
+        if (trace != null) {
+            trace.record(FIRE_START, dst);
+        }
+        long fireStartTime = System.nanoTime();
         boolean shutdown = SourceContext.fire(ctx, src, dst, Instant.now(), msg);
+        long fireTime = System.nanoTime() - fireStartTime;
+        if (trace != null) {
+            trace.record(FIRE_END, dst);
+        }
+        fireTimeHistogram.record(fireTime);
+        events.record(EventRing.Type.ACTOR_FIRED, dstActorId, fireTime);
+        messagesProcessedCounter.increment();
         if (shutdown) {
             LOG.debug("Actor shut down {} -- removing from memory and removing from checkpoint", actorAddr);
             checkpointer.delete(actorAddr);
             actors.remove(dstActorId);
+            profiles.remove(dstActorId);
+            events.record(EventRing.Type.ACTOR_REMOVED, dstActorId, 0L);
         } else {
             if (ctx.checkpoint() != null) {
                 LOG.debug("Actor requests checkpoint {} -- removing from memory and adding to checkpoint", actorAddr);
-                checkpointer.save(ctx);
-                actors.remove(dstActorId);
+                boolean saved;
+                long saveStartTime = System.nanoTime();
+                try {
+                    saved = checkpointer.save(ctx);
+                } catch (IllegalArgumentException iae) { // thrown if actor can't be serialized
+                    LOG.warn("Actor {} can't be checkpointed", actorAddr, iae);
+                    saved = false;
+                }
+                long saveTime = System.nanoTime() - saveStartTime;
+
+                if (saved) {
+                    checkpointSaveTimeHistogram.record(saveTime);
+                    events.record(EventRing.Type.CHECKPOINT_SAVED, dstActorId, saveTime);
+                    actors.remove(dstActorId);
+                } else {
+                    // Keep it in memory rather than lose it (e.g. checkpointer's storage is down)
+                    LOG.warn("Actor {} failed to checkpoint -- keeping in memory", actorAddr);
+                }
             }
         }
 
+        if (profileInterval != 0 && !shutdown && --profileCountdown == 0) {
+            profileCountdown = profileInterval;
+            
+            long queueTime = Math.max(0L, fireStartTime - bus.lastPullEnqueueTime());
+            ProfileStats stats = profiles.computeIfAbsent(dstActorId, k -> new ProfileStats(actorAddr));
+            stats.record(profileInterval, fireTime, queueTime, ctx.viewOuts().size());
+        }
+        
+        queueOutgoing(ctx, trace, outgoingMessages);
+    }
+    
+    private void queueOutgoing(SourceContext ctx, TraceContext trace, List<Message> outgoingMessages) {
         // Queue up new actors
         List<BatchedCreateActorCommand> batchedCreateActorCommands = ctx.copyAndClearNewRoots();
-        for (BatchedCreateActorCommand batchedCreateActorCommand : batchedCreateActorCommands) {
-            owner.addActor(
-                    batchedCreateActorCommand.getId(),
-                    batchedCreateActorCommand.getActor(),
-                    batchedCreateActorCommand.getPrimingMessages());
+        if (!batchedCreateActorCommands.isEmpty()) {
+            owner.addActors(batchedCreateActorCommands);
         }
 
         // Queue up outgoing messages
@@ -231,12 +399,86 @@ final class ActorRunnable implements Runnable {
             Message outgoingMessage = new Message(
                     batchedOutgoingMessage.getSource(),
                     batchedOutgoingMessage.getDestination(),
-                    batchedOutgoingMessage.getMessage());
+                    batchedOutgoingMessage.getMessage(),
+                    trace == null ? null : trace.child()); // messages sent out while handling a traced message are traced as well
 
             outgoingMessages.add(outgoingMessage);
         }
     }
 
+    private void loadRestoredActor(String id, SourceContext ctx, ActorTable actors) {
+        ctx.logLevelFilter(logLevelFilter);
+        actors.add(id, ctx, System.nanoTime());
+
+        // Get restore logic to perform (null if the actor was passivated rather than checkpointed at its own request)
+        CheckpointRestoreLogic restoreLogic = ctx.checkpoint();
+
+        // Reset restored context state
+        ctx.copyAndClearOutgoingMessages();
+        ctx.checkpoint(null);
+        ctx.mode(RELEASE);
+
+        // Perform restore logic
+        if (restoreLogic != null) {
+            restoreLogic.perform(ctx);
+        }
+    }
+    
+    private SourceContext finishWarmUp(String id, PendingWarmUp pending) {
+        long restoreStartTime = System.nanoTime();
+        SourceContext ctx;
+        try {
+            ctx = pending.future.join(); // most likely already done, but block if not
+        } catch (RuntimeException re) {
+            LOG.error("Unable to warm up actor {}", id, re);
+            ctx = null;
+        }
+        long restoreTime = System.nanoTime() - restoreStartTime;
+        events.record(EventRing.Type.CHECKPOINT_RESTORED, id, restoreTime);
+        
+        pending.result.complete(ctx != null);
+        return ctx;
+    }
+
+    private void passivateActors(ActorTable actors) {
+        // actors is in least-recently-used order, so stop at the first actor that's been used recently enough and that fits
+        long now = System.nanoTime();
+        int remaining = actors.size(); // each actor is looked at once at most, even if it can't be passivated
+        while (remaining > 0) {
+            remaining--;
+            int slot = actors.eldest();
+            String id = actors.idAt(slot);
+            SourceContext ctx = actors.contextAt(slot);
+
+            boolean overCapacity = actors.size() > maxResidentActors;
+            boolean idle = idleTimeout != 0L && now - actors.lastActiveTimeAt(slot) > idleTimeout;
+            if (!overCapacity && !idle) {
+                break;
+            }
+            
+            boolean saved;
+            long saveStartTime = System.nanoTime();
+            try {
+                saved = checkpointer.save(ctx);
+            } catch (IllegalArgumentException iae) { // thrown if actor can't be serialized
+                LOG.debug("Actor {} can't be passivated", id, iae);
+                saved = false;
+            }
+            long saveTime = System.nanoTime() - saveStartTime;
+            
+            if (saved) {
+                LOG.debug("Actor {} passivated", id);
+                actors.removeAt(slot);
+                checkpointSaveTimeHistogram.record(saveTime);
+                events.record(EventRing.Type.CHECKPOINT_SAVED, id, saveTime);
+                passivatedCounter.increment();
+            } else {
+                // Move it to the most-recently-used end, so it doesn't get retried every batch
+                actors.touchAt(slot, now);
+            }
+        }
+    }
+
     private void sendOutgoingMessages(List<Message> outgoingMessages, Map<String, Shuttle> outgoingShuttles) {
         // Group outgoing messages by prefix
         Map<String, List<Message>> outgoingMap = new HashMap<>();
@@ -281,12 +523,26 @@ final class ActorRunnable implements Runnable {
         bus.add(aam);
     }
 
+    void addActors(List<AddActor> adds) {
+        Validate.notNull(adds);
+        Validate.noNullElements(adds);
+        bus.add(adds); // 1 queue operation for the entire batch
+    }
+
     void removeActor(String id) {
         Validate.notNull(id);
         RemoveActor ram = new RemoveActor(id);
         bus.add(ram);
     }
 
+    void warmUpActor(String id, Executor executor, CompletableFuture<Boolean> result) {
+        Validate.notNull(id);
+        Validate.notNull(executor);
+        Validate.notNull(result);
+        WarmUpActor wam = new WarmUpActor(id, executor, result);
+        bus.add(wam);
+    }
+
     void addOutgoingShuttle(Shuttle shuttle) {
         Validate.notNull(shuttle);
         Validate.notNull(shuttle.getPrefix()); // sanity check
@@ -299,13 +555,62 @@ final class ActorRunnable implements Runnable {
         RemoveShuttle rsm = new RemoveShuttle(prefix);
         bus.add(rsm);
     }
+
+    void setProfiling(int interval) {
+        Validate.isTrue(interval >= 0);
+        SetProfiling spm = new SetProfiling(interval);
+        bus.add(spm);
+    }
+
+    List<EventRing.Event> getEvents() {
+        return events.read();
+    }
+
+    List<ActorProfile> getProfiles() {
+        List<ActorProfile> ret = new ArrayList<>(profiles.size());
+        for (ProfileStats stats : profiles.values()) {
+            ret.add(stats.toProfile());
+        }
+        return ret;
+    }
+
+    void setLogLevelFilter(LogLevelFilter logLevelFilter) {
+        SetLogLevelFilter slm = new SetLogLevelFilter(logLevelFilter);
+        bus.add(slm);
+    }
     
-    private static final class LoadedActor {
-        private final SourceContext context;
+    // Written only by the runnable's thread, but may be read from other threads when a report is requested
+    private static final class ProfileStats {
+        private final Address address;
+        private volatile long messagesHandled;
+        private volatile long executionTime;
+        private volatile long queueTime;
+        private volatile long messagesEmitted;
+
+        ProfileStats(Address address) {
+            this.address = address;
+        }
+
+        // each sampled message stands in for weight messages
+        void record(int weight, long executionTime, long queueTime, long messagesEmitted) {
+            this.messagesHandled += weight;
+            this.executionTime += executionTime * weight;
+            this.queueTime += queueTime * weight;
+            this.messagesEmitted += messagesEmitted * weight;
+        }
+
+        ActorProfile toProfile() {
+            return new ActorProfile(address, messagesHandled, executionTime, queueTime, messagesEmitted);
+        }
+    }
+
+    private static final class PendingWarmUp {
+        private final CompletableFuture<SourceContext> future;
+        private final CompletableFuture<Boolean> result;
 
-        public LoadedActor(SourceContext context) {
-            Validate.notNull(context);
-            this.context = context;
+        PendingWarmUp(CompletableFuture<SourceContext> future, CompletableFuture<Boolean> result) {
+            this.future = future;
+            this.result = result;
         }
     }
 }
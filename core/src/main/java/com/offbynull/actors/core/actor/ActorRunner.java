@@ -17,15 +17,30 @@
 package com.offbynull.actors.core.actor;
 
 import com.offbynull.actors.core.checkpoint.NullCheckpointer;
+import com.offbynull.actors.core.context.BatchedCreateActorCommand;
+import com.offbynull.actors.core.gateways.log.LogLevelFilter;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.coroutines.user.Coroutine;
 import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttle.Message;
 import com.offbynull.actors.core.shuttle.Shuttle;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.offbynull.actors.core.checkpoint.Checkpointer;
@@ -70,7 +85,12 @@ public final class ActorRunner implements AutoCloseable {
     
     private final String prefix;
     private final ActorThread[] threads;
+    private final Checkpointer checkpointer;
     private final RunnerShuttle shuttle;
+    private final Metrics metrics;
+    private final AtomicBoolean failureDumped;
+    private volatile Path failureDumpFile;
+    private volatile boolean closing;
 
     /**
      * Create an {@link ActorRunner} instance. with the number of threads set to the number of processors available on the system.
@@ -97,7 +117,8 @@ public final class ActorRunner implements AutoCloseable {
     }
 
     /**
-     * Create an {@link ActorRunner} instance.
+     * Create an {@link ActorRunner} instance. Equivalent to calling
+     * {@code ActorRunner.create(prefix, threadCount, checkpointer, PassivationPolicy.none())}.
      * @param prefix address prefix to use for actors that get added to this runner
      * @param threadCount number of threads to use for this runner
      * @param checkpointer checkpointer
@@ -106,17 +127,35 @@ public final class ActorRunner implements AutoCloseable {
      * @return new actor runner
      */
     public static ActorRunner create(String prefix, int threadCount, Checkpointer checkpointer) {
+        return ActorRunner.create(prefix, threadCount, checkpointer, PassivationPolicy.none());
+    }
+
+    /**
+     * Create an {@link ActorRunner} instance.
+     * @param prefix address prefix to use for actors that get added to this runner
+     * @param threadCount number of threads to use for this runner
+     * @param checkpointer checkpointer
+     * @param passivationPolicy policy that determines when idle actors get checkpointed and removed from memory
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code threadCount < 1}
+     * @return new actor runner
+     */
+    public static ActorRunner create(String prefix, int threadCount, Checkpointer checkpointer, PassivationPolicy passivationPolicy) {
         Validate.notNull(prefix);
         Validate.notNull(checkpointer);
+        Validate.notNull(passivationPolicy);
         Validate.isTrue(threadCount > 0);
 
-        ActorRunner ret = new ActorRunner(prefix, threadCount);
+        ActorRunner ret = new ActorRunner(prefix, threadCount, checkpointer);
         
         // Handler to call if any of the threads encounter a problem while they're running. If any thread encounters a critical error, then
         // all threads must be shut down!
         Runnable criticalFailureHandler = () -> {
             LOG.error("Critical failure handler invoked! Signalling all threads to close.");
             
+            // Dump diagnostic events if this is an actual failure (this handler also gets invoked when threads are interrupted on close)
+            ret.dumpEventsOnFailure();
+            
             for (ActorThread thread : ret.threads) {
                 // Wrap in try catch just to be safe... we want to make sure close is called on every thread.
                 try {
@@ -130,7 +169,8 @@ public final class ActorRunner implements AutoCloseable {
         // Start threads
         try {
             for (int i = 0; i < threadCount; i++) {
-                ret.threads[i] = ActorThread.create(prefix, ret.shuttle, criticalFailureHandler, ret, checkpointer);
+                ret.threads[i] = ActorThread.create(prefix, ret.shuttle, criticalFailureHandler, ret, checkpointer, passivationPolicy, i,
+                        ret.metrics);
             }
         } catch (RuntimeException e) {
             // A problem happened while creating new threads... shut down any threads that were created.
@@ -146,13 +186,17 @@ public final class ActorRunner implements AutoCloseable {
         return ret;
     }
     
-    private ActorRunner(String prefix, int threadCount) {
+    private ActorRunner(String prefix, int threadCount, Checkpointer checkpointer) {
         Validate.notNull(prefix);
+        Validate.notNull(checkpointer);
         Validate.isTrue(threadCount > 0);
         
         this.prefix = prefix;
+        this.checkpointer = checkpointer;
         this.threads = new ActorThread[threadCount];
         this.shuttle = new RunnerShuttle();
+        this.metrics = Metrics.create();
+        this.failureDumped = new AtomicBoolean();
     }
     
     /**
@@ -161,6 +205,8 @@ public final class ActorRunner implements AutoCloseable {
      */
     @Override
     public void close() throws InterruptedException {
+        closing = true;
+        
         // Signal threads to close
         for (ActorThread thread : threads) {
             thread.close();
@@ -190,6 +236,76 @@ public final class ActorRunner implements AutoCloseable {
         return shuttle;
     }
 
+    /**
+     * Set the file to dump diagnostic events to if this runner fails (see {@link #dumpEvents(java.nio.file.Path) }). If a file is set,
+     * events are dumped to it once, when the first internal thread encounters a critical failure. By default, no file is set, meaning
+     * events aren't dumped on failure.
+     * @param file file to dump events to on failure ({@code null} to not dump events on failure)
+     */
+    public void setFailureDumpFile(Path file) {
+        this.failureDumpFile = file;
+    }
+
+    /**
+     * Dump recent diagnostic events to a file. Each internal thread continuously records the last few thousand events it processed
+     * (messages received, actors fired, checkpoints saved/restored, actors added/removed, and shuttles added/removed) in to an in-memory
+     * ring. Recording is always on and doesn't lock or allocate.
+     * <p>
+     * The dump is a text file with one event per line, ordered by time: time (as returned by {@link System#nanoTime() }), thread
+     * index, event type, subject (actor id or shuttle prefix), and value (duration in nanoseconds for fired/saved/restored events,
+     * {@code 0} otherwise).
+     * @param file file to dump events to (overwritten if it already exists)
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if problems writing to {@code file}
+     */
+    public void dumpEvents(Path file) throws IOException {
+        Validate.notNull(file);
+        
+        List<ImmutablePair<Integer, EventRing.Event>> events = new ArrayList<>();
+        for (int i = 0; i < threads.length; i++) {
+            if (threads[i] == null) { // may happen if dumping because a thread failed while threads were still being created
+                continue;
+            }
+            for (EventRing.Event event : threads[i].getEvents()) {
+                events.add(ImmutablePair.of(i, event));
+            }
+        }
+        events.sort(Comparator.comparingLong(x -> x.right.getTime()));
+        
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (ImmutablePair<Integer, EventRing.Event> event : events) {
+                EventRing.Event e = event.right;
+                writer.write(e.getTime() + " " + event.left + " " + e.getType() + " " + e.getSubject() + " " + e.getValue() + "\n");
+            }
+        }
+    }
+
+    private void dumpEventsOnFailure() {
+        Path file = failureDumpFile;
+        if (closing || file == null || !failureDumped.compareAndSet(false, true)) {
+            return;
+        }
+        
+        try {
+            dumpEvents(file);
+            LOG.error("Diagnostic events dumped to {}", file);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Unable to dump diagnostic events", e);
+        }
+    }
+
+    /**
+     * Get the metrics for this runner. Metrics include the number of messages processed and dropped ({@code messages.processed} and
+     * {@code messages.dropped}), checkpoint latencies in nanoseconds ({@code checkpoint.save.time} and {@code checkpoint.restore.time}),
+     * and, for each internal thread {@code N}, time spent processing each message in nanoseconds ({@code thread.N.fire.time}), number
+     * of messages pulled in per batch ({@code thread.N.batch.size}), number of actors in memory ({@code thread.N.actors}), and queue
+     * depth and total messages queued ({@code thread.N.bus.depth} and {@code thread.N.bus.enqueued}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Queue an actor to be added. Note that this method queues an actor to be added rather than adding it right away. As such, this
      * method will likely return before the actor in question is added, and any error during encountered during adding will not be
@@ -206,6 +322,42 @@ public final class ActorRunner implements AutoCloseable {
         mapIdToActorThread(id).addActor(id, actor, primingMessages);
     }
 
+    /**
+     * Queue a batch of actors to be added. Equivalent to calling
+     * {@link #addActor(java.lang.String, com.offbynull.coroutines.user.Coroutine, java.lang.Object...) } for each actor in
+     * {@code actors}, but the actors are grouped by the thread they map to and each thread gets its batch in a single queue operation.
+     * Prefer this method when adding large numbers of actors (e.g. at startup).
+     * <p>
+     * If this runner has been shutdown prior to calling this method, this method does nothing.
+     * @param actors actors to add
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public void addActors(Collection<BatchedCreateActorCommand> actors) {
+        Validate.notNull(actors);
+        Validate.noNullElements(actors);
+        
+        List<AddActor>[] threadAddsList = new List[threads.length];
+        for (BatchedCreateActorCommand actor : actors) {
+            String id = actor.getId();
+            int idx = mapIdToIndex(id);
+            
+            if (threadAddsList[idx] == null) {
+                threadAddsList[idx] = new ArrayList<>();
+            }
+            threadAddsList[idx].add(new AddActor(id, actor.getActor(), actor.getPrimingMessages().toArray()));
+        }
+        
+        for (int i = 0; i < threads.length; i++) {
+            List<AddActor> threadAdds = threadAddsList[i];
+            if (threadAdds == null) {
+                continue;
+            }
+            
+            threads[i].addActors(threadAdds);
+        }
+    }
+
     /**
      * Queue an actor to be remove. Note that this method queues an actor to be removed rather than removing it right away. As such, this
      * method will likely return before the actor in question is removed, and any error during encountered during removal will not be
@@ -258,6 +410,132 @@ public final class ActorRunner implements AutoCloseable {
         }
     }
     
+    /**
+     * Queue a log level filter to be set. Actors in this runner use the filter to skip sending log messages for levels that aren't enabled
+     * (see {@link com.offbynull.actors.core.context.Context#isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) }).
+     * Typically, the filter passed in is the one published by the log gateway that actors in this runner log to
+     * ({@link com.offbynull.actors.core.gateways.log.LogGateway#getLogLevelFilter() }).
+     * <p>
+     * Note that this operation queues the filter to be set rather than setting it right away. By default, no filter is set, meaning that
+     * all log levels are considered enabled.
+     * <p>
+     * If this runner has been shutdown prior to calling this method, this method does nothing.
+     * @param logLevelFilter log level filter ({@code null} to remove the filter)
+     */
+    public void setLogLevelFilter(LogLevelFilter logLevelFilter) {
+        for (ActorThread thread : threads) {
+            thread.setLogLevelFilter(logLevelFilter);
+        }
+    }
+
+    /**
+     * Queue a change to per-actor profiling. When profiling is on, each internal thread tracks (per actor) the number of messages
+     * handled, the time spent handling them, the time they spent queued, and the number of messages sent out as a result. Use
+     * {@link #hottest(int) } to query what's been tracked.
+     * <p>
+     * Profiling every message adds a small amount of overhead to each message. To keep overhead low (e.g. in production), set
+     * {@code interval} to only profile every {@code interval}th message processed by each thread -- the stats collected get scaled up
+     * accordingly, such that they're estimates of the true values.
+     * <p>
+     * Note that this operation queues the change rather than applying it right away. By default, profiling is off. Turning profiling off
+     * discards any stats collected.
+     * <p>
+     * If this runner has been shutdown prior to calling this method, this method does nothing.
+     * @param interval profile every {@code interval}th message ({@code 1} profiles every message, {@code 0} turns profiling off)
+     * @throws IllegalArgumentException if {@code interval < 0}
+     */
+    public void setProfiling(int interval) {
+        Validate.isTrue(interval >= 0);
+        for (ActorThread thread : threads) {
+            thread.setProfiling(interval);
+        }
+    }
+
+    /**
+     * Get the actors that have spent the most time handling messages while profiling was on (see {@link #setProfiling(int) }). Actors
+     * that were removed or shut down are not included.
+     * @param count maximum number of actors to return
+     * @return profiles of up to {@code count} actors, ordered by execution time (highest first)
+     * @throws IllegalArgumentException if {@code count < 0}
+     */
+    public List<ActorProfile> hottest(int count) {
+        Validate.isTrue(count >= 0);
+        
+        List<ActorProfile> profiles = new ArrayList<>();
+        for (ActorThread thread : threads) {
+            profiles.addAll(thread.getProfiles());
+        }
+        
+        profiles.sort(Comparator.comparingLong(ActorProfile::getExecutionTime).reversed());
+        return new ArrayList<>(profiles.subList(0, Math.min(count, profiles.size())));
+    }
+
+    /**
+     * Restore the actors most recently checkpointed (see {@link Checkpointer#listRecent(int) }) into memory before traffic arrives for
+     * them. Equivalent to calling {@code warmUp(checkpointer.listRecent(count), parallelism)}.
+     * @param count maximum number of actors to restore
+     * @param parallelism number of actors to restore concurrently
+     * @return future that completes with the number of actors restored once warm-up finishes
+     * @throws IllegalArgumentException if {@code count < 0} or {@code parallelism <= 0}
+     * @see #warmUp(java.util.Collection, int)
+     */
+    public CompletableFuture<Integer> warmUp(int count, int parallelism) {
+        Validate.isTrue(count >= 0);
+        Validate.isTrue(parallelism > 0);
+        return warmUp(checkpointer.listRecent(count), parallelism);
+    }
+
+    /**
+     * Restore the actors at the addresses specified into memory before traffic arrives for them. Restoring is done on a temporary pool of
+     * {@code parallelism} threads, but each restored actor is handed over to (and its restore logic is run by) the thread that owns it.
+     * Actors that are already in memory, that aren't checkpointed, or that fail to restore are skipped.
+     * <p>
+     * Either wait for the returned future before sending traffic (e.g. right after startup), or let warm-up proceed while traffic flows.
+     * If a message arrives for an actor that's being warmed up, the in-progress restore is waited on rather than repeated.
+     * <p>
+     * If this runner has been shutdown prior to calling this method, the returned future may never complete.
+     * @param addresses addresses of actors to restore
+     * @param parallelism number of actors to restore concurrently
+     * @return future that completes with the number of actors restored once warm-up finishes
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     * @throws IllegalArgumentException if {@code parallelism <= 0}, or if any address isn't an actor address for this runner
+     */
+    public CompletableFuture<Integer> warmUp(Collection<Address> addresses, int parallelism) {
+        Validate.notNull(addresses);
+        Validate.noNullElements(addresses);
+        Validate.isTrue(parallelism > 0);
+        Address runnerAddress = Address.of(prefix);
+        for (Address address : addresses) {
+            Validate.isTrue(address.size() == 2 && runnerAddress.isPrefixOf(address), "Not an actor in this runner: %s", address);
+        }
+
+        if (addresses.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        // Restores get submitted to this pool later on by the threads that own the actors, so it can't be shutdown until they're all done.
+        // Its threads are daemons and exit once idle, so the pool doesn't hold anything up if this runner closes before warm-up finishes.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    thread.setName(ActorRunner.class.getSimpleName() + "-warmUp");
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(addresses.size());
+        for (Address address : addresses) {
+            String id = address.getElement(1);
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            results.add(result);
+            mapIdToActorThread(id).warmUpActor(id, executor, result);
+        }
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                .whenComplete((v, t) -> executor.shutdown())
+                .thenApply(v -> (int) results.stream().filter(CompletableFuture::join).count());
+    }
+
     private ActorThread mapIdToActorThread(String id) {
         int idx = mapIdToIndex(id);
         return threads[idx];
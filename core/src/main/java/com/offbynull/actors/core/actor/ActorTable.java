@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import com.offbynull.actors.core.context.SourceContext;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.Validate;
+
+// Actors loaded in to memory by an ActorRunnable, keyed by id. Open-addressing (linear probing) hash table laid out as parallel arrays, so
+// there's no per-actor entry/wrapper object and the hash of each id is kept alongside it (ids only get compared when hashes match).
+// Removals shift later entries of the probe sequence back rather than leaving tombstones.
+//
+// If ordered, actors are also kept in least-recently-used order (a doubly-linked list threaded through the slots) along with the time they
+// were last active, for passivation.
+//
+// Slots are only valid until the next put/remove (entries move around when removing or resizing).
+final class ActorTable {
+
+    static final int NIL = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final boolean ordered;
+
+    private String[] ids; // null if slot is empty
+    private int[] hashes;
+    private SourceContext[] contexts;
+    private long[] lastActiveTimes; // null if not ordered
+    private int[] befores; // null if not ordered
+    private int[] afters; // null if not ordered
+    private int head = NIL; // least recently used
+    private int tail = NIL; // most recently used
+
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    ActorTable(boolean ordered) {
+        this.ordered = ordered;
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isOrdered() {
+        return ordered;
+    }
+
+    int find(String id) {
+        Validate.notNull(id);
+
+        int hash = hash(id);
+        for (int slot = hash & mask; ids[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && ids[slot].equals(id)) {
+                return slot;
+            }
+        }
+        return NIL;
+    }
+
+    SourceContext get(String id) {
+        int slot = find(id);
+        return slot == NIL ? null : contexts[slot];
+    }
+
+    boolean contains(String id) {
+        return find(id) != NIL;
+    }
+
+    // Adds to the most recently used end. Returns false (and does nothing) if id is already present.
+    boolean add(String id, SourceContext context, long time) {
+        Validate.notNull(id);
+        Validate.notNull(context);
+
+        int hash = hash(id);
+        int slot = hash & mask;
+        for (; ids[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && ids[slot].equals(id)) {
+                return false;
+            }
+        }
+
+        ids[slot] = id;
+        hashes[slot] = hash;
+        contexts[slot] = context;
+        if (ordered) {
+            lastActiveTimes[slot] = time;
+            linkLast(slot);
+        }
+        size++;
+
+        if (size > resizeThreshold) {
+            resize(ids.length * 2);
+        }
+        return true;
+    }
+
+    SourceContext remove(String id) {
+        int slot = find(id);
+        if (slot == NIL) {
+            return null;
+        }
+        SourceContext context = contexts[slot];
+        removeAt(slot);
+        return context;
+    }
+
+    String idAt(int slot) {
+        return ids[slot];
+    }
+
+    SourceContext contextAt(int slot) {
+        return contexts[slot];
+    }
+
+    long lastActiveTimeAt(int slot) {
+        Validate.validState(ordered);
+        return lastActiveTimes[slot];
+    }
+
+    // Marks as active at time and moves to the most recently used end (does nothing if not ordered).
+    void touchAt(int slot, long time) {
+        if (!ordered) {
+            return;
+        }
+        lastActiveTimes[slot] = time;
+        if (slot != tail) {
+            unlink(slot);
+            linkLast(slot);
+        }
+    }
+
+    // Least recently used slot, or NIL if empty.
+    int eldest() {
+        Validate.validState(ordered);
+        return head;
+    }
+
+    void removeAt(int slot) {
+        if (ordered) {
+            unlink(slot);
+        }
+        size--;
+
+        // Shift back any entries after the removed one whose probe sequence passes through the freed slot
+        int free = slot;
+        for (int i = (free + 1) & mask; ids[i] != null; i = (i + 1) & mask) {
+            int ideal = hashes[i] & mask;
+            boolean reachable = free <= i ? (free < ideal && ideal <= i) : (free < ideal || ideal <= i);
+            if (!reachable) {
+                move(i, free);
+                free = i;
+            }
+        }
+
+        ids[free] = null;
+        contexts[free] = null;
+    }
+
+    void forEach(Consumer<SourceContext> consumer) {
+        Validate.notNull(consumer);
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != null) {
+                consumer.accept(contexts[slot]);
+            }
+        }
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        hashes[to] = hashes[from];
+        contexts[to] = contexts[from];
+        if (ordered) {
+            lastActiveTimes[to] = lastActiveTimes[from];
+            int before = befores[from];
+            int after = afters[from];
+            befores[to] = before;
+            afters[to] = after;
+            if (before == NIL) {
+                head = to;
+            } else {
+                afters[before] = to;
+            }
+            if (after == NIL) {
+                tail = to;
+            } else {
+                befores[after] = to;
+            }
+        }
+    }
+
+    private void linkLast(int slot) {
+        befores[slot] = tail;
+        afters[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            afters[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = befores[slot];
+        int after = afters[slot];
+        if (before == NIL) {
+            head = after;
+        } else {
+            afters[before] = after;
+        }
+        if (after == NIL) {
+            tail = before;
+        } else {
+            befores[after] = before;
+        }
+    }
+
+    private void resize(int capacity) {
+        String[] oldIds = ids;
+        int[] oldHashes = hashes;
+        SourceContext[] oldContexts = contexts;
+        long[] oldLastActiveTimes = lastActiveTimes;
+        int[] oldAfters = afters;
+        int oldHead = head;
+
+        allocate(capacity);
+
+        if (ordered) {
+            // Re-add in least-recently-used order so the order carries over
+            for (int old = oldHead; old != NIL; old = oldAfters[old]) {
+                int slot = insertForResize(oldIds[old], oldHashes[old], oldContexts[old]);
+                lastActiveTimes[slot] = oldLastActiveTimes[old];
+                linkLast(slot);
+            }
+        } else {
+            for (int old = 0; old < oldIds.length; old++) {
+                if (oldIds[old] != null) {
+                    insertForResize(oldIds[old], oldHashes[old], oldContexts[old]);
+                }
+            }
+        }
+    }
+
+    private int insertForResize(String id, int hash, SourceContext context) {
+        int slot = hash & mask;
+        while (ids[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        hashes[slot] = hash;
+        contexts[slot] = context;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        ids = new String[capacity];
+        hashes = new int[capacity];
+        contexts = new SourceContext[capacity];
+        if (ordered) {
+            lastActiveTimes = new long[capacity];
+            befores = new int[capacity];
+            afters = new int[capacity];
+        }
+        head = NIL;
+        tail = NIL;
+        mask = capacity - 1;
+        resizeThreshold = capacity / 3 * 2; // keep at most 2/3 full, probe sequences get long past that
+    }
+
+    private static int hash(String id) {
+        // String caches its hash code, so this is cheap for ids pulled out of addresses. Scramble it since slot = hash & mask only uses the
+        // low bits.
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
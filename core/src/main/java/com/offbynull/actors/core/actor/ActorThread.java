@@ -17,8 +17,13 @@
 package com.offbynull.actors.core.actor;
 
 import com.offbynull.coroutines.user.Coroutine;
+import com.offbynull.actors.core.gateways.log.LogLevelFilter;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttles.simple.Bus;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,16 +52,22 @@ final class ActorThread {
             Shuttle selfShuttle,
             Runnable failureHandler,
             ActorRunner owner,
-            Checkpointer checkpointer) {
+            Checkpointer checkpointer,
+            PassivationPolicy passivationPolicy,
+            int index,
+            Metrics metrics) {
         Validate.notNull(prefix);
         Validate.notNull(selfShuttle);
         Validate.notNull(failureHandler);
         Validate.notNull(owner);
         Validate.notNull(checkpointer);
+        Validate.notNull(passivationPolicy);
+        Validate.notNull(metrics);
         
         // create runnable
         Bus bus = new Bus();
-        ActorRunnable runnable = new ActorRunnable(prefix, bus, failureHandler, owner, checkpointer);
+        ActorRunnable runnable = new ActorRunnable(prefix, bus, failureHandler, owner, checkpointer, passivationPolicy, index,
+                metrics);
 
         // add in our own shuttle as well so we can send msgs to ourselves
         bus.add(new AddShuttle(selfShuttle));
@@ -102,11 +113,24 @@ final class ActorThread {
         runnable.addActor(id, coroutine, primingMessages);
     }
 
+    public void addActors(List<AddActor> adds) {
+        Validate.notNull(adds);
+        Validate.noNullElements(adds);
+        runnable.addActors(adds);
+    }
+
     public void removeActor(String id) {
         Validate.notNull(id);
         runnable.removeActor(id);
     }
 
+    public void warmUpActor(String id, Executor executor, CompletableFuture<Boolean> result) {
+        Validate.notNull(id);
+        Validate.notNull(executor);
+        Validate.notNull(result);
+        runnable.warmUpActor(id, executor, result);
+    }
+
     public void addOutgoingShuttle(Shuttle shuttle) {
         Validate.notNull(shuttle);
         runnable.addOutgoingShuttle(shuttle);
@@ -116,5 +140,21 @@ final class ActorThread {
         Validate.notNull(prefix);
         runnable.removeOutgoingShuttle(prefix);
     }
+
+    public void setProfiling(int interval) {
+        runnable.setProfiling(interval);
+    }
+
+    public List<EventRing.Event> getEvents() {
+        return runnable.getEvents();
+    }
+
+    public List<ActorProfile> getProfiles() {
+        return runnable.getProfiles();
+    }
+
+    public void setLogLevelFilter(LogLevelFilter logLevelFilter) {
+        runnable.setLogLevelFilter(logLevelFilter);
+    }
     
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.Validate;
+
+// Fixed-size ring of diagnostic events. Written to by a single thread (the owning ActorRunnable's thread) without locks or allocation,
+// and readable from any thread. Events are stored in parallel primitive arrays. A slot's fields are written before the write position is
+// published (ordered store), and readers discard any slot that may have been overwritten while they were copying it.
+final class EventRing {
+
+    enum Type {
+        MESSAGE_RECEIVED,
+        ACTOR_FIRED,
+        CHECKPOINT_SAVED,
+        CHECKPOINT_RESTORED,
+        ACTOR_ADDED,
+        ACTOR_REMOVED,
+        SHUTTLE_ADDED,
+        SHUTTLE_REMOVED
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final int mask;
+    private final long[] times;
+    private final byte[] types;
+    private final String[] subjects;
+    private final long[] values;
+    private final AtomicLong position; // next slot to write -- only ever incremented by the writer
+
+    EventRing(int capacity) {
+        Validate.isTrue(capacity > 0 && Integer.bitCount(capacity) == 1); // must be power of 2
+        mask = capacity - 1;
+        times = new long[capacity];
+        types = new byte[capacity];
+        subjects = new String[capacity];
+        values = new long[capacity];
+        position = new AtomicLong();
+    }
+
+    // Must only be called by the writer thread
+    void record(Type type, String subject, long value) {
+        long pos = position.get();
+        int idx = (int) (pos & mask);
+        times[idx] = System.nanoTime();
+        types[idx] = (byte) type.ordinal();
+        subjects[idx] = subject;
+        values[idx] = value;
+        position.lazySet(pos + 1L);
+    }
+
+    // Can be called by any thread
+    List<Event> read() {
+        int capacity = mask + 1;
+        long end = position.get();
+        long start = Math.max(0L, end - capacity);
+
+        List<Event> ret = new ArrayList<>((int) (end - start));
+        for (long pos = start; pos < end; pos++) {
+            int idx = (int) (pos & mask);
+            ret.add(new Event(times[idx], TYPES[types[idx]], subjects[idx], values[idx]));
+        }
+
+        // Anything that was written while copying may have overwritten the oldest slots copied -- discard those (including the slot
+        // that the writer may be in the middle of writing)
+        long overwrittenEnd = position.get() - capacity + 1L;
+        int discard = (int) Math.min(ret.size(), Math.max(0L, overwrittenEnd - start));
+        return new ArrayList<>(ret.subList(discard, ret.size()));
+    }
+
+    static final class Event {
+        private final long time;
+        private final Type type;
+        private final String subject;
+        private final long value;
+
+        Event(long time, Type type, String subject, long value) {
+            this.time = time;
+            this.type = type;
+            this.subject = subject;
+            this.value = value;
+        }
+
+        long getTime() {
+            return time;
+        }
+
+        Type getType() {
+            return type;
+        }
+
+        String getSubject() {
+            return subject;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return time + " " + type + " " + subject + " " + value;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import java.time.Duration;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Policy that determines when {@link ActorRunner} automatically checkpoints idle actors and removes them from memory (passivates them).
+ * Passivated actors are restored from the runner's checkpointer the next time a message arrives for them, just as if they had requested
+ * a checkpoint themselves (except that no restore logic is performed).
+ * <p>
+ * Each of the runner's internal threads tracks the actors it holds in least-recently-used order. An actor is passivated once...
+ * <ul>
+ * <li>the thread holds more than {@link #getMaxResidentActors() } actors and the actor is the least recently used.</li>
+ * <li>the actor hasn't received a message for longer than {@link #getIdleTimeout() }.</li>
+ * </ul>
+ * Actors are passivated through the runner's checkpointer, so they need to be serializable. If an actor can't be checkpointed, it stays
+ * in memory. Passivation does nothing when the runner uses a {@link com.offbynull.actors.core.checkpoint.NullCheckpointer}.
+ * <p>
+ * Since a passivated actor is no longer in memory, removing an actor that isn't in memory deletes its checkpoint.
+ * <p>
+ * This class is immutable.
+ * @author Kasra Faghihi
+ */
+public final class PassivationPolicy {
+    
+    private static final PassivationPolicy NONE = new PassivationPolicy(Integer.MAX_VALUE, null);
+    
+    private final int maxResidentActors;
+    private final Duration idleTimeout;
+    
+    /**
+     * Get a policy that never passivates actors.
+     * @return passivation policy that does nothing
+     */
+    public static PassivationPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Create a {@link PassivationPolicy} instance.
+     * @param maxResidentActors maximum number of actors each of the runner's internal threads keeps in memory
+     * @param idleTimeout amount of time an actor can go without receiving a message before it gets passivated ({@code null} to never
+     * passivate actors because they're idle)
+     * @return new passivation policy
+     * @throws IllegalArgumentException if {@code maxResidentActors < 1}, or if {@code idleTimeout} is negative or zero
+     */
+    public static PassivationPolicy create(int maxResidentActors, Duration idleTimeout) {
+        Validate.isTrue(maxResidentActors > 0);
+        Validate.isTrue(idleTimeout == null || (!idleTimeout.isNegative() && !idleTimeout.isZero()));
+        return new PassivationPolicy(maxResidentActors, idleTimeout);
+    }
+
+    private PassivationPolicy(int maxResidentActors, Duration idleTimeout) {
+        this.maxResidentActors = maxResidentActors;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Get the maximum number of actors each of the runner's internal threads keeps in memory.
+     * @return maximum number of resident actors per thread
+     */
+    public int getMaxResidentActors() {
+        return maxResidentActors;
+    }
+
+    /**
+     * Get the amount of time an actor can go without receiving a message before it gets passivated.
+     * @return idle timeout, or {@code null} if actors aren't passivated for being idle
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "PassivationPolicy{" + "maxResidentActors=" + maxResidentActors + ", idleTimeout=" + idleTimeout + '}';
+    }
+}
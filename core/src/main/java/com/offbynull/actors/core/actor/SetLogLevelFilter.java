@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2015, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import com.offbynull.actors.core.gateways.log.LogLevelFilter;
+
+
+final class SetLogLevelFilter {
+    private final LogLevelFilter logLevelFilter;
+
+    public SetLogLevelFilter(LogLevelFilter logLevelFilter) {
+        // logLevelFilter can be null
+        this.logLevelFilter = logLevelFilter;
+    }
+
+    public LogLevelFilter getLogLevelFilter() {
+        return logLevelFilter;
+    }
+
+    @Override
+    public String toString() {
+        return "SetLogLevelFilterMessage{" + "logLevelFilter=" + logLevelFilter + '}';
+    }
+    
+}
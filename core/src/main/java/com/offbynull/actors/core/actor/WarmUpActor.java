@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.actor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.apache.commons.lang3.Validate;
+
+final class WarmUpActor {
+    private final String id;
+    private final Executor executor;
+    private final CompletableFuture<Boolean> result;
+
+    public WarmUpActor(String id, Executor executor, CompletableFuture<Boolean> result) {
+        Validate.notNull(id);
+        Validate.notNull(executor);
+        Validate.notNull(result);
+        this.id = id;
+        this.executor = executor;
+        this.result = result;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public CompletableFuture<Boolean> getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpActor{" + "id=" + id + '}';
+    }
+    
+}
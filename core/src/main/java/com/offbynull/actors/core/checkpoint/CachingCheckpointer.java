@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+import com.offbynull.actors.core.context.Serializer;
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps recently saved actors in a bounded in-memory cache in front of another {@link Checkpointer}, so that actors which bounce between
+ * being checkpointed and being restored don't have to go to the backing checkpointer's storage (e.g. the disk for
+ * {@link FileSystemCheckpointer}) every time.
+ * <p>
+ * Saved actors are serialized and held off-heap (in direct buffers). Changes are written to the backing checkpointer by a background
+ * thread (write-behind), in the order they were made for each actor. Once the serialized actors held in memory go over the maximum cache
+ * size, the least recently used actors that have already been written to the backing checkpointer are evicted from the cache. If the
+ * background thread falls so far behind that the cache can't be brought under its maximum size, {@link #save(SourceContext) } blocks
+ * until it catches up.
+ * <p>
+ * If the backing checkpointer fails to take a change, that change stays in the cache (it can't be evicted) and writing it out is retried
+ * periodically. While the backing checkpointer is failing, {@link #save(SourceContext) } returns {@code false} so that callers keep their
+ * actors in memory rather than piling up more changes that can't be written out.
+ * <p>
+ * If the backing checkpointer is a {@link FileSystemCheckpointer} or {@link LogStructuredCheckpointer} with a serializer of the same class
+ * as this checkpointer's serializer, cached actors are handed to it as-is rather than being unserialized and serialized again.
+ * <p>
+ * Changes that haven't been written to the backing checkpointer yet are lost if the process dies. {@link #close() } waits until all
+ * changes are written (or fail to be written) before closing the backing checkpointer.
+ * @author Kasra Faghihi
+ */
+public final class CachingCheckpointer implements Checkpointer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCheckpointer.class);
+    
+    private static final long RETRY_DELAY = 100L; // in millis, how long to wait before retrying after a failed write out
+    
+    private final Checkpointer backing;
+    private final Serializer serializer;
+    private final long maxCacheSize;
+    
+    private final Lock lock;
+    private final Condition dirtyCondition; // signalled when an entry becomes dirty or on close
+    private final Condition writtenCondition; // signalled when an entry gets written out
+    private final LinkedHashMap<Address, CacheEntry> entries; // in least-recently-used order
+    private final LinkedHashSet<Address> writeQueue; // entries with changes waiting to be written out, in the order they were changed
+    private long cacheSize; // bytes held by entries
+    private long dirtyCount; // entries not yet written out
+    private boolean failing; // last write out failed
+    private boolean closed;
+    
+    private final Thread writeThread;
+
+    /**
+     * Create a {@link CachingCheckpointer} object.
+     * @param backing checkpointer to cache (closed when the returned checkpointer gets closed)
+     * @param serializer serializer to use for holding actors in memory
+     * @param maxCacheSize maximum number of bytes of serialized actors to keep in memory
+     * @return new instance of {@link CachingCheckpointer}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code maxCacheSize < 0}
+     */
+    public static CachingCheckpointer create(Checkpointer backing, Serializer serializer, long maxCacheSize) {
+        Validate.notNull(backing);
+        Validate.notNull(serializer);
+        Validate.isTrue(maxCacheSize >= 0L);
+        
+        CachingCheckpointer ret = new CachingCheckpointer(backing, serializer, maxCacheSize);
+        ret.writeThread.start();
+        return ret;
+    }
+
+    private CachingCheckpointer(Checkpointer backing, Serializer serializer, long maxCacheSize) {
+        this.backing = backing;
+        this.serializer = serializer;
+        this.maxCacheSize = maxCacheSize;
+        this.lock = new ReentrantLock();
+        this.dirtyCondition = lock.newCondition();
+        this.writtenCondition = lock.newCondition();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.writeQueue = new LinkedHashSet<>();
+        this.writeThread = new Thread(this::writeBehind);
+        this.writeThread.setDaemon(true);
+        this.writeThread.setName(CachingCheckpointer.class.getSimpleName());
+    }
+
+    @Override
+    public boolean save(SourceContext ctx) {
+        Validate.notNull(ctx);
+        Validate.isTrue(ctx.isRoot());
+        
+        byte[] data = serializer.serialize(ctx);
+        ByteBuffer blob = ByteBuffer.allocateDirect(data.length);
+        blob.put(data).flip();
+
+        lock.lock();
+        try {
+            Validate.validState(!closed, "Closed");
+            if (failing) {
+                LOG.warn("Backing checkpointer is failing, not saving {}", ctx.self());
+                return false;
+            }
+            
+            CacheEntry entry = entries.computeIfAbsent(ctx.self(), k -> new CacheEntry());
+            update(ctx.self(), entry, Operation.SAVE, blob);
+            
+            // Evict least-recently-used entries that have already been written out. If that isn't enough to get under the limit, wait for
+            // the write thread to write more out (unless writes are failing, in which case the entry stays pinned until a retry works).
+            evict();
+            while (cacheSize > maxCacheSize && dirtyCount > 0L && !failing && !closed) {
+                writtenCondition.await(100L, TimeUnit.MILLISECONDS);
+                evict();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        
+        return true;
+    }
+
+    @Override
+    public SourceContext restore(Address address) {
+        Validate.notNull(address);
+        
+        byte[] data;
+        lock.lock();
+        try {
+            CacheEntry entry = entries.get(address);
+            if (entry == null) {
+                // Not in cache, meaning that there's nothing pending for this address either, so go to backing checkpointer. Done outside
+                // of the lock (see below).
+                data = null;
+            } else if (entry.blob == null) {
+                return null; // already restored or deleted
+            } else {
+                // Mark as restored. The write thread will restore from the backing checkpointer as well (discarding the result) so that
+                // the backing checkpointer stops treating it as loadable.
+                data = new byte[entry.blob.remaining()];
+                entry.blob.duplicate().get(data);
+                update(address, entry, Operation.RESTORE, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (data == null) {
+            return backing.restore(address);
+        }
+
+        try {
+            return serializer.unserialize(data);
+        } catch (IllegalArgumentException iae) {
+            LOG.error("Unable to unserialize cached {}", address, iae);
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(Address address) {
+        Validate.notNull(address);
+        
+        lock.lock();
+        try {
+            CacheEntry entry = entries.computeIfAbsent(address, k -> new CacheEntry());
+            update(address, entry, Operation.DELETE, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Address> listRecent(int max) {
+        Validate.isTrue(max >= 0);
+        
+        // Cached actors first (most recently used first), followed by whatever the backing checkpointer has that isn't in the cache
+        Set<Address> ignore = new HashSet<>();
+        LinkedList<Address> ret = new LinkedList<>();
+        lock.lock();
+        try {
+            for (Entry<Address, CacheEntry> entry : entries.entrySet()) {
+                ignore.add(entry.getKey()); // cached entries that aren't loadable (restored/deleted) shouldn't come from backing either
+                if (entry.getValue().blob != null) {
+                    ret.addFirst(entry.getKey());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        while (ret.size() > max) {
+            ret.removeLast();
+        }
+        for (Address address : backing.listRecent(max)) {
+            if (ret.size() == max) {
+                break;
+            }
+            if (!ignore.contains(address)) {
+                ret.add(address);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Writes out all pending changes to the backing checkpointer, then closes the backing checkpointer.
+     * @throws Exception if the backing checkpointer fails to close
+     */
+    @Override
+    public void close() throws Exception {
+        lock.lock();
+        try {
+            closed = true;
+            dirtyCondition.signalAll();
+            writtenCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        
+        writeThread.join();
+        backing.close();
+    }
+
+    // must be called while holding lock
+    private void update(Address address, CacheEntry entry, Operation operation, ByteBuffer blob) {
+        if (entry.blob != null) {
+            cacheSize -= entry.blob.capacity();
+        }
+        if (blob != null) {
+            cacheSize += blob.capacity();
+        }
+        if (!entry.dirty) {
+            dirtyCount++;
+        }
+        if (writeQueue.add(address)) {
+            dirtyCondition.signal();
+        }
+        
+        entry.blob = blob;
+        entry.operation = operation;
+        entry.dirty = true;
+        entry.version++;
+    }
+
+    // must be called while holding lock
+    private void evict() {
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while (cacheSize > maxCacheSize && it.hasNext()) {
+            CacheEntry entry = it.next();
+            if (!entry.dirty && !entry.writing) {
+                if (entry.blob != null) {
+                    cacheSize -= entry.blob.capacity();
+                }
+                it.remove();
+            }
+        }
+    }
+
+    private void writeBehind() {
+        while (true) {
+            Address address;
+            CacheEntry entry;
+            Operation operation;
+            byte[] data;
+            long version;
+
+            lock.lock();
+            try {
+                while (writeQueue.isEmpty()) {
+                    if (closed) {
+                        return; // nothing left to write out
+                    }
+                    dirtyCondition.awaitUninterruptibly();
+                }
+                
+                Iterator<Address> queueIt = writeQueue.iterator();
+                address = queueIt.next();
+                queueIt.remove();
+                entry = entries.get(address);
+                operation = entry.operation;
+                if (entry.blob != null) {
+                    data = new byte[entry.blob.remaining()];
+                    entry.blob.duplicate().get(data);
+                } else {
+                    data = null;
+                }
+                version = entry.version;
+                entry.writing = true;
+            } finally {
+                lock.unlock();
+            }
+            
+            boolean written;
+            try {
+                switch (operation) {
+                    case SAVE:
+                        written = saveToBacking(address, data);
+                        if (!written) {
+                            LOG.warn("Backing checkpointer failed to save {}", address);
+                        }
+                        break;
+                    case RESTORE:
+                        backing.restore(address);
+                        written = true;
+                        break;
+                    case DELETE:
+                        backing.delete(address);
+                        written = true;
+                        break;
+                    default:
+                        throw new IllegalStateException();
+                }
+            } catch (RuntimeException re) {
+                LOG.error("Unable to write {} {} to backing checkpointer", operation, address, re);
+                written = false;
+            }
+            
+            lock.lock();
+            try {
+                entry.writing = false;
+                failing = !written;
+                if (entry.version == version) {
+                    if (written || closed) {
+                        if (!written) {
+                            LOG.error("Closing, dropping {} {} that couldn't be written to backing checkpointer", operation, address);
+                        }
+                        entry.dirty = false;
+                        dirtyCount--;
+                        if (entry.blob == null) {
+                            entries.remove(address); // restored/deleted entries only need to stick around until written out
+                        }
+                    } else {
+                        writeQueue.add(address); // still dirty, so it stays pinned in the cache until the retry works
+                    }
+                }
+                writtenCondition.signalAll();
+                
+                if (failing && !closed) {
+                    writtenCondition.await(RETRY_DELAY, TimeUnit.MILLISECONDS); // signalled on close
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean saveToBacking(Address address, byte[] data) {
+        // Hand over the already serialized actor if the backing checkpointer serializes the same way
+        if (backing instanceof FileSystemCheckpointer) {
+            FileSystemCheckpointer fsBacking = (FileSystemCheckpointer) backing;
+            if (fsBacking.getSerializer().getClass() == serializer.getClass()) {
+                return fsBacking.save(address, data);
+            }
+        } else if (backing instanceof LogStructuredCheckpointer) {
+            LogStructuredCheckpointer lsBacking = (LogStructuredCheckpointer) backing;
+            if (lsBacking.getSerializer().getClass() == serializer.getClass()) {
+                return lsBacking.save(address, data);
+            }
+        }
+        return backing.save(serializer.unserialize(data));
+    }
+
+    private enum Operation {
+        SAVE,
+        RESTORE,
+        DELETE
+    }
+
+    private static final class CacheEntry {
+        private ByteBuffer blob; // serialized context, null if restored or deleted (not loadable)
+        private Operation operation; // operation to perform on backing checkpointer
+        private boolean dirty; // operation not yet written out
+        private boolean writing; // operation being written out
+        private long version; // incremented on each change, used to detect changes made while writing out
+    }
+}
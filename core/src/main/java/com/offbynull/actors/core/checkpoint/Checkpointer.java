@@ -18,6 +18,9 @@ package com.offbynull.actors.core.checkpoint;
 
 import com.offbynull.actors.core.context.SourceContext;
 import com.offbynull.actors.core.shuttle.Address;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
 
 /**
  * Checkpoints and restores actors.
@@ -58,4 +61,18 @@ public interface Checkpointer extends AutoCloseable {
      * @throws NullPointerException if any argument is {@code null}
      */
     void delete(Address address);
+
+    /**
+     * List the addresses of the most recently checkpointed actors, most recent first. Used to decide which actors to restore ahead of time
+     * (e.g. when warming up a runner after a restart).
+     * <p>
+     * The default implementation returns an empty list (no information available).
+     * @param max maximum number of addresses to return
+     * @return addresses of up to {@code max} restorable actors, most recently checkpointed first
+     * @throws IllegalArgumentException if {@code max < 0}
+     */
+    default List<Address> listRecent(int max) {
+        Validate.isTrue(max >= 0);
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.Validate;
+
+// Encodes a serialized actor as a base image followed by a chain of deltas. Images are split into fixed-size chunks and each delta only
+// holds the chunks that changed since the previous image (chunks are compared byte-for-byte against the previous image, which is decoded
+// from the chain being appended to). The chain is laid out as...
+//
+//   MAGIC
+//   record*   -- record = type (1 byte), payload length (4 bytes), payload CRC32 (4 bytes), payload
+//
+// ... where the first record is a BASE record (payload = full image) and any records after it are DELTA records (payload = new image
+// length, followed by (chunk index, chunk data) pairs for each changed chunk). Anything that doesn't start with MAGIC is treated as a
+// plain full image.
+final class DeltaChain {
+
+    static final int CHUNK_SIZE = 256;
+
+    private static final int MAGIC = 0x43484E31;
+    private static final byte BASE = 0;
+    private static final byte DELTA = 1;
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    private DeltaChain() {
+        // do nothing
+    }
+
+    static byte[] encodeBase(byte[] image) {
+        Validate.notNull(image);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + RECORD_HEADER_SIZE + image.length);
+        buffer.putInt(MAGIC);
+        putRecord(buffer, BASE, image);
+        return buffer.array();
+    }
+
+    static byte[] encodeDelta(byte[] image, byte[] oldImage) {
+        Validate.notNull(image);
+        Validate.notNull(oldImage);
+
+        int chunks = (image.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        boolean[] changed = new boolean[chunks];
+        int changedSize = 0;
+        for (int i = 0; i < chunks; i++) {
+            changed[i] = !chunkEquals(image, oldImage, i * CHUNK_SIZE);
+            if (changed[i]) {
+                changedSize += 4 + Math.min(CHUNK_SIZE, image.length - i * CHUNK_SIZE);
+            }
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(4 + changedSize);
+        payload.putInt(image.length);
+        for (int i = 0; i < chunks; i++) {
+            if (changed[i]) {
+                int start = i * CHUNK_SIZE;
+                payload.putInt(i);
+                payload.put(image, start, Math.min(CHUNK_SIZE, image.length - start));
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.capacity());
+        putRecord(buffer, DELTA, payload.array());
+        return buffer.array();
+    }
+
+    static Chain decode(byte[] data) {
+        Validate.notNull(data);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+            return new Chain(data, 0, 0L, false, true);
+        }
+
+        byte[] base = readRecord(buffer, BASE);
+        Validate.isTrue(base != null, "Base image missing or corrupt");
+
+        byte[] image = base;
+        int deltas = 0;
+        long deltaBytes = 0L;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            byte[] payload = readRecord(buffer, DELTA);
+            if (payload == null) {
+                // Trailing delta was torn (e.g. crashed while appending) -- the image before it is the last complete checkpoint
+                return new Chain(image, deltas, deltaBytes, true, false);
+            }
+            image = applyDelta(image, payload);
+            deltas++;
+            deltaBytes += buffer.position() - start;
+        }
+        return new Chain(image, deltas, deltaBytes, false, false);
+    }
+
+    // Chunk starting at start is the same in both images (a chunk that's cut short in either image counts as different unless both are
+    // cut short at the same place)
+    private static boolean chunkEquals(byte[] image, byte[] oldImage, int start) {
+        int end = Math.min(start + CHUNK_SIZE, image.length);
+        int oldEnd = Math.min(start + CHUNK_SIZE, oldImage.length);
+        if (end != oldEnd) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (image[i] != oldImage[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] applyDelta(byte[] image, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] newImage = Arrays.copyOf(image, buffer.getInt());
+        while (buffer.hasRemaining()) {
+            int start = buffer.getInt() * CHUNK_SIZE;
+            Validate.isTrue(start >= 0 && start < newImage.length, "Chunk out of bounds");
+            buffer.get(newImage, start, Math.min(CHUNK_SIZE, newImage.length - start));
+        }
+        return newImage;
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.put(type);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    private static byte[] readRecord(ByteBuffer buffer, byte expectedType) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        byte type = buffer.get();
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (type != expectedType || length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        return payload;
+    }
+
+    static final class Chain {
+        private final byte[] image;
+        private final int deltas;
+        private final long deltaBytes;
+        private final boolean torn;
+        private final boolean plain;
+
+        Chain(byte[] image, int deltas, long deltaBytes, boolean torn, boolean plain) {
+            this.image = image;
+            this.deltas = deltas;
+            this.deltaBytes = deltaBytes;
+            this.torn = torn;
+            this.plain = plain;
+        }
+
+        byte[] getImage() {
+            return image;
+        }
+
+        int getDeltas() {
+            return deltas;
+        }
+
+        long getDeltaBytes() {
+            return deltaBytes;
+        }
+
+        boolean isTorn() {
+            return torn;
+        }
+
+        // plain full image rather than a chain (e.g. saved with incremental checkpointing off), so deltas can't be appended to it
+        boolean isPlain() {
+            return plain;
+        }
+    }
+}
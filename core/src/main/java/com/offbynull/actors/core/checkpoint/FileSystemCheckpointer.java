@@ -21,28 +21,54 @@ import com.offbynull.actors.core.context.SourceContext;
 import com.offbynull.actors.core.shuttle.Address;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Saves and restores actors via the filesystem.
+ * <p>
+ * By default, each save writes out the entire serialized actor. If incremental checkpointing is enabled (see
+ * {@link #create(com.offbynull.actors.core.context.Serializer, java.nio.file.Path, boolean, int, java.util.function.LongConsumer, int) }),
+ * saves append a delta holding only the parts of the serialized actor that changed since the last save. The deltas are periodically
+ * collapsed back into a full save (re-based), either when too many have accumulated or when together they grow larger than a full save.
+ * Nothing is kept in memory between saves: an incremental save reads the actor's chain back in to find out which
+ * {@value DeltaChain#CHUNK_SIZE} byte chunks of the serialized actor changed, comparing them byte-for-byte. Since the chain is re-based
+ * once its deltas outgrow a full save, this read is at most about twice the size of a full save.
  *
  * @author Kasra Faghihi
  */
 public final class FileSystemCheckpointer implements Checkpointer {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileSystemCheckpointer.class);
+    
+    private static final int RECOVERY_BATCH_SIZE = 1024;
 
     private final Path savedDirectory;
     private final Path restoredDirectory;
     private final Serializer serializer;
+    private final int rebaseInterval;
 
     /**
      * Create a {@link FileSystemCheckpointer} object that restores running/active actors from their previous checkpoint state. Equivalent
@@ -58,7 +84,8 @@ public final class FileSystemCheckpointer implements Checkpointer {
     }
 
     /**
-     * Create a {@link FileSystemCheckpointer} object.
+     * Create a {@link FileSystemCheckpointer} object. Equivalent to calling
+     * {@code create(serializer, directory, restoreRunning, Runtime.getRuntime().availableProcessors(), x -> {})}.
      *
      * @param serializer serializer to use for saving/restoring actors
      * @param directory storage directory for serialized actors
@@ -68,8 +95,57 @@ public final class FileSystemCheckpointer implements Checkpointer {
      * @throws IOException if problems restoring running/active actors
      */
     public static FileSystemCheckpointer create(Serializer serializer, Path directory, boolean restoreRunning) throws IOException {
+        return create(serializer, directory, restoreRunning, Runtime.getRuntime().availableProcessors(), x -> { });
+    }
+
+    /**
+     * Create a {@link FileSystemCheckpointer} object that always saves actors in full. Equivalent to calling
+     * {@code create(serializer, directory, restoreRunning, recoveryThreads, recoveryProgress, 0)}.
+     *
+     * @param serializer serializer to use for saving/restoring actors
+     * @param directory storage directory for serialized actors
+     * @param restoreRunning restores running/active actors from their previous checkpoint state as well as checkpointed actors if
+     * {@code true}, restores only saved actors only if {@code false}
+     * @param recoveryThreads number of threads to use for restoring running/active actors
+     * @param recoveryProgress invoked with the number of running/active actors restored so far
+     * @return new instance of {@link FileSystemCheckpointer}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code recoveryThreads < 1}
+     * @throws IOException if problems restoring running/active actors
+     */
+    public static FileSystemCheckpointer create(Serializer serializer, Path directory, boolean restoreRunning, int recoveryThreads,
+            LongConsumer recoveryProgress) throws IOException {
+        return create(serializer, directory, restoreRunning, recoveryThreads, recoveryProgress, 0);
+    }
+
+    /**
+     * Create a {@link FileSystemCheckpointer} object.
+     * <p>
+     * If {@code restoreRunning} is set, the running/active actors left behind by a previous run are recovered using
+     * {@code recoveryThreads} threads. The directory is scanned once and the files found are handed out to those threads in batches to be
+     * moved back to the saved directory. As batches complete, {@code recoveryProgress} is invoked (on the calling thread) with the total
+     * number of actors recovered so far.
+     *
+     * @param serializer serializer to use for saving/restoring actors
+     * @param directory storage directory for serialized actors
+     * @param restoreRunning restores running/active actors from their previous checkpoint state as well as checkpointed actors if
+     * {@code true}, restores only saved actors only if {@code false}
+     * @param recoveryThreads number of threads to use for restoring running/active actors
+     * @param recoveryProgress invoked with the number of running/active actors restored so far
+     * @param rebaseInterval maximum number of incremental saves to chain on to a full save before saving in full again ({@code 0} to
+     * always save in full)
+     * @return new instance of {@link FileSystemCheckpointer}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code recoveryThreads < 1} or {@code rebaseInterval < 0}
+     * @throws IOException if problems restoring running/active actors
+     */
+    public static FileSystemCheckpointer create(Serializer serializer, Path directory, boolean restoreRunning, int recoveryThreads,
+            LongConsumer recoveryProgress, int rebaseInterval) throws IOException {
         Validate.notNull(serializer);
         Validate.notNull(directory);
+        Validate.notNull(recoveryProgress);
+        Validate.isTrue(recoveryThreads > 0);
+        Validate.isTrue(rebaseInterval >= 0);
 
         Path savedDirectory = directory.resolve("saved");
         Path restoredDirectory = directory.resolve("restored");
@@ -81,27 +157,78 @@ public final class FileSystemCheckpointer implements Checkpointer {
         }
         
         if (restoreRunning) {
-            Files.walk(restoredDirectory, 1)
-                    .filter(p -> Files.isRegularFile(p))
-                    .forEach(p -> {
-                        try {
-                            Files.move(p, savedDirectory.resolve(p.getFileName()));
-                        } catch (IOException ioe) {
-                            LOG.warn("Failed to restore {} ({})", p, ioe);
-                        }
-                    });
-        }
-
-        return new FileSystemCheckpointer(serializer, savedDirectory, restoredDirectory);
+            recover(savedDirectory, restoredDirectory, recoveryThreads, recoveryProgress);
+        }
+
+        return new FileSystemCheckpointer(serializer, savedDirectory, restoredDirectory, rebaseInterval);
     }
 
-    private FileSystemCheckpointer(Serializer serializer, Path savedDirectory, Path restoredDirectory) {
+    private static void recover(Path savedDirectory, Path restoredDirectory, int threads, LongConsumer progress) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(restoredDirectory)) {
+            LinkedList<Future<Integer>> pending = new LinkedList<>();
+            long recovered = 0L;
+            
+            List<Path> batch = new ArrayList<>(RECOVERY_BATCH_SIZE);
+            for (Path path : stream) {
+                batch.add(path);
+                if (batch.size() == RECOVERY_BATCH_SIZE) {
+                    List<Path> submitted = batch;
+                    pending.add(executor.submit(() -> recoverBatch(savedDirectory, submitted)));
+                    batch = new ArrayList<>(RECOVERY_BATCH_SIZE);
+                    
+                    // Report on batches that have already finished while the scan is still going
+                    while (!pending.isEmpty() && pending.getFirst().isDone()) {
+                        recovered += pending.removeFirst().get();
+                        progress.accept(recovered);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<Path> submitted = batch;
+                pending.add(executor.submit(() -> recoverBatch(savedDirectory, submitted)));
+            }
+            
+            while (!pending.isEmpty()) {
+                recovered += pending.removeFirst().get();
+                progress.accept(recovered);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ie);
+        } catch (ExecutionException ee) {
+            throw new IOException(ee.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static int recoverBatch(Path savedDirectory, List<Path> batch) {
+        int recovered = 0;
+        for (Path path : batch) {
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+            
+            try {
+                Files.move(path, savedDirectory.resolve(path.getFileName()));
+                recovered++;
+            } catch (IOException ioe) {
+                LOG.warn("Failed to restore {} ({})", path, ioe);
+            }
+        }
+        return recovered;
+    }
+
+    private FileSystemCheckpointer(Serializer serializer, Path savedDirectory, Path restoredDirectory, int rebaseInterval) {
         Validate.notNull(serializer);
         Validate.notNull(savedDirectory);
         Validate.notNull(restoredDirectory);
+        Validate.isTrue(rebaseInterval >= 0);
         this.serializer = serializer;
         this.savedDirectory = savedDirectory;
         this.restoredDirectory = restoredDirectory;
+        this.rebaseInterval = rebaseInterval;
     }
 
     @Override
@@ -109,9 +236,12 @@ public final class FileSystemCheckpointer implements Checkpointer {
         Validate.notNull(ctx);
         Validate.isTrue(ctx.isRoot());
 
-        Address address = ctx.self();
-        byte[] data = serializer.serialize(ctx);
+        return save(ctx.self(), serializer.serialize(ctx));
+    }
 
+    // data must be ctx.self()'s root context serialized by this checkpointer's serializer -- used by CachingCheckpointer to skip
+    // reserializing
+    boolean save(Address address, byte[] data) {
         String filename;
         try {
             filename = URLEncoder.encode(address.toString(), "UTF-8");
@@ -121,6 +251,10 @@ public final class FileSystemCheckpointer implements Checkpointer {
         }
 
         Path filepath = savedDirectory.resolve(filename);
+        if (rebaseInterval > 0) {
+            return saveIncremental(data, filepath, restoredDirectory.resolve(filename));
+        }
+        
         try {
             Files.write(filepath, data);
         } catch (IOException ioe) {
@@ -130,6 +264,50 @@ public final class FileSystemCheckpointer implements Checkpointer {
 
         return true;
     }
+    
+    Serializer getSerializer() {
+        return serializer;
+    }
+    
+    private boolean saveIncremental(byte[] data, Path savedFilepath, Path restoredFilepath) {
+        // Append a delta to the chain left behind by the last save (most likely moved to the restored directory since)
+        Path chainFilepath = Files.exists(restoredFilepath) ? restoredFilepath : savedFilepath;
+        DeltaChain.Chain chain = null;
+        try {
+            chain = DeltaChain.decode(Files.readAllBytes(chainFilepath));
+        } catch (NoSuchFileException nsfe) {
+            // do nothing -- first save, so there's no chain to append to
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Unable to read chain {}, saving in full", chainFilepath, e);
+        }
+        
+        if (chain != null && !chain.isPlain() && !chain.isTorn() && chain.getDeltas() < rebaseInterval) {
+            byte[] delta = DeltaChain.encodeDelta(data, chain.getImage());
+            long deltaBytes = chain.getDeltaBytes() + delta.length;
+            if (deltaBytes < data.length) {
+                try {
+                    Files.write(chainFilepath, delta, APPEND);
+                    if (!chainFilepath.equals(savedFilepath)) {
+                        Files.move(chainFilepath, savedFilepath, REPLACE_EXISTING, ATOMIC_MOVE);
+                    }
+                } catch (IOException ioe) {
+                    LOG.error("Unable to append to file {}", chainFilepath, ioe);
+                    return false;
+                }
+                return true;
+            }
+        }
+        
+        // Re-base
+        try {
+            Files.write(savedFilepath, DeltaChain.encodeBase(data));
+            Files.deleteIfExists(restoredFilepath);
+        } catch (IOException ioe) {
+            LOG.error("Unable to write file {}", savedFilepath, ioe);
+            return false;
+        }
+        return true;
+    }
 
     @Override
     public SourceContext restore(Address address) {
@@ -153,9 +331,11 @@ public final class FileSystemCheckpointer implements Checkpointer {
             return null;
         }
 
+        DeltaChain.Chain chain;
         SourceContext ctx;
         try {
-            ctx = serializer.unserialize(data);
+            chain = DeltaChain.decode(data);
+            ctx = serializer.unserialize(chain.getImage());
         } catch (IllegalArgumentException iae) {
             LOG.error("Unable to unserialize file {}", savedFilepath, iae);
             return null;
@@ -172,6 +352,10 @@ public final class FileSystemCheckpointer implements Checkpointer {
             LOG.error("Unable to move file {} to {}", savedFilepath, restoredFilepath, ioe);
             return null;
         }
+        
+        if (chain.isTorn()) {
+            LOG.warn("Discarded incomplete incremental save at the end of {}", savedFilepath); // next save re-bases rather than appends
+        }
 
         return ctx;
     }
@@ -207,6 +391,47 @@ public final class FileSystemCheckpointer implements Checkpointer {
         }
     }
     
+    @Override
+    public List<Address> listRecent(int max) {
+        Validate.isTrue(max >= 0);
+        if (max == 0) {
+            return new LinkedList<>();
+        }
+        
+        // Keep the max most recently modified files seen so far, with the least recent at the head so it can be bumped
+        PriorityQueue<ImmutablePair<FileTime, Path>> recent = new PriorityQueue<>(Comparator.comparing(x -> x.left));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(savedDirectory)) {
+            for (Path path : stream) {
+                FileTime time;
+                try {
+                    time = Files.getLastModifiedTime(path);
+                } catch (IOException ioe) {
+                    continue; // may have been restored/deleted while listing
+                }
+
+                if (recent.size() < max) {
+                    recent.add(ImmutablePair.of(time, path));
+                } else if (recent.peek().left.compareTo(time) < 0) {
+                    recent.poll();
+                    recent.add(ImmutablePair.of(time, path));
+                }
+            }
+        } catch (IOException ioe) {
+            LOG.error("Unable to list directory {}", savedDirectory, ioe);
+        }
+
+        LinkedList<Address> ret = new LinkedList<>();
+        while (!recent.isEmpty()) {
+            Path path = recent.poll().right;
+            try {
+                ret.addFirst(Address.fromString(URLDecoder.decode(path.getFileName().toString(), "UTF-8")));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                LOG.warn("Unable to decode filename {}", path, e);
+            }
+        }
+        return ret;
+    }
+    
     @Override
     public void close() {
         // do nothing
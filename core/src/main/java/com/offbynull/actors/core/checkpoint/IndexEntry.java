@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+// Where a key's value lives in a LogStore's log file. The index is layered (memtables over segments, newer segments over older ones), so
+// besides entries that point to a value there are entries that only change whether the value under them is claimed (FLAG) and entries
+// that mark the key as deleted (TOMBSTONE). A key's entries are folded together from newest to oldest to get its current value.
+final class IndexEntry {
+
+    static final byte VALUE = 0;
+    static final byte FLAG = 1;
+    static final byte TOMBSTONE = 2;
+
+    private static final IndexEntry TOMBSTONE_ENTRY = new IndexEntry(TOMBSTONE, 0L, 0, 0, 0L, false);
+    private static final IndexEntry CLAIMED_FLAG_ENTRY = new IndexEntry(FLAG, 0L, 0, 0, 0L, true);
+    private static final IndexEntry RELEASED_FLAG_ENTRY = new IndexEntry(FLAG, 0L, 0, 0, 0L, false);
+
+    private final byte type;
+    private final long offset;
+    private final int length;
+    private final int encodedSize;
+    private final long sequence;
+    private final boolean claimed;
+
+    // sequence orders values by when they were put, and unlike offset it doesn't change when the log is compacted
+    static IndexEntry value(long offset, int length, int encodedSize, long sequence, boolean claimed) {
+        return new IndexEntry(VALUE, offset, length, encodedSize, sequence, claimed);
+    }
+
+    static IndexEntry flag(boolean claimed) {
+        return claimed ? CLAIMED_FLAG_ENTRY : RELEASED_FLAG_ENTRY;
+    }
+
+    static IndexEntry tombstone() {
+        return TOMBSTONE_ENTRY;
+    }
+
+    static IndexEntry decode(byte type, long offset, int length, int encodedSize, long sequence, boolean claimed) {
+        switch (type) {
+            case VALUE:
+                return value(offset, length, encodedSize, sequence, claimed);
+            case FLAG:
+                return flag(claimed);
+            case TOMBSTONE:
+                return tombstone();
+            default:
+                throw new IllegalArgumentException("Unknown index entry type: " + type);
+        }
+    }
+
+    private IndexEntry(byte type, long offset, int length, int encodedSize, long sequence, boolean claimed) {
+        this.type = type;
+        this.offset = offset;
+        this.length = length;
+        this.encodedSize = encodedSize;
+        this.sequence = sequence;
+        this.claimed = claimed;
+    }
+
+    byte getType() {
+        return type;
+    }
+
+    boolean isValue() {
+        return type == VALUE;
+    }
+
+    // value's offset in the log file
+    long getOffset() {
+        return offset;
+    }
+
+    // value's length
+    int getLength() {
+        return length;
+    }
+
+    // size of the PUT operation that holds the value
+    int getEncodedSize() {
+        return encodedSize;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    boolean isClaimed() {
+        return claimed;
+    }
+
+    // Claiming/releasing a deleted key leaves it deleted
+    IndexEntry withClaimed(boolean claimed) {
+        switch (type) {
+            case VALUE:
+                return new IndexEntry(type, offset, length, encodedSize, sequence, claimed);
+            case FLAG:
+                return flag(claimed);
+            default:
+                return this;
+        }
+    }
+
+    IndexEntry withOffset(long offset) {
+        return type == VALUE ? new IndexEntry(type, offset, length, encodedSize, sequence, claimed) : this;
+    }
+
+    // Folds this entry over an older entry for the same key. Once the result is a VALUE or a TOMBSTONE, anything older has no effect.
+    IndexEntry over(IndexEntry older) {
+        if (older == null || type != FLAG) {
+            return this;
+        }
+        switch (older.type) {
+            case VALUE:
+                return older.withClaimed(claimed);
+            case FLAG:
+                return this;
+            default:
+                return older;
+        }
+    }
+
+    // Nothing older than this can change what the key resolves to
+    boolean isFinal() {
+        return type != FLAG;
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import org.apache.commons.lang3.Validate;
+
+// Immutable, sorted run of a LogStore's index entries kept on disk. Entries are grouped in to blocks of FENCE_INTERVAL entries, and only
+// the first key of each block (the fence) is held in memory -- finding a key means reading the one block it could be in. The file is laid
+// out as...
+//
+//   MAGIC, VERSION
+//   entry*   -- entry = key length (4 bytes), key (UTF-8), type (1 byte), claimed (1 byte), offset (8 bytes), length (4 bytes),
+//               encoded size (4 bytes), sequence (8 bytes)
+//   fence*   -- fence = key length (4 bytes), key (UTF-8), block position (8 bytes)
+//   fences position (8 bytes), fence count (4 bytes), entry count (8 bytes)
+//
+// Value offsets read back from the file have a shift subtracted from them. When the log file is compacted, values that were put while
+// compaction was running move down by a fixed amount, so segments holding only those values get a bigger shift instead of being rewritten.
+final class IndexSegment implements AutoCloseable {
+
+    static final int FENCE_INTERVAL = 64;
+
+    private static final int MAGIC = 0x4C4F4749;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FOOTER_SIZE = 20;
+    private static final int ENTRY_FIXED_SIZE = 4 + 1 + 1 + 8 + 4 + 4 + 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long id;
+    private final Path file;
+    private final FileChannel channel;
+    private final String[] fenceKeys;
+    private final long[] fencePositions; // one extra at the end -- where the last block ends
+    private final long entryCount;
+    private final long shift;
+
+    static Writer create(long id, Path file) throws IOException {
+        Validate.notNull(file);
+        return new Writer(id, file);
+    }
+
+    static IndexSegment open(long id, Path file, long shift) throws IOException {
+        Validate.notNull(file);
+
+        FileChannel channel = FileChannel.open(file, READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            if (size < HEADER_SIZE + FOOTER_SIZE
+                    || !readFully(channel, header, 0L) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || !readFully(channel, footer, size - FOOTER_SIZE)) {
+                throw new IOException("Not an index segment: " + file);
+            }
+            long fencesPosition = footer.getLong(0);
+            int fenceCount = footer.getInt(8);
+            long entryCount = footer.getLong(12);
+            long fencesSize = size - FOOTER_SIZE - fencesPosition;
+            if (fencesPosition < HEADER_SIZE || fencesSize < 0L || fencesSize > Integer.MAX_VALUE || fenceCount < 0) {
+                throw new IOException("Corrupt index segment: " + file);
+            }
+
+            ByteBuffer fences = ByteBuffer.allocate((int) fencesSize);
+            if (!readFully(channel, fences, fencesPosition)) {
+                throw new IOException("Corrupt index segment: " + file);
+            }
+            fences.flip();
+            String[] fenceKeys = new String[fenceCount];
+            long[] fencePositions = new long[fenceCount + 1];
+            for (int i = 0; i < fenceCount; i++) {
+                fenceKeys[i] = getKey(fences);
+                fencePositions[i] = fences.getLong();
+            }
+            fencePositions[fenceCount] = fencesPosition;
+
+            return new IndexSegment(id, file, channel, fenceKeys, fencePositions, entryCount, shift);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private IndexSegment(long id, Path file, FileChannel channel, String[] fenceKeys, long[] fencePositions, long entryCount,
+            long shift) {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.fenceKeys = fenceKeys;
+        this.fencePositions = fencePositions;
+        this.entryCount = entryCount;
+        this.shift = shift;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getShift() {
+        return shift;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    // Same segment with value offsets moved down by another amount. Shares the file with this segment, so only one of them gets closed.
+    IndexSegment shift(long amount) {
+        return new IndexSegment(id, file, channel, fenceKeys, fencePositions, entryCount, shift + amount);
+    }
+
+    IndexEntry get(String key) throws IOException {
+        Validate.notNull(key);
+
+        int block = Arrays.binarySearch(fenceKeys, key);
+        if (block < 0) {
+            block = -block - 2; // block whose fence is the last one before key
+            if (block < 0) {
+                return null;
+            }
+        }
+
+        ByteBuffer buffer = readBlock(block);
+        while (buffer.hasRemaining()) {
+            String entryKey = getKey(buffer);
+            IndexEntry entry = getEntry(buffer);
+            int cmp = entryKey.compareTo(key);
+            if (cmp == 0) {
+                return entry;
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    // Entries for keys within [fromKey, toKey) (no upper bound if toKey is null), in order. Blocks are read as they're reached. I/O errors
+    // are thrown as UncheckedIOException.
+    Iterator<Entry<String, IndexEntry>> iterator(String fromKey, String toKey) {
+        Validate.notNull(fromKey);
+
+        int startBlock = Arrays.binarySearch(fenceKeys, fromKey);
+        if (startBlock < 0) {
+            startBlock = Math.max(-startBlock - 2, 0);
+        }
+        return new BlockIterator(startBlock, fromKey, toKey);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readBlock(int block) throws IOException {
+        long start = fencePositions[block];
+        ByteBuffer buffer = ByteBuffer.allocate((int) (fencePositions[block + 1] - start));
+        if (!readFully(channel, buffer, start)) {
+            throw new IOException("Unexpected end of index segment: " + file);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private IndexEntry getEntry(ByteBuffer buffer) {
+        byte type = buffer.get();
+        boolean claimed = buffer.get() != 0;
+        long offset = buffer.getLong();
+        int length = buffer.getInt();
+        int encodedSize = buffer.getInt();
+        long sequence = buffer.getLong();
+        return IndexEntry.decode(type, offset - shift, length, encodedSize, sequence, claimed);
+    }
+
+    private static String getKey(ByteBuffer buffer) {
+        byte[] key = new byte[buffer.getInt()];
+        buffer.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private final class BlockIterator implements Iterator<Entry<String, IndexEntry>> {
+        private final String fromKey;
+        private final String toKey;
+        private int nextBlock;
+        private ByteBuffer buffer;
+        private Entry<String, IndexEntry> next;
+        private boolean done;
+
+        BlockIterator(int startBlock, String fromKey, String toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.nextBlock = startBlock;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                if (buffer == null || !buffer.hasRemaining()) {
+                    if (nextBlock >= fenceKeys.length) {
+                        done = true;
+                        break;
+                    }
+                    try {
+                        buffer = readBlock(nextBlock);
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                    nextBlock++;
+                    continue;
+                }
+
+                String key = getKey(buffer);
+                IndexEntry entry = getEntry(buffer);
+                if (toKey != null && key.compareTo(toKey) >= 0) {
+                    done = true;
+                } else if (key.compareTo(fromKey) >= 0) {
+                    next = new SimpleImmutableEntry<>(key, entry);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, IndexEntry> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, IndexEntry> ret = next;
+            next = null;
+            return ret;
+        }
+    }
+
+    // Entries must be added in key order, each key only once.
+    static final class Writer implements AutoCloseable {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final List<String> fenceKeys;
+        private final List<Long> fencePositions;
+        private long position;
+        private long entryCount;
+        private String lastKey;
+        private boolean finished;
+
+        private Writer(long id, Path file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.fenceKeys = new ArrayList<>();
+            this.fencePositions = new ArrayList<>();
+            buffer.putInt(MAGIC).putInt(VERSION);
+            position = HEADER_SIZE;
+        }
+
+        void add(String key, IndexEntry entry) throws IOException {
+            Validate.notNull(key);
+            Validate.notNull(entry);
+            Validate.validState(!finished);
+            Validate.isTrue(lastKey == null || lastKey.compareTo(key) < 0, "Keys out of order");
+
+            if (entryCount % FENCE_INTERVAL == 0L) {
+                fenceKeys.add(key);
+                fencePositions.add(position);
+            }
+
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = reserve(ENTRY_FIXED_SIZE + keyBytes.length);
+            out.putInt(keyBytes.length);
+            out.put(keyBytes);
+            out.put(entry.getType());
+            out.put(entry.isClaimed() ? (byte) 1 : (byte) 0);
+            out.putLong(entry.getOffset());
+            out.putInt(entry.getLength());
+            out.putInt(entry.getEncodedSize());
+            out.putLong(entry.getSequence());
+            release(out);
+
+            position += ENTRY_FIXED_SIZE + keyBytes.length;
+            entryCount++;
+            lastKey = key;
+        }
+
+        // Writes out the fences and makes the file durable before opening it as a segment
+        IndexSegment finish() throws IOException {
+            Validate.validState(!finished);
+
+            long fencesPosition = position;
+            for (int i = 0; i < fenceKeys.size(); i++) {
+                byte[] keyBytes = fenceKeys.get(i).getBytes(StandardCharsets.UTF_8);
+                ByteBuffer out = reserve(4 + keyBytes.length + 8);
+                out.putInt(keyBytes.length).put(keyBytes).putLong(fencePositions.get(i));
+                release(out);
+                position += 4 + keyBytes.length + 8;
+            }
+            ByteBuffer out = reserve(FOOTER_SIZE);
+            out.putLong(fencesPosition).putInt(fenceKeys.size()).putLong(entryCount);
+            release(out);
+            flushBuffer();
+            channel.force(true);
+            finished = true;
+            channel.close();
+
+            return open(id, file, 0L);
+        }
+
+        // Discards a segment that wasn't finished
+        @Override
+        public void close() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+
+        // Buffer to put size bytes in to -- the shared buffer unless it's too small to ever fit them
+        private ByteBuffer reserve(int size) throws IOException {
+            if (size > buffer.capacity()) {
+                flushBuffer();
+                return ByteBuffer.allocate(size);
+            }
+            if (size > buffer.remaining()) {
+                flushBuffer();
+            }
+            return buffer;
+        }
+
+        private void release(ByteBuffer out) throws IOException {
+            if (out != buffer) {
+                out.flip();
+                writeFully(out);
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
@@ -0,0 +1,1321 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Single-file, log-structured key-value store. Changes are appended to the log file as transactions (frames) and made durable (fsync)
+// before they're applied to the index. A single committer thread groups together all the changes that queue up while it's busy writing
+// the previous frame, so concurrent callers share a single write+fsync. The log file is laid out as...
+//
+//   MAGIC, VERSION, generation (8 bytes), base (8 bytes)
+//   frame*   -- frame = body length (4 bytes), body CRC32 (4 bytes), body
+//
+// ... where body is a sequence of operations (type (1 byte), key length (4 bytes), key (UTF-8), and for PUT: value length (4 bytes),
+// value). A frame that's torn or fails its CRC (e.g. crashed while writing) is discarded along with anything after it when the file is
+// opened.
+//
+// The index (key -> where the key's value is in the log file) lives on disk, in a directory next to the log file, as a stack of immutable
+// sorted segments (see IndexSegment) under an in-memory memtable. Commits go in to the memtable. Once the memtable fills up, it's frozen
+// and a background thread writes it out as a new segment, and once there are more than MAX_SEGMENTS segments the background thread merges
+// them in to one. A manifest lists the segments along with how much of the log file they cover, so opening the store only replays the
+// frames after that point (if the manifest is missing, the index is rebuilt from the entire log file). Memory use doesn't grow with the
+// number of keys beyond each segment's fences (one key per IndexSegment.FENCE_INTERVAL keys) -- everything else is bounded by the memtable
+// limit.
+//
+// Once the log file grows past the compaction threshold and holds more dead data than live data, the background thread rewrites the live
+// values to a new log file (along with a new segment pointing to them) while commits carry on appending to the old one. The frames appended
+// in the meantime are then copied over as-is and the new file is swapped in, which is the only point where commits have to wait on
+// compaction. Each compaction bumps the log file's generation (each generation has its own manifest) and adds however much the file shrunk
+// to its base, so base + offset stays the same for frames that were copied over as-is (see IndexEntry's sequence).
+final class LogStore implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogStore.class);
+
+    static final int DEFAULT_MEMTABLE_LIMIT = 16 * 1024;
+
+    private static final int MAGIC = 0x4C4F4753;
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 24;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private static final int MANIFEST_MAGIC = 0x4C4F474D;
+    private static final int MAX_SEGMENTS = 8;
+    private static final long RETRY_DELAY = 100L;
+    private static final int RELEASE_BATCH_SIZE = 1024;
+
+    private static final byte PUT = 0;
+    private static final byte DELETE = 1;
+    private static final byte CLAIM = 2;
+    private static final byte RELEASE = 3;
+
+    private final Path file;
+    private final Path indexDirectory;
+    private final long compactionThreshold;
+    private final int memtableLimit;
+
+    private final ReadWriteLock channelLock; // write locked when swapping the channel or segments out, read locked to access them
+    private FileChannel channel;
+
+    private final Lock lock;
+    private final Condition pendingCondition; // signalled when an operation is queued or on close
+    private final Condition committedCondition; // signalled when a frame has been committed
+    private final Condition backgroundCondition; // signalled when a memtable is frozen, compaction is needed, or on close
+    private final Condition flushedCondition; // signalled when a frozen memtable has been written out (or failed to be), or on close
+    private TreeMap<String, IndexEntry> memtable;
+    private TreeMap<String, IndexEntry> frozen; // memtable waiting to be written out as a segment
+    private long frozenSize; // log file size and live size as of when frozen was frozen
+    private long frozenLiveSize;
+    private List<IndexSegment> segments; // newest first, only replaced by the background thread (never modified)
+    private long indexedSize; // log file size and live size as of the newest segment
+    private long indexedLiveSize;
+    private long nextSegmentId; // only used by the background thread
+    private final Set<String> claiming; // keys with claims in progress
+    private List<Operation> pending;
+    private long fileSize;
+    private long liveSize; // bytes taken up by the latest PUT of each key
+    private long generation;
+    private long base;
+    private boolean compactRequested;
+    private boolean flushFailing;
+    private boolean closed;
+
+    private final Thread commitThread;
+    private final Thread backgroundThread;
+
+    static LogStore open(Path file, long compactionThreshold) throws IOException {
+        return open(file, compactionThreshold, DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    static LogStore open(Path file, long compactionThreshold, int memtableLimit) throws IOException {
+        Validate.notNull(file);
+        Validate.isTrue(compactionThreshold >= 0L);
+        Validate.isTrue(memtableLimit > 0);
+
+        Path indexDirectory = file.resolveSibling(file.getFileName() + ".index");
+        Files.createDirectories(indexDirectory);
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        LogStore ret = new LogStore(file, indexDirectory, compactionThreshold, memtableLimit, channel);
+        try {
+            ret.recover();
+            ret.commitThread.start();
+            ret.backgroundThread.start();
+            return ret;
+        } catch (IOException | RuntimeException e) {
+            ret.closeFiles();
+            throw e;
+        }
+    }
+
+    private LogStore(Path file, Path indexDirectory, long compactionThreshold, int memtableLimit, FileChannel channel) {
+        this.file = file;
+        this.indexDirectory = indexDirectory;
+        this.compactionThreshold = compactionThreshold;
+        this.memtableLimit = memtableLimit;
+        this.channelLock = new ReentrantReadWriteLock();
+        this.channel = channel;
+        this.lock = new ReentrantLock();
+        this.pendingCondition = lock.newCondition();
+        this.committedCondition = lock.newCondition();
+        this.backgroundCondition = lock.newCondition();
+        this.flushedCondition = lock.newCondition();
+        this.memtable = new TreeMap<>();
+        this.segments = Collections.emptyList();
+        this.claiming = new HashSet<>();
+        this.pending = new ArrayList<>();
+        this.commitThread = new Thread(this::commitLoop);
+        this.commitThread.setDaemon(true);
+        this.commitThread.setName(LogStore.class.getSimpleName() + "-" + file.getFileName());
+        this.backgroundThread = new Thread(this::backgroundLoop);
+        this.backgroundThread.setDaemon(true);
+        this.backgroundThread.setName(LogStore.class.getSimpleName() + "-background-" + file.getFileName());
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size == 0L) {
+            deleteIndexFiles(Collections.emptySet()); // left over from whatever used to be at this path
+            writeHeader(channel, 0L, 0L);
+            channel.force(true);
+            fileSize = FILE_HEADER_SIZE;
+            indexedSize = FILE_HEADER_SIZE;
+            writeManifest(generation, indexedSize, indexedLiveSize, segments);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        if (size < FILE_HEADER_SIZE || !readFully(channel, header, 0L) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a log store: " + file);
+        }
+        generation = header.getLong(8);
+        base = header.getLong(16);
+
+        // Pick up the index from where it was last written out, or rebuild it from scratch if that isn't possible
+        Set<Path> keep = new HashSet<>();
+        if (loadManifest() && indexedSize <= size) {
+            keep.add(manifestFile(generation));
+            for (IndexSegment segment : segments) {
+                keep.add(segment.getFile());
+            }
+        } else {
+            LOG.warn("Index for {} missing or out of date, rebuilding", file);
+            closeSegments();
+            segments = Collections.emptyList();
+            indexedSize = FILE_HEADER_SIZE;
+            indexedLiveSize = 0L;
+            nextSegmentId = 0L;
+        }
+        deleteIndexFiles(keep); // anything not in use (e.g. crashed while writing it out)
+        liveSize = indexedLiveSize;
+
+        long position = indexedSize;
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position < size) {
+            frameHeader.clear();
+            if (!readFully(channel, frameHeader, position)) {
+                break;
+            }
+            int length = frameHeader.getInt(0);
+            int expectedCrc = frameHeader.getInt(4);
+            if (length < 0 || length > MAX_FRAME_SIZE || position + FRAME_HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            if (!readFully(channel, body, position + FRAME_HEADER_SIZE) || crc(body.array()) != expectedCrc) {
+                break;
+            }
+
+            body.flip();
+            List<Operation> ops = decodeFrame(body, position + FRAME_HEADER_SIZE);
+            for (Operation op : ops) {
+                apply(op, replaced(op));
+            }
+            position += FRAME_HEADER_SIZE + length;
+
+            if (memtable.size() >= memtableLimit) {
+                lock.lock();
+                try {
+                    fileSize = position;
+                    freeze();
+                } finally {
+                    lock.unlock();
+                }
+                flush();
+            }
+        }
+
+        if (position < size) {
+            LOG.warn("Discarding {} bytes of incomplete/corrupt data at end of {}", size - position, file);
+            channel.truncate(position);
+            channel.force(true);
+        }
+        fileSize = position;
+    }
+
+    boolean put(String key, byte[] value) {
+        Validate.notNull(key);
+        Validate.notNull(value);
+        Operation op = new Operation(PUT, key, value);
+        if (op.encodedSize() > MAX_FRAME_SIZE) {
+            LOG.error("Value for {} too large: {} bytes", key, value.length);
+            return false;
+        }
+        return commit(op);
+    }
+
+    boolean delete(String key) {
+        Validate.notNull(key);
+        return commit(new Operation(DELETE, key, null));
+    }
+
+    // Reads the value for key and marks it as non-loadable in the same transaction. Returns null if not present or already claimed.
+    byte[] claim(String key) {
+        Validate.notNull(key);
+
+        lock.lock();
+        try {
+            Validate.validState(!closed, "Closed");
+            if (!claiming.add(key)) {
+                return null; // a concurrent claim for the same key is in progress
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            byte[] value;
+            channelLock.readLock().lock(); // entry's offset must stay valid until it's read (compaction moves entries)
+            try {
+                IndexEntry entry = get(key);
+                if (entry == null || entry.isClaimed()) {
+                    return null;
+                }
+                value = read(entry);
+            } catch (IOException ioe) {
+                LOG.error("Unable to read {} from {}", key, file, ioe);
+                return null;
+            } finally {
+                channelLock.readLock().unlock();
+            }
+
+            if (!commit(new Operation(CLAIM, key, null))) {
+                return null;
+            }
+            return value;
+        } finally {
+            lock.lock();
+            try {
+                claiming.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Marks all claimed keys as loadable again. Returns the number of keys released.
+    int releaseAll() {
+        int released = 0;
+        String fromKey = "";
+        while (true) {
+            // Released in batches, so that the operations for a huge number of claimed keys don't have to be held in memory at once
+            List<Operation> ops = new ArrayList<>();
+            channelLock.readLock().lock();
+            try {
+                Iterator<Entry<String, IndexEntry>> it = scan(fromKey, null);
+                while (it.hasNext() && ops.size() < RELEASE_BATCH_SIZE) {
+                    Entry<String, IndexEntry> e = it.next();
+                    if (e.getValue().isClaimed()) {
+                        ops.add(new Operation(RELEASE, e.getKey(), null));
+                    }
+                }
+            } catch (UncheckedIOException uioe) {
+                LOG.error("Unable to read index of {}", file, uioe);
+                return released;
+            } finally {
+                channelLock.readLock().unlock();
+            }
+
+            if (ops.isEmpty() || !commit(ops)) {
+                return released;
+            }
+            released += ops.size();
+            if (ops.size() < RELEASE_BATCH_SIZE) {
+                return released;
+            }
+            fromKey = ops.get(ops.size() - 1).key + '\u0000';
+        }
+    }
+
+    // Loadable (unclaimed) keys within [fromKey, toKey).
+    List<String> keys(String fromKey, String toKey) {
+        Validate.notNull(fromKey);
+        Validate.notNull(toKey);
+
+        List<String> ret = new ArrayList<>();
+        if (fromKey.compareTo(toKey) >= 0) {
+            return ret;
+        }
+
+        channelLock.readLock().lock();
+        try {
+            Iterator<Entry<String, IndexEntry>> it = scan(fromKey, toKey);
+            while (it.hasNext()) {
+                Entry<String, IndexEntry> e = it.next();
+                if (!e.getValue().isClaimed()) {
+                    ret.add(e.getKey());
+                }
+            }
+        } catch (UncheckedIOException uioe) {
+            LOG.error("Unable to read index of {}", file, uioe);
+            return new ArrayList<>();
+        } finally {
+            channelLock.readLock().unlock();
+        }
+        return ret;
+    }
+
+    // Loadable (unclaimed) keys with the most recent PUTs, most recent first.
+    List<String> recentKeys(int max) {
+        Validate.isTrue(max >= 0);
+
+        if (max == 0) {
+            return new ArrayList<>();
+        }
+
+        // Keep the max most recent entries seen so far, with the least recent at the head so it can be bumped
+        PriorityQueue<Entry<String, Long>> recent = new PriorityQueue<>(Comparator.comparingLong(Entry::getValue));
+        channelLock.readLock().lock();
+        try {
+            Iterator<Entry<String, IndexEntry>> it = scan("", null);
+            while (it.hasNext()) {
+                Entry<String, IndexEntry> e = it.next();
+                if (e.getValue().isClaimed()) {
+                    continue;
+                }
+                long sequence = e.getValue().getSequence();
+                if (recent.size() < max) {
+                    recent.add(new SimpleImmutableEntry<>(e.getKey(), sequence));
+                } else if (recent.peek().getValue() < sequence) {
+                    recent.poll();
+                    recent.add(new SimpleImmutableEntry<>(e.getKey(), sequence));
+                }
+            }
+        } catch (UncheckedIOException uioe) {
+            LOG.error("Unable to read index of {}", file, uioe);
+            return new ArrayList<>();
+        } finally {
+            channelLock.readLock().unlock();
+        }
+
+        LinkedList<String> ret = new LinkedList<>();
+        while (!recent.isEmpty()) {
+            ret.addFirst(recent.poll().getKey());
+        }
+        return ret;
+    }
+
+    long fileSize() {
+        lock.lock();
+        try {
+            return fileSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingCondition.signalAll();
+            backgroundCondition.signalAll();
+            flushedCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        commitThread.join(); // finishes committing whatever was queued before returning
+        backgroundThread.join(); // finishes compaction/merging if one is in progress
+        closeFiles();
+    }
+
+    private boolean commit(Operation op) {
+        return commit(Collections.singletonList(op));
+    }
+
+    // ops are committed together, but may be split across multiple frames if large
+    private boolean commit(List<Operation> ops) {
+        lock.lock();
+        try {
+            Validate.validState(!closed, "Closed");
+            pending.addAll(ops);
+            pendingCondition.signal();
+            Operation last = ops.get(ops.size() - 1);
+            while (!last.done) {
+                committedCondition.awaitUninterruptibly();
+            }
+            return last.success;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    pendingCondition.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                // Hand a full memtable off to be written out. If the last one handed off still hasn't been written out, wait for it
+                // rather than let the memtable keep growing (unless writing out is failing, in which case waiting won't help).
+                while (memtable.size() >= memtableLimit && !closed) {
+                    if (frozen == null) {
+                        freeze();
+                        break;
+                    }
+                    if (flushFailing) {
+                        break;
+                    }
+                    flushedCondition.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // The channel (and offsets into it) must not get swapped out by compaction between writing the frame and applying it
+            channelLock.readLock().lock();
+            try {
+                List<Operation> batch;
+                long position;
+                lock.lock();
+                try {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    position = fileSize;
+                } finally {
+                    lock.unlock();
+                }
+
+                boolean success;
+                long end = position;
+                try {
+                    end = writeFrames(batch, position);
+                    success = true;
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Unable to commit {} operations to {}", batch.size(), file, e);
+                    success = false;
+                    try {
+                        channel.truncate(position);
+                    } catch (IOException ioe) {
+                        LOG.error("Unable to roll back {}", file, ioe);
+                    }
+                }
+
+                // Applied one at a time, so that looking up what each operation replaces sees the operations before it
+                if (success) {
+                    for (Operation op : batch) {
+                        IndexEntry existing = replaced(op);
+                        lock.lock();
+                        try {
+                            apply(op, existing);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+
+                lock.lock();
+                try {
+                    fileSize = end;
+                    for (Operation op : batch) {
+                        op.success = success;
+                        op.done = true;
+                    }
+                    committedCondition.signalAll();
+
+                    if (fileSize >= compactionThreshold && fileSize - FILE_HEADER_SIZE > 2L * liveSize) {
+                        compactRequested = true;
+                        backgroundCondition.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                channelLock.readLock().unlock();
+            }
+        }
+    }
+
+    private void backgroundLoop() {
+        boolean failed = false;
+        while (true) {
+            boolean compact;
+            lock.lock();
+            try {
+                if (failed && !closed) {
+                    backgroundCondition.await(RETRY_DELAY, TimeUnit.MILLISECONDS); // back off before trying again, signalled on close
+                }
+                while (!closed && frozen == null && !compactRequested && segments.size() <= MAX_SEGMENTS) {
+                    backgroundCondition.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                compact = compactRequested;
+                compactRequested = false; // if this compaction fails, wait for the next commit to ask again rather than spinning
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flush();
+                if (compact) {
+                    compact();
+                } else {
+                    mergeSegments();
+                }
+                failed = false;
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Unable to update index of {}", file, e);
+                failed = true;
+            }
+        }
+    }
+
+    // must be called while holding channel read lock, returns the end of the last frame written
+    private long writeFrames(List<Operation> batch, long position) throws IOException {
+        int start = 0;
+        while (start < batch.size()) {
+            // Split up in to multiple frames if too large, each frame is applied atomically
+            int end = start;
+            int length = 0;
+            do {
+                length += batch.get(end).encodedSize();
+                end++;
+            } while (end < batch.size() && length + batch.get(end).encodedSize() <= MAX_FRAME_SIZE);
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            for (int i = start; i < end; i++) {
+                Operation op = batch.get(i);
+                op.encode(body, position + FRAME_HEADER_SIZE);
+            }
+
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + length);
+            frame.putInt(length).putInt(crc(body.array())).put(body.array()).flip();
+            writeFully(channel, frame, position);
+
+            position += FRAME_HEADER_SIZE + length;
+            start = end;
+        }
+        channel.force(false);
+        return position;
+    }
+
+    // Current value of the key that op replaces (PUT/DELETE only), so live size can be kept track of. Must be called while holding channel
+    // read lock (or during recovery).
+    private IndexEntry replaced(Operation op) {
+        if (op.type != PUT && op.type != DELETE) {
+            return null;
+        }
+        try {
+            return get(op.key);
+        } catch (IOException ioe) {
+            LOG.error("Unable to look up {} in index of {}", op.key, file, ioe);
+            return null;
+        }
+    }
+
+    // must be called while holding lock (or during recovery)
+    private void apply(Operation op, IndexEntry existing) {
+        switch (op.type) {
+            case PUT:
+                if (existing != null) {
+                    liveSize -= size(existing);
+                }
+                IndexEntry added = IndexEntry.value(op.valueOffset, op.value.length, op.encodedSize(), base + op.valueOffset, false);
+                memtable.put(op.key, added);
+                liveSize += size(added);
+                break;
+            case DELETE:
+                if (existing != null) {
+                    liveSize -= size(existing);
+                }
+                memtable.put(op.key, IndexEntry.tombstone());
+                break;
+            case CLAIM:
+            case RELEASE:
+                IndexEntry top = memtable.get(op.key);
+                boolean claimed = op.type == CLAIM;
+                memtable.put(op.key, top == null ? IndexEntry.flag(claimed) : top.withClaimed(claimed));
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    // Current value for key, or null. Must be called while holding channel read lock (or from the background thread, or during recovery),
+    // since segments get closed once they've been swapped out.
+    private IndexEntry get(String key) throws IOException {
+        IndexEntry ret;
+        List<IndexSegment> current;
+        lock.lock();
+        try {
+            ret = memtable.get(key);
+            if (frozen != null && (ret == null || !ret.isFinal())) {
+                ret = over(ret, frozen.get(key));
+            }
+            current = segments;
+        } finally {
+            lock.unlock();
+        }
+
+        for (IndexSegment segment : current) {
+            if (ret != null && ret.isFinal()) {
+                break;
+            }
+            ret = over(ret, segment.get(key));
+        }
+        return ret != null && ret.isValue() ? ret : null;
+    }
+
+    // Current values for keys within [fromKey, toKey) (no upper bound if toKey is null), in order. Must be called while holding channel
+    // read lock, and read from before releasing it. I/O errors are thrown as UncheckedIOException.
+    private Iterator<Entry<String, IndexEntry>> scan(String fromKey, String toKey) {
+        List<Iterator<Entry<String, IndexEntry>>> sources = new ArrayList<>();
+        lock.lock();
+        try {
+            Validate.validState(!closed, "Closed");
+            sources.add(new TreeMap<>(range(memtable, fromKey, toKey)).entrySet().iterator()); // copied, since commits keep changing it
+            if (frozen != null) {
+                sources.add(range(frozen, fromKey, toKey).entrySet().iterator());
+            }
+            for (IndexSegment segment : segments) {
+                sources.add(segment.iterator(fromKey, toKey));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new MergeIterator(sources);
+    }
+
+    // must be called while holding lock, and not part way through applying a batch (log file size has to line up with the memtable)
+    private void freeze() {
+        frozen = memtable;
+        frozenSize = fileSize;
+        frozenLiveSize = liveSize;
+        memtable = new TreeMap<>();
+        backgroundCondition.signal();
+    }
+
+    // Writes the frozen memtable out as the newest segment. Only called by the background thread (or during recovery).
+    private void flush() throws IOException {
+        TreeMap<String, IndexEntry> toFlush;
+        long flushSize;
+        long flushLiveSize;
+        List<IndexSegment> current;
+        lock.lock();
+        try {
+            toFlush = frozen;
+            flushSize = frozenSize;
+            flushLiveSize = frozenLiveSize;
+            current = segments;
+        } finally {
+            lock.unlock();
+        }
+        if (toFlush == null) {
+            return;
+        }
+
+        IndexSegment segment = null;
+        boolean installed = false;
+        try {
+            try (IndexSegment.Writer writer = IndexSegment.create(nextSegmentId, segmentFile(nextSegmentId))) {
+                for (Entry<String, IndexEntry> e : toFlush.entrySet()) {
+                    writer.add(e.getKey(), e.getValue());
+                }
+                segment = writer.finish();
+            }
+            nextSegmentId++;
+
+            List<IndexSegment> updated = new ArrayList<>(current.size() + 1);
+            updated.add(segment);
+            updated.addAll(current);
+            writeManifest(generation, flushSize, flushLiveSize, updated);
+
+            channelLock.writeLock().lock(); // waits for readers of the old segment list to finish
+            lock.lock();
+            try {
+                segments = updated;
+                frozen = null;
+                indexedSize = flushSize;
+                indexedLiveSize = flushLiveSize;
+                flushFailing = false;
+                flushedCondition.signalAll();
+                installed = true;
+            } finally {
+                lock.unlock();
+                channelLock.writeLock().unlock();
+            }
+        } finally {
+            if (!installed) {
+                if (segment != null) {
+                    deleteSegments(Collections.singletonList(segment));
+                }
+                lock.lock();
+                try {
+                    flushFailing = true;
+                    flushedCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void flushIfFrozen() throws IOException {
+        boolean frozenPending;
+        lock.lock();
+        try {
+            frozenPending = frozen != null;
+        } finally {
+            lock.unlock();
+        }
+        if (frozenPending) {
+            flush();
+        }
+    }
+
+    // Merges all segments in to one once there are too many, so that lookups don't have to go through them all. Only called by the
+    // background thread.
+    private void mergeSegments() throws IOException {
+        List<IndexSegment> inputs;
+        lock.lock();
+        try {
+            inputs = segments;
+        } finally {
+            lock.unlock();
+        }
+        if (inputs.size() <= MAX_SEGMENTS) {
+            return;
+        }
+
+        LOG.debug("Merging {} index segments of {}", inputs.size(), file);
+
+        IndexSegment merged;
+        long id = nextSegmentId++;
+        try (IndexSegment.Writer writer = IndexSegment.create(id, segmentFile(id))) {
+            Iterator<Entry<String, IndexEntry>> it = mergeAll(inputs);
+            while (it.hasNext()) {
+                flushIfFrozen(); // so commits don't stall waiting on a full memtable while this runs
+                Entry<String, IndexEntry> e = it.next();
+                writer.add(e.getKey(), e.getValue());
+            }
+            merged = writer.finish();
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+
+        // Segments written out while merging sit on top of the merged segment
+        List<IndexSegment> updated;
+        lock.lock();
+        try {
+            updated = new ArrayList<>(segments.subList(0, segments.size() - inputs.size()));
+        } finally {
+            lock.unlock();
+        }
+        updated.add(merged);
+        try {
+            writeManifest(generation, indexedSize, indexedLiveSize, updated);
+        } catch (IOException | RuntimeException e) {
+            deleteSegments(Collections.singletonList(merged));
+            throw e;
+        }
+
+        channelLock.writeLock().lock(); // waits for readers of the old segment list to finish
+        lock.lock();
+        try {
+            segments = updated;
+        } finally {
+            lock.unlock();
+            channelLock.writeLock().unlock();
+        }
+        deleteSegments(inputs);
+    }
+
+    // Only called by the background thread, which is the only thread that swaps the channel out, so it can read from the channel without
+    // the channel lock.
+    private void compact() throws IOException {
+        // Freeze the memtable and write it out (along with anything else frozen), so that everything committed up to the snapshot is in
+        // segments and everything committed after is in the memtable or in segments written out after
+        long snapshotSize;
+        long snapshotLiveSize;
+        while (true) {
+            flush();
+            channelLock.writeLock().lock(); // no batch part way through being applied
+            lock.lock();
+            try {
+                if (fileSize < compactionThreshold || fileSize - FILE_HEADER_SIZE <= 2L * liveSize) {
+                    return;
+                }
+                if (frozen == null) {
+                    if (!memtable.isEmpty()) {
+                        freeze();
+                    }
+                    snapshotSize = fileSize;
+                    snapshotLiveSize = liveSize;
+                    break;
+                }
+            } finally {
+                lock.unlock();
+                channelLock.writeLock().unlock();
+            }
+        }
+        flush();
+
+        List<IndexSegment> inputs;
+        lock.lock();
+        try {
+            inputs = segments;
+        } finally {
+            lock.unlock();
+        }
+
+        LOG.debug("Compacting {} ({} bytes, {} live)", file, snapshotSize, snapshotLiveSize);
+
+        // Rewrite the latest value for every key as of the snapshot in to a new file. Commits keep appending to the old file in the
+        // meantime, which doesn't touch anything before snapshotSize, so the values in the snapshot stay valid while being copied.
+        Path compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        long id = nextSegmentId++;
+        IndexSegment compacted = null;
+        Path newManifestFile = null;
+        boolean installed = false;
+        FileChannel compactChannel = FileChannel.open(compactFile, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        try {
+            long position = FILE_HEADER_SIZE; // header gets written once the new base is known
+            try (IndexSegment.Writer writer = IndexSegment.create(id, segmentFile(id))) {
+                Iterator<Entry<String, IndexEntry>> it = mergeAll(inputs);
+                while (it.hasNext()) {
+                    flushIfFrozen(); // so commits don't stall waiting on a full memtable while this runs
+                    Entry<String, IndexEntry> e = it.next();
+                    String key = e.getKey();
+                    IndexEntry entry = e.getValue();
+                    byte[] value = read(entry);
+
+                    List<Operation> ops = new ArrayList<>(2);
+                    Operation put = new Operation(PUT, key, value);
+                    ops.add(put);
+                    if (entry.isClaimed()) {
+                        ops.add(new Operation(CLAIM, key, null));
+                    }
+
+                    int length = 0;
+                    for (Operation op : ops) {
+                        length += op.encodedSize();
+                    }
+                    ByteBuffer body = ByteBuffer.allocate(length);
+                    for (Operation op : ops) {
+                        op.encode(body, position + FRAME_HEADER_SIZE);
+                    }
+                    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + length);
+                    frame.putInt(length).putInt(crc(body.array())).put(body.array()).flip();
+                    writeFully(compactChannel, frame, position);
+                    position += FRAME_HEADER_SIZE + length;
+
+                    writer.add(key, IndexEntry.value(put.valueOffset, value.length, put.encodedSize(), entry.getSequence(),
+                            entry.isClaimed()));
+                }
+                compacted = writer.finish();
+            } catch (UncheckedIOException uioe) {
+                throw uioe.getCause();
+            }
+
+            List<IndexSegment> updated;
+            channelLock.writeLock().lock(); // waits for any in-progress commit to finish and blocks new ones until swapped
+            lock.lock();
+            try {
+                // Copy over the frames committed since the snapshot as-is. They're replayed after the compacted values when the file is
+                // opened, so any puts/deletes/claims/releases they hold still apply on top.
+                long tailSize = fileSize - snapshotSize;
+                long copied = 0L;
+                while (copied < tailSize) {
+                    copied += channel.transferTo(snapshotSize + copied, tailSize - copied, compactChannel.position(position + copied));
+                }
+                long shift = snapshotSize - position;
+                writeHeader(compactChannel, generation + 1L, base + shift);
+                compactChannel.force(true);
+
+                // Values put since the snapshot moved down by how much the file shrunk, so segments written out since get shifted by
+                // that much. The compacted segment goes under them.
+                updated = new ArrayList<>(segments.size() - inputs.size() + 1);
+                for (IndexSegment segment : segments.subList(0, segments.size() - inputs.size())) {
+                    updated.add(segment.shift(shift));
+                }
+                updated.add(compacted);
+                long newIndexedSize = Math.max(indexedSize, snapshotSize) - shift;
+                newManifestFile = manifestFile(generation + 1L);
+                writeManifest(generation + 1L, newIndexedSize, indexedLiveSize, updated);
+                Files.move(compactFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+
+                shiftValues(memtable, shift);
+                if (frozen != null) {
+                    shiftValues(frozen, shift);
+                    frozenSize -= shift;
+                }
+                segments = updated;
+                indexedSize = newIndexedSize;
+                generation++;
+                base += shift;
+
+                FileChannel oldChannel = channel;
+                channel = compactChannel;
+                compactChannel = null;
+                fileSize = position + tailSize;
+                installed = true;
+                try {
+                    oldChannel.close();
+                } catch (IOException ioe) {
+                    LOG.warn("Unable to close old {}", file, ioe);
+                }
+            } finally {
+                lock.unlock();
+                channelLock.writeLock().unlock();
+            }
+
+            Files.deleteIfExists(manifestFile(generation - 1L));
+            deleteSegments(inputs);
+        } finally {
+            if (compactChannel != null) {
+                compactChannel.close();
+                Files.deleteIfExists(compactFile);
+            }
+            if (!installed) {
+                if (compacted != null) {
+                    deleteSegments(Collections.singletonList(compacted));
+                }
+                if (newManifestFile != null) {
+                    Files.deleteIfExists(newManifestFile);
+                }
+            }
+        }
+    }
+
+    // Every key with a value across all of segments (newest first). I/O errors are thrown as UncheckedIOException.
+    private static Iterator<Entry<String, IndexEntry>> mergeAll(List<IndexSegment> segments) {
+        List<Iterator<Entry<String, IndexEntry>>> sources = new ArrayList<>(segments.size());
+        for (IndexSegment segment : segments) {
+            sources.add(segment.iterator("", null));
+        }
+        return new MergeIterator(sources);
+    }
+
+    // must be called while holding channel read lock (or from the background thread)
+    private byte[] read(IndexEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.getLength());
+        if (!readFully(channel, buffer, entry.getOffset())) {
+            throw new IOException("Unexpected end of file");
+        }
+        return buffer.array();
+    }
+
+    // Manifest is laid out as MANIFEST_MAGIC, generation (8 bytes), indexed size (8 bytes), indexed live size (8 bytes), next segment id
+    // (8 bytes), segment count (4 bytes), segments (id (8 bytes), shift (8 bytes) for each, newest first), CRC32 of everything before it.
+    private void writeManifest(long generation, long indexedSize, long indexedLiveSize, List<IndexSegment> segments) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(40 + 16 * segments.size() + 4);
+        data.putInt(MANIFEST_MAGIC).putLong(generation).putLong(indexedSize).putLong(indexedLiveSize).putLong(nextSegmentId);
+        data.putInt(segments.size());
+        for (IndexSegment segment : segments) {
+            data.putLong(segment.getId()).putLong(segment.getShift());
+        }
+        data.putInt(crc(data.array(), data.position()));
+        data.flip();
+
+        Path manifestFile = manifestFile(generation);
+        Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            writeFully(out, data, 0L);
+            out.force(true);
+        }
+        Files.move(tempFile, manifestFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    // Loads the manifest for the current generation, returns false if it's missing or unusable
+    private boolean loadManifest() throws IOException {
+        Path manifestFile = manifestFile(generation);
+        if (!Files.exists(manifestFile)) {
+            return false;
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(manifestFile));
+        int length = data.remaining();
+        if (length < 44 || data.getInt(length - 4) != crc(data.array(), length - 4) || data.getInt() != MANIFEST_MAGIC
+                || data.getLong() != generation) {
+            LOG.warn("Corrupt manifest {}", manifestFile);
+            return false;
+        }
+        indexedSize = data.getLong();
+        indexedLiveSize = data.getLong();
+        nextSegmentId = data.getLong();
+        int count = data.getInt();
+        if (count < 0 || length != 44 + 16 * count) {
+            LOG.warn("Corrupt manifest {}", manifestFile);
+            return false;
+        }
+
+        List<IndexSegment> loaded = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                long id = data.getLong();
+                long shift = data.getLong();
+                loaded.add(IndexSegment.open(id, segmentFile(id), shift));
+            }
+        } catch (IOException ioe) {
+            LOG.warn("Unable to open index segments listed in {}", manifestFile, ioe);
+            segments = loaded;
+            closeSegments();
+            segments = Collections.emptyList();
+            return false;
+        }
+        segments = loaded;
+        return true;
+    }
+
+    private Path manifestFile(long generation) {
+        return indexDirectory.resolve("manifest-" + generation);
+    }
+
+    private Path segmentFile(long id) {
+        return indexDirectory.resolve("segment-" + id);
+    }
+
+    private void deleteIndexFiles(Set<Path> keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexDirectory)) {
+            for (Path indexFile : stream) {
+                if (!keep.contains(indexFile)) {
+                    Files.deleteIfExists(indexFile);
+                }
+            }
+        }
+    }
+
+    private void deleteSegments(List<IndexSegment> toDelete) {
+        for (IndexSegment segment : toDelete) {
+            try {
+                segment.close();
+                Files.deleteIfExists(segment.getFile());
+            } catch (IOException ioe) {
+                LOG.warn("Unable to delete index segment {}", segment.getFile(), ioe);
+            }
+        }
+    }
+
+    private void closeSegments() {
+        for (IndexSegment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException ioe) {
+                LOG.warn("Unable to close index segment {}", segment.getFile(), ioe);
+            }
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        closeSegments();
+        channel.close();
+    }
+
+    private static long size(IndexEntry entry) {
+        return FRAME_HEADER_SIZE + entry.getEncodedSize();
+    }
+
+    private static IndexEntry over(IndexEntry newer, IndexEntry older) {
+        return newer == null ? older : newer.over(older);
+    }
+
+    private static NavigableMap<String, IndexEntry> range(TreeMap<String, IndexEntry> map, String fromKey, String toKey) {
+        return toKey == null ? map.tailMap(fromKey, true) : map.subMap(fromKey, true, toKey, false);
+    }
+
+    // must be called while holding channel write lock, values put since the compaction snapshot moved down by shift
+    private static void shiftValues(TreeMap<String, IndexEntry> map, long shift) {
+        for (Entry<String, IndexEntry> e : map.entrySet()) {
+            IndexEntry entry = e.getValue();
+            e.setValue(entry.withOffset(entry.getOffset() - shift));
+        }
+    }
+
+    private static List<Operation> decodeFrame(ByteBuffer body, long bodyOffset) {
+        List<Operation> ops = new ArrayList<>();
+        while (body.hasRemaining()) {
+            byte type = body.get();
+            byte[] key = new byte[body.getInt()];
+            body.get(key);
+            Operation op;
+            if (type == PUT) {
+                byte[] value = new byte[body.getInt()];
+                long valueOffset = bodyOffset + body.position();
+                body.get(value);
+                op = new Operation(type, new String(key, StandardCharsets.UTF_8), value);
+                op.valueOffset = valueOffset;
+            } else {
+                op = new Operation(type, new String(key, StandardCharsets.UTF_8), null);
+            }
+            ops.add(op);
+        }
+        return ops;
+    }
+
+    private static void writeHeader(FileChannel channel, long generation, long base) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation).putLong(base).flip();
+        writeFully(channel, header, 0L);
+    }
+
+    private static int crc(byte[] data) {
+        return crc(data, data.length);
+    }
+
+    private static int crc(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static final class Operation {
+        private final byte type;
+        private final String key;
+        private final byte[] keyBytes;
+        private final byte[] value;
+        private long valueOffset; // set once encoded/decoded
+        private boolean done;
+        private boolean success;
+
+        Operation(byte type, String key, byte[] value) {
+            this.type = type;
+            this.key = key;
+            this.keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            this.value = value;
+        }
+
+        int encodedSize() {
+            return 1 + 4 + keyBytes.length + (type == PUT ? 4 + value.length : 0);
+        }
+
+        void encode(ByteBuffer body, long bodyOffset) {
+            body.put(type);
+            body.putInt(keyBytes.length);
+            body.put(keyBytes);
+            if (type == PUT) {
+                body.putInt(value.length);
+                valueOffset = bodyOffset + body.position();
+                body.put(value);
+            }
+        }
+    }
+
+    // Merges runs of index entries sorted by key (newest run first) in to a single run of the keys that have a value, folding each key's
+    // entries together the same way get() does
+    private static final class MergeIterator implements Iterator<Entry<String, IndexEntry>> {
+        private final PriorityQueue<Run> runs;
+        private Entry<String, IndexEntry> next;
+
+        MergeIterator(List<Iterator<Entry<String, IndexEntry>>> sources) {
+            runs = new PriorityQueue<>(Comparator.comparing((Run r) -> r.head.getKey()).thenComparingInt(r -> r.rank));
+            for (int i = 0; i < sources.size(); i++) {
+                Run run = new Run(i, sources.get(i));
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !runs.isEmpty()) {
+                String key = runs.peek().head.getKey();
+                IndexEntry folded = null;
+                while (!runs.isEmpty() && runs.peek().head.getKey().equals(key)) {
+                    Run run = runs.poll(); // same key comes out newest run first
+                    folded = over(folded, run.head.getValue());
+                    if (run.advance()) {
+                        runs.add(run);
+                    }
+                }
+                if (folded.isValue()) {
+                    next = new SimpleImmutableEntry<>(key, folded);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, IndexEntry> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, IndexEntry> ret = next;
+            next = null;
+            return ret;
+        }
+    }
+
+    private static final class Run {
+        private final int rank;
+        private final Iterator<Entry<String, IndexEntry>> source;
+        private Entry<String, IndexEntry> head;
+
+        Run(int rank, Iterator<Entry<String, IndexEntry>> source) {
+            this.rank = rank;
+            this.source = source;
+        }
+
+        boolean advance() {
+            if (!source.hasNext()) {
+                return false;
+            }
+            head = source.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.checkpoint;
+
+import com.offbynull.actors.core.context.Serializer;
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Saves and restores actors via an embedded, single-file, log-structured key-value store.
+ * <p>
+ * Unlike {@link FileSystemCheckpointer}, which keeps a file per actor and relies on renaming files to mark them as non-loadable, each
+ * save/restore/delete is a transaction appended to a single file. A restore reads the actor and marks it as non-loadable in the same
+ * transaction. Transactions are made durable (fsync) before returning, and transactions from concurrent callers (e.g. the threads of an
+ * {@link com.offbynull.actors.core.actor.ActorRunner}) are batched together so they share a single write. If the process dies part way
+ * through writing a transaction, that transaction is discarded the next time the file is opened.
+ * <p>
+ * Actor addresses are held in an ordered index, which allows scanning for actors by address prefix (see
+ * {@link #list(com.offbynull.actors.core.shuttle.Address) }). The index is kept on disk alongside the storage file (in a directory with
+ * the same name plus {@code .index}) as sorted runs of addresses. Only recent changes to the index and one in every 64 addresses are held
+ * in memory, so the number of actors this can hold isn't bounded by heap.
+ * <p>
+ * Space taken up by overwritten/deleted actors is reclaimed by rewriting the file once it's mostly dead data. The rewrite happens on a
+ * background thread while saves/restores/deletes carry on -- they only wait for the rewritten file to be swapped in.
+ *
+ * @author Kasra Faghihi
+ */
+public final class LogStructuredCheckpointer implements Checkpointer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogStructuredCheckpointer.class);
+
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64L * 1024L * 1024L;
+
+    private final Serializer serializer;
+    private final LogStore store;
+
+    /**
+     * Create a {@link LogStructuredCheckpointer} object that restores running/active actors from their previous checkpoint state.
+     * Equivalent to calling {@code create(serializer, file, true)}.
+     *
+     * @param serializer serializer to use for saving/restoring actors
+     * @param file storage file for serialized actors (created if it doesn't exist)
+     * @return new instance of {@link LogStructuredCheckpointer}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if problems opening the storage file or restoring running/active actors
+     */
+    public static LogStructuredCheckpointer create(Serializer serializer, Path file) throws IOException {
+        return create(serializer, file, true);
+    }
+
+    /**
+     * Create a {@link LogStructuredCheckpointer} object.
+     *
+     * @param serializer serializer to use for saving/restoring actors
+     * @param file storage file for serialized actors (created if it doesn't exist)
+     * @param restoreRunning restores running/active actors from their previous checkpoint state as well as checkpointed actors if
+     * {@code true}, restores only saved actors only if {@code false}
+     * @return new instance of {@link LogStructuredCheckpointer}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if problems opening the storage file or restoring running/active actors
+     */
+    public static LogStructuredCheckpointer create(Serializer serializer, Path file, boolean restoreRunning) throws IOException {
+        return create(serializer, file, restoreRunning, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    static LogStructuredCheckpointer create(Serializer serializer, Path file, boolean restoreRunning, long compactionThreshold)
+            throws IOException {
+        return create(serializer, file, restoreRunning, compactionThreshold, LogStore.DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    static LogStructuredCheckpointer create(Serializer serializer, Path file, boolean restoreRunning, long compactionThreshold,
+            int memtableLimit) throws IOException {
+        Validate.notNull(serializer);
+        Validate.notNull(file);
+        Validate.isTrue(compactionThreshold >= 0L);
+        Validate.isTrue(memtableLimit > 0);
+
+        LogStore store = LogStore.open(file, compactionThreshold, memtableLimit);
+        if (restoreRunning) {
+            int released = store.releaseAll();
+            LOG.debug("Restored {} running/active actors", released);
+        }
+
+        return new LogStructuredCheckpointer(serializer, store);
+    }
+
+    private LogStructuredCheckpointer(Serializer serializer, LogStore store) {
+        Validate.notNull(serializer);
+        Validate.notNull(store);
+        this.serializer = serializer;
+        this.store = store;
+    }
+
+    @Override
+    public boolean save(SourceContext ctx) {
+        Validate.notNull(ctx);
+        Validate.isTrue(ctx.isRoot());
+
+        return save(ctx.self(), serializer.serialize(ctx));
+    }
+
+    // data must be ctx.self()'s root context serialized by this checkpointer's serializer -- used by CachingCheckpointer to skip
+    // reserializing
+    boolean save(Address address, byte[] data) {
+        return store.put(address.toString(), data);
+    }
+
+    Serializer getSerializer() {
+        return serializer;
+    }
+
+    @Override
+    public SourceContext restore(Address address) {
+        Validate.notNull(address);
+
+        byte[] data = store.claim(address.toString());
+        if (data == null) {
+            return null;
+        }
+
+        SourceContext ctx;
+        try {
+            ctx = serializer.unserialize(data);
+        } catch (IllegalArgumentException iae) {
+            LOG.error("Unable to unserialize {}", address, iae);
+            return null;
+        }
+
+        if (!ctx.isRoot()) {
+            LOG.error("Context is not root {}", address);
+            return null;
+        }
+
+        return ctx;
+    }
+
+    @Override
+    public void delete(Address address) {
+        Validate.notNull(address);
+
+        if (!store.delete(address.toString())) {
+            LOG.error("Unable to delete {}", address);
+        }
+    }
+
+    /**
+     * List the addresses of restorable actors that start with some prefix. Actors that have already been restored (running/active) aren't
+     * included.
+     * @param prefix address prefix
+     * @return addresses of restorable actors that start with {@code prefix}, in order of their string representation
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public List<Address> list(Address prefix) {
+        Validate.notNull(prefix);
+
+        List<Address> ret = new ArrayList<>();
+
+        String prefixStr = prefix.toString();
+        if (prefix.isEmpty()) {
+            for (String key : store.keys("", "\uffff")) {
+                ret.add(Address.fromString(key));
+            }
+            return ret;
+        }
+
+        // Keys are address strings, so an address that starts with prefix is either prefix itself or starts with prefix followed by the
+        // delimiter
+        for (String key : store.keys(prefixStr, prefixStr + '\u0000')) {
+            ret.add(Address.fromString(key));
+        }
+        for (String key : store.keys(prefixStr + ':', prefixStr + (char) (':' + 1))) {
+            ret.add(Address.fromString(key));
+        }
+        return ret;
+    }
+
+    @Override
+    public List<Address> listRecent(int max) {
+        Validate.isTrue(max >= 0);
+
+        List<Address> ret = new ArrayList<>(Math.min(max, 1024));
+        for (String key : store.recentKeys(max)) {
+            ret.add(Address.fromString(key));
+        }
+        return ret;
+    }
+
+    /**
+     * Waits for pending transactions to be written, then closes the storage file.
+     * @throws IOException if problems closing the storage file
+     * @throws InterruptedException if interrupted while waiting for pending transactions
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        store.close();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Immutable consistent hash ring. Each node is placed on the ring multiple times (virtual nodes) so that keys are spread evenly, and a key
+ * belongs to the first node found walking clockwise from the key's hash. Adding or removing a node only moves the keys belonging to that
+ * node.
+ * @author Kasra Faghihi
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring;
+    private final Set<String> nodes;
+
+    /**
+     * Create a {@link ConsistentHashRing} instance.
+     * @param nodes nodes on the ring
+     * @param virtualNodes number of times each node is placed on the ring
+     * @return new consistent hash ring
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     * @throws IllegalArgumentException if {@code virtualNodes <= 0}
+     */
+    public static ConsistentHashRing create(Collection<String> nodes, int virtualNodes) {
+        Validate.notNull(nodes);
+        Validate.noNullElements(nodes);
+        Validate.isTrue(virtualNodes > 0);
+        return new ConsistentHashRing(nodes, virtualNodes);
+    }
+
+    private ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.ring = new TreeMap<>();
+        this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+        
+        for (String node : this.nodes) { // sorted, so that collisions resolve the same way regardless of insertion order
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + '#' + i), node);
+            }
+        }
+    }
+
+    /**
+     * Get the nodes on this ring.
+     * @return nodes
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the node that a key belongs to.
+     * @param key key
+     * @return node that {@code key} belongs to, or {@code null} if this ring has no nodes
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public String locate(String key) {
+        Validate.notNull(key);
+        
+        if (ring.isEmpty()) {
+            return null;
+        }
+        
+        Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        if (entry == null) { // wrap around
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    // 64-bit FNV-1a followed by a finalizer (from MurmurHash3) -- FNV alone clusters similar strings (e.g. node#1, node#2) too closely
+    private static long hash(String str) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : str.getBytes(UTF_8)) {
+            hash ^= b & 0xFFL;
+            hash *= 0x100000001B3L;
+        }
+        
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsistentHashRing{" + "nodes=" + nodes + ", virtualNodes=" + ring.size() + '}';
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Directory of the nodes in a cluster, used to decide which node an actor lives on. Each node is registered with the address prefix that
+ * reaches its actor runner from this node (e.g. {@code runner} for the local node, or {@code tcp:b:runner} for a remote node reachable
+ * through a {@link com.offbynull.actors.core.gateways.tcp.TcpGateway}). Actor ids are placed on nodes using consistent hashing, so as long
+ * as every node has the same membership, every node agrees on where an actor lives.
+ * <p>
+ * Every membership change increments this directory's version, which lets anything caching placement decisions (e.g.
+ * {@link RoutingGateway}) know when to discard them.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class Directory {
+    
+    private static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private volatile Membership membership; // replaced (never modified) on change
+
+    /**
+     * Create a {@link Directory} instance. Equivalent to calling {@code create(128)}.
+     * @return new directory
+     */
+    public static Directory create() {
+        return create(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Create a {@link Directory} instance.
+     * @param virtualNodes number of times each node is placed on the consistent hash ring
+     * @return new directory
+     * @throws IllegalArgumentException if {@code virtualNodes <= 0}
+     */
+    public static Directory create(int virtualNodes) {
+        Validate.isTrue(virtualNodes > 0);
+        return new Directory(virtualNodes);
+    }
+
+    private Directory(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+        this.membership = new Membership(0L, Collections.emptyMap(), ConsistentHashRing.create(Collections.emptyList(), virtualNodes));
+    }
+
+    /**
+     * Add a node.
+     * @param node node name
+     * @param route address prefix that reaches the node's actor runner
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code route} is empty, or if {@code node} already exists
+     */
+    public synchronized void addNode(String node, Address route) {
+        Validate.notNull(node);
+        Validate.notNull(route);
+        Validate.isTrue(!route.isEmpty());
+        
+        Map<String, Address> routes = new HashMap<>(membership.routes);
+        Validate.isTrue(routes.putIfAbsent(node, route) == null, "Node already exists: %s", node);
+        update(routes);
+    }
+
+    /**
+     * Remove a node.
+     * @param node node name
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code node} doesn't exist
+     */
+    public synchronized void removeNode(String node) {
+        Validate.notNull(node);
+        
+        Map<String, Address> routes = new HashMap<>(membership.routes);
+        Validate.isTrue(routes.remove(node) != null, "Node does not exist: %s", node);
+        update(routes);
+    }
+
+    private void update(Map<String, Address> routes) {
+        membership = new Membership(
+                membership.version + 1L,
+                Collections.unmodifiableMap(routes),
+                ConsistentHashRing.create(routes.keySet(), virtualNodes));
+    }
+
+    /**
+     * Get the nodes in this directory.
+     * @return node names mapped to the address prefixes that reach them
+     */
+    public Map<String, Address> getNodes() {
+        return membership.routes;
+    }
+
+    /**
+     * Get the version of this directory's membership. The version changes every time a node is added or removed.
+     * @return version
+     */
+    public long getVersion() {
+        return membership.version;
+    }
+
+    /**
+     * Get the node that an actor lives on.
+     * @param id actor id
+     * @return node name
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if this directory has no nodes
+     */
+    public String locateNode(String id) {
+        Validate.notNull(id);
+        String node = membership.ring.locate(id);
+        Validate.validState(node != null, "No nodes");
+        return node;
+    }
+
+    /**
+     * Get the address of an actor.
+     * @param id actor id
+     * @return address of the actor (the route to the actor's node, followed by {@code id})
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if this directory has no nodes
+     */
+    public Address locate(String id) {
+        Validate.notNull(id);
+        Membership current = membership; // read once so the ring and the routes are consistent with each other
+        String node = current.ring.locate(id);
+        Validate.validState(node != null, "No nodes");
+        return current.routes.get(node).appendSuffix(id);
+    }
+
+    private static final class Membership {
+        private final long version;
+        private final Map<String, Address> routes;
+        private final ConsistentHashRing ring;
+
+        Membership(long version, Map<String, Address> routes, ConsistentHashRing ring) {
+            this.version = version;
+            this.routes = routes;
+            this.ring = ring;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Gateway} that routes messages to actors based on a {@link Directory}, so that actors can be addressed without knowing which node
+ * they live on. A message sent to {@code <prefix>:<id>:...} is forwarded to wherever the directory places the actor {@code id}, with the
+ * rest of the destination address kept as-is. For example, if the directory places {@code worker7} on a node routed through
+ * {@code tcp:b:runner}, a message sent to {@code cluster:worker7:sub} is forwarded to {@code tcp:b:runner:worker7:sub}.
+ * <p>
+ * Only destinations that explicitly use this gateway's prefix are routed. Messages to other destinations (including prefixes that have
+ * no shuttle) aren't picked up by this gateway: runners and gateways only ever hand a message to the shuttle for its destination prefix,
+ * so there's no point at which an unknown destination could be redirected here. Address actors that may live on other nodes as
+ * {@code <prefix>:<id>}.
+ * <p>
+ * Placement decisions are cached, and the cache is discarded whenever the directory's membership changes.
+ * <p>
+ * This gateway doesn't have a thread of its own: messages are routed and forwarded from the thread that sends them.
+ * <p>
+ * In the following example, actors are spread between the nodes {@code a} and {@code b} (each node is an {@code ActorSystem} in its own
+ * process, connected to the other using {@link com.offbynull.actors.core.gateways.tcp.TcpGateway}).
+ * <pre>
+ * // Node a (node b is set up the same way, but with the routes swapped around)
+ * Directory directory = Directory.create();
+ * directory.addNode("a", Address.of("runner"));
+ * directory.addNode("b", Address.of("tcp", "b", "runner"));
+ * 
+ * ActorSystem system = ActorSystem.builder()
+ *         .withGateway(tcpGateway)
+ *         .withGateway(RoutingGateway.create("cluster", directory))
+ *         .build();
+ * 
+ * // Actors on either node can send to "cluster:worker7", regardless of which node worker7 was created on. Actors should be created on
+ * // the node returned by directory.locateNode(id).
+ * </pre>
+ * @author Kasra Faghihi
+ */
+public final class RoutingGateway implements Gateway {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingGateway.class);
+
+    private final RoutingShuttle shuttle;
+    private final ConcurrentHashMap<String, Shuttle> outgoingShuttles;
+
+    /**
+     * Create a {@link RoutingGateway} instance.
+     * @param prefix address prefix for this gateway
+     * @param directory directory to use for placing actors
+     * @return new routing gateway
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static RoutingGateway create(String prefix, Directory directory) {
+        return new RoutingGateway(prefix, directory);
+    }
+
+    private RoutingGateway(String prefix, Directory directory) {
+        Validate.notNull(prefix);
+        Validate.notNull(directory);
+        outgoingShuttles = new ConcurrentHashMap<>();
+        shuttle = new RoutingShuttle(prefix, directory, outgoingShuttles);
+    }
+
+    @Override
+    public Shuttle getIncomingShuttle() {
+        return shuttle;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is added right away. If a shuttle with the same prefix already exists, this gateway
+     * terminates.
+     */
+    @Override
+    public void addOutgoingShuttle(Shuttle shuttle) {
+        Validate.notNull(shuttle);
+        if (this.shuttle.isClosed()) {
+            return;
+        }
+        
+        Shuttle existingShuttle = outgoingShuttles.putIfAbsent(shuttle.getPrefix(), shuttle);
+        if (existingShuttle != null) {
+            terminate("Shuttle with prefix already exists: " + shuttle.getPrefix());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is removed right away. If no shuttle with the prefix exists, this gateway terminates.
+     */
+    @Override
+    public void removeOutgoingShuttle(String shuttlePrefix) {
+        Validate.notNull(shuttlePrefix);
+        if (shuttle.isClosed()) {
+            return;
+        }
+        
+        Shuttle oldShuttle = outgoingShuttles.remove(shuttlePrefix);
+        if (oldShuttle == null) {
+            terminate("Shuttle with prefix does not exist: " + shuttlePrefix);
+        }
+    }
+    
+    private void terminate(String error) {
+        LOG.error("Terminating due to error: {}", error);
+        close();
+    }
+
+    @Override
+    public void close() {
+        shuttle.close();
+        outgoingShuttles.clear();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Rewrites destinations of the form <prefix>:<id>:... to the actor's actual address (as decided by the directory) and forwards the
+// messages on from the calling thread. Only messages explicitly sent to <prefix> get here -- destinations with other (unknown) prefixes
+// are never handed to this shuttle, so they can't be routed.
+final class RoutingShuttle implements Shuttle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingShuttle.class);
+    
+    private static final int MAX_CACHE_SIZE = 65536;
+
+    private final String prefix;
+    private final Directory directory;
+    private final Map<String, Shuttle> outgoingShuttles;
+    private volatile Cache cache;
+    private volatile boolean closed;
+
+    RoutingShuttle(String prefix, Directory directory, Map<String, Shuttle> outgoingShuttles) {
+        Validate.notNull(prefix);
+        Validate.notNull(directory);
+        Validate.notNull(outgoingShuttles);
+        this.prefix = prefix;
+        this.directory = directory;
+        this.outgoingShuttles = outgoingShuttles; // concurrent map, modified directly by gateway
+        this.cache = new Cache(directory.getVersion());
+    }
+
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public void send(Collection<Message> messages) {
+        Validate.notNull(messages);
+        Validate.noNullElements(messages);
+        
+        if (closed) {
+            LOG.debug("Messages sent to closed shuttle: {}", messages);
+            return;
+        }
+
+        // Group outgoing messages by prefix
+        Map<String, List<Message>> outgoingMap = new HashMap<>();
+        for (Message message : messages) {
+            Address dst = message.getDestinationAddress();
+            if (dst.size() < 2 || !dst.getElement(0).equals(prefix)) {
+                LOG.error("Destination must be in the form of {}:<id>: {}", prefix, dst);
+                continue;
+            }
+            
+            Address actorAddress;
+            try {
+                actorAddress = route(dst.getElement(1));
+            } catch (IllegalStateException ise) {
+                LOG.error("Unable to route message: " + message, ise);
+                continue;
+            }
+            
+            Address outDst = actorAddress.appendSuffix(dst.removePrefix(Address.of(prefix, dst.getElement(1))));
+            Message outMessage = new Message(message.getSourceAddress(), outDst, message.getMessage(), message.getTrace());
+            outgoingMap.computeIfAbsent(outDst.getElement(0), k -> new LinkedList<>()).add(outMessage);
+        }
+
+        // Send outgoing messaged by prefix
+        for (Entry<String, List<Message>> entry : outgoingMap.entrySet()) {
+            Shuttle shuttle = outgoingShuttles.get(entry.getKey());
+            if (shuttle == null) {
+                LOG.warn("Shuttle not found for {}, {} messages ignored", entry.getKey(), entry.getValue().size());
+                continue;
+            }
+
+            shuttle.send(entry.getValue());
+        }
+    }
+
+    void close() {
+        closed = true;
+    }
+    
+    boolean isClosed() {
+        return closed;
+    }
+
+    Address route(String id) {
+        // Discard cached placements if membership changed. Version is read before placement is computed, so at worst a placement from a
+        // newer membership ends up in the cache for an older one (which gets discarded on the next call anyways).
+        Cache current = cache;
+        long version = directory.getVersion();
+        if (current.version != version || current.addresses.size() >= MAX_CACHE_SIZE) {
+            current = new Cache(version);
+            cache = current;
+        }
+        
+        return current.addresses.computeIfAbsent(id, directory::locate);
+    }
+
+    private static final class Cache {
+        private final long version;
+        private final ConcurrentHashMap<String, Address> addresses;
+
+        Cache(long version) {
+            this.version = version;
+            this.addresses = new ConcurrentHashMap<>();
+        }
+    }
+}
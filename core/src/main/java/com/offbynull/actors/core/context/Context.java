@@ -25,6 +25,7 @@ import com.offbynull.actors.core.shuttle.Address;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.List;
+import org.apache.commons.lang3.Validate;
 
 /**
  * Context of an actor. An actor's context is passed in to an actor each time an incoming message arrives. It contains ...
@@ -285,59 +286,87 @@ public interface Context {
         out(DEFAULT_TIMER_ADDRESS.appendSuffix(Long.toString(delay)), message);
     }
 
+    /**
+     * Check if messages of some log level should be sent to the log gateway. The log helper methods (e.g.
+     * {@link #logDebug(java.lang.String, java.lang.Object...) }) use this to skip creating and sending log messages that the log gateway
+     * would discard. Default implementation always returns {@code true}.
+     * @param type log level
+     * @return {@code true} if log messages of level {@code type} should be sent, {@code false} otherwise
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    default boolean isLogEnabled(LogMessage.Type type) {
+        Validate.notNull(type);
+        return true;
+    }
+
     /**
      * Sends a error message to the log gateway located at address
-     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}.
+     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}. Does nothing if
+     * {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) } returns {@code false} for the level.
      * @param message message to be logged (SLF4J style)
      * @param arguments arguments to insert in to {@code message}
      * @throws NullPointerException if any argument is {@code null}
      */
     default void logError(String message, Object... arguments) {
-        out(DEFAULT_LOG_ADDRESS, LogMessage.error(message, arguments));
+        if (isLogEnabled(LogMessage.Type.ERROR)) {
+            out(DEFAULT_LOG_ADDRESS, LogMessage.error(message, arguments));
+        }
     }
 
     /**
      * Sends a warn message to the log gateway located at address
-     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}.
+     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}. Does nothing if
+     * {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) } returns {@code false} for the level.
      * @param message message to be logged (SLF4J style)
      * @param arguments arguments to insert in to {@code message}
      * @throws NullPointerException if any argument is {@code null}
      */
     default void logWarn(String message, Object... arguments) {
-        out(DEFAULT_LOG_ADDRESS, LogMessage.warn(message, arguments));
+        if (isLogEnabled(LogMessage.Type.WARN)) {
+            out(DEFAULT_LOG_ADDRESS, LogMessage.warn(message, arguments));
+        }
     }
     
     /**
      * Sends a info message to the log gateway located at address
-     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}.
+     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}. Does nothing if
+     * {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) } returns {@code false} for the level.
      * @param message message to be logged (SLF4J style)
      * @param arguments arguments to insert in to {@code message}
      * @throws NullPointerException if any argument is {@code null}
      */
     default void logInfo(String message, Object... arguments) {
-        out(DEFAULT_LOG_ADDRESS, LogMessage.info(message, arguments));
+        if (isLogEnabled(LogMessage.Type.INFO)) {
+            out(DEFAULT_LOG_ADDRESS, LogMessage.info(message, arguments));
+        }
     }
     
     /**
      * Sends a debug message to the log gateway located at address
-     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}.
+     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}. Does nothing if
+     * {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) } returns {@code false} for the level.
      * @param message message to be logged (SLF4J style)
      * @param arguments arguments to insert in to {@code message}
      * @throws NullPointerException if any argument is {@code null}
      */
     default void logDebug(String message, Object... arguments) {
-        out(DEFAULT_LOG_ADDRESS, LogMessage.debug(message, arguments));
+        if (isLogEnabled(LogMessage.Type.DEBUG)) {
+            out(DEFAULT_LOG_ADDRESS, LogMessage.debug(message, arguments));
+        }
     }
     
     /**
      * Sends a trace message to the log gateway located at address
-     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}.
+     * {@link com.offbynull.actors.core.common.DefaultAddresses#DEFAULT_LOG_ADDRESS}. Does nothing if
+     * {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) } returns {@code false} for the level.
      * @param message message to be logged (SLF4J style)
      * @param arguments arguments to insert in to {@code message}
      * @throws NullPointerException if any argument is {@code null}
      */
     default void logTrace(String message, Object... arguments) {
-        out(DEFAULT_LOG_ADDRESS, LogMessage.trace(message, arguments));
+        if (isLogEnabled(LogMessage.Type.TRACE)) {
+            out(DEFAULT_LOG_ADDRESS, LogMessage.trace(message, arguments));
+        }
     }
     
     /**
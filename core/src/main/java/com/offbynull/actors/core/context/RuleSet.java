@@ -36,11 +36,12 @@ public final class RuleSet implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private AccessType defaultAccessType;
-    private final Map<Address, AddressRule> rules;
+    // null if empty and a singleton map if there's only 1 rule -- most actors have no rules beyond the default, or only a rule for
+    // themselves, so avoid allocating a hash map unless needed
+    private Map<Address, AddressRule> rules;
     
     RuleSet() {
         defaultAccessType = AccessType.REJECT;
-        rules = new HashMap<>();
     }
     
     /**
@@ -48,7 +49,7 @@ public final class RuleSet implements Serializable {
      */
     public void allowAll() {
         defaultAccessType = AccessType.ALLOW;
-        rules.clear();
+        rules = null;
     }
 
     /**
@@ -56,7 +57,7 @@ public final class RuleSet implements Serializable {
      */
     public void rejectAll() {
         defaultAccessType = AccessType.REJECT;
-        rules.clear();
+        rules = null;
     }
 
     /**
@@ -70,7 +71,7 @@ public final class RuleSet implements Serializable {
         Validate.notNull(address);
         Validate.notNull(types);
         Validate.noNullElements(types);
-        rules.put(address, new AddressRule(includeChildren, AccessType.ALLOW, Arrays.asList(types)));
+        putRule(address, AddressRule.of(includeChildren, AccessType.ALLOW, types));
     }
 
     /**
@@ -84,7 +85,19 @@ public final class RuleSet implements Serializable {
         Validate.notNull(address);
         Validate.notNull(types);
         Validate.noNullElements(types);
-        rules.put(address, new AddressRule(includeChildren, AccessType.REJECT, Arrays.asList(types)));
+        putRule(address, AddressRule.of(includeChildren, AccessType.REJECT, types));
+    }
+    
+    private void putRule(Address address, AddressRule rule) {
+        if (rules == null || (rules.size() == 1 && rules.containsKey(address))) {
+            rules = Collections.singletonMap(address, rule);
+            return;
+        }
+        
+        if (rules.size() == 1) {
+            rules = new HashMap<>(rules);
+        }
+        rules.put(address, rule);
     }
     
     /**
@@ -97,6 +110,10 @@ public final class RuleSet implements Serializable {
         Validate.notNull(address);
         Validate.notNull(type);
         
+        if (rules == null) {
+            return defaultAccessType;
+        }
+        
         // Find greatest prefix;
         for (int i = 0; i < address.size(); i++) {
             Address foundAddressPrefix = address.removeSuffix(i);
@@ -127,6 +144,14 @@ public final class RuleSet implements Serializable {
 
         private static final long serialVersionUID = 1L;
         
+        // Rules that apply to all types are immutable and identical for every actor, so share them
+        private static final AddressRule[] UNTYPED_RULES = {
+            new AddressRule(false, AccessType.ALLOW, Collections.emptyList()),
+            new AddressRule(true, AccessType.ALLOW, Collections.emptyList()),
+            new AddressRule(false, AccessType.REJECT, Collections.emptyList()),
+            new AddressRule(true, AccessType.REJECT, Collections.emptyList())
+        };
+        
         private final boolean includeChildren;
         private final AccessType accessType;
         private final Set<Class<?>> types;
@@ -138,7 +163,14 @@ public final class RuleSet implements Serializable {
             
             this.includeChildren = includeChildren;
             this.accessType = accessType;
-            this.types = Collections.unmodifiableSet(new LinkedHashSet<>(types));
+            this.types = types.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(types));
+        }
+
+        static AddressRule of(boolean includeChildren, AccessType accessType, Class<?>... types) {
+            if (types.length == 0) {
+                return UNTYPED_RULES[accessType.ordinal() * 2 + (includeChildren ? 1 : 0)];
+            }
+            return new AddressRule(includeChildren, accessType, Arrays.asList(types));
         }
 
         public boolean isIncludeChildren() {
@@ -19,6 +19,8 @@ package com.offbynull.actors.core.context;
 import com.offbynull.coroutines.user.Coroutine;
 import com.offbynull.coroutines.user.CoroutineRunner;
 import com.offbynull.actors.core.context.RuleSet.AccessType;
+import com.offbynull.actors.core.gateways.log.LogLevelFilter;
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
 import com.offbynull.actors.core.shuttle.Address;
 import java.io.Serializable;
 import java.time.Instant;
@@ -51,6 +53,9 @@ public final class SourceContext implements Context, Serializable {
     private Address source;
     private Address destination;
     private Object in;
+    // The following are null until first used -- most actors are idle most of the time and many never use some of these at all, so
+    // they're only allocated as needed to keep the memory footprint of resident actors low. Only root contexts hold outs (children send
+    // out through their root).
     private List<BatchedOutgoingMessage> outs;
     private List<BatchedCreateActorCommand> newRoots;
     private Map<String, SourceContext> children;
@@ -60,6 +65,11 @@ public final class SourceContext implements Context, Serializable {
     private boolean intercept;
     private CheckpointRestoreLogic checkpointRestoreLogic;
     private SuspendFlag flag;
+    private transient LogLevelFilter logLevelFilter;
+    
+    // Only used by root contexts -- built lazily on the first message to a child, and rebuilt after being restored from a checkpoint
+    private transient Map<Address, SourceContext> dispatch; // address -> context, for every descendant
+    private transient int intercepting; // number of contexts in the tree (including root) that are intercepting
 
     /**
      * Constructs a {@link SourceContext} object.
@@ -74,11 +84,6 @@ public final class SourceContext implements Context, Serializable {
         this.ruleSet = new RuleSet();
         this.actorRunner = actorRunner;
         this.self = self;
-        this.outs = new LinkedList<>();
-        this.newRoots = new LinkedList<>();
-        this.children = new HashMap<>();
-        
-        this.shortcircuits = new HashMap<>();
         
         this.flag = SuspendFlag.RELEASE;
         
@@ -131,8 +136,16 @@ public final class SourceContext implements Context, Serializable {
         Validate.notNull(cls);
         
         if (shortcircuit == null) { // remove
-            shortcircuits.remove(cls);
+            if (shortcircuits != null) {
+                shortcircuits.remove(cls);
+                if (shortcircuits.isEmpty()) {
+                    shortcircuits = null;
+                }
+            }
         } else {
+            if (shortcircuits == null) {
+                shortcircuits = new HashMap<>(4);
+            }
             shortcircuits.put(cls, shortcircuit);
         }
     }
@@ -166,10 +179,17 @@ public final class SourceContext implements Context, Serializable {
     }
 
     List<BatchedOutgoingMessage> outs() {
-        return outs;
+        SourceContext root = root();
+        if (root.outs == null) {
+            root.outs = new LinkedList<>();
+        }
+        return root.outs;
     }
     
     Map<String, SourceContext> children() {
+        if (children == null) {
+            children = new HashMap<>(4);
+        }
         return children;
     }
 
@@ -192,12 +212,17 @@ public final class SourceContext implements Context, Serializable {
         Validate.notNull(message);
         Validate.isTrue(self.isPrefixOf(source));
         Validate.isTrue(!destination.isEmpty());
-        outs.add(new BatchedOutgoingMessage(source, destination, message));
+        outs().add(new BatchedOutgoingMessage(source, destination, message));
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned view stops reflecting the outgoing message queue once {@link #copyAndClearOutgoingMessages() } is called.
+     */
     @Override
     public List<BatchedOutgoingMessage> viewOuts() {
-        return Collections.unmodifiableList(outs);
+        return Collections.unmodifiableList(outs());
     }
     
     /**
@@ -205,8 +230,13 @@ public final class SourceContext implements Context, Serializable {
      * @return list of queued outgoing messages
      */
     public List<BatchedOutgoingMessage> copyAndClearOutgoingMessages() {
-        List<BatchedOutgoingMessage> ret = new ArrayList<>(outs);
-        outs.clear();
+        SourceContext root = root();
+        if (root.outs == null) {
+            return new ArrayList<>();
+        }
+        
+        List<BatchedOutgoingMessage> ret = new ArrayList<>(root.outs);
+        root.outs = null;
         
         return ret;
     }
@@ -216,8 +246,12 @@ public final class SourceContext implements Context, Serializable {
      * @return list of new root actors to create
      */
     public List<BatchedCreateActorCommand> copyAndClearNewRoots() {
+        if (newRoots == null) {
+            return new ArrayList<>();
+        }
+        
         List<BatchedCreateActorCommand> ret = new ArrayList<>(newRoots);
-        newRoots.clear();
+        newRoots = null;
         
         return ret;
     }
@@ -229,6 +263,9 @@ public final class SourceContext implements Context, Serializable {
         Validate.notNull(primingMessages);
         Validate.noNullElements(primingMessages);
         
+        if (newRoots == null) {
+            newRoots = new LinkedList<>();
+        }
         newRoots.add(new BatchedCreateActorCommand(id, actor, primingMessages));
     }
 
@@ -243,8 +280,7 @@ public final class SourceContext implements Context, Serializable {
         CoroutineRunner childActorRunner = new CoroutineRunner(actor);
         
         SourceContext childCtx = new SourceContext(childActorRunner, childSelf);
-        childCtx.parent = this;
-        childCtx.outs = outs; // all outgoing messages go in to the same queue
+        childCtx.parent = this; // all outgoing messages go in to the same queue (the root's)
         
         for (Object primingMessage : primingMessages) {
             childCtx.out(childSelf, childSelf, primingMessage);
@@ -252,19 +288,99 @@ public final class SourceContext implements Context, Serializable {
         
         childActorRunner.setContext(childCtx);
         
-        SourceContext existingCtx = children.putIfAbsent(id, childCtx);
+        SourceContext existingCtx = children().putIfAbsent(id, childCtx);
         Validate.isTrue(existingCtx == null);
+        
+        SourceContext root = root();
+        if (root.dispatch != null) {
+            root.dispatch.put(childSelf, childCtx);
+        }
+    }
+    
+    private void removeChild(SourceContext childCtx) {
+        children.remove(childCtx.self.getElement(childCtx.self.size() - 1));
+        if (children.isEmpty()) {
+            children = null;
+        }
+        
+        SourceContext root = root();
+        if (root.dispatch != null) {
+            LinkedList<SourceContext> removed = new LinkedList<>();
+            removed.add(childCtx);
+            while (!removed.isEmpty()) {
+                SourceContext ctx = removed.removeFirst();
+                root.dispatch.remove(ctx.self);
+                if (ctx.intercept) {
+                    root.intercepting--;
+                }
+                if (ctx.children != null) {
+                    removed.addAll(ctx.children.values());
+                }
+            }
+        }
+    }
+    
+    private SourceContext root() {
+        SourceContext root = this;
+        while (root.parent != null) {
+            root = root.parent;
+        }
+        return root;
+    }
+    
+    private void buildDispatch() {
+        dispatch = new HashMap<>();
+        intercepting = intercept ? 1 : 0; // root
+        
+        LinkedList<SourceContext> pending = new LinkedList<>();
+        pending.add(this);
+        while (!pending.isEmpty()) {
+            SourceContext ctx = pending.removeFirst();
+            if (ctx != this) {
+                dispatch.put(ctx.self, ctx);
+                if (ctx.intercept) {
+                    intercepting++;
+                }
+            }
+            if (ctx.children != null) {
+                pending.addAll(ctx.children.values());
+            }
+        }
+    }
+
+    /**
+     * Set the log level filter used by {@link #isLogEnabled(com.offbynull.actors.core.gateways.log.LogMessage.Type) }. Only has an effect
+     * on root contexts -- child contexts use the filter of their root. The filter isn't serialized, so it needs to be set again once a
+     * context is restored from a checkpoint.
+     * @param logLevelFilter log level filter ({@code null} means all levels are enabled)
+     */
+    public void logLevelFilter(LogLevelFilter logLevelFilter) {
+        this.logLevelFilter = logLevelFilter;
+    }
+
+    @Override
+    public boolean isLogEnabled(Type type) {
+        Validate.notNull(type);
+
+        SourceContext root = root();
+        return root.logLevelFilter == null || root.logLevelFilter.isEnabled(type);
     }
 
     @Override
     public boolean isChild(String id) {
         Validate.notNull(id);
-        return children.containsKey(id);
+        return children != null && children.containsKey(id);
     }
 
     @Override
     public void intercept(boolean intercept) {
-        this.intercept = true;
+        if (this.intercept != intercept) {
+            SourceContext root = root();
+            if (root.dispatch != null) {
+                root.intercepting += intercept ? 1 : -1;
+            }
+        }
+        this.intercept = intercept;
     }
 
     @Override
@@ -324,12 +440,40 @@ public final class SourceContext implements Context, Serializable {
         Validate.notNull(msg);
 
 
-        // Walk up the context chain until you reach the topmost actor
-        while (ctx.parent != null) {
-            ctx = ctx.parent;
+        // Walk up the context chain until you reach the topmost actor -- if the message is for it, there's nothing to route
+        SourceContext root = ctx.root();
+        if (root.self.equals(dst)) {
+            return fireRecurse(root, src, dst, time, msg);
         }
         
-        return fireRecurse(ctx, src, dst, time, msg);
+        // The message is for a child. Unless something along the way is intercepting, go directly to that child rather than recursing
+        // down to it one level at a time.
+        if (root.dispatch == null) {
+            root.buildDispatch();
+        }
+        
+        SourceContext target = root.dispatch.get(dst);
+        if (root.intercepting == 0) {
+            if (target == null) {
+                return false; // no such child
+            }
+        } else if (target == null || isAncestorIntercepting(target)) {
+            return fireRecurse(root, src, dst, time, msg);
+        }
+        
+        // Child actors finishing (or failing) doesn't discard the root actor
+        target.mode(SuspendFlag.RELEASE);
+        invoke(target, src, dst, time, msg);
+        return false;
+    }
+    
+    private static boolean isAncestorIntercepting(SourceContext ctx) {
+        for (SourceContext ancestor = ctx.parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor.intercept) {
+                return true;
+            }
+        }
+        return false;
     }
     
     private static boolean fireRecurse(SourceContext ctx, Address src, Address dst, Instant time, Object msg) {
@@ -415,7 +559,7 @@ public final class SourceContext implements Context, Serializable {
         ctx.time = time;
         
         try {
-            ShortcircuitLogic shortcircuit = ctx.shortcircuits.get(msg.getClass());
+            ShortcircuitLogic shortcircuit = ctx.shortcircuits == null ? null : ctx.shortcircuits.get(msg.getClass());
             
             boolean finished;
             if (shortcircuit != null) {
@@ -461,8 +605,7 @@ public final class SourceContext implements Context, Serializable {
             } else {
                 // Child actor finished, remove the child from the parent but return false because the main/root actor isn't effected (it
                 // should keep running)
-                String childId = dst.getElement(dst.size() - 1);
-                ctx.parent.children.remove(childId);
+                ctx.parent.removeChild(ctx);
                 return false;
             }
         } catch (Exception e) {
@@ -480,7 +623,7 @@ public final class SourceContext implements Context, Serializable {
      */
     public SourceContext getChildContext(String id) {
         Validate.notNull(id);
-        return children.get(id);
+        return children == null ? null : children.get(id);
     }
 
     /**
@@ -586,6 +729,11 @@ public final class SourceContext implements Context, Serializable {
             SourceContext.this.block();
         }
 
+        @Override
+        public boolean isLogEnabled(Type type) {
+            return SourceContext.this.isLogEnabled(type);
+        }
+
         @Override
         public void block(Address source, boolean children, Class<?>... types) {
             SourceContext.this.block(source, children, types);
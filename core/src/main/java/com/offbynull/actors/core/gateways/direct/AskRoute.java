@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.direct;
+
+import com.offbynull.actors.core.shuttle.Message;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.lang3.Validate;
+
+// Waiter for a single response.
+final class AskRoute extends Route {
+    private final CompletableFuture<Object> future;
+
+    public AskRoute(String id, Instant deadline, CompletableFuture<Object> future) {
+        super(id, deadline);
+        Validate.notNull(future);
+        this.future = future;
+    }
+
+    @Override
+    boolean deliver(Message message) {
+        future.complete(message.getMessage());
+        return true;
+    }
+
+    @Override
+    void expire() {
+        future.completeExceptionally(new TimeoutException());
+    }
+
+    @Override
+    void cancel() {
+        future.cancel(false);
+    }
+}
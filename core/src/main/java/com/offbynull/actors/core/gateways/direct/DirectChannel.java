@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.direct;
+
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A dedicated address on a {@link DirectGateway} ({@code <prefix>:$channel<channelId>}) that has its own incoming message queue.
+ * Messages sent to this channel's address (or any address under it) are only ever readable from this channel. Use a channel per
+ * thread/caller when many threads share a single {@link DirectGateway}, such that threads don't end up reading each others messages.
+ * <p>
+ * Channels are created via {@link DirectGateway#openChannel() }. Once closed (or expired), messages sent to this channel's address are
+ * treated as normal incoming messages to the gateway.
+ * @author Kasra Faghihi
+ */
+public final class DirectChannel implements AutoCloseable {
+
+    private final DirectGateway gateway;
+    private final Address address;
+    private final LinkedBlockingQueue<Message> readQueue;
+    private final Route route;
+
+    DirectChannel(DirectGateway gateway, Address address, LinkedBlockingQueue<Message> readQueue, Route route) {
+        Validate.notNull(gateway);
+        Validate.notNull(address);
+        Validate.notNull(readQueue);
+        Validate.notNull(route);
+        this.gateway = gateway;
+        this.address = address;
+        this.readQueue = readQueue;
+        this.route = route;
+    }
+
+    /**
+     * Get the address of this channel.
+     * @return address of this channel
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * Writes one message to an actor or gateway, sent from this channel's address.
+     * @param destination destination address
+     * @param message message to send
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void writeMessage(Address destination, Object message) {
+        Validate.notNull(destination);
+        Validate.notNull(message);
+        gateway.writeMessagesInternal(Collections.singletonList(gateway.newMessage(address, destination, message)));
+    }
+
+    /**
+     * Equivalent to calling {@code writeMessage(Address.fromString(destination), message))}.
+     * @param destination destination address
+     * @param message message to send
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void writeMessage(String destination, Object message) {
+        writeMessage(Address.fromString(destination), message);
+    }
+
+    /**
+     * Reads the next message sent to this channel.
+     * @param timeout how long to wait before giving up, in units of {@code unit} unit
+     * @param unit a {@link TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return incoming message, or {@code null} if no message came in before the timeout
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws InterruptedException if this thread is interrupted
+     */
+    public Message readMessage(long timeout, TimeUnit unit) throws InterruptedException {
+        Validate.notNull(unit);
+        return readQueue.poll(timeout, unit);
+    }
+
+    /**
+     * Reads the next message sent to this channel.
+     * @return incoming message
+     * @throws InterruptedException if this thread is interrupted
+     */
+    public Message readMessage() throws InterruptedException {
+        return readQueue.take();
+    }
+
+    /**
+     * Equivalent to calling {@code readMessage(timeout, unit).getMessage()}.
+     * @param <T> expected payload type
+     * @param timeout how long to wait before giving up, in units of {@code unit} unit
+     * @param unit a {@link TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return incoming message payload only, or {@code null} if no message came in before the timeout
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws InterruptedException if this thread is interrupted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T readMessagePayloadOnly(long timeout, TimeUnit unit) throws InterruptedException {
+        Message msg = readMessage(timeout, unit);
+        return msg == null ? null : (T) msg.getMessage();
+    }
+
+    /**
+     * Equivalent to calling {@code readMessage().getMessage()}.
+     * @param <T> expected payload type
+     * @return incoming message payload only
+     * @throws InterruptedException if this thread is interrupted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T readMessagePayloadOnly() throws InterruptedException {
+        return (T) readMessage().getMessage();
+    }
+
+    /**
+     * Queue this channel to be closed. Messages already in this channel can still be read after closing.
+     */
+    @Override
+    public void close() {
+        gateway.closeChannel(route);
+    }
+}
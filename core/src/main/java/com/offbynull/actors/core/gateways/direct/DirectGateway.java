@@ -17,17 +17,34 @@
 package com.offbynull.actors.core.gateways.direct;
 
 import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttle.Message;
 import com.offbynull.actors.core.shuttles.simple.Bus;
 import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
+import com.offbynull.actors.core.trace.TraceCollector;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_DIRECT;
 
 /**
@@ -62,13 +79,32 @@ import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_DIRECT;
  * actorRunner.close();
  * directGateway.close();
  * </pre>
+ * <p>
+ * If blocking a thread on a read isn't acceptable, use {@link #ask(com.offbynull.actors.core.shuttle.Address, java.lang.Object, long,
+ * java.util.concurrent.TimeUnit) } to get the response to a message as a {@link CompletableFuture}, or use
+ * {@link #subscribe(java.util.function.Consumer) } to have incoming messages pushed to a listener.
+ * <p>
+ * If many threads are reading from this gateway at once, have each thread use its own {@link DirectChannel} (see {@link #openChannel() }).
+ * Messages sent to a channel's address are routed directly to that channel rather than being queued up with every other incoming message.
  * @author Kasra Faghihi
  */
 public final class DirectGateway implements Gateway {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DirectGateway.class);
+    
+    // Suffixes generated by this gateway (e.g. for asks and channels) start with this character. Messages written by users can't have a
+    // source suffix that starts with it, so a generated suffix can never clash with a suffix that a user picked.
+    static final char RESERVED_SUFFIX_MARKER = '$';
+
     private final Thread thread;
     private final Bus bus;
     private final LinkedBlockingQueue<Message> readQueue;
+    private final ConcurrentHashMap<String, Shuttle> outgoingShuttles;
+    private final AtomicLong nextRouteId;
+    private final Metrics metrics;
+    private final Counter messagesWrittenCounter;
+    private volatile boolean closed;
+    private volatile TraceCollector traceCollector;
     
     private final SimpleShuttle shuttle;
 
@@ -98,30 +134,95 @@ public final class DirectGateway implements Gateway {
         bus = new Bus();
         shuttle = new SimpleShuttle(prefix, bus);
         readQueue = new LinkedBlockingQueue<>();
+        outgoingShuttles = new ConcurrentHashMap<>();
+        nextRouteId = new AtomicLong();
+        metrics = Metrics.create();
+        messagesWrittenCounter = metrics.counter("messages.written");
+        metrics.gauge("bus.depth", bus::size);
+        metrics.gauge("read.queue.size", readQueue::size);
         thread = new Thread(new DirectRunnable(bus, readQueue));
         thread.setDaemon(true);
         thread.setName(getClass().getSimpleName() + "-" + prefix);
     }
 
+    /**
+     * Get the metrics for this gateway. Metrics include the number of incoming messages waiting to be processed ({@code bus.depth}), the
+     * number of messages waiting to be read ({@code read.queue.size}), and the number of messages written out ({@code messages.written}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public Shuttle getIncomingShuttle() {
         return shuttle;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is added right away (messages written by this gateway are handed directly to outgoing
+     * shuttles from the calling thread). If a shuttle with the same prefix already exists, this gateway terminates.
+     */
     @Override
     public void addOutgoingShuttle(Shuttle shuttle) {
         Validate.notNull(shuttle);
-        bus.add(new AddShuttle(shuttle));
+        if (closed) {
+            return;
+        }
+        
+        Shuttle existingShuttle = outgoingShuttles.putIfAbsent(shuttle.getPrefix(), shuttle);
+        if (existingShuttle != null) {
+            terminate("Shuttle with prefix already exists: " + shuttle.getPrefix());
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is removed right away. If no shuttle with the prefix exists, this gateway terminates.
+     */
     @Override
     public void removeOutgoingShuttle(String shuttlePrefix) {
         Validate.notNull(shuttlePrefix);
-        bus.add(new RemoveShuttle(shuttlePrefix));
+        if (closed) {
+            return;
+        }
+        
+        Shuttle oldShuttle = outgoingShuttles.remove(shuttlePrefix);
+        if (oldShuttle == null) {
+            terminate("Shuttle with prefix does not exist: " + shuttlePrefix);
+        }
+    }
+    
+    // Shuts down this gateway the same way an error on the internal thread would -- the internal thread stops (closing the bus and
+    // cancelling outstanding routes) and further writes are ignored
+    private void terminate(String error) {
+        LOG.error("Terminating due to error: {}", error);
+        closed = true;
+        thread.interrupt();
+    }
+
+    /**
+     * Set the collector used to trace messages created by this gateway. When set, each message this gateway creates (e.g. via
+     * {@link #writeMessage(com.offbynull.actors.core.shuttle.Address, java.lang.Object) } or
+     * {@link #ask(com.offbynull.actors.core.shuttle.Address, java.lang.Object, long, java.util.concurrent.TimeUnit) }) starts a new trace,
+     * subject to the collector's sampling. Messages passed in to {@link #writeMessages(java.util.Collection) } are sent as-is.
+     * @param traceCollector trace collector ({@code null} to stop tracing)
+     */
+    public void setTraceCollector(TraceCollector traceCollector) {
+        this.traceCollector = traceCollector;
+    }
+
+    Message newMessage(Address source, Address destination, Object message) {
+        TraceCollector collector = traceCollector;
+        return new Message(source, destination, message, collector == null ? null : collector.startTrace());
     }
 
     /**
-     * Writes one message to an actor or gateway. Equivalent to calling {@code writeMessages(new Message(source, destination, message))}.
+     * Writes one message to an actor or gateway. Equivalent to calling {@code writeMessages(new Message(source, destination, message))}
+     * (with a trace attached if a trace collector has been set).
      * @param source source address
      * @param destination destination address
      * @param message message to send
@@ -133,7 +234,7 @@ public final class DirectGateway implements Gateway {
         Validate.notNull(destination);
         Validate.notNull(message);
         
-        writeMessages(new Message(source, destination, message));
+        writeMessages(newMessage(source, destination, message));
     }
 
     /**
@@ -149,7 +250,7 @@ public final class DirectGateway implements Gateway {
         
         String prefix = shuttle.getPrefix();
         
-        writeMessages(new Message(Address.of(prefix), destination, message));
+        writeMessages(newMessage(Address.of(prefix), destination, message));
     }
     
     /**
@@ -180,24 +281,84 @@ public final class DirectGateway implements Gateway {
     }
 
     /**
-     * Writes one or more messages to an actor or gateway.
+     * Writes one or more messages to an actor or gateway. Equivalent to calling {@code writeMessages(Arrays.asList(messages))}.
      * @param messages messages to send
      * @throws NullPointerException if any argument is {@code null} or contains {@code null}
-     * @throws IllegalArgumentException if any source address in {@code messages} does not start with this gateway's prefix
+     * @throws IllegalArgumentException if any source address in {@code messages} does not start with this gateway's prefix, or if the
+     * suffix of any source address starts with {@code '$'} (reserved for suffixes generated by this gateway)
      */
     public void writeMessages(Message ... messages) {
         Validate.notNull(messages);
+        writeMessages(Arrays.asList(messages));
+    }
+
+    /**
+     * Writes one or more messages to actors or gateways. Messages are grouped by destination prefix and handed directly to the outgoing
+     * shuttle for that prefix on the calling thread, such that each outgoing shuttle gets at most one batch per call. Messages for which no
+     * outgoing shuttle exists are logged and discarded. If this gateway has been closed, this method does nothing.
+     * <p>
+     * Source suffixes starting with {@code '$'} are reserved for suffixes generated by this gateway (e.g. the suffixes that responses to
+     * {@link #ask(com.offbynull.actors.core.shuttle.Address, java.lang.Object, long, java.util.concurrent.TimeUnit) } come back to, and the
+     * addresses of channels). Use {@link DirectChannel#writeMessage(com.offbynull.actors.core.shuttle.Address, java.lang.Object) } to send
+     * from a channel's address.
+     * @param messages messages to send
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     * @throws IllegalArgumentException if any source address in {@code messages} does not start with this gateway's prefix, or if the
+     * suffix of any source address starts with {@code '$'}
+     */
+    public void writeMessages(Collection<Message> messages) {
+        Validate.notNull(messages);
+        Validate.noNullElements(messages);
         
+        for (Message message : messages) {
+            Address source = message.getSourceAddress();
+            Validate.isTrue(source.size() < 2 || !isReservedSuffix(source.getElement(1)));
+        }
+        
+        writeMessagesInternal(messages);
+    }
+    
+    static boolean isReservedSuffix(String suffix) {
+        return !suffix.isEmpty() && suffix.charAt(0) == RESERVED_SUFFIX_MARKER;
+    }
+    
+    // Same as writeMessages(), but allows sources with reserved suffixes -- used for messages sent from suffixes this gateway generated
+    void writeMessagesInternal(Collection<Message> messages) {
         String prefix = shuttle.getPrefix();
-        List<Message> messageList = new ArrayList<>(messages.length);
         for (Message message : messages) {
             Validate.notNull(message); // explicitly check for nullness, although next line should do this as well
             Validate.isTrue(message.getSourceAddress().getElement(0).equals(prefix));
-            messageList.add(message);
         }
         
+        if (closed) {
+            LOG.debug("Messages written to closed gateway: {}", messages);
+            return;
+        }
+        
+        // Group outgoing messages by prefix
+        Map<String, List<Message>> outgoingMap = new HashMap<>();
+        for (Message message : messages) {
+            String dstPrefix = message.getDestinationAddress().getElement(0);
+            
+            List<Message> batchedMessages = outgoingMap.get(dstPrefix);
+            if (batchedMessages == null) {
+                batchedMessages = new ArrayList<>();
+                outgoingMap.put(dstPrefix, batchedMessages);
+            }
+            
+            batchedMessages.add(message);
+        }
         
-        bus.add(new SendMessages(messageList));
+        // Send outgoing messages by prefix
+        for (Entry<String, List<Message>> entry : outgoingMap.entrySet()) {
+            Shuttle outgoingShuttle = outgoingShuttles.get(entry.getKey());
+            if (outgoingShuttle != null) {
+                outgoingShuttle.send(entry.getValue());
+                messagesWrittenCounter.add(entry.getValue().size());
+            } else {
+                LOG.warn("Unable to find shuttle for {} outgoing messages: {}", entry.getValue().size(), entry.getValue());
+            }
+        }
     }
 
     /**
@@ -288,9 +449,147 @@ public final class DirectGateway implements Gateway {
         
         return ret;
     }
+
+    /**
+     * Writes a message to an actor or gateway and returns a future for the response. The message is sent from an address generated
+     * specifically for this request ({@code <prefix>:$ask<requestId>}), and the first message that comes back to that address completes
+     * the returned future. Responses to asks are never made available through {@link #readMessage() } or to subscribed listeners.
+     * <p>
+     * If no response arrives within the timeout, the returned future completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException}. A timeout too large to be represented as a point in time never elapses. If this gateway
+     * closes before a response arrives (or has already been closed), the returned future is cancelled.
+     * @param <T> expected response payload type
+     * @param destination destination address
+     * @param message message to send
+     * @param timeout how long to wait for a response, in units of {@code unit} unit
+     * @param unit a {@link TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return future for the response payload
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code timeout} is negative
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> ask(Address destination, Object message, long timeout, TimeUnit unit) {
+        Validate.notNull(destination);
+        Validate.notNull(message);
+        Validate.notNull(unit);
+        Validate.isTrue(timeout >= 0L);
+        
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (closed) {
+            future.cancel(false);
+            return (CompletableFuture<T>) future;
+        }
+        
+        String prefix = shuttle.getPrefix();
+        String askId = RESERVED_SUFFIX_MARKER + "ask" + nextRouteId.getAndIncrement();
+        
+        Instant deadline = deadlineAfter(timeout, unit);
+        Message outgoingMessage = newMessage(Address.of(prefix, askId), destination, message);
+        
+        // The ask is put on the bus before the message goes out, so it's guaranteed to be registered before any response comes back
+        bus.add(new AddRoute(new AskRoute(askId, deadline, future)));
+        writeMessagesInternal(Collections.singletonList(outgoingMessage));
+        
+        return (CompletableFuture<T>) future;
+    }
+
+    /**
+     * Equivalent to calling {@code ask(Address.fromString(destination), message, timeout, unit)}.
+     * @param <T> expected response payload type
+     * @param destination destination address
+     * @param message message to send
+     * @param timeout how long to wait for a response, in units of {@code unit} unit
+     * @param unit a {@link TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return future for the response payload
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code timeout} is negative
+     */
+    public <T> CompletableFuture<T> ask(String destination, Object message, long timeout, TimeUnit unit) {
+        return ask(Address.fromString(destination), message, timeout, unit);
+    }
+
+    /**
+     * Opens a channel that never expires. Equivalent to calling {@code openChannel(null)}.
+     * @return new channel
+     */
+    public DirectChannel openChannel() {
+        return openChannel(null);
+    }
+
+    /**
+     * Opens a channel that automatically closes once the timeout elapses. A timeout too large to be represented as a point in time never
+     * elapses, meaning the channel never expires (same as {@link #openChannel() }).
+     * @param timeout how long before the channel closes, in units of {@code unit} unit
+     * @param unit a {@link TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return new channel
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code timeout} is negative
+     */
+    public DirectChannel openChannel(long timeout, TimeUnit unit) {
+        Validate.notNull(unit);
+        Validate.isTrue(timeout >= 0L);
+        return openChannel(deadlineAfter(timeout, unit));
+    }
+
+    // null (no deadline) if the timeout is too large to be represented as an Instant
+    private static Instant deadlineAfter(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout); // saturates to Long.MAX_VALUE on overflow
+        if (millis == Long.MAX_VALUE) {
+            return null;
+        }
+        
+        try {
+            return Instant.now().plusMillis(millis);
+        } catch (DateTimeException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private DirectChannel openChannel(Instant deadline) {
+        String prefix = shuttle.getPrefix();
+        String channelId = RESERVED_SUFFIX_MARKER + "channel" + nextRouteId.getAndIncrement();
+        
+        LinkedBlockingQueue<Message> channelQueue = new LinkedBlockingQueue<>();
+        QueueRoute route = new QueueRoute(channelId, deadline, channelQueue);
+        DirectChannel channel = new DirectChannel(this, Address.of(prefix, channelId), channelQueue, route);
+        
+        bus.add(new AddRoute(route));
+        
+        return channel;
+    }
+    
+    void closeChannel(Route route) {
+        bus.add(new RemoveRoute(route));
+    }
+
+    /**
+     * Queue a listener to be added. Once added, incoming messages are passed to listeners (on this gateway's internal thread) instead of
+     * being queued up for {@link #readMessage() } and its variants. Messages that arrive before the listener is added are still queued up
+     * for reading.
+     * <p>
+     * Listeners must not block. If a listener throws an exception, that exception is logged and ignored.
+     * @param listener listener to add
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void subscribe(Consumer<Message> listener) {
+        Validate.notNull(listener);
+        bus.add(new Subscribe(listener));
+    }
+
+    /**
+     * Queue a listener to be removed. If no listeners remain once removed, incoming messages go back to being queued up for
+     * {@link #readMessage() } and its variants.
+     * @param listener listener to remove
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void unsubscribe(Consumer<Message> listener) {
+        Validate.notNull(listener);
+        bus.add(new Unsubscribe(listener));
+    }
     
     @Override
     public void close() throws InterruptedException {
+        closed = true;
         thread.interrupt();
         thread.join();
     }
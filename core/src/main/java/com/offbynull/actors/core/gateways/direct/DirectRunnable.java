@@ -16,14 +16,22 @@
  */
 package com.offbynull.actors.core.gateways.direct;
 
+import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttle.Message;
-import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttles.simple.Bus;
-import java.util.Collections;
+import static com.offbynull.actors.core.trace.TracePoint.EGRESS;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,15 +40,19 @@ final class DirectRunnable implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(DirectRunnable.class);
 
-    private final Map<String, Shuttle> outgoingShuttles;
     private final LinkedBlockingQueue<Message> readQueue;
+    private final Map<String, Route> routes; // suffix -> dedicated destination for messages sent to that suffix
+    private final TreeSet<Route> routeTimeouts; // routes that have a deadline, ordered by deadline
+    private final List<Consumer<Message>> listeners;
     private final Bus bus;
 
     public DirectRunnable(Bus bus, LinkedBlockingQueue<Message> readQueue) {
         Validate.notNull(bus);
         Validate.notNull(readQueue);
         Validate.isTrue(readQueue.isEmpty()); // just in case
-        outgoingShuttles = new HashMap<>();
+        routes = new HashMap<>();
+        routeTimeouts = new TreeSet<>(new RouteDeadlineComparator());
+        listeners = new ArrayList<>();
         this.readQueue = readQueue;
         this.bus = bus;
     }
@@ -50,7 +62,26 @@ final class DirectRunnable implements Runnable {
         try {
             while (true) {
                 // Poll for new messages
-                List<Object> incomingObjects = bus.pull();
+                List<Object> incomingObjects;
+                if (routeTimeouts.isEmpty()) {
+                    // Nothing can expire, so wait for ever
+                    incomingObjects = bus.pull();
+                } else {
+                    // Something can expire, so wait until the nearest route expires
+                    Instant currentTime = Instant.now();
+                    Instant deadline = routeTimeouts.first().getDeadline();
+                    Duration duration = Duration.between(currentTime, deadline);
+                    if (duration.isNegative()) { // Sanity check. Depends on system clock if this happens.
+                        duration = Duration.ZERO;
+                    }
+                    long waitMillis;
+                    try {
+                        waitMillis = duration.toMillis();
+                    } catch (ArithmeticException ae) { // too far out to fit in a long
+                        waitMillis = Long.MAX_VALUE;
+                    }
+                    incomingObjects = bus.pull(waitMillis, TimeUnit.MILLISECONDS);
+                }
 
                 Validate.notNull(incomingObjects);
                 Validate.noNullElements(incomingObjects);
@@ -59,34 +90,41 @@ final class DirectRunnable implements Runnable {
                 for (Object incomingObj : incomingObjects) {
                     if (incomingObj instanceof Message) {
                         Message message = (Message) incomingObj;
-                        readQueue.add(message);
+                        dispatchMessage(message);
                     } else {
                         LOG.debug("Processing management message: {}", incomingObj);
-                        if (incomingObj instanceof AddShuttle) {
-                            AddShuttle addShuttle = (AddShuttle) incomingObj;
-                            Shuttle shuttle = addShuttle.getShuttle();
-                            Shuttle existingShuttle = outgoingShuttles.putIfAbsent(shuttle.getPrefix(), shuttle);
-                            Validate.validState(existingShuttle == null);
-                        } else if (incomingObj instanceof RemoveShuttle) {
-                            RemoveShuttle removeShuttle = (RemoveShuttle) incomingObj;
-                            String prefix = removeShuttle.getPrefix();
-                            Shuttle oldShuttle = outgoingShuttles.remove(prefix);
-                            Validate.validState(oldShuttle != null);
-                        } else if (incomingObj instanceof SendMessages) {
-                            SendMessages sendMessage = (SendMessages) incomingObj;
-                            for (Message message : sendMessage.getMessages()) {
-                                String dstPrefix = message.getDestinationAddress().getElement(0);
-                                Shuttle shuttle = outgoingShuttles.get(dstPrefix);
-
-                                if (shuttle != null) {
-                                    shuttle.send(Collections.singleton(message));
-                                } else {
-                                    LOG.warn("Unable to find shuttle for outgoing message: {}", message);
-                                }
+                        if (incomingObj instanceof AddRoute) {
+                            AddRoute addRoute = (AddRoute) incomingObj;
+                            Route route = addRoute.getRoute();
+                            Route existingRoute = routes.putIfAbsent(route.getId(), route);
+                            Validate.validState(existingRoute == null);
+                            if (route.getDeadline() != null) {
+                                routeTimeouts.add(route);
+                            }
+                        } else if (incomingObj instanceof RemoveRoute) {
+                            RemoveRoute removeRoute = (RemoveRoute) incomingObj;
+                            Route route = removeRoute.getRoute();
+                            if (removeRoute(route)) {
+                                route.cancel();
                             }
+                        } else if (incomingObj instanceof Subscribe) {
+                            Subscribe subscribe = (Subscribe) incomingObj;
+                            listeners.add(subscribe.getListener());
+                        } else if (incomingObj instanceof Unsubscribe) {
+                            Unsubscribe unsubscribe = (Unsubscribe) incomingObj;
+                            listeners.remove(unsubscribe.getListener());
                         }
                     }
                 }
+
+                // Remove expired routes
+                Instant time = Instant.now();
+                while (!routeTimeouts.isEmpty() && !routeTimeouts.first().getDeadline().isAfter(time)) {
+                    Route route = routeTimeouts.pollFirst();
+                    routes.remove(route.getId(), route);
+                    LOG.debug("Route expired: {}", route);
+                    route.expire();
+                }
             }
         } catch (InterruptedException ie) {
             LOG.debug("Direct gateway interrupted");
@@ -95,7 +133,69 @@ final class DirectRunnable implements Runnable {
             LOG.error("Internal error encountered", re);
         } finally {
             bus.close();
+            
+            // Nothing will ever be routed at this point, so cancel outstanding routes
+            for (Route route : routes.values()) {
+                route.cancel();
+            }
+        }
+    }
+
+    private void dispatchMessage(Message message) {
+        message.trace(EGRESS);
+
+        // If the message is for a suffix that has a route, pass it to that route
+        Address dst = message.getDestinationAddress();
+        if (dst.size() >= 2) {
+            String id = dst.getElement(1);
+            Route route = routes.get(id);
+            if (route != null) {
+                if (route.deliver(message)) {
+                    removeRoute(route);
+                }
+                return;
+            }
+        }
+
+        // If there are no listeners, queue the message for readMessage()/readMessages()
+        if (listeners.isEmpty()) {
+            readQueue.add(message);
+            return;
         }
+
+        // Otherwise, pass the message to each listener
+        for (Consumer<Message> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException re) {
+                LOG.error("Listener failed to process message: " + message, re);
+            }
+        }
+    }
+
+    private boolean removeRoute(Route route) {
+        if (!routes.remove(route.getId(), route)) {
+            return false;
+        }
+        if (route.getDeadline() != null) {
+            routeTimeouts.remove(route);
+        }
+        return true;
+    }
+
+    private static final class RouteDeadlineComparator implements Comparator<Route>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Route o1, Route o2) {
+            int ret = o1.getDeadline().compareTo(o2.getDeadline());
+            if (ret == 0) {
+                ret = o1.getId().compareTo(o2.getId()); // ids are unique, so routes with the same deadline are still distinct
+            }
+            return ret;
+        }
+
     }
 
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.direct;
+
+import com.offbynull.actors.core.shuttle.Message;
+import java.time.Instant;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.commons.lang3.Validate;
+
+// Dedicated queue that backs a DirectChannel.
+final class QueueRoute extends Route {
+    private final LinkedBlockingQueue<Message> queue;
+
+    public QueueRoute(String id, Instant deadline, LinkedBlockingQueue<Message> queue) {
+        super(id, deadline);
+        Validate.notNull(queue);
+        this.queue = queue;
+    }
+
+    @Override
+    boolean deliver(Message message) {
+        queue.add(message);
+        return false;
+    }
+
+    @Override
+    void expire() {
+        // do nothing -- anything already in the queue can still be read
+    }
+
+    @Override
+    void cancel() {
+        // do nothing -- anything already in the queue can still be read
+    }
+}
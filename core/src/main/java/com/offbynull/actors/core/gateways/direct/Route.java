@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.direct;
+
+import com.offbynull.actors.core.shuttle.Message;
+import java.time.Instant;
+import org.apache.commons.lang3.Validate;
+
+// A destination for messages sent to a specific suffix of the direct gateway (e.g. direct:<id>). Routes are only ever touched by the
+// gateway's internal thread.
+abstract class Route {
+    private final String id;
+    private final Instant deadline;
+
+    Route(String id, Instant deadline) {
+        Validate.notNull(id);
+        // deadline may be null -- null means that the route never expires
+        this.id = id;
+        this.deadline = deadline;
+    }
+
+    public final String getId() {
+        return id;
+    }
+
+    public final Instant getDeadline() {
+        return deadline;
+    }
+
+    // returns true if the route should be removed after this message
+    abstract boolean deliver(Message message);
+
+    abstract void expire();
+
+    abstract void cancel();
+
+    @Override
+    public final String toString() {
+        return getClass().getSimpleName() + "{" + "id=" + id + ", deadline=" + deadline + '}';
+    }
+}
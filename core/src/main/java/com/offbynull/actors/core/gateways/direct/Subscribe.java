@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, Kasra Faghihi, All rights reserved.
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
  * 
  * This library is free software; you can redistribute it and/or
  * modify it under the terms of the GNU Lesser General Public
@@ -17,29 +17,24 @@
 package com.offbynull.actors.core.gateways.direct;
 
 import com.offbynull.actors.core.shuttle.Message;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.Validate;
 
-final class SendMessages {
-    private final List<Message> messages;
+final class Subscribe {
+    private final Consumer<Message> listener;
 
-    public SendMessages(List<Message> messages) {
-        Validate.notNull(messages);
-        Validate.noNullElements(messages);
-
-        this.messages = Collections.unmodifiableList(new ArrayList<>(messages));
+    public Subscribe(Consumer<Message> listener) {
+        Validate.notNull(listener);
+        this.listener = listener;
     }
 
-    public List<Message> getMessages() {
-        return messages;
+    public Consumer<Message> getListener() {
+        return listener;
     }
 
     @Override
     public String toString() {
-        return "SendMessage{" + "messages=" + messages + '}';
+        return "Subscribe{" + "listener=" + listener + '}';
     }
-
-
+    
 }
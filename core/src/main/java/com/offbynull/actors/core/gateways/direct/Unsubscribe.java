@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.direct;
+
+import com.offbynull.actors.core.shuttle.Message;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.Validate;
+
+final class Unsubscribe {
+    private final Consumer<Message> listener;
+
+    public Unsubscribe(Consumer<Message> listener) {
+        Validate.notNull(listener);
+        this.listener = listener;
+    }
+
+    public Consumer<Message> getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return "Unsubscribe{" + "listener=" + listener + '}';
+    }
+    
+}
@@ -18,6 +18,7 @@ package com.offbynull.actors.core.gateways.log;
 
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_LOG;
 import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttles.simple.Bus;
 import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
@@ -26,6 +27,10 @@ import org.apache.commons.lang3.Validate;
 /**
  * {@link Gateway} that logs by piping messages to SLF4J.
  * <p>
+ * Logging can be redirected to some other {@link LogSink} (e.g. {@link RingFileLogSink}) by using
+ * {@link #create(java.lang.String, com.offbynull.actors.core.gateways.log.LogSink) }. Messages for log levels the sink doesn't have enabled
+ * are discarded without being formatted, and messages that arrive together are handed to the sink as a single batch.
+ * <p>
  * In the following example, the actor called {@code tester} sends an info log message to the {@link LogGateway} called {@code logger}.
  * <pre>
  * Coroutine tester = (cnt) -&gt; {
@@ -54,6 +59,8 @@ public final class LogGateway implements Gateway {
     private final Bus bus;
     
     private final SimpleShuttle shuttle;
+    private final LogLevelFilter logLevelFilter;
+    private final Metrics metrics;
 
     /**
      * Create a {@link LogGateway} instance. Equivalent to calling {@code create(DefaultAddresses.DEFAULT_LOG)}.
@@ -70,21 +77,57 @@ public final class LogGateway implements Gateway {
      * @throws NullPointerException if any argument is {@code null}
      */
     public static LogGateway create(String prefix) {
-        LogGateway gateway = new LogGateway(prefix);
+        return create(prefix, Slf4jLogSink.create());
+    }
+
+    /**
+     * Create a {@link LogGateway} instance. Log messages that come in are converted to {@link LogRecord}s and written out to
+     * {@code sink} in batches. {@code sink} is owned by the returned gateway and gets closed when the gateway is closed.
+     * @param prefix address prefix for this gateway
+     * @param sink sink to write records to
+     * @return new log gateway
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static LogGateway create(String prefix, LogSink sink) {
+        LogGateway gateway = new LogGateway(prefix, sink);
         gateway.thread.start();
         return gateway;
     }
 
-    private LogGateway(String prefix) {
+    private LogGateway(String prefix, LogSink sink) {
         Validate.notNull(prefix);
+        Validate.notNull(sink);
 
         bus = new Bus();
         shuttle = new SimpleShuttle(prefix, bus);
-        thread = new Thread(new LogRunnable(bus));
+        logLevelFilter = new LogLevelFilter();
+        metrics = Metrics.create();
+        metrics.gauge("bus.depth", bus::size);
+        thread = new Thread(new LogRunnable(bus, sink, logLevelFilter, metrics));
         thread.setDaemon(true);
         thread.setName(getClass().getSimpleName() + "-" + prefix);
     }
 
+    /**
+     * Get the log levels enabled by this gateway's sink. Pass the returned filter to
+     * {@link com.offbynull.actors.core.actor.ActorRunner#setLogLevelFilter(com.offbynull.actors.core.gateways.log.LogLevelFilter) } to
+     * have actors skip sending log messages that this gateway would discard.
+     * @return log level filter
+     */
+    public LogLevelFilter getLogLevelFilter() {
+        return logLevelFilter;
+    }
+
+    /**
+     * Get the metrics for this gateway. Metrics include the number of messages waiting to be processed ({@code bus.depth}), the number of
+     * records written to the sink ({@code records.written}), and the number of records discarded because their level isn't enabled
+     * ({@code records.discarded}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public Shuttle getIncomingShuttle() {
         return shuttle;
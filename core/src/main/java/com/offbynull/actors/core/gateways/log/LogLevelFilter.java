@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Log levels enabled by a {@link LogGateway}'s sink, published such that actors can skip creating and sending {@link LogMessage}s that
+ * would end up being discarded. Get an instance via {@link LogGateway#getLogLevelFilter() } and pass it to
+ * {@link com.offbynull.actors.core.actor.ActorRunner#setLogLevelFilter(com.offbynull.actors.core.gateways.log.LogLevelFilter) }.
+ * <p>
+ * The gateway refreshes the filter periodically, so changes to the sink's levels (e.g. SLF4J being reconfigured) get picked up. This
+ * class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class LogLevelFilter {
+
+    private static final int ALL_ENABLED = (1 << Type.values().length) - 1;
+
+    private volatile int enabledMask;
+
+    LogLevelFilter() {
+        enabledMask = ALL_ENABLED;
+    }
+
+    /**
+     * Check if a log level is enabled.
+     * @param type log level
+     * @return {@code true} if log messages of level {@code type} should be sent to the log gateway, {@code false} otherwise
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public boolean isEnabled(Type type) {
+        return (enabledMask & (1 << type.ordinal())) != 0;
+    }
+
+    void update(LogSink sink) {
+        Validate.notNull(sink);
+
+        int mask = 0;
+        for (Type type : Type.values()) {
+            if (sink.isEnabled(type)) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        enabledMask = mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LogLevelFilter{" + "enabledMask=" + Integer.toBinaryString(enabledMask) + '}';
+    }
+}
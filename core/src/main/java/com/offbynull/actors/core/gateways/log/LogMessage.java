@@ -142,16 +142,34 @@ public final class LogMessage implements Serializable {
         return message;
     }
 
-    Object[] getArguments() {
-        return arguments.toArray();
+    List<String> getArguments() {
+        return arguments;
     }
 
-    enum Type {
+    /**
+     * Log level.
+     */
+    public enum Type {
 
+        /**
+         * Trace level.
+         */
         TRACE,
+        /**
+         * Debug level.
+         */
         DEBUG,
+        /**
+         * Info level.
+         */
         INFO,
+        /**
+         * Warn level.
+         */
         WARN,
+        /**
+         * Error level.
+         */
         ERROR
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import com.offbynull.actors.core.shuttle.Address;
+import java.util.List;
+import org.apache.commons.collections4.list.UnmodifiableList;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Structured log record passed to {@link LogSink}s. The message template and arguments are kept as-is (not formatted), such that the
+ * sink can decide if and how they get formatted.
+ * @author Kasra Faghihi
+ */
+public final class LogRecord {
+
+    private final long time;
+    private final Address source;
+    private final Type type;
+    private final String message;
+    private final UnmodifiableList<String> arguments;
+
+    /**
+     * Constructs a {@link LogRecord} object.
+     * @param time time the record was received (in milliseconds since epoch)
+     * @param source address of the actor/gateway that sent the record
+     * @param type log level
+     * @param message message template (same format as SLF4J)
+     * @param arguments arguments for {@code message}
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     */
+    public LogRecord(long time, Address source, Type type, String message, List<String> arguments) {
+        Validate.notNull(source);
+        Validate.notNull(type);
+        Validate.notNull(message);
+        Validate.notNull(arguments);
+        Validate.noNullElements(arguments);
+        this.time = time;
+        this.source = source;
+        this.type = type;
+        this.message = message;
+        this.arguments = (UnmodifiableList<String>) UnmodifiableList.unmodifiableList(arguments);
+    }
+
+    /**
+     * Get the time this record was received.
+     * @return time in milliseconds since epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the address of the actor/gateway that sent this record.
+     * @return source address
+     */
+    public Address getSource() {
+        return source;
+    }
+
+    /**
+     * Get the log level.
+     * @return log level
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the message template.
+     * @return message template
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the arguments for the message template.
+     * @return arguments (unmodifiable)
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord{" + "time=" + time + ", source=" + source + ", type=" + type + ", message=" + message
+                + ", arguments=" + arguments + '}';
+    }
+}
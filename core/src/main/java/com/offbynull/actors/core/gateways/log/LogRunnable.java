@@ -16,10 +16,13 @@
  */
 package com.offbynull.actors.core.gateways.log;
 
-import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Message;
 import com.offbynull.actors.core.shuttles.simple.Bus;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,11 +31,24 @@ final class LogRunnable implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogRunnable.class);
 
+    private static final long FILTER_REFRESH_INTERVAL = 1000L;
+
     private final Bus bus;
+    private final LogSink sink;
+    private final LogLevelFilter filter;
+    private final Counter recordsWrittenCounter;
+    private final Counter recordsDiscardedCounter;
 
-    public LogRunnable(Bus bus) {
+    public LogRunnable(Bus bus, LogSink sink, LogLevelFilter filter, Metrics metrics) {
         Validate.notNull(bus);
+        Validate.notNull(sink);
+        Validate.notNull(filter);
+        Validate.notNull(metrics);
         this.bus = bus;
+        this.sink = sink;
+        this.filter = filter;
+        this.recordsWrittenCounter = metrics.counter("records.written");
+        this.recordsDiscardedCounter = metrics.counter("records.discarded");
     }
 
     @Override
@@ -40,20 +56,24 @@ final class LogRunnable implements Runnable {
         LOG.debug("Log gateway started");
         try {
             while (true) {
+                // Publish levels enabled by the sink -- done periodically because the sink's levels may change while running
+                filter.update(sink);
+
                 // Poll for new messages
-                List<Object> incomingObjects = bus.pull();
+                List<Object> incomingObjects = bus.pull(FILTER_REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
 
                 Validate.notNull(incomingObjects); // sanity checks
                 Validate.noNullElements(incomingObjects);
 
+                // Convert to records -- levels that aren't enabled are discarded before anything gets copied or formatted
+                long time = System.currentTimeMillis();
+                List<LogRecord> records = new ArrayList<>(incomingObjects.size());
                 for (Object incomingObj : incomingObjects) {
                     if (!(incomingObj instanceof Message)) {
                         continue;
                     }
 
                     Message message = (Message) incomingObj;
-                    Address src = message.getSourceAddress();
-                    Address dst = message.getDestinationAddress();
                     Object payload = message.getMessage();
 
                     if (!(payload instanceof LogMessage)) {
@@ -61,33 +81,19 @@ final class LogRunnable implements Runnable {
                     }
 
                     LogMessage logMsg = (LogMessage) payload;
-                    
-                    String msg = "{} - " + logMsg.getMessage();
-                    
-                    Object[] origArgs = logMsg.getArguments();
-                    Object[] args = new Object[origArgs.length + 1];
-                    System.arraycopy(origArgs, 0, args, 1, origArgs.length);
-                    args[0] = src.toString();
-
-                    switch (logMsg.getType()) {
-                        case TRACE:
-                            LOG.trace(msg, args);
-                            break;
-                        case DEBUG:
-                            LOG.debug(msg, args);
-                            break;
-                        case INFO:
-                            LOG.info(msg, args);
-                            break;
-                        case WARN:
-                            LOG.warn(msg, args);
-                            break;
-                        case ERROR:
-                            LOG.error(msg, args);
-                            break;
-                        default:
-                            throw new IllegalStateException(); // this should never happen
+                    if (!sink.isEnabled(logMsg.getType())) {
+                        recordsDiscardedCounter.increment();
+                        continue;
                     }
+
+                    records.add(new LogRecord(time, message.getSourceAddress(), logMsg.getType(), logMsg.getMessage(),
+                            logMsg.getArguments()));
+                }
+
+                // Write out as a single batch
+                if (!records.isEmpty()) {
+                    sink.write(records);
+                    recordsWrittenCounter.add(records.size());
                 }
             }
         } catch (InterruptedException ie) {
@@ -97,6 +103,11 @@ final class LogRunnable implements Runnable {
             LOG.error("Internal error encountered", re);
         } finally {
             bus.close();
+            try {
+                sink.close();
+            } catch (Exception e) {
+                LOG.error("Unable to close sink", e);
+            }
         }
     }
 
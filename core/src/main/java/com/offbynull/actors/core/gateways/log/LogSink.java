@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import java.util.List;
+
+/**
+ * Destination for log records processed by {@link LogGateway}.
+ * <p>
+ * Sinks are only ever accessed by the {@link LogGateway}'s internal thread. The gateway checks {@link #isEnabled(Type) } before creating
+ * a {@link LogRecord} for an incoming {@link LogMessage}, and passes all records pulled in together as a single batch to
+ * {@link #write(java.util.List) }. The sink is closed when the gateway shuts down.
+ * <p>
+ * Implementations don't need to be thread-safe.
+ * @author Kasra Faghihi
+ */
+public interface LogSink extends AutoCloseable {
+
+    /**
+     * Check if records of some level should be written by this sink. Records of levels that aren't enabled are discarded before any
+     * formatting or copying takes place.
+     * @param type log level
+     * @return {@code true} if records of level {@code type} should be passed to this sink, {@code false} otherwise
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    boolean isEnabled(Type type);
+
+    /**
+     * Write a batch of log records.
+     * @param records log records to write (only contains records of enabled levels)
+     * @throws NullPointerException if any argument is {@code null} or contains {@code null}
+     */
+    void write(List<LogRecord> records);
+
+    /**
+     * Close this sink. Default implementation does nothing.
+     */
+    @Override
+    default void close() {
+        // do nothing
+    }
+}
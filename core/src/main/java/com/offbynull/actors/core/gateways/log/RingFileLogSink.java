@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import com.offbynull.actors.core.shuttle.Address;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LogSink} that writes log records in a compact binary format to a fixed-size memory-mapped ring file. Once the ring is full, the
+ * oldest records are overwritten. Records aren't formatted -- the message template and arguments are stored as-is.
+ * <p>
+ * Writing a record is a copy into mapped memory (no system calls), making this sink suitable for high-volume logging. The contents of
+ * the ring can be read back using {@link #read(java.nio.file.Path) }. If the file already exists and was created with the same capacity,
+ * new records are appended to the records already in it.
+ * <p>
+ * File layout is a header ({@code int} magic, {@code int} capacity, {@code long} head position, {@code long} tail position) followed by
+ * the ring. Each record in the ring is an {@code int} length followed by the record body ({@code long} time, {@code byte} level,
+ * {@code string} source address, {@code string} message, {@code int} argument count, {@code string} arguments), where each
+ * {@code string} is an {@code int} length followed by UTF-8 bytes. If a record doesn't fit in the space remaining at the end of the ring,
+ * that space is skipped (marked with a length of {@code -1} if there's room for it) and the record is written at the start of the ring.
+ * @author Kasra Faghihi
+ */
+public final class RingFileLogSink implements LogSink {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RingFileLogSink.class);
+
+    private static final int MAGIC = 0x4C4F4752;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEAD_OFFSET = 8;
+    private static final int TAIL_OFFSET = 16;
+    private static final int HEADER_SIZE = 24;
+    private static final int LENGTH_SIZE = 4;
+    private static final int WRAP_MARKER = -1;
+    private static final Type[] TYPES = Type.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final int capacity;
+    private final Type minimumLevel;
+
+    private ByteBuffer scratch;
+    private long head;
+    private long tail;
+
+    /**
+     * Create a {@link RingFileLogSink} instance.
+     * @param file ring file
+     * @param capacity size of the ring (in bytes)
+     * @param minimumLevel minimum log level to write
+     * @return new ring file log sink
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     * @throws IOException if problems opening or mapping {@code file}
+     */
+    public static RingFileLogSink create(Path file, int capacity, Type minimumLevel) throws IOException {
+        Validate.notNull(file);
+        Validate.notNull(minimumLevel);
+        Validate.isTrue(capacity > 0);
+        Validate.isTrue(capacity <= Integer.MAX_VALUE - HEADER_SIZE);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new RingFileLogSink(channel, capacity, minimumLevel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private RingFileLogSink(FileChannel channel, int capacity, Type minimumLevel) throws IOException {
+        boolean existing = channel.size() == HEADER_SIZE + capacity;
+
+        this.channel = channel;
+        this.ring = channel.map(MapMode.READ_WRITE, 0L, HEADER_SIZE + capacity);
+        this.capacity = capacity;
+        this.minimumLevel = minimumLevel;
+        this.scratch = ByteBuffer.allocate(256);
+
+        if (existing && ring.getInt(0) == MAGIC && ring.getInt(CAPACITY_OFFSET) == capacity) {
+            head = ring.getLong(HEAD_OFFSET);
+            tail = ring.getLong(TAIL_OFFSET);
+        }
+
+        if (head < 0L || head > tail || tail - head > capacity) { // corrupt, start over
+            head = 0L;
+            tail = 0L;
+        }
+
+        ring.putInt(0, MAGIC);
+        ring.putInt(CAPACITY_OFFSET, capacity);
+        ring.putLong(HEAD_OFFSET, head);
+        ring.putLong(TAIL_OFFSET, tail);
+    }
+
+    @Override
+    public boolean isEnabled(Type type) {
+        Validate.notNull(type);
+        return type.compareTo(minimumLevel) >= 0;
+    }
+
+    @Override
+    public void write(List<LogRecord> records) {
+        Validate.notNull(records);
+        Validate.noNullElements(records);
+
+        for (LogRecord record : records) {
+            encode(record);
+
+            int length = LENGTH_SIZE + scratch.remaining();
+            if (length > capacity) {
+                LOG.warn("Log record too large for ring, discarding: {}", record);
+                continue;
+            }
+
+            // Skip to start of ring if there isn't enough room left at the end
+            int tailPos = position(tail);
+            long start = capacity - tailPos < length ? tail + (capacity - tailPos) : tail;
+            long end = start + length;
+
+            // Drop oldest records until there's enough room
+            while (end - head > capacity) {
+                if (head >= tail) {
+                    head = start;
+                    break;
+                }
+                head = next(ring, capacity, head);
+            }
+
+            if (start != tail && capacity - tailPos >= LENGTH_SIZE) {
+                ring.putInt(HEADER_SIZE + tailPos, WRAP_MARKER);
+            }
+
+            int startPos = HEADER_SIZE + position(start);
+            ring.putInt(startPos, length - LENGTH_SIZE);
+            ring.position(startPos + LENGTH_SIZE);
+            ring.put(scratch);
+
+            tail = end;
+        }
+
+        ring.putLong(HEAD_OFFSET, head);
+        ring.putLong(TAIL_OFFSET, tail);
+    }
+
+    /**
+     * Flushes the ring to disk and closes the underlying file.
+     */
+    @Override
+    public void close() {
+        try {
+            ring.force();
+            channel.close();
+        } catch (IOException ioe) {
+            LOG.error("Unable to close ring file", ioe);
+        }
+    }
+
+    /**
+     * Read all log records in a ring file, from oldest to newest.
+     * @param file ring file
+     * @return log records in {@code file}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if problems reading {@code file}, or {@code file} is not a valid ring file
+     */
+    public static List<LogRecord> read(Path file) throws IOException {
+        Validate.notNull(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a ring file");
+            }
+
+            ByteBuffer ring = channel.map(MapMode.READ_ONLY, 0L, size);
+            int capacity = ring.getInt(CAPACITY_OFFSET);
+            long head = ring.getLong(HEAD_OFFSET);
+            long tail = ring.getLong(TAIL_OFFSET);
+            if (ring.getInt(0) != MAGIC || capacity <= 0 || size != HEADER_SIZE + capacity
+                    || head < 0L || head > tail || tail - head > capacity) {
+                throw new IOException("Not a ring file");
+            }
+
+            List<LogRecord> ret = new ArrayList<>();
+            long pos = head;
+            while (pos < tail) {
+                int physicalPos = (int) (pos % capacity);
+                if (capacity - physicalPos >= LENGTH_SIZE) {
+                    int length = ring.getInt(HEADER_SIZE + physicalPos);
+                    if (length != WRAP_MARKER) {
+                        ByteBuffer body = (ByteBuffer) ring.duplicate()
+                                .position(HEADER_SIZE + physicalPos + LENGTH_SIZE)
+                                .limit(HEADER_SIZE + physicalPos + LENGTH_SIZE + length);
+                        ret.add(decode(body));
+                    }
+                }
+                pos = next(ring, capacity, pos);
+            }
+            return ret;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt ring file", e);
+        }
+    }
+
+    private int position(long pos) {
+        return (int) (pos % capacity);
+    }
+
+    private static long next(ByteBuffer ring, int capacity, long pos) {
+        int physicalPos = (int) (pos % capacity);
+        int remaining = capacity - physicalPos;
+        if (remaining < LENGTH_SIZE) {
+            return pos + remaining;
+        }
+
+        int length = ring.getInt(HEADER_SIZE + physicalPos);
+        return length == WRAP_MARKER ? pos + remaining : pos + LENGTH_SIZE + length;
+    }
+
+    private void encode(LogRecord record) {
+        byte[] source = record.getSource().toString().getBytes(UTF_8);
+        byte[] message = record.getMessage().getBytes(UTF_8);
+        List<String> args = record.getArguments();
+        byte[][] argBytes = new byte[args.size()][];
+        int length = 8 + 1 + 4 + source.length + 4 + message.length + 4;
+        for (int i = 0; i < argBytes.length; i++) {
+            argBytes[i] = args.get(i).getBytes(UTF_8);
+            length += 4 + argBytes[i].length;
+        }
+
+        if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+        }
+
+        scratch.clear();
+        scratch.putLong(record.getTime());
+        scratch.put((byte) record.getType().ordinal());
+        scratch.putInt(source.length).put(source);
+        scratch.putInt(message.length).put(message);
+        scratch.putInt(argBytes.length);
+        for (byte[] arg : argBytes) {
+            scratch.putInt(arg.length).put(arg);
+        }
+        scratch.flip();
+    }
+
+    private static LogRecord decode(ByteBuffer body) {
+        long time = body.getLong();
+        Type type = TYPES[body.get()];
+        Address source = Address.fromString(decodeString(body));
+        String message = decodeString(body);
+        int argCount = body.getInt();
+        List<String> args = new ArrayList<>(argCount);
+        for (int i = 0; i < argCount; i++) {
+            args.add(decodeString(body));
+        }
+        return new LogRecord(time, source, type, message, args);
+    }
+
+    private static String decodeString(ByteBuffer body) {
+        byte[] data = new byte[body.getInt()];
+        body.get(data);
+        return new String(data, UTF_8);
+    }
+}
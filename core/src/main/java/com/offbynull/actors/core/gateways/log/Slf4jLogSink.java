@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LogSink} that pipes log records to SLF4J. Each record is logged with the source address prepended to the message.
+ * @author Kasra Faghihi
+ */
+public final class Slf4jLogSink implements LogSink {
+
+    private final Logger logger;
+
+    /**
+     * Create a {@link Slf4jLogSink} instance that logs to the logger named
+     * {@code com.offbynull.actors.core.gateways.log.LogRunnable}. This is the logger that actor log messages have always gone to, so
+     * existing logging configurations keep working. To log to a different logger (e.g. the one for {@link LogGateway}), use
+     * {@link #create(org.slf4j.Logger) }.
+     * @return new SLF4J log sink
+     */
+    public static Slf4jLogSink create() {
+        return create(LoggerFactory.getLogger(LogRunnable.class));
+    }
+
+    /**
+     * Create a {@link Slf4jLogSink} instance.
+     * @param logger logger to write to
+     * @return new SLF4J log sink
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static Slf4jLogSink create(Logger logger) {
+        return new Slf4jLogSink(logger);
+    }
+
+    private Slf4jLogSink(Logger logger) {
+        Validate.notNull(logger);
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean isEnabled(Type type) {
+        Validate.notNull(type);
+        switch (type) {
+            case TRACE:
+                return logger.isTraceEnabled();
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            case ERROR:
+                return logger.isErrorEnabled();
+            default:
+                throw new IllegalStateException(); // this should never happen
+        }
+    }
+
+    @Override
+    public void write(List<LogRecord> records) {
+        Validate.notNull(records);
+        Validate.noNullElements(records);
+
+        for (LogRecord record : records) {
+            String msg = "{} - " + record.getMessage();
+
+            List<String> origArgs = record.getArguments();
+            Object[] args = new Object[origArgs.size() + 1];
+            args[0] = record.getSource();
+            for (int i = 0; i < origArgs.size(); i++) {
+                args[i + 1] = origArgs.get(i);
+            }
+
+            switch (record.getType()) {
+                case TRACE:
+                    logger.trace(msg, args);
+                    break;
+                case DEBUG:
+                    logger.debug(msg, args);
+                    break;
+                case INFO:
+                    logger.info(msg, args);
+                    break;
+                case WARN:
+                    logger.warn(msg, args);
+                    break;
+                case ERROR:
+                    logger.error(msg, args);
+                    break;
+                default:
+                    throw new IllegalStateException(); // this should never happen
+            }
+        }
+    }
+}
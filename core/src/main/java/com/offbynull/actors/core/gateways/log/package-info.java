@@ -16,7 +16,7 @@
  */
 
 /**
- * Gateway that pipes log messages to SLF4J.
+ * Gateway that pipes log messages to SLF4J (or some other {@link com.offbynull.actors.core.gateways.log.LogSink}).
  * 
  * @author Kasra Faghihi
  */
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Idle strategy for threads polling a MappedRing. Spins first (so hand-off latency stays low while messages are flowing), then yields,
+// then parks for increasingly longer periods (so an idle gateway doesn't burn a core).
+final class Backoff {
+
+    private static final int MAX_SPINS = 10000;
+    private static final int MAX_YIELDS = 100;
+    private static final long MIN_PARK = TimeUnit.MICROSECONDS.toNanos(1L);
+    private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private int spins;
+    private int yields;
+    private long park;
+
+    void idle() throws InterruptedException {
+        if (spins < MAX_SPINS) {
+            spins++;
+        } else if (yields < MAX_YIELDS) {
+            yields++;
+            Thread.yield();
+        } else {
+            park = Math.min(Math.max(park * 2L, MIN_PARK), MAX_PARK);
+            LockSupport.parkNanos(park);
+        }
+        
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    void reset() {
+        spins = 0;
+        yields = 0;
+        park = 0L;
+    }
+}
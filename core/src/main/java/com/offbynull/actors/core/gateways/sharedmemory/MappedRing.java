@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// Single-producer/single-consumer ring buffer in a memory-mapped file, meant to be shared between two processes (one producing and one
+// consuming). Layout is similar to RingFileLogSink's -- records are a length followed by data, and a wrap marker is written if a record
+// doesn't fit in what's left at the end of the ring. Unlike RingFileLogSink, the producer never overwrites records the consumer hasn't
+// read yet.
+//
+// The head (written only by the consumer) and tail (written only by the producer) are aligned 8-byte fields on separate cache lines,
+// accessed in native byte order so each is read/written as a single load/store. The producer publishes a record by writing tail after
+// writing the record, and the consumer reads tail before reading records (and vice versa for head). Between the two, each side accesses a
+// volatile field (see fence) to keep the JIT and the CPU from reordering the record accesses with the head/tail accesses.
+//
+// This is a weaker guarantee than a true release/acquire on head and tail: the Java memory model says nothing about memory shared with
+// another process through a mapping, so the ordering relies on the JVM implementing volatile accesses with hardware barriers (as HotSpot
+// does on all platforms it supports). Every record length read is bounds-checked, so a consumer that did see a record before its data
+// would fail with "Corrupt ring" rather than read out of bounds.
+final class MappedRing implements AutoCloseable {
+
+    private static volatile long fence; // accessed only for its memory ordering side effects
+
+    private static final int MAGIC = 0x53484D52;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEAD_OFFSET = 64;
+    private static final int TAIL_OFFSET = 128;
+    private static final int HEADER_SIZE = 192;
+    private static final int LENGTH_SIZE = 4;
+    private static final int WRAP_MARKER = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final ByteBuffer writeView;
+    private final int capacity;
+
+    private long head; // consumer's position (only meaningful to consumer)
+    private long tail; // producer's position (only meaningful to producer)
+    private long cachedHead; // producer's last read of head -- avoids volatile read per record
+    
+    static MappedRing open(Path file, int capacity) throws IOException {
+        Validate.notNull(file);
+        Validate.isTrue(capacity >= LENGTH_SIZE);
+        Validate.isTrue(capacity <= Integer.MAX_VALUE - HEADER_SIZE);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedRing(channel, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedRing(FileChannel channel, int capacity) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        
+        // Lock the file while checking/initializing the header, since the process on the other side may be doing the same
+        try (FileLock lock = channel.lock()) {
+            boolean existing = channel.size() >= HEADER_SIZE;
+            this.ring = channel.map(MapMode.READ_WRITE, 0L, HEADER_SIZE + capacity);
+            this.ring.order(ByteOrder.nativeOrder());
+            
+            if (existing && ring.getInt(0) == MAGIC) {
+                if (ring.getInt(CAPACITY_OFFSET) != capacity) {
+                    throw new IOException("Ring capacity mismatch: " + ring.getInt(CAPACITY_OFFSET) + " vs " + capacity);
+                }
+            } else {
+                ring.putInt(CAPACITY_OFFSET, capacity);
+                ring.putLong(HEAD_OFFSET, 0L);
+                ring.putLong(TAIL_OFFSET, 0L);
+                fence = 0L;
+                ring.putInt(0, MAGIC);
+            }
+        }
+        
+        this.writeView = ring.duplicate().order(ByteOrder.nativeOrder());
+        this.head = ring.getLong(HEAD_OFFSET);
+        this.tail = ring.getLong(TAIL_OFFSET);
+        this.cachedHead = head;
+        Validate.validState(head >= 0L && head <= tail && tail - head <= capacity, "Corrupt ring");
+    }
+
+    int maxRecordSize() {
+        return capacity - LENGTH_SIZE;
+    }
+
+    // Producer only. Returns false if there isn't enough room for the record (consumer needs to catch up).
+    boolean offer(ByteBuffer data) {
+        int length = LENGTH_SIZE + data.remaining();
+        Validate.isTrue(length <= capacity, "Record too large for ring");
+        
+        // Skip to start of ring if there isn't enough room left at the end
+        int tailPos = position(tail);
+        long start = capacity - tailPos < length ? tail + (capacity - tailPos) : tail;
+        long end = start + length;
+
+        if (end - cachedHead > capacity) {
+            cachedHead = ring.getLong(HEAD_OFFSET);
+            if (end - cachedHead > capacity) {
+                return false;
+            }
+        }
+
+        if (start != tail && capacity - tailPos >= LENGTH_SIZE) {
+            writeView.putInt(HEADER_SIZE + tailPos, WRAP_MARKER);
+        }
+
+        int startPos = HEADER_SIZE + position(start);
+        writeView.putInt(startPos, length - LENGTH_SIZE);
+        writeView.position(startPos + LENGTH_SIZE);
+        writeView.put(data);
+
+        tail = end;
+        fence = tail; // record must be written before tail
+        ring.putLong(TAIL_OFFSET, tail); // publish
+        return true;
+    }
+
+    // Consumer only. Returns records that have been published since the last call (empty if none).
+    List<ByteBuffer> drain() {
+        long publishedTail = ring.getLong(TAIL_OFFSET);
+        if (publishedTail == head) {
+            return new ArrayList<>(0);
+        }
+        Validate.validState(publishedTail > head && publishedTail - head <= capacity, "Corrupt ring");
+        long ignored = fence; // tail must be read before records
+        
+        List<ByteBuffer> records = new ArrayList<>();
+        ByteBuffer readView = ring.duplicate();
+        while (head < publishedTail) {
+            int headPos = position(head);
+            if (capacity - headPos < LENGTH_SIZE) { // not enough room left for wrap marker, implicit wrap
+                head += capacity - headPos;
+                continue;
+            }
+
+            int length = ring.getInt(HEADER_SIZE + headPos);
+            if (length == WRAP_MARKER) {
+                head += capacity - headPos;
+                continue;
+            }
+            Validate.validState(length >= 0 && length <= capacity - headPos - LENGTH_SIZE, "Corrupt ring");
+
+            byte[] data = new byte[length];
+            readView.position(HEADER_SIZE + headPos + LENGTH_SIZE);
+            readView.get(data);
+            records.add(ByteBuffer.wrap(data));
+            
+            head += LENGTH_SIZE + length;
+        }
+        
+        fence = head; // records must be read before head
+        ring.putLong(HEAD_OFFSET, head); // release space back to producer
+        return records;
+    }
+
+    private int position(long pos) {
+        return (int) (pos % capacity);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// Record layout: [address source][address destination][int payload length][payload], where addresses are an int element count followed
+// by each element as an int length and UTF-8 data.
+final class RecordCodec {
+
+    private RecordCodec() {
+        // do nothing
+    }
+
+    // Encodes in to scratch if it's big enough, otherwise allocates a new buffer. Returned buffer is ready for reading.
+    static ByteBuffer encode(Address source, Address destination, byte[] payload, ByteBuffer scratch) {
+        Validate.notNull(source);
+        Validate.notNull(destination);
+        Validate.notNull(payload);
+        Validate.notNull(scratch);
+        
+        List<byte[]> sourceData = toBytes(source);
+        List<byte[]> destinationData = toBytes(destination);
+        long size = sizeOf(sourceData) + sizeOf(destinationData) + 4L + payload.length;
+        Validate.isTrue(size <= Integer.MAX_VALUE, "Record too large");
+
+        ByteBuffer buffer = scratch.capacity() >= size ? scratch : ByteBuffer.allocate((int) size);
+        buffer.clear();
+        putAddress(buffer, sourceData);
+        putAddress(buffer, destinationData);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    static Address getAddress(ByteBuffer record) {
+        int count = getLength(record);
+        // Each element needs at least its length, so a count that's larger than that is corrupt -- don't over-allocate for it
+        Validate.isTrue(count <= record.remaining() / 4, "Truncated record");
+        List<String> elements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            elements.add(new String(getBytes(record), StandardCharsets.UTF_8));
+        }
+        return Address.of(elements);
+    }
+
+    static byte[] getBytes(ByteBuffer record) {
+        int len = getLength(record);
+        Validate.isTrue(record.remaining() >= len, "Truncated record");
+        byte[] data = new byte[len];
+        record.get(data);
+        return data;
+    }
+
+    private static int getLength(ByteBuffer record) {
+        Validate.isTrue(record.remaining() >= 4, "Truncated record");
+        int len = record.getInt();
+        Validate.isTrue(len >= 0, "Negative length");
+        return len;
+    }
+
+    private static List<byte[]> toBytes(Address address) {
+        List<byte[]> ret = new ArrayList<>(address.size());
+        for (String element : address.getElements()) {
+            ret.add(element.getBytes(StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    private static long sizeOf(List<byte[]> addressData) {
+        long size = 4L;
+        for (byte[] element : addressData) {
+            size += 4L + element.length;
+        }
+        return size;
+    }
+
+    private static void putAddress(ByteBuffer buffer, List<byte[]> addressData) {
+        buffer.putInt(addressData.size());
+        for (byte[] element : addressData) {
+            buffer.putInt(element.length);
+            buffer.put(element);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.gateways.tcp.ObjectStreamPayloadSerializer;
+import com.offbynull.actors.core.gateways.tcp.PayloadSerializer;
+import com.offbynull.actors.core.metrics.Metrics;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.actors.core.shuttles.simple.Bus;
+import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Gateway} that sends messages to and receives messages from another {@link SharedMemoryGateway} running in a different process on
+ * the same machine. Messages are passed through a pair of memory-mapped files, each holding a ring buffer with a single producer and a
+ * single consumer: this gateway writes to the outgoing file and reads from the incoming file, while the gateway on the other side has the
+ * two files swapped.
+ * <p>
+ * A message sent to {@code <prefix>:<address>} is delivered to {@code <address>} on the other side, and its source address is rewritten to
+ * {@code <prefix>:<source>} so that the recipient can respond (assuming the gateway on the other side also uses {@code <prefix>}).
+ * <p>
+ * Each direction has a dedicated thread. The thread reading the incoming file polls it, spinning briefly before backing off, so that
+ * messages are handed off with minimal latency while traffic is flowing. If the outgoing file's ring is full, the writing thread waits
+ * for the other side to catch up rather than discarding messages.
+ * <p>
+ * In the following example, actor systems in two different processes are connected to each other.
+ * <pre>
+ * // Process 1 ('tester' sends to "shm:runner:echoer", 'echoer' sees it as coming from "shm:runner:tester")
+ * SharedMemoryGateway gateway1 = SharedMemoryGateway.create("shm", Paths.get("/dev/shm/1to2"), Paths.get("/dev/shm/2to1"));
+ * ActorSystem system1 = ActorSystem.builder().withGateway(gateway1).withActor("tester", tester).build();
+ * 
+ * // Process 2
+ * SharedMemoryGateway gateway2 = SharedMemoryGateway.create("shm", Paths.get("/dev/shm/2to1"), Paths.get("/dev/shm/1to2"));
+ * ActorSystem system2 = ActorSystem.builder().withGateway(gateway2).withActor("echoer", echoer).build();
+ * </pre>
+ * @author Kasra Faghihi
+ */
+public final class SharedMemoryGateway implements Gateway {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryGateway.class);
+    
+    private static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private final Thread writeThread;
+    private final Thread readThread;
+    private final Bus bus;
+    
+    private final SimpleShuttle shuttle;
+    private final ConcurrentHashMap<String, Shuttle> outgoingShuttles;
+    private final MappedRing outgoingRing;
+    private final MappedRing incomingRing;
+    private final Metrics metrics;
+    private volatile boolean terminated;
+
+    /**
+     * Create a {@link SharedMemoryGateway} instance. Equivalent to calling
+     * {@code create(prefix, outgoingFile, incomingFile, 4 * 1024 * 1024, new ObjectStreamPayloadSerializer())}.
+     * @param prefix address prefix for this gateway
+     * @param outgoingFile file to write messages to (the other side's incoming file)
+     * @param incomingFile file to read messages from (the other side's outgoing file)
+     * @return new shared memory gateway
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if problems opening or mapping either file
+     */
+    public static SharedMemoryGateway create(String prefix, Path outgoingFile, Path incomingFile) throws IOException {
+        return create(prefix, outgoingFile, incomingFile, DEFAULT_CAPACITY, new ObjectStreamPayloadSerializer());
+    }
+
+    /**
+     * Create a {@link SharedMemoryGateway} instance. Files are created if they don't exist. Both sides must use the same capacity.
+     * @param prefix address prefix for this gateway
+     * @param outgoingFile file to write messages to (the other side's incoming file)
+     * @param incomingFile file to read messages from (the other side's outgoing file)
+     * @param capacity size of each ring (in bytes)
+     * @param serializer serializer for message payloads
+     * @return new shared memory gateway
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code capacity} is too small, or if {@code outgoingFile} and {@code incomingFile} are the same
+     * @throws IOException if problems opening or mapping either file, or if either file was created with a different capacity
+     */
+    public static SharedMemoryGateway create(String prefix, Path outgoingFile, Path incomingFile, int capacity,
+            PayloadSerializer serializer) throws IOException {
+        SharedMemoryGateway gateway = new SharedMemoryGateway(prefix, outgoingFile, incomingFile, capacity, serializer);
+        gateway.writeThread.start();
+        gateway.readThread.start();
+        return gateway;
+    }
+
+    private SharedMemoryGateway(String prefix, Path outgoingFile, Path incomingFile, int capacity, PayloadSerializer serializer)
+            throws IOException {
+        Validate.notNull(prefix);
+        Validate.notNull(outgoingFile);
+        Validate.notNull(incomingFile);
+        Validate.notNull(serializer);
+        Validate.isTrue(!outgoingFile.toAbsolutePath().equals(incomingFile.toAbsolutePath()));
+
+        outgoingRing = MappedRing.open(outgoingFile, capacity);
+        try {
+            incomingRing = MappedRing.open(incomingFile, capacity);
+        } catch (IOException | RuntimeException e) {
+            outgoingRing.close();
+            throw e;
+        }
+
+        bus = new Bus();
+        shuttle = new SimpleShuttle(prefix, bus);
+        outgoingShuttles = new ConcurrentHashMap<>();
+        metrics = Metrics.create();
+        metrics.gauge("bus.depth", bus::size);
+        writeThread = new Thread(new SharedMemoryWriteRunnable(prefix, bus, outgoingRing, serializer, metrics));
+        writeThread.setDaemon(true);
+        writeThread.setName(getClass().getSimpleName() + "-" + prefix + "-write");
+        readThread = new Thread(new SharedMemoryReadRunnable(prefix, incomingRing, serializer, outgoingShuttles, metrics));
+        readThread.setDaemon(true);
+        readThread.setName(getClass().getSimpleName() + "-" + prefix + "-read");
+    }
+
+    /**
+     * Get the metrics for this gateway. Metrics include the number of messages waiting to be written ({@code bus.depth}), the number of
+     * messages written to the outgoing file ({@code messages.sent}), the number of messages read from the incoming file and passed on
+     * ({@code messages.received}), the number of messages discarded ({@code messages.dropped}), and the number of times a write had to
+     * wait for the other side to make room ({@code ring.full}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Shuttle getIncomingShuttle() {
+        return shuttle;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is added right away. If a shuttle with the same prefix already exists, this gateway
+     * terminates.
+     */
+    @Override
+    public void addOutgoingShuttle(Shuttle shuttle) {
+        Validate.notNull(shuttle);
+        if (terminated) {
+            return;
+        }
+        
+        Shuttle existingShuttle = outgoingShuttles.putIfAbsent(shuttle.getPrefix(), shuttle);
+        if (existingShuttle != null) {
+            terminate("Shuttle with prefix already exists: " + shuttle.getPrefix());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlike most other gateways, the shuttle is removed right away. If no shuttle with the prefix exists, this gateway terminates.
+     */
+    @Override
+    public void removeOutgoingShuttle(String shuttlePrefix) {
+        Validate.notNull(shuttlePrefix);
+        if (terminated) {
+            return;
+        }
+        
+        Shuttle oldShuttle = outgoingShuttles.remove(shuttlePrefix);
+        if (oldShuttle == null) {
+            terminate("Shuttle with prefix does not exist: " + shuttlePrefix);
+        }
+    }
+    
+    // Stops both threads, the same as if they had encountered an internal error. The ring files stay mapped until close() is called.
+    private void terminate(String error) {
+        LOG.error("Terminating due to error: {}", error);
+        terminated = true;
+        writeThread.interrupt();
+        readThread.interrupt();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        writeThread.interrupt();
+        readThread.interrupt();
+        writeThread.join();
+        readThread.join();
+        
+        try {
+            outgoingRing.close();
+            incomingRing.close();
+        } catch (IOException ioe) {
+            LOG.error("Unable to close ring files", ioe);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import com.offbynull.actors.core.gateways.tcp.PayloadSerializer;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class SharedMemoryReadRunnable implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryReadRunnable.class);
+
+    private final String prefix;
+    private final MappedRing ring;
+    private final PayloadSerializer serializer;
+    private final Map<String, Shuttle> outgoingShuttles;
+    private final Counter messagesReceivedCounter;
+    private final Counter messagesDroppedCounter;
+
+    SharedMemoryReadRunnable(String prefix, MappedRing ring, PayloadSerializer serializer, Map<String, Shuttle> outgoingShuttles,
+            Metrics metrics) {
+        Validate.notNull(prefix);
+        Validate.notNull(ring);
+        Validate.notNull(serializer);
+        Validate.notNull(outgoingShuttles);
+        Validate.notNull(metrics);
+        this.prefix = prefix;
+        this.ring = ring;
+        this.serializer = serializer;
+        this.outgoingShuttles = outgoingShuttles; // concurrent map, modified directly by gateway
+        this.messagesReceivedCounter = metrics.counter("messages.received");
+        this.messagesDroppedCounter = metrics.counter("messages.dropped");
+    }
+
+    @Override
+    public void run() {
+        Backoff backoff = new Backoff();
+        try {
+            while (true) {
+                List<ByteBuffer> records = ring.drain();
+                if (records.isEmpty()) {
+                    backoff.idle();
+                    continue;
+                }
+                backoff.reset();
+
+                // Group incoming messages by prefix
+                Map<String, List<Message>> outgoingMap = new HashMap<>();
+                for (ByteBuffer record : records) {
+                    Message message = decode(record);
+                    if (message == null) {
+                        messagesDroppedCounter.increment();
+                        continue;
+                    }
+                    
+                    LOG.debug("Processing incoming message from {} to {}: {}", message.getSourceAddress(),
+                            message.getDestinationAddress(), message.getMessage());
+                    
+                    String outDstPrefix = message.getDestinationAddress().getElement(0);
+                    outgoingMap.computeIfAbsent(outDstPrefix, k -> new LinkedList<>()).add(message);
+                }
+
+                // Send by prefix
+                for (Entry<String, List<Message>> entry : outgoingMap.entrySet()) {
+                    Shuttle shuttle = outgoingShuttles.get(entry.getKey());
+                    if (shuttle == null) {
+                        LOG.warn("Shuttle not found for {}, {} messages ignored", entry.getKey(), entry.getValue().size());
+                        messagesDroppedCounter.add(entry.getValue().size());
+                        continue;
+                    }
+
+                    shuttle.send(entry.getValue());
+                    messagesReceivedCounter.add(entry.getValue().size());
+                }
+            }
+        } catch (InterruptedException ie) {
+            LOG.debug("Shared memory gateway reader interrupted");
+            Thread.interrupted();
+        } catch (RuntimeException re) {
+            LOG.error("Internal error encountered", re);
+        }
+    }
+
+    private Message decode(ByteBuffer record) {
+        Address src;
+        Address dst;
+        Object payload;
+        try {
+            src = RecordCodec.getAddress(record);
+            dst = RecordCodec.getAddress(record);
+            payload = serializer.unserialize(RecordCodec.getBytes(record));
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            LOG.warn("Unable to decode message", e);
+            return null;
+        }
+
+        if (src.isEmpty() || dst.isEmpty()) {
+            LOG.warn("Empty address in message, message ignored");
+            return null;
+        }
+
+        // Make source address route back through this gateway
+        List<String> srcElements = new ArrayList<>(src.size() + 1);
+        srcElements.add(prefix);
+        srcElements.addAll(src.getElements());
+        return new Message(Address.of(srcElements), dst, payload);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import com.offbynull.actors.core.gateways.tcp.PayloadSerializer;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttles.simple.Bus;
+import static com.offbynull.actors.core.trace.TracePoint.EGRESS;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class SharedMemoryWriteRunnable implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryWriteRunnable.class);
+    
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
+    private final String prefix;
+    private final Bus bus;
+    private final MappedRing ring;
+    private final PayloadSerializer serializer;
+    private final Counter messagesSentCounter;
+    private final Counter messagesDroppedCounter;
+    private final Counter ringFullCounter;
+
+    SharedMemoryWriteRunnable(String prefix, Bus bus, MappedRing ring, PayloadSerializer serializer, Metrics metrics) {
+        Validate.notNull(prefix);
+        Validate.notNull(bus);
+        Validate.notNull(ring);
+        Validate.notNull(serializer);
+        Validate.notNull(metrics);
+        this.prefix = prefix;
+        this.bus = bus;
+        this.ring = ring;
+        this.serializer = serializer;
+        this.messagesSentCounter = metrics.counter("messages.sent");
+        this.messagesDroppedCounter = metrics.counter("messages.dropped");
+        this.ringFullCounter = metrics.counter("ring.full");
+    }
+
+    @Override
+    public void run() {
+        Backoff backoff = new Backoff();
+        ByteBuffer scratch = ByteBuffer.allocate(SCRATCH_SIZE);
+        try {
+            while (true) {
+                List<Object> incomingObjects = bus.pull();
+                Validate.notNull(incomingObjects);
+                Validate.noNullElements(incomingObjects);
+
+                for (Object incomingObj : incomingObjects) {
+                    Message message = (Message) incomingObj;
+                    Address src = message.getSourceAddress();
+                    Address dst = message.getDestinationAddress();
+                    Object payload = message.getMessage();
+
+                    LOG.debug("Processing outgoing message from {} to {}: {}", src, dst, payload);
+
+                    if (dst.size() < 2) {
+                        LOG.warn("Destination must be in the form of {}:<address>: {}", prefix, dst);
+                        messagesDroppedCounter.increment();
+                        continue;
+                    }
+
+                    ByteBuffer record;
+                    try {
+                        Address remoteDst = Address.of(dst.getElements().subList(1, dst.size()));
+                        byte[] data = serializer.serialize(payload);
+                        record = RecordCodec.encode(src, remoteDst, data, scratch);
+                        Validate.isTrue(record.remaining() <= ring.maxRecordSize(), "Record too large for ring");
+                    } catch (IllegalArgumentException iae) {
+                        LOG.warn("Unable to encode message: " + message, iae);
+                        messagesDroppedCounter.increment();
+                        continue;
+                    }
+
+                    message.trace(EGRESS);
+                    
+                    // Wait for the other side to make room if the ring is full
+                    if (!ring.offer(record)) {
+                        ringFullCounter.increment();
+                        backoff.reset();
+                        do {
+                            backoff.idle();
+                        } while (!ring.offer(record));
+                    }
+                    messagesSentCounter.increment();
+                }
+            }
+        } catch (InterruptedException ie) {
+            LOG.debug("Shared memory gateway writer interrupted");
+            Thread.interrupted();
+        } catch (RuntimeException re) {
+            LOG.error("Internal error encountered", re);
+        } finally {
+            bus.close();
+        }
+    }
+}
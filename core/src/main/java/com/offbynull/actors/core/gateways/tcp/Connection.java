@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import static com.offbynull.actors.core.gateways.tcp.MessageCodec.LENGTH_SIZE;
+import static com.offbynull.actors.core.gateways.tcp.MessageCodec.MAX_FRAME_SIZE;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// A non-blocking socket along with its read buffer and its queue of frames waiting to be written. Only accessed by TcpRunnable's thread.
+final class Connection {
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_GATHER = 64;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ArrayDeque<ByteBuffer> writeQueue;
+    private ByteBuffer readBuffer;
+    
+    private String peerNode; // set once HELLO has been received (only for accepted connections)
+    private long ackedSequence; // last sequence acknowledged to peer (only for accepted connections)
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        Validate.notNull(channel);
+        Validate.notNull(key);
+        this.channel = channel;
+        this.key = key;
+        this.writeQueue = new ArrayDeque<>();
+        this.readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    String getPeerNode() {
+        return peerNode;
+    }
+
+    void setPeerNode(String peerNode) {
+        this.peerNode = peerNode;
+    }
+
+    long getAckedSequence() {
+        return ackedSequence;
+    }
+
+    void setAckedSequence(long ackedSequence) {
+        this.ackedSequence = ackedSequence;
+    }
+
+    // Frame gets written as-is, so pass in a duplicate if the frame may be written again (e.g. resent after a reconnect)
+    void queue(ByteBuffer frame) {
+        Validate.notNull(frame);
+        writeQueue.addLast(frame);
+    }
+
+    // Write as much as possible using gathering writes (many frames per system call). If not everything could be written, interest in
+    // OP_WRITE is set so the rest goes out once the socket is writable again. Returns number of bytes written.
+    long flush() throws IOException {
+        long total = 0L;
+        while (!writeQueue.isEmpty()) {
+            ByteBuffer[] buffers = new ByteBuffer[Math.min(writeQueue.size(), MAX_GATHER)];
+            Iterator<ByteBuffer> it = writeQueue.iterator();
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = it.next();
+            }
+            
+            long written = channel.write(buffers);
+            total += written;
+            
+            while (!writeQueue.isEmpty() && !writeQueue.peekFirst().hasRemaining()) {
+                writeQueue.removeFirst();
+            }
+            
+            if (buffers[buffers.length - 1].hasRemaining()) { // socket's send buffer is full
+                break;
+            }
+        }
+        
+        if (writeQueue.isEmpty()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        } else {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+        
+        return total;
+    }
+
+    // Read whatever is available and return complete frames (positioned just after the length field). Partial frames are kept until the
+    // rest of their data arrives.
+    List<ByteBuffer> read() throws IOException {
+        int count = channel.read(readBuffer);
+        if (count == -1) {
+            throw new EOFException("Connection closed by peer");
+        }
+        
+        List<ByteBuffer> frames = new ArrayList<>();
+        readBuffer.flip();
+        while (readBuffer.remaining() >= LENGTH_SIZE) {
+            int len = readBuffer.getInt(readBuffer.position());
+            if (len <= 0 || len > MAX_FRAME_SIZE) {
+                throw new IOException("Bad frame length: " + len);
+            }
+            if (readBuffer.remaining() < LENGTH_SIZE + len) {
+                if (readBuffer.capacity() < LENGTH_SIZE + len) { // frame too big for buffer, grow buffer
+                    ByteBuffer newReadBuffer = ByteBuffer.allocate(LENGTH_SIZE + len);
+                    newReadBuffer.put(readBuffer);
+                    newReadBuffer.flip();
+                    readBuffer = newReadBuffer;
+                }
+                break;
+            }
+            
+            byte[] frame = new byte[len];
+            readBuffer.position(readBuffer.position() + LENGTH_SIZE);
+            readBuffer.get(frame);
+            frames.add(ByteBuffer.wrap(frame));
+        }
+        readBuffer.compact();
+        
+        return frames;
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            // do nothing
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// Frame layout: [int length][byte type][body], where length covers type+body. Bodies are...
+//   HELLO: [long session][string node]
+//   DATA:  [long sequence][address source][address destination][bytes payload]
+//   ACK:   [long sequence]
+// ... where strings/bytes are an int length followed by the data (strings are UTF-8), and addresses are an int element count followed
+// by each element as a string.
+final class MessageCodec {
+
+    static final byte HELLO = 0;
+    static final byte DATA = 1;
+    static final byte ACK = 2;
+
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    static final int LENGTH_SIZE = 4;
+
+    private static final int DATA_SEQUENCE_OFFSET = LENGTH_SIZE + 1;
+
+    private MessageCodec() {
+        // do nothing
+    }
+
+    static ByteBuffer encodeHello(long session, String node) {
+        Validate.notNull(node);
+        
+        byte[] nodeData = node.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = allocateFrame(HELLO, 8 + 4 + nodeData.length);
+        buffer.putLong(session);
+        putBytes(buffer, nodeData);
+        buffer.flip();
+        return buffer;
+    }
+
+    static ByteBuffer encodeData(long sequence, Address source, Address destination, byte[] payload) {
+        Validate.notNull(source);
+        Validate.notNull(destination);
+        Validate.notNull(payload);
+        
+        List<byte[]> sourceData = toBytes(source);
+        List<byte[]> destinationData = toBytes(destination);
+        ByteBuffer buffer = allocateFrame(DATA, 8 + sizeOf(sourceData) + sizeOf(destinationData) + 4 + payload.length);
+        buffer.putLong(sequence);
+        putAddress(buffer, sourceData);
+        putAddress(buffer, destinationData);
+        putBytes(buffer, payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    static ByteBuffer encodeAck(long sequence) {
+        ByteBuffer buffer = allocateFrame(ACK, 8);
+        buffer.putLong(sequence);
+        buffer.flip();
+        return buffer;
+    }
+
+    // Sequence of a frame created by encodeData()
+    static long dataSequence(ByteBuffer frame) {
+        return frame.getLong(DATA_SEQUENCE_OFFSET);
+    }
+
+    static long getLong(ByteBuffer frame) {
+        ensureRemaining(frame, 8);
+        return frame.getLong();
+    }
+
+    static String getString(ByteBuffer frame) {
+        return new String(getBytes(frame), StandardCharsets.UTF_8);
+    }
+
+    static byte[] getBytes(ByteBuffer frame) {
+        ensureRemaining(frame, 4);
+        int len = frame.getInt();
+        Validate.isTrue(len >= 0, "Negative length");
+        ensureRemaining(frame, len);
+        byte[] data = new byte[len];
+        frame.get(data);
+        return data;
+    }
+
+    static Address getAddress(ByteBuffer frame) {
+        ensureRemaining(frame, 4);
+        int count = frame.getInt();
+        Validate.isTrue(count >= 0, "Negative element count");
+        ensureRemaining(frame, count * 4L);
+        List<String> elements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            elements.add(getString(frame));
+        }
+        return Address.of(elements);
+    }
+
+    private static void ensureRemaining(ByteBuffer frame, long len) {
+        Validate.isTrue(frame.remaining() >= len, "Truncated frame");
+    }
+
+    private static ByteBuffer allocateFrame(byte type, int bodySize) {
+        int len = 1 + bodySize;
+        Validate.isTrue(len > 0 && len <= MAX_FRAME_SIZE, "Frame too large: %d", len); // > 0 check catches overflow
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_SIZE + len);
+        buffer.putInt(len);
+        buffer.put(type);
+        return buffer;
+    }
+
+    private static List<byte[]> toBytes(Address address) {
+        List<byte[]> ret = new ArrayList<>(address.size());
+        for (String element : address.getElements()) {
+            ret.add(element.getBytes(StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    private static int sizeOf(List<byte[]> addressData) {
+        int size = 4;
+        for (byte[] element : addressData) {
+            size += 4 + element.length;
+        }
+        return size;
+    }
+
+    private static void putAddress(ByteBuffer buffer, List<byte[]> addressData) {
+        buffer.putInt(addressData.size());
+        for (byte[] element : addressData) {
+            putBytes(buffer, element);
+        }
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] data) {
+        buffer.putInt(data.length);
+        buffer.put(data);
+    }
+}
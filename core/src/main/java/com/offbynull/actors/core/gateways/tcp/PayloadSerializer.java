@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+/**
+ * Interface to serialize and unserialize message payloads sent through a {@link TcpGateway}.
+ * @author Kasra Faghihi
+ */
+public interface PayloadSerializer {
+
+    /**
+     * Serialize payload.
+     * @param payload payload
+     * @return serialized payload
+     * @throws IllegalArgumentException if cannot be serialized for some reason
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    byte[] serialize(Object payload);
+
+    /**
+     * Unserialize payload.
+     * @param data serialized payload
+     * @return payload
+     * @throws IllegalArgumentException if cannot be unserialized for some reason
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    Object unserialize(byte[] data);
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import org.apache.commons.lang3.Validate;
+
+// State for a remote node that messages are sent to. Sent messages stay in the resend buffer until the remote node acknowledges them, so
+// they can be written out again if the connection drops. Only accessed by TcpRunnable's thread.
+final class Remote {
+
+    private final String node;
+    private final InetSocketAddress address;
+    private final long session; // sent in HELLO -- sequencing starts over for each Remote, so the remote node needs to know which one
+    private final ArrayDeque<ByteBuffer> resendBuffer;
+    private long nextSequence;
+    private boolean connectAttempted; // true once the first attempt to connect has been made
+
+    private Connection connection; // null if not connected
+    private boolean connected; // true once connection has finished connecting
+    private long reconnectTime; // System.nanoTime() of when to attempt to reconnect (if connection is null)
+    private long reconnectDelay; // in nanos
+
+    Remote(String node, InetSocketAddress address, long session) {
+        Validate.notNull(node);
+        Validate.notNull(address);
+        this.node = node;
+        this.address = address;
+        this.session = session;
+        this.resendBuffer = new ArrayDeque<>();
+        this.nextSequence = 1L;
+    }
+
+    String getNode() {
+        return node;
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    long getSession() {
+        return session;
+    }
+
+    ArrayDeque<ByteBuffer> getResendBuffer() {
+        return resendBuffer;
+    }
+
+    long nextSequence() {
+        return nextSequence++;
+    }
+
+    boolean isConnectAttempted() {
+        return connectAttempted;
+    }
+
+    void setConnectAttempted(boolean connectAttempted) {
+        this.connectAttempted = connectAttempted;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    long getReconnectTime() {
+        return reconnectTime;
+    }
+
+    void setReconnectTime(long reconnectTime) {
+        this.reconnectTime = reconnectTime;
+    }
+
+    long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    void setReconnectDelay(long reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.metrics.Metrics;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.actors.core.shuttles.simple.Bus;
+import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link Gateway} that sends messages to and receives messages from other {@link TcpGateway}s over TCP, allowing actors in different
+ * processes (or on different machines) to communicate with each other.
+ * <p>
+ * Each gateway has an address prefix and a node name. Other gateways are registered as remote nodes using
+ * {@link #addRemote(java.lang.String, java.net.InetSocketAddress) }. A message sent to {@code <prefix>:<node>:<address>} is delivered to
+ * {@code <address>} on the remote node {@code <node>}, and its source address is rewritten to {@code <prefix>:<node>:<source>} (where
+ * {@code <node>} is the sender's node name) so that the recipient can respond. For the response to make it back, the sending node needs to
+ * be registered as a remote node on the receiving gateway.
+ * <p>
+ * Messages are sent as length-prefixed frames. Frames queued for the same remote node are written together (gathering writes), and
+ * messages are pipelined rather than waiting for acknowledgements. Messages stay buffered until the remote node acknowledges them, so if a
+ * connection drops they're resent once it's re-established (the remote node discards messages it has already seen). If the buffer for a
+ * remote node fills up, new messages to that node are discarded.
+ * <p>
+ * In the following example, the actor called {@code tester} on node {@code a} sends a message to the actor called {@code echoer} on node
+ * {@code b}.
+ * <pre>
+ * TcpGateway gatewayA = TcpGateway.create("tcp", "a", new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+ * TcpGateway gatewayB = TcpGateway.create("tcp", "b", new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+ * gatewayA.addRemote("b", gatewayB.getLocalAddress());
+ * gatewayB.addRemote("a", gatewayA.getLocalAddress());
+ * 
+ * ActorSystem systemA = ActorSystem.builder().withGateway(gatewayA).withActor("tester", tester).build();
+ * ActorSystem systemB = ActorSystem.builder().withGateway(gatewayB).withActor("echoer", echoer).build();
+ * 
+ * // tester sends to "tcp:b:runner:echoer", echoer sees the message as coming from "tcp:a:runner:tester"
+ * </pre>
+ * @author Kasra Faghihi
+ */
+public final class TcpGateway implements Gateway {
+    
+    private static final int DEFAULT_RESEND_BUFFER_SIZE = 65536;
+
+    private final Thread thread;
+    private final Bus bus;
+    
+    private final TcpShuttle shuttle;
+    private final InetSocketAddress localAddress;
+    private final Metrics metrics;
+
+    /**
+     * Create a {@link TcpGateway} instance. Equivalent to calling
+     * {@code create(prefix, node, bindAddress, new ObjectStreamPayloadSerializer(), 65536)}.
+     * @param prefix address prefix for this gateway
+     * @param node node name for this gateway
+     * @param bindAddress address to listen on for connections from other gateways (use port {@code 0} to pick any free port)
+     * @return new TCP gateway
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if unable to listen on {@code bindAddress}
+     */
+    public static TcpGateway create(String prefix, String node, InetSocketAddress bindAddress) throws IOException {
+        return create(prefix, node, bindAddress, new ObjectStreamPayloadSerializer(), DEFAULT_RESEND_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a {@link TcpGateway} instance.
+     * @param prefix address prefix for this gateway
+     * @param node node name for this gateway
+     * @param bindAddress address to listen on for connections from other gateways (use port {@code 0} to pick any free port)
+     * @param serializer serializer for message payloads
+     * @param resendBufferSize maximum number of unacknowledged messages to hold per remote node
+     * @return new TCP gateway
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code resendBufferSize <= 0}
+     * @throws IOException if unable to listen on {@code bindAddress}
+     */
+    public static TcpGateway create(String prefix, String node, InetSocketAddress bindAddress, PayloadSerializer serializer,
+            int resendBufferSize) throws IOException {
+        TcpGateway gateway = new TcpGateway(prefix, node, bindAddress, serializer, resendBufferSize);
+        gateway.thread.start();
+        return gateway;
+    }
+
+    private TcpGateway(String prefix, String node, InetSocketAddress bindAddress, PayloadSerializer serializer, int resendBufferSize)
+            throws IOException {
+        Validate.notNull(prefix);
+        Validate.notNull(node);
+        Validate.notNull(bindAddress);
+        Validate.notNull(serializer);
+        Validate.isTrue(resendBufferSize > 0);
+
+        Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = null;
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(bindAddress);
+            localAddress = (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException | RuntimeException e) {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            selector.close();
+            throw e;
+        }
+        
+        bus = new Bus();
+        shuttle = new TcpShuttle(new SimpleShuttle(prefix, bus), selector);
+        metrics = Metrics.create();
+        metrics.gauge("bus.depth", bus::size);
+        thread = new Thread(new TcpRunnable(prefix, node, bus, selector, serverChannel, serializer, resendBufferSize, metrics));
+        thread.setDaemon(true);
+        thread.setName(getClass().getSimpleName() + "-" + prefix);
+    }
+
+    /**
+     * Get the address this gateway is listening on. Other gateways should use this address to register this gateway as a remote node.
+     * @return local address
+     */
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * Get the metrics for this gateway. Metrics include the number of messages waiting to be processed ({@code bus.depth}), the number of
+     * messages sent to remote nodes ({@code messages.sent}), the number of messages received from remote nodes and passed on
+     * ({@code messages.received}), the number of messages discarded ({@code messages.dropped}), and the number of times a connection to
+     * a remote node had to be re-attempted ({@code reconnects}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Queue a remote node to be added. Once added, this gateway connects to the remote node (and reconnects as needed) and messages sent
+     * to {@code <prefix>:<node>:...} get forwarded to it.
+     * <p>
+     * Note that this operation queues a remote node to be added rather than adding it right away. On error, this gateway terminates.
+     * @param node node name of the remote gateway
+     * @param address address the remote gateway is listening on
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void addRemote(String node, InetSocketAddress address) {
+        Validate.notNull(node);
+        Validate.notNull(address);
+        bus.add(new AddRemote(node, address));
+        shuttle.wakeup();
+    }
+
+    /**
+     * Queue a remote node for removal. Messages that haven't been acknowledged by the remote node are discarded.
+     * <p>
+     * Note that this operation queues a remote node for removal rather than removing it right away. On error, this gateway terminates.
+     * @param node node name of the remote gateway
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void removeRemote(String node) {
+        Validate.notNull(node);
+        bus.add(new RemoveRemote(node));
+        shuttle.wakeup();
+    }
+
+    @Override
+    public Shuttle getIncomingShuttle() {
+        return shuttle;
+    }
+
+    @Override
+    public void addOutgoingShuttle(Shuttle shuttle) {
+        Validate.notNull(shuttle);
+        bus.add(new AddShuttle(shuttle));
+        this.shuttle.wakeup();
+    }
+
+    @Override
+    public void removeOutgoingShuttle(String shuttlePrefix) {
+        Validate.notNull(shuttlePrefix);
+        bus.add(new RemoveShuttle(shuttlePrefix));
+        shuttle.wakeup();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        thread.interrupt();
+        thread.join();
+    }
+}
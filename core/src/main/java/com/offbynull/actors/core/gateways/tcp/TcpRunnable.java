@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import static com.offbynull.actors.core.gateways.tcp.MessageCodec.ACK;
+import static com.offbynull.actors.core.gateways.tcp.MessageCodec.DATA;
+import static com.offbynull.actors.core.gateways.tcp.MessageCodec.HELLO;
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.actors.core.shuttles.simple.Bus;
+import static com.offbynull.actors.core.trace.TracePoint.EGRESS;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class TcpRunnable implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TcpRunnable.class);
+    
+    private static final long MIN_RECONNECT_DELAY = TimeUnit.MILLISECONDS.toNanos(50L);
+    private static final long MAX_RECONNECT_DELAY = TimeUnit.SECONDS.toNanos(5L);
+
+    private final String prefix;
+    private final String node;
+    private final SecureRandom random; // generates session ids for remotes
+    private final Bus bus;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final PayloadSerializer serializer;
+    private final int resendBufferSize;
+
+    private final Map<String, Shuttle> outgoingShuttles;
+    private final Map<String, Remote> remotes;
+    private final Map<String, Peer> peers;
+    
+    private final Set<Remote> pendingFlushes; // remotes with frames queued during this iteration
+    private final Map<String, List<Message>> pendingDeliveries; // messages read during this iteration, grouped by prefix
+    
+    private final Counter messagesSentCounter;
+    private final Counter messagesReceivedCounter;
+    private final Counter messagesDroppedCounter;
+    private final Counter reconnectsCounter;
+
+    TcpRunnable(String prefix, String node, Bus bus, Selector selector, ServerSocketChannel serverChannel,
+            PayloadSerializer serializer, int resendBufferSize, Metrics metrics) {
+        Validate.notNull(prefix);
+        Validate.notNull(node);
+        Validate.notNull(bus);
+        Validate.notNull(selector);
+        Validate.notNull(serverChannel);
+        Validate.notNull(serializer);
+        Validate.notNull(metrics);
+        Validate.isTrue(resendBufferSize > 0);
+        this.prefix = prefix;
+        this.node = node;
+        this.random = new SecureRandom();
+        this.bus = bus;
+        this.selector = selector;
+        this.serverChannel = serverChannel;
+        this.serializer = serializer;
+        this.resendBufferSize = resendBufferSize;
+        this.outgoingShuttles = new HashMap<>();
+        this.remotes = new HashMap<>();
+        this.peers = new HashMap<>();
+        this.pendingFlushes = new LinkedHashSet<>();
+        this.pendingDeliveries = new HashMap<>();
+        this.messagesSentCounter = metrics.counter("messages.sent");
+        this.messagesReceivedCounter = metrics.counter("messages.received");
+        this.messagesDroppedCounter = metrics.counter("messages.dropped");
+        this.reconnectsCounter = metrics.counter("reconnects");
+    }
+
+    @Override
+    public void run() {
+        try {
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            
+            while (true) {
+                // Wait for socket activity, for bus activity (shuttle wakes up selector when it adds to bus), or for a reconnect to be due
+                selector.select(nextReconnectTimeout());
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                // Queue new outgoing messages and apply management messages
+                List<Object> incomingObjects = bus.pull(0L, TimeUnit.MILLISECONDS);
+                for (Object incomingObj : incomingObjects) {
+                    if (incomingObj instanceof Message) {
+                        queueOutgoing((Message) incomingObj);
+                    } else {
+                        processManagement(incomingObj);
+                    }
+                }
+
+                // Handle socket activity
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    
+                    Object attachment = key.attachment();
+                    if (attachment == null) {
+                        accept();
+                    } else if (attachment instanceof Remote) {
+                        handleRemote((Remote) attachment, key);
+                    } else {
+                        handlePeer((Connection) attachment, key);
+                    }
+                }
+
+                // Reconnect remotes that are due
+                long now = System.nanoTime();
+                for (Remote remote : remotes.values()) {
+                    if (remote.getConnection() == null && now - remote.getReconnectTime() >= 0L) {
+                        connect(remote);
+                    }
+                }
+
+                // Write out queued frames -- all frames queued for a remote during this iteration go out in as few writes as possible
+                for (Remote remote : pendingFlushes) {
+                    if (remote.isConnected()) {
+                        try {
+                            remote.getConnection().flush();
+                        } catch (IOException ioe) {
+                            disconnect(remote, ioe);
+                        }
+                    }
+                }
+                pendingFlushes.clear();
+
+                // Send incoming messages by prefix
+                for (Entry<String, List<Message>> entry : pendingDeliveries.entrySet()) {
+                    Shuttle shuttle = outgoingShuttles.get(entry.getKey());
+                    if (shuttle == null) {
+                        LOG.warn("Shuttle not found for {}, {} messages ignored", entry.getKey(), entry.getValue().size());
+                        messagesDroppedCounter.add(entry.getValue().size());
+                        continue;
+                    }
+                    
+                    shuttle.send(entry.getValue());
+                    messagesReceivedCounter.add(entry.getValue().size());
+                }
+                pendingDeliveries.clear();
+            }
+        } catch (InterruptedException ie) {
+            LOG.debug("TCP gateway interrupted");
+            Thread.interrupted();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Internal error encountered", e);
+        } finally {
+            bus.close();
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ioe) {
+                    // do nothing
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ioe) {
+                // do nothing
+            }
+        }
+    }
+
+    private long nextReconnectTimeout() {
+        long timeout = Long.MAX_VALUE;
+        long now = System.nanoTime();
+        for (Remote remote : remotes.values()) {
+            if (remote.getConnection() == null) {
+                timeout = Math.min(timeout, remote.getReconnectTime() - now);
+            }
+        }
+        
+        if (timeout == Long.MAX_VALUE) {
+            return 0L; // wait forever
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timeout)); // 0 means wait forever, so wait at least 1 ms
+    }
+
+    private void queueOutgoing(Message message) {
+        Address src = message.getSourceAddress();
+        Address dst = message.getDestinationAddress();
+        Object payload = message.getMessage();
+
+        LOG.debug("Processing outgoing message from {} to {}: {}", src, dst, payload);
+
+        if (dst.size() < 3) {
+            LOG.warn("Destination must be in the form of {}:<node>:<address>: {}", prefix, dst);
+            messagesDroppedCounter.increment();
+            return;
+        }
+
+        String remoteNode = dst.getElement(1);
+        Remote remote = remotes.get(remoteNode);
+        if (remote == null) {
+            LOG.warn("Remote not found for {}, message ignored", remoteNode);
+            messagesDroppedCounter.increment();
+            return;
+        }
+
+        ArrayDeque<ByteBuffer> resendBuffer = remote.getResendBuffer();
+        if (resendBuffer.size() >= resendBufferSize) {
+            LOG.warn("Resend buffer full for {}, message ignored", remoteNode);
+            messagesDroppedCounter.increment();
+            return;
+        }
+
+        ByteBuffer frame;
+        try {
+            Address remoteDst = Address.of(dst.getElements().subList(2, dst.size()));
+            byte[] data = serializer.serialize(payload);
+            frame = MessageCodec.encodeData(remote.nextSequence(), src, remoteDst, data);
+        } catch (IllegalArgumentException iae) {
+            LOG.warn("Unable to encode message: " + message, iae);
+            messagesDroppedCounter.increment();
+            return;
+        }
+        
+        message.trace(EGRESS);
+        resendBuffer.addLast(frame);
+        messagesSentCounter.increment();
+        if (remote.isConnected()) {
+            remote.getConnection().queue(frame.duplicate());
+            pendingFlushes.add(remote);
+        }
+    }
+
+    private void processManagement(Object incomingObj) {
+        LOG.debug("Processing management message: {} ", incomingObj);
+        if (incomingObj instanceof AddShuttle) {
+            AddShuttle addShuttle = (AddShuttle) incomingObj;
+            Shuttle shuttle = addShuttle.getShuttle();
+            Shuttle existingShuttle = outgoingShuttles.putIfAbsent(shuttle.getPrefix(), shuttle);
+            Validate.validState(existingShuttle == null);
+        } else if (incomingObj instanceof RemoveShuttle) {
+            RemoveShuttle removeShuttle = (RemoveShuttle) incomingObj;
+            String shuttlePrefix = removeShuttle.getPrefix();
+            Shuttle oldShuttle = outgoingShuttles.remove(shuttlePrefix);
+            Validate.validState(oldShuttle != null);
+        } else if (incomingObj instanceof AddRemote) {
+            AddRemote addRemote = (AddRemote) incomingObj;
+            // Each remote gets its own session, so if a remote node is removed and added again, the other side knows that sequencing
+            // started over rather than discarding new messages as ones it has already seen
+            Remote remote = new Remote(addRemote.getNode(), addRemote.getAddress(), random.nextLong());
+            Remote existingRemote = remotes.putIfAbsent(remote.getNode(), remote);
+            Validate.validState(existingRemote == null);
+            connect(remote);
+        } else if (incomingObj instanceof RemoveRemote) {
+            RemoveRemote removeRemote = (RemoveRemote) incomingObj;
+            Remote oldRemote = remotes.remove(removeRemote.getNode());
+            Validate.validState(oldRemote != null);
+            if (oldRemote.getConnection() != null) {
+                oldRemote.getConnection().close();
+            }
+            pendingFlushes.remove(oldRemote);
+        }
+    }
+
+    private void connect(Remote remote) {
+        LOG.debug("Connecting to {} at {}", remote.getNode(), remote.getAddress());
+        
+        if (remote.isConnectAttempted()) {
+            reconnectsCounter.increment();
+        }
+        remote.setConnectAttempted(true);
+        
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT, remote);
+            remote.setConnection(new Connection(channel, key));
+            if (channel.connect(remote.getAddress())) {
+                connected(remote);
+            }
+        } catch (IOException ioe) {
+            if (remote.getConnection() != null) {
+                disconnect(remote, ioe);
+            } else {
+                try {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                } catch (IOException closeIoe) {
+                    // do nothing
+                }
+                scheduleReconnect(remote);
+            }
+        }
+    }
+
+    private void connected(Remote remote) {
+        LOG.debug("Connected to {} at {}", remote.getNode(), remote.getAddress());
+        
+        Connection connection = remote.getConnection();
+        connection.getKey().interestOps(SelectionKey.OP_READ);
+        remote.setConnected(true);
+        remote.setReconnectDelay(0L);
+        
+        // Introduce ourself and (re)send everything that hasn't been acknowledged yet -- the remote discards anything it has already seen
+        connection.queue(MessageCodec.encodeHello(remote.getSession(), node));
+        for (ByteBuffer frame : remote.getResendBuffer()) {
+            connection.queue(frame.duplicate());
+        }
+        pendingFlushes.add(remote);
+    }
+
+    private void disconnect(Remote remote, Exception e) {
+        LOG.debug("Disconnected from {} at {}", remote.getNode(), remote.getAddress(), e);
+        
+        remote.getConnection().close();
+        remote.setConnection(null);
+        remote.setConnected(false);
+        scheduleReconnect(remote);
+    }
+
+    private void scheduleReconnect(Remote remote) {
+        long delay = Math.min(Math.max(remote.getReconnectDelay() * 2L, MIN_RECONNECT_DELAY), MAX_RECONNECT_DELAY);
+        remote.setReconnectDelay(delay);
+        remote.setReconnectTime(System.nanoTime() + delay);
+    }
+
+    private void handleRemote(Remote remote, SelectionKey key) {
+        Connection connection = remote.getConnection();
+        try {
+            if (key.isConnectable()) {
+                connection.getChannel().finishConnect();
+                connected(remote);
+                return;
+            }
+            
+            if (key.isReadable()) {
+                for (ByteBuffer frame : connection.read()) {
+                    byte type = frame.get();
+                    if (type != ACK) {
+                        throw new IOException("Unexpected frame type: " + type);
+                    }
+                    
+                    // Acknowledgements are cumulative, so everything up to and including the sequence can be discarded
+                    long sequence = MessageCodec.getLong(frame);
+                    ArrayDeque<ByteBuffer> resendBuffer = remote.getResendBuffer();
+                    while (!resendBuffer.isEmpty() && MessageCodec.dataSequence(resendBuffer.peekFirst()) <= sequence) {
+                        resendBuffer.removeFirst();
+                    }
+                }
+            }
+            
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            disconnect(remote, e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        
+        LOG.debug("Accepted connection from {}", channel.getRemoteAddress());
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        } catch (IOException ioe) {
+            LOG.debug("Unable to set up accepted connection", ioe);
+            channel.close();
+        }
+    }
+
+    private void handlePeer(Connection connection, SelectionKey key) {
+        try {
+            if (key.isReadable()) {
+                for (ByteBuffer frame : connection.read()) {
+                    byte type = frame.get();
+                    if (type == HELLO) {
+                        long peerSession = MessageCodec.getLong(frame);
+                        String peerNode = MessageCodec.getString(frame);
+                        Peer peer = peers.computeIfAbsent(peerNode, k -> new Peer());
+                        if (peer.session != peerSession) { // peer restarted or re-added us, so sequencing started over
+                            peer.session = peerSession;
+                            peer.deliveredSequence = 0L;
+                        }
+                        connection.setPeerNode(peerNode);
+                    } else if (type == DATA) {
+                        String peerNode = connection.getPeerNode();
+                        if (peerNode == null) {
+                            throw new IOException("Data received before hello");
+                        }
+                        readData(peerNode, frame);
+                    } else {
+                        throw new IOException("Unexpected frame type: " + type);
+                    }
+                }
+                
+                // Acknowledge what's been delivered
+                String peerNode = connection.getPeerNode();
+                if (peerNode != null) {
+                    long deliveredSequence = peers.get(peerNode).deliveredSequence;
+                    if (deliveredSequence > connection.getAckedSequence()) {
+                        connection.queue(MessageCodec.encodeAck(deliveredSequence));
+                        connection.setAckedSequence(deliveredSequence);
+                        connection.flush();
+                    }
+                }
+            }
+            
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.debug("Closing connection from {}", connection.getPeerNode(), e);
+            connection.close();
+        }
+    }
+
+    private void readData(String peerNode, ByteBuffer frame) {
+        long sequence = MessageCodec.getLong(frame);
+        Address src = MessageCodec.getAddress(frame);
+        Address dst = MessageCodec.getAddress(frame);
+        byte[] data = MessageCodec.getBytes(frame);
+        
+        Peer peer = peers.get(peerNode);
+        if (sequence <= peer.deliveredSequence) { // already delivered (resent after a reconnect)
+            return;
+        }
+        peer.deliveredSequence = sequence;
+        
+        Object payload;
+        try {
+            payload = serializer.unserialize(data);
+        } catch (IllegalArgumentException iae) {
+            LOG.warn("Unable to decode message from " + peerNode + " to " + dst, iae);
+            messagesDroppedCounter.increment();
+            return;
+        }
+        
+        if (src.isEmpty() || dst.isEmpty()) {
+            LOG.warn("Empty address in message from {}, message ignored", peerNode);
+            messagesDroppedCounter.increment();
+            return;
+        }
+        
+        // Make source address route back through this gateway
+        List<String> srcElements = new ArrayList<>(src.size() + 2);
+        srcElements.add(prefix);
+        srcElements.add(peerNode);
+        srcElements.addAll(src.getElements());
+        Message message = new Message(Address.of(srcElements), dst, payload);
+
+        LOG.debug("Processing incoming message from {} to {}: {}", message.getSourceAddress(), dst, payload);
+        pendingDeliveries.computeIfAbsent(dst.getElement(0), k -> new LinkedList<>()).add(message);
+    }
+
+    // Delivery state for a node that sends messages to us. Survives reconnects so that resent messages aren't delivered twice.
+    private static final class Peer {
+        private long session;
+        private long deliveredSequence;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
+import java.nio.channels.Selector;
+import java.util.Collection;
+import org.apache.commons.lang3.Validate;
+
+// Writes to a bus like SimpleShuttle does, but also wakes up the selector that TcpRunnable's thread waits on.
+final class TcpShuttle implements Shuttle {
+    
+    private final SimpleShuttle backingShuttle;
+    private final Selector selector;
+
+    TcpShuttle(SimpleShuttle backingShuttle, Selector selector) {
+        Validate.notNull(backingShuttle);
+        Validate.notNull(selector);
+        this.backingShuttle = backingShuttle;
+        this.selector = selector;
+    }
+
+    @Override
+    public String getPrefix() {
+        return backingShuttle.getPrefix();
+    }
+
+    @Override
+    public void send(Collection<Message> messages) {
+        backingShuttle.send(messages);
+        wakeup();
+    }
+
+    // Make TcpRunnable's thread notice something was added to the bus
+    void wakeup() {
+        selector.wakeup();
+    }
+}
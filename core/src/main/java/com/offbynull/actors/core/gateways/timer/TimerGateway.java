@@ -18,6 +18,7 @@ package com.offbynull.actors.core.gateways.timer;
 
 import static com.offbynull.actors.core.common.DefaultAddresses.DEFAULT_TIMER;
 import com.offbynull.actors.core.gateway.Gateway;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttles.simple.Bus;
 import com.offbynull.actors.core.shuttles.simple.SimpleShuttle;
@@ -60,6 +61,7 @@ public final class TimerGateway implements Gateway {
     private final Bus bus;
     
     private final SimpleShuttle shuttle;
+    private final Metrics metrics;
     
     /**
      * Create a {@link TimerGateway} instance. Equivalent to calling {@code create(DefaultAddresses.DEFAULT_TIMER)}.
@@ -86,11 +88,22 @@ public final class TimerGateway implements Gateway {
 
         bus = new Bus();
         shuttle = new SimpleShuttle(prefix, bus);
-        thread = new Thread(new TimerRunnable(bus));
+        metrics = Metrics.create();
+        metrics.gauge("bus.depth", bus::size);
+        thread = new Thread(new TimerRunnable(bus, metrics));
         thread.setDaemon(true);
         thread.setName(getClass().getSimpleName() + "-" + prefix);
     }
 
+    /**
+     * Get the metrics for this gateway. Metrics include the number of messages waiting to be processed ({@code bus.depth}), the number of
+     * messages waiting for their timers to elapse ({@code queue.size}), and the number of messages sent back out ({@code messages.sent}).
+     * @return metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public Shuttle getIncomingShuttle() {
         return shuttle;
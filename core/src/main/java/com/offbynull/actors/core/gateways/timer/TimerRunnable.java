@@ -16,10 +16,14 @@
  */
 package com.offbynull.actors.core.gateways.timer;
 
+import com.offbynull.actors.core.metrics.Counter;
+import com.offbynull.actors.core.metrics.Metrics;
 import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttle.Message;
 import com.offbynull.actors.core.shuttle.Shuttle;
 import com.offbynull.actors.core.shuttles.simple.Bus;
+import com.offbynull.actors.core.trace.TraceContext;
+import static com.offbynull.actors.core.trace.TracePoint.EGRESS;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
@@ -44,12 +48,17 @@ final class TimerRunnable implements Runnable {
     private final Map<String, Shuttle> outgoingShuttles;
     private final PriorityQueue<PendingMessage> queue;
     private final Bus bus;
+    private final Counter messagesSentCounter;
+    private volatile int queueSize; // written only by this runnable's thread, read for metrics
 
-    public TimerRunnable(Bus bus) {
+    public TimerRunnable(Bus bus, Metrics metrics) {
         Validate.notNull(bus);
+        Validate.notNull(metrics);
         outgoingShuttles = new HashMap<>();
         queue = new PriorityQueue<>(new PendingMessageSendTimeComparator());
         this.bus = bus;
+        this.messagesSentCounter = metrics.counter("messages.sent");
+        metrics.gauge("queue.size", () -> queueSize);
     }
 
     @Override
@@ -97,7 +106,7 @@ final class TimerRunnable implements Runnable {
                         }
                         Instant sendTime = time.plus(delay, ChronoUnit.MILLIS);
 
-                        queue.add(new PendingMessage(sendTime, dst, src, payload));
+                        queue.add(new PendingMessage(sendTime, dst, src, payload, message.getTrace()));
                     } else {
                         LOG.debug("Processing management message: {} ", incomingObj);
                         if (incomingObj instanceof AddShuttle) {
@@ -135,7 +144,8 @@ final class TimerRunnable implements Runnable {
                         outgoingMap.put(outDstPrefix, batchedMessages);
                     }
 
-                    Message message = new Message(pm.getFrom(), pm.getTo(), pm.getMessage());
+                    Message message = new Message(pm.getFrom(), pm.getTo(), pm.getMessage(), pm.getTrace());
+                    message.trace(EGRESS);
                     batchedMessages.add(message);
                 }
 
@@ -149,7 +159,10 @@ final class TimerRunnable implements Runnable {
                     }
 
                     shuttle.send(entry.getValue());
+                    messagesSentCounter.add(entry.getValue().size());
                 }
+
+                queueSize = queue.size();
             }
         } catch (InterruptedException ie) {
             LOG.debug("Timer gateway interrupted");
@@ -167,8 +180,9 @@ final class TimerRunnable implements Runnable {
         private final Address from;
         private final Address to;
         private final Object message;
+        private final TraceContext trace;
 
-        public PendingMessage(Instant sendTime, Address from, Address to, Object message) {
+        public PendingMessage(Instant sendTime, Address from, Address to, Object message, TraceContext trace) {
             Validate.notNull(sendTime);
             Validate.notNull(from);
             Validate.notNull(to);
@@ -179,6 +193,7 @@ final class TimerRunnable implements Runnable {
             this.from = from;
             this.to = to;
             this.message = message;
+            this.trace = trace; // can be null
         }
 
         public Instant getSendTime() {
@@ -197,6 +212,10 @@ final class TimerRunnable implements Runnable {
             return message;
         }
 
+        public TraceContext getTrace() {
+            return trace;
+        }
+
     }
 
     private static final class PendingMessageSendTimeComparator implements Comparator<PendingMessage>, Serializable {
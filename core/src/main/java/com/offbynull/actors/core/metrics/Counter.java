@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Monotonically increasing count. This class is thread-safe and cheap to update from multiple threads.
+ * @author Kasra Faghihi
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+        // do nothing
+    }
+
+    /**
+     * Increment this counter by 1.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increment this counter.
+     * @param amount amount to increment by
+     * @throws IllegalArgumentException if {@code amount < 0}
+     */
+    public void add(long amount) {
+        Validate.isTrue(amount >= 0L);
+        count.add(amount);
+    }
+
+    /**
+     * Get the current count.
+     * @return current count
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Counter{" + "count=" + count + '}';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+/**
+ * Instantaneous value that gets sampled whenever metrics are read (e.g. a queue depth). Implementations must be thread-safe and shouldn't
+ * block.
+ * @author Kasra Faghihi
+ */
+@FunctionalInterface
+public interface Gauge {
+
+    /**
+     * Get the current value.
+     * @return current value
+     */
+    long get();
+}
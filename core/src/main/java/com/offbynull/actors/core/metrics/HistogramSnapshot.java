@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Point-in-time copy of a {@link Histogram}. This class is immutable.
+ * @author Kasra Faghihi
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        Validate.notNull(counts);
+        Validate.isTrue(counts.length == Histogram.BUCKET_COUNT);
+        this.counts = Arrays.copyOf(counts, counts.length);
+        this.count = Arrays.stream(counts).sum();
+        this.sum = sum;
+        this.max = count == 0L ? 0L : max;
+    }
+
+    /**
+     * Get the number of values recorded.
+     * @return number of values recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the (approximate) minimum value recorded.
+     * @return minimum value recorded, or {@code 0} if nothing was recorded
+     */
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0L) {
+                return Histogram.lowestValue(i);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Get the maximum value recorded.
+     * @return maximum value recorded, or {@code 0} if nothing was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     * @return mean of values recorded, or {@code 0} if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0L ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Get the (approximate) value at some percentile. For example, {@code getValueAtPercentile(99.0)} returns a value such that 99% of
+     * recorded values are less than or equal to it.
+     * @param percentile percentile
+     * @return value at {@code percentile}, or {@code 0} if nothing was recorded
+     * @throws IllegalArgumentException if {@code percentile} isn't between {@code 0} and {@code 100}
+     */
+    public long getValueAtPercentile(double percentile) {
+        Validate.isTrue(percentile >= 0.0 && percentile <= 100.0);
+        if (count == 0L) {
+            return 0L;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long cumulative = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(Histogram.highestValue(i), max);
+            }
+        }
+        return max; // should never happen
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{" + "count=" + count + ", min=" + getMin() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50.0)
+                + ", p99=" + getValueAtPercentile(99.0) + ", max=" + max + '}';
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Registry of named metrics. Metrics are either pulled via {@link #snapshot() } or exposed via JMX using
+ * {@link #registerMBean(java.lang.String) }.
+ * <p>
+ * Rates (e.g. messages processed per second) aren't tracked directly -- take two snapshots and divide the difference between counts by
+ * the difference between {@link MetricsSnapshot#getTime() }s.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class Metrics {
+
+    private final ConcurrentHashMap<String, Object> metrics;
+
+    /**
+     * Create a {@link Metrics} instance.
+     * @return new metrics registry
+     */
+    public static Metrics create() {
+        return new Metrics();
+    }
+
+    private Metrics() {
+        metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the counter with some name, creating it if it doesn't exist.
+     * @param name name of counter
+     * @return counter
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code name} is registered to a metric that isn't a counter
+     */
+    public Counter counter(String name) {
+        return get(name, Counter.class);
+    }
+
+    /**
+     * Get the histogram with some name, creating it if it doesn't exist.
+     * @param name name of histogram
+     * @return histogram
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code name} is registered to a metric that isn't a histogram
+     */
+    public Histogram histogram(String name) {
+        return get(name, Histogram.class);
+    }
+
+    /**
+     * Register a gauge, replacing any gauge that was previously registered under the same name.
+     * @param name name of gauge
+     * @param gauge gauge
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code name} is registered to a metric that isn't a gauge
+     */
+    public void gauge(String name, Gauge gauge) {
+        Validate.notNull(name);
+        Validate.notNull(gauge);
+        metrics.compute(name, (k, existing) -> {
+            Validate.isTrue(existing == null || existing instanceof Gauge, "Metric isn't a Gauge: %s", name);
+            return gauge;
+        });
+    }
+
+    /**
+     * Remove a metric.
+     * @param name name of metric
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void remove(String name) {
+        Validate.notNull(name);
+        metrics.remove(name);
+    }
+
+    /**
+     * Get a point-in-time copy of all metrics.
+     * @return snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counters = new TreeMap<>();
+        Map<String, Long> gauges = new TreeMap<>();
+        Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+
+        long time = System.currentTimeMillis();
+        for (Entry<String, Object> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof Counter) {
+                counters.put(name, ((Counter) metric).get());
+            } else if (metric instanceof Gauge) {
+                gauges.put(name, ((Gauge) metric).get());
+            } else if (metric instanceof Histogram) {
+                histograms.put(name, ((Histogram) metric).snapshot());
+            } else {
+                throw new IllegalStateException(); // should never happen
+            }
+        }
+
+        return new MetricsSnapshot(time, counters, gauges, histograms);
+    }
+
+    /**
+     * Expose the metrics in this registry as an MBean on the platform MBean server. Counters and gauges show up as attributes with the
+     * metric's name. Histograms show up as a set of attributes with the metric's name followed by a suffix ({@code .count},
+     * {@code .mean}, {@code .p50}, {@code .p90}, {@code .p99}, {@code .p999}, and {@code .max}).
+     * @param objectName object name to register under (e.g. {@code "com.offbynull.actors:type=ActorRunner,name=runner"})
+     * @return registered object name
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code objectName} is malformed
+     * @throws IllegalStateException if registration fails (e.g. {@code objectName} is already registered)
+     */
+    public ObjectName registerMBean(String objectName) {
+        Validate.notNull(objectName);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(objectName);
+            return server.registerMBean(new MetricsMBean(this), name).getObjectName();
+        } catch (MalformedObjectNameException mone) {
+            throw new IllegalArgumentException(mone);
+        } catch (JMException jme) {
+            throw new IllegalStateException(jme);
+        }
+    }
+
+    /**
+     * Remove an MBean previously registered with {@link #registerMBean(java.lang.String) }.
+     * @param objectName object name the MBean was registered under
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if unregistration fails (e.g. {@code objectName} isn't registered)
+     */
+    public static void unregisterMBean(ObjectName objectName) {
+        Validate.notNull(objectName);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException jme) {
+            throw new IllegalStateException(jme);
+        }
+    }
+
+    private <T> T get(String name, Class<T> type) {
+        Validate.notNull(name);
+        Object metric = metrics.computeIfAbsent(name, k -> {
+            if (type == Counter.class) {
+                return new Counter();
+            } else if (type == Histogram.class) {
+                return new Histogram();
+            } else {
+                throw new IllegalStateException(); // should never happen
+            }
+        });
+        Validate.isTrue(type.isInstance(metric), "Metric isn't a %s: %s", type.getSimpleName(), name);
+        return type.cast(metric);
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics{" + snapshot() + '}';
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import org.apache.commons.lang3.Validate;
+
+final class MetricsMBean implements DynamicMBean {
+
+    private static final String[] PERCENTILE_SUFFIXES = { ".p50", ".p90", ".p99", ".p999" };
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+    private final Metrics metrics;
+
+    MetricsMBean(Metrics metrics) {
+        Validate.notNull(metrics);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (Attribute attr : readAttributes(metrics.snapshot())) {
+            if (attr.getName().equals(attribute)) {
+                return attr.getValue();
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        List<Attribute> all = readAttributes(metrics.snapshot());
+        AttributeList ret = new AttributeList();
+        for (String attribute : attributes) {
+            for (Attribute attr : all) {
+                if (attr.getName().equals(attribute)) {
+                    ret.add(attr);
+                    break;
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList(); // metrics are read-only, so nothing gets set
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("No operations available");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<Attribute> attributes = readAttributes(metrics.snapshot());
+        MBeanAttributeInfo[] attributeInfos = new MBeanAttributeInfo[attributes.size()];
+        for (int i = 0; i < attributeInfos.length; i++) {
+            Attribute attr = attributes.get(i);
+            attributeInfos[i] = new MBeanAttributeInfo(attr.getName(), attr.getValue().getClass().getName(), attr.getName(), true, false,
+                    false);
+        }
+        return new MBeanInfo(Metrics.class.getName(), "Runtime metrics", attributeInfos, null, new MBeanOperationInfo[0], null);
+    }
+
+    private static List<Attribute> readAttributes(MetricsSnapshot snapshot) {
+        List<Attribute> ret = new ArrayList<>();
+        for (Entry<String, Long> entry : snapshot.getCounters().entrySet()) {
+            ret.add(new Attribute(entry.getKey(), entry.getValue()));
+        }
+        for (Entry<String, Long> entry : snapshot.getGauges().entrySet()) {
+            ret.add(new Attribute(entry.getKey(), entry.getValue()));
+        }
+        for (Entry<String, HistogramSnapshot> entry : snapshot.getHistograms().entrySet()) {
+            String name = entry.getKey();
+            HistogramSnapshot histogram = entry.getValue();
+            ret.add(new Attribute(name + ".count", histogram.getCount()));
+            ret.add(new Attribute(name + ".mean", histogram.getMean()));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                ret.add(new Attribute(name + PERCENTILE_SUFFIXES[i], histogram.getValueAtPercentile(PERCENTILES[i])));
+            }
+            ret.add(new Attribute(name + ".max", histogram.getMax()));
+        }
+        return ret;
+    }
+}
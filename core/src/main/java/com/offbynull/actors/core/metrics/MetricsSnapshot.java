@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Point-in-time copy of the metrics in a {@link Metrics} registry. This class is immutable.
+ * @author Kasra Faghihi
+ */
+public final class MetricsSnapshot {
+
+    private final long time;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSnapshot> histograms;
+
+    MetricsSnapshot(long time, Map<String, Long> counters, Map<String, Long> gauges, Map<String, HistogramSnapshot> histograms) {
+        Validate.notNull(counters);
+        Validate.notNull(gauges);
+        Validate.notNull(histograms);
+        this.time = time;
+        this.counters = Collections.unmodifiableMap(new TreeMap<>(counters));
+        this.gauges = Collections.unmodifiableMap(new TreeMap<>(gauges));
+        this.histograms = Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * Get the time this snapshot was taken.
+     * @return time in milliseconds since epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get counter values.
+     * @return counter name to value (unmodifiable)
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * Get gauge values.
+     * @return gauge name to value (unmodifiable)
+     */
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * Get histograms.
+     * @return histogram name to histogram snapshot (unmodifiable)
+     */
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{" + "time=" + time + ", counters=" + counters + ", gauges=" + gauges + ", histograms=" + histograms + '}';
+    }
+}
@@ -16,6 +16,8 @@
  */
 package com.offbynull.actors.core.shuttle;
 
+import com.offbynull.actors.core.trace.TraceContext;
+import com.offbynull.actors.core.trace.TracePoint;
 import org.apache.commons.lang3.Validate;
 
 /**
@@ -26,6 +28,7 @@ public final class Message {
     private final Address sourceAddress;
     private final Address destinationAddress;
     private final Object message;
+    private final TraceContext trace;
 
     /**
      * Constructs a {@link Message} instance.
@@ -36,6 +39,19 @@ public final class Message {
      * @throws IllegalArgumentException if either {@code sourceAddress} or {@code destinationAddress} is empty
      */
     public Message(Address sourceAddress, Address destinationAddress, Object message) {
+        this(sourceAddress, destinationAddress, message, null);
+    }
+
+    /**
+     * Constructs a {@link Message} instance that's (optionally) traced.
+     * @param sourceAddress source address of this message
+     * @param destinationAddress destination address of this message
+     * @param message content of this message
+     * @param trace trace context of this message ({@code null} if this message isn't traced)
+     * @throws NullPointerException if any argument other than {@code trace} is {@code null}
+     * @throws IllegalArgumentException if either {@code sourceAddress} or {@code destinationAddress} is empty
+     */
+    public Message(Address sourceAddress, Address destinationAddress, Object message, TraceContext trace) {
         Validate.notNull(sourceAddress);
         Validate.notNull(destinationAddress);
         Validate.notNull(message);
@@ -45,6 +61,7 @@ public final class Message {
         this.sourceAddress = sourceAddress;
         this.destinationAddress = destinationAddress;
         this.message = message;
+        this.trace = trace;
     }
 
     /**
@@ -71,9 +88,29 @@ public final class Message {
         return message;
     }
 
+    /**
+     * Get the trace context.
+     * @return trace context of this message, or {@code null} if this message isn't traced
+     */
+    public TraceContext getTrace() {
+        return trace;
+    }
+
+    /**
+     * Record that this message was observed at some trace point. Does nothing if this message isn't traced.
+     * @param point point at which this message was observed
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void trace(TracePoint point) {
+        if (trace != null) {
+            trace.record(point, destinationAddress);
+        }
+    }
+
     @Override
     public String toString() {
-        return "Message{" + "sourceAddress=" + sourceAddress + ", destinationAddress=" + destinationAddress + ", message=" + message + '}';
+        return "Message{" + "sourceAddress=" + sourceAddress + ", destinationAddress=" + destinationAddress + ", message=" + message
+                + (trace == null ? "" : ", trace=" + trace) + '}';
     }
 
 }
@@ -24,6 +24,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import com.offbynull.actors.core.shuttle.Message;
+import static com.offbynull.actors.core.trace.TracePoint.PULL;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +52,13 @@ public final class Bus implements AutoCloseable {
     
     private LinkedList<Object> queue = new LinkedList<>();
     private boolean closed;
+    
+    // written only while holding lock, but volatile so that they can be read (e.g. for metrics) without acquiring lock
+    private volatile int size;
+    private volatile long enqueuedCount;
+    
+    private long firstEnqueueTime; // time (System.nanoTime()) the oldest message currently in queue was added -- guarded by lock
+    private long lastPullEnqueueTime; // firstEnqueueTime of the last batch pulled -- only accessed by the thread pulling
 
     @Override
     public void close() {
@@ -85,7 +94,12 @@ public final class Bus implements AutoCloseable {
                 LOG.debug("Messages incoming to closed bus: {}", messages);
                 return;
             }
+            if (queue.isEmpty() && !messages.isEmpty()) {
+                firstEnqueueTime = System.nanoTime();
+            }
             queue.addAll(messages);
+            size = queue.size();
+            enqueuedCount += messages.size();
             
             if (!queue.isEmpty()) {
                 newMessagesCondition.signal();
@@ -107,6 +121,7 @@ public final class Bus implements AutoCloseable {
         Validate.isTrue(timeout >= 0L);
         Validate.notNull(unit);
         
+        List<Object> messages;
         lock.lock();
         try {
             while (queue.isEmpty()) {
@@ -117,14 +132,17 @@ public final class Bus implements AutoCloseable {
                 }
             }
             
-            List<Object> messages = queue;
+            messages = queue;
             queue = new LinkedList<>();
-            
-            LOG.debug("Pulled {} messages", messages.size());
-            return messages;
+            size = 0;
+            lastPullEnqueueTime = firstEnqueueTime;
         } finally {
             lock.unlock();
         }
+        
+        LOG.debug("Pulled {} messages", messages.size());
+        tracePulled(messages);
+        return messages;
     }
 
     /**
@@ -133,19 +151,61 @@ public final class Bus implements AutoCloseable {
      * @throws InterruptedException if thread is interrupted
      */
     public List<Object> pull() throws InterruptedException {
+        List<Object> messages;
         lock.lock();
         try {
             while (queue.isEmpty()) {
                 newMessagesCondition.await();
             }
             
-            List<Object> messages = queue;
+            messages = queue;
             queue = new LinkedList<>();
-            
-            LOG.debug("Pulled {} messages", messages.size());
-            return messages;
+            size = 0;
+            lastPullEnqueueTime = firstEnqueueTime;
         } finally {
             lock.unlock();
         }
+        
+        LOG.debug("Pulled {} messages", messages.size());
+        tracePulled(messages);
+        return messages;
+    }
+
+    // Record traced messages as pulled (done outside of the lock)
+    private static void tracePulled(List<Object> messages) {
+        for (Object message : messages) {
+            if (message instanceof Message) {
+                ((Message) message).trace(PULL);
+            }
+        }
+    }
+
+    /**
+     * Get the time that the oldest message in the last batch pulled was added to this bus. Messages that arrive together are pulled
+     * together, so this can be used to approximate (upper-bound) how long messages in the last batch waited on this bus before being
+     * pulled. Should only be called by the thread that pulls from this bus.
+     * @return time (as returned by {@link System#nanoTime() }) the oldest message in the last batch was added, or {@code 0} if nothing has
+     * been pulled yet
+     */
+    public long lastPullEnqueueTime() {
+        return lastPullEnqueueTime;
+    }
+
+    /**
+     * Get the number of messages currently waiting on this bus. Doesn't acquire this bus's lock, so the value returned may be slightly
+     * out of date.
+     * @return number of messages waiting to be pulled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the total number of messages that have been added to this bus. Doesn't acquire this bus's lock, so the value returned may be
+     * slightly out of date.
+     * @return number of messages added since this bus was created
+     */
+    public long enqueuedCount() {
+        return enqueuedCount;
     }
 }
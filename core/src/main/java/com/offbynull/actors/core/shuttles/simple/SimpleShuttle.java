@@ -22,6 +22,7 @@ import com.offbynull.actors.core.shuttle.Shuttle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import static com.offbynull.actors.core.trace.TracePoint.SEND;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +69,7 @@ public final class SimpleShuttle implements Shuttle {
                 String dstPrefix = dst.getElement(0);
                 Validate.isTrue(dstPrefix.equals(prefix));
                 
+                x.trace(SEND);
                 filteredMessages.add(x);
             } catch (Exception e) {
                 LOG.error("Error shuttling message: " + x, e);
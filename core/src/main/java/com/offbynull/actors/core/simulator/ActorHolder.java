@@ -24,6 +24,9 @@ import java.time.Instant;
 import org.apache.commons.lang3.Validate;
 
 final class ActorHolder implements Holder {
+
+    private static final long serialVersionUID = 1L;
+
     private final Address address;
     private final CoroutineRunner actorRunner;
     private final Duration timeOffset;
@@ -25,6 +25,8 @@ import org.apache.commons.lang3.Validate;
 
 final class AddActorEvent extends Event {
 
+    private static final long serialVersionUID = 1L;
+
     private final String address;
     private final Coroutine actor;
     private final Duration timeOffset;
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.simulator;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+// Maps addresses to values, organized as a tree of address elements so that prefix lookups are proportional to the size of the address
+// being looked up (not the number of addresses being mapped).
+final class AddressTrie<V> {
+    private final Node<V> root = new Node<>();
+
+    public V get(Address address) {
+        Validate.notNull(address);
+        Node<V> node = findNode(address);
+        return node == null ? null : node.value;
+    }
+
+    public V put(Address address, V value) {
+        Validate.notNull(address);
+        Validate.notNull(value);
+
+        Node<V> node = root;
+        for (String element : address.getElements()) {
+            node = node.children.computeIfAbsent(element, k -> new Node<>());
+        }
+        
+        V old = node.value;
+        node.value = value;
+        return old;
+    }
+
+    public V remove(Address address) {
+        Validate.notNull(address);
+
+        // Track the path so that nodes left empty by the removal can be pruned
+        LinkedList<Node<V>> path = new LinkedList<>();
+        Node<V> node = root;
+        path.add(node);
+        for (String element : address.getElements()) {
+            node = node.children.get(element);
+            if (node == null) {
+                return null;
+            }
+            path.add(node);
+        }
+        
+        V old = node.value;
+        node.value = null;
+        prune(path, address);
+        return old;
+    }
+
+    // Returns the value of the longest mapped address that is a prefix of (or equal to) address, or null if there is none
+    public V findLongestPrefix(Address address) {
+        Validate.notNull(address);
+
+        V found = root.value;
+        Node<V> node = root;
+        for (String element : address.getElements()) {
+            node = node.children.get(element);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = node.value;
+            }
+        }
+        
+        return found;
+    }
+
+    // Removes and returns the values of all mapped addresses that address is a prefix of (or equal to)
+    public List<V> removeAllWithPrefix(Address address) {
+        Validate.notNull(address);
+        
+        List<V> ret = new LinkedList<>();
+        if (address.isEmpty()) {
+            collect(root, ret);
+            root.value = null;
+            root.children.clear();
+            return ret;
+        }
+
+        LinkedList<Node<V>> path = new LinkedList<>();
+        Node<V> node = root;
+        path.add(node);
+        for (String element : address.getElements()) {
+            node = node.children.get(element);
+            if (node == null) {
+                return ret;
+            }
+            path.add(node);
+        }
+        
+        collect(node, ret);
+        node.value = null;
+        node.children.clear();
+        prune(path, address);
+        return ret;
+    }
+
+    public List<V> values() {
+        List<V> ret = new LinkedList<>();
+        collect(root, ret);
+        return ret;
+    }
+
+    private Node<V> findNode(Address address) {
+        Node<V> node = root;
+        for (String element : address.getElements()) {
+            node = node.children.get(element);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private void collect(Node<V> node, List<V> out) {
+        if (node.value != null) {
+            out.add(node.value);
+        }
+        for (Node<V> child : node.children.values()) {
+            collect(child, out);
+        }
+    }
+    
+    private void prune(LinkedList<Node<V>> path, Address address) {
+        // path has one more entry than address has elements (the root)
+        for (int i = address.size() - 1; i >= 0; i--) {
+            Node<V> child = path.removeLast();
+            if (child.value != null || !child.children.isEmpty()) {
+                break;
+            }
+            path.getLast().children.remove(address.getElement(i));
+        }
+    }
+    
+    private static final class Node<V> {
+        private final Map<String, Node<V>> children = new HashMap<>(4);
+        private V value;
+    }
+}
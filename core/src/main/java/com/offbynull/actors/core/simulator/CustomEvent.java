@@ -20,6 +20,9 @@ import java.time.Instant;
 import org.apache.commons.lang3.Validate;
 
 final class CustomEvent extends Event {
+
+    private static final long serialVersionUID = 1L;
+
     private final Runnable runnable;
 
     public CustomEvent(Runnable runnable, Instant triggerTime, long sequenceNumber) {
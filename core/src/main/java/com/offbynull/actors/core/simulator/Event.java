@@ -16,10 +16,13 @@
  */
 package com.offbynull.actors.core.simulator;
 
+import java.io.Serializable;
 import java.time.Instant;
 import org.apache.commons.lang3.Validate;
 
-abstract class Event implements Comparable<Event> {
+abstract class Event implements Comparable<Event>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Instant triggerTime;
     private final long seqNum; // An automatically-incremented sequence number as a secondary key. Used to break ties when
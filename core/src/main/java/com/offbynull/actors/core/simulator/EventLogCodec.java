@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.simulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import org.apache.commons.lang3.Validate;
+
+// Encodes processed events as records for the simulator's event log. A record is the index of the event (how many events were processed
+// before it), the event type, the trigger time, the sequence number, and the type-specific fields. Message payloads are written using
+// Java serialization -- payloads that can't be serialized are written as their class name instead.
+final class EventLogCodec {
+    
+    static final int MAGIC = 0x53494D4C; // SIML
+    
+    private static final byte TYPE_ADD_ACTOR = 0;
+    private static final byte TYPE_REMOVE_ACTOR = 1;
+    private static final byte TYPE_ADD_TIMER = 2;
+    private static final byte TYPE_REMOVE_TIMER = 3;
+    private static final byte TYPE_CUSTOM = 4;
+    private static final byte TYPE_MESSAGE = 5;
+    private static final byte TYPE_TIMER_TRIGGER = 6;
+    
+    private static final int HEADER_SIZE = 8 + 1 + 8 + 4 + 8; // index, type, trigger time seconds, trigger time nanos, sequence number
+
+    private EventLogCodec() {
+        // do nothing
+    }
+
+    public static byte[] encode(long index, Event event) {
+        Validate.notNull(event);
+        Validate.isTrue(index >= 0L);
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream(); DataOutputStream dos = new DataOutputStream(baos)) {
+            Instant triggerTime = event.getTriggerTime();
+            dos.writeLong(index);
+            dos.writeByte(typeOf(event));
+            dos.writeLong(triggerTime.getEpochSecond());
+            dos.writeInt(triggerTime.getNano());
+            dos.writeLong(event.getSequenceNumber());
+
+            if (event instanceof AddActorEvent) {
+                dos.writeUTF(((AddActorEvent) event).getAddress());
+            } else if (event instanceof RemoveActorEvent) {
+                dos.writeUTF(((RemoveActorEvent) event).getAddress());
+            } else if (event instanceof AddTimerEvent) {
+                dos.writeUTF(((AddTimerEvent) event).getAddress());
+            } else if (event instanceof RemoveTimerEvent) {
+                dos.writeUTF(((RemoveTimerEvent) event).getAddress());
+            } else if (event instanceof MessageEvent) {
+                MessageEvent messageEvent = (MessageEvent) event;
+                dos.writeUTF(messageEvent.getSourceAddress().toString());
+                dos.writeUTF(messageEvent.getDestinationAddress().toString());
+                writePayload(dos, messageEvent.getMessage());
+            } else if (event instanceof TimerTriggerEvent) {
+                TimerTriggerEvent timerTriggerEvent = (TimerTriggerEvent) event;
+                dos.writeUTF(timerTriggerEvent.getSourceAddress().toString());
+                dos.writeUTF(timerTriggerEvent.getDestinationAddress().toString());
+                writePayload(dos, timerTriggerEvent.getMessage());
+            }
+            
+            dos.flush();
+            return baos.toByteArray();
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe); // should never happen
+        }
+    }
+    
+    // Checks if the record for an event (as encoded by encode()) matches a record read from the log. Records match if they're identical,
+    // or if everything but the payload is identical and the payload in the log deserializes to something equal to the event's payload.
+    // Serialized bytes alone aren't enough to go by: equal objects can serialize differently (e.g. HashMaps with different iteration
+    // orders).
+    public static boolean matches(byte[] expected, byte[] record, Event event) {
+        Validate.notNull(expected);
+        Validate.notNull(record);
+        Validate.notNull(event);
+        
+        if (Arrays.equals(expected, record)) {
+            return true;
+        }
+        
+        Object payload;
+        if (event instanceof MessageEvent) {
+            payload = ((MessageEvent) event).getMessage();
+        } else if (event instanceof TimerTriggerEvent) {
+            payload = ((TimerTriggerEvent) event).getMessage();
+        } else {
+            return false; // no payload, so records should have been identical
+        }
+        
+        int payloadOffset = payloadOffset(record);
+        if (expected.length < payloadOffset
+                || !Arrays.equals(Arrays.copyOf(expected, payloadOffset), Arrays.copyOf(record, payloadOffset))) {
+            return false;
+        }
+        
+        ByteBuffer expectedPayload = ByteBuffer.wrap(expected, payloadOffset, expected.length - payloadOffset);
+        if (expectedPayload.remaining() < 4) {
+            return false;
+        }
+        int len = expectedPayload.getInt();
+        if (len < 0 || len != expectedPayload.remaining()) {
+            return false; // payload in log couldn't be serialized (only its class name was written), or log is corrupt
+        }
+        
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(expected, expectedPayload.position(), expectedPayload.remaining()))) {
+            return Objects.equals(ois.readObject(), payload);
+        } catch (IOException | ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
+    // Payload is the last field of records that have one, and it comes right after the source and destination addresses
+    private static int payloadOffset(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < 2; i++) {
+            int utfLen = buffer.getShort() & 0xFFFF;
+            buffer.position(buffer.position() + utfLen);
+        }
+        return buffer.position();
+    }
+    
+    public static long index(byte[] record) {
+        Validate.notNull(record);
+        Validate.isTrue(record.length >= 8);
+        return ByteBuffer.wrap(record).getLong();
+    }
+
+    private static byte typeOf(Event event) {
+        if (event instanceof AddActorEvent) {
+            return TYPE_ADD_ACTOR;
+        } else if (event instanceof RemoveActorEvent) {
+            return TYPE_REMOVE_ACTOR;
+        } else if (event instanceof AddTimerEvent) {
+            return TYPE_ADD_TIMER;
+        } else if (event instanceof RemoveTimerEvent) {
+            return TYPE_REMOVE_TIMER;
+        } else if (event instanceof CustomEvent) {
+            return TYPE_CUSTOM;
+        } else if (event instanceof MessageEvent) {
+            return TYPE_MESSAGE;
+        } else if (event instanceof TimerTriggerEvent) {
+            return TYPE_TIMER_TRIGGER;
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+    
+    private static void writePayload(DataOutputStream dos, Object payload) throws IOException {
+        byte[] data;
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream(); ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(payload);
+            oos.flush();
+            data = baos.toByteArray();
+        } catch (IOException ioe) {
+            data = null;
+        }
+        
+        if (data == null) {
+            dos.writeInt(-1);
+            dos.writeUTF(payload.getClass().getName());
+        } else {
+            dos.writeInt(data.length);
+            dos.write(data);
+        }
+    }
+}
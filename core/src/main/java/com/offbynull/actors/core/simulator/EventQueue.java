@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.simulator;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.apache.commons.lang3.Validate;
+
+// Events ordered by trigger time (then sequence number), along with indexes that allow the events for a specific address to be found
+// without scanning every event. Message events are indexed by destination and timer trigger events are indexed by source.
+final class EventQueue {
+    private final NavigableSet<Event> events = new TreeSet<>();
+    private final AddressTrie<NavigableSet<MessageEvent>> messagesByDestination = new AddressTrie<>();
+    private final AddressTrie<NavigableSet<TimerTriggerEvent>> timerTriggersBySource = new AddressTrie<>();
+
+    public void add(Event event) {
+        Validate.notNull(event);
+        Validate.isTrue(events.add(event)); // sequence numbers are unique, so this should never fail
+
+        if (event instanceof MessageEvent) {
+            MessageEvent messageEvent = (MessageEvent) event;
+            index(messagesByDestination, messageEvent.getDestinationAddress(), messageEvent);
+        } else if (event instanceof TimerTriggerEvent) {
+            TimerTriggerEvent timerTriggerEvent = (TimerTriggerEvent) event;
+            index(timerTriggersBySource, timerTriggerEvent.getSourceAddress(), timerTriggerEvent);
+        }
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    public Event peek() {
+        return events.isEmpty() ? null : events.first();
+    }
+
+    public Event poll() {
+        Event event = events.pollFirst();
+        if (event instanceof MessageEvent) {
+            MessageEvent messageEvent = (MessageEvent) event;
+            unindex(messagesByDestination, messageEvent.getDestinationAddress(), messageEvent);
+        } else if (event instanceof TimerTriggerEvent) {
+            TimerTriggerEvent timerTriggerEvent = (TimerTriggerEvent) event;
+            unindex(timerTriggersBySource, timerTriggerEvent.getSourceAddress(), timerTriggerEvent);
+        }
+        return event;
+    }
+
+    // All queued events, in the order that they'll be polled in
+    public List<Event> toList() {
+        return new ArrayList<>(events);
+    }
+
+    // Removes and returns messages going to exactly destination that trigger before time, in the order that they were queued in
+    public List<MessageEvent> removeMessagesBefore(Address destination, Instant time) {
+        Validate.notNull(destination);
+        Validate.notNull(time);
+
+        List<MessageEvent> ret = new LinkedList<>();
+        NavigableSet<MessageEvent> indexed = messagesByDestination.get(destination);
+        if (indexed == null) {
+            return ret;
+        }
+
+        Iterator<MessageEvent> it = indexed.iterator();
+        while (it.hasNext()) {
+            MessageEvent messageEvent = it.next();
+            if (!time.isAfter(messageEvent.getTriggerTime())) {
+                break;
+            }
+            it.remove();
+            events.remove(messageEvent);
+            ret.add(messageEvent);
+        }
+
+        if (indexed.isEmpty()) {
+            messagesByDestination.remove(destination);
+        }
+        return ret;
+    }
+
+    // Removes messages going to destinations that prefix is a prefix of (or equal to)
+    public void removeMessagesTo(Address prefix) {
+        Validate.notNull(prefix);
+        for (NavigableSet<MessageEvent> indexed : messagesByDestination.removeAllWithPrefix(prefix)) {
+            indexed.forEach(events::remove);
+        }
+    }
+
+    // Removes timer triggers coming from sources that prefix is a prefix of (or equal to)
+    public void removeTimerTriggersFrom(Address prefix) {
+        Validate.notNull(prefix);
+        for (NavigableSet<TimerTriggerEvent> indexed : timerTriggersBySource.removeAllWithPrefix(prefix)) {
+            indexed.forEach(events::remove);
+        }
+    }
+
+    private static <T extends Event> void index(AddressTrie<NavigableSet<T>> index, Address address, T event) {
+        NavigableSet<T> indexed = index.get(address);
+        if (indexed == null) {
+            indexed = new TreeSet<>();
+            index.put(address, indexed);
+        }
+        indexed.add(event);
+    }
+
+    private static <T extends Event> void unindex(AddressTrie<NavigableSet<T>> index, Address address, T event) {
+        NavigableSet<T> indexed = index.get(address);
+        indexed.remove(event);
+        if (indexed.isEmpty()) {
+            index.remove(address);
+        }
+    }
+}
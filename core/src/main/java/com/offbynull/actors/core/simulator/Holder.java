@@ -17,7 +17,8 @@
 package com.offbynull.actors.core.simulator;
 
 import com.offbynull.actors.core.shuttle.Address;
+import java.io.Serializable;
 
-interface Holder {
+interface Holder extends Serializable {
     Address getAddress();
 }
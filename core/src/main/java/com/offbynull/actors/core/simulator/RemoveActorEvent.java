@@ -20,6 +20,9 @@ import java.time.Instant;
 import org.apache.commons.lang3.Validate;
 
 final class RemoveActorEvent extends Event {
+
+    private static final long serialVersionUID = 1L;
+
     private final String address;
 
     public RemoveActorEvent(String address, Instant triggerTime, long sequenceNumber) {
@@ -26,14 +26,28 @@ import com.offbynull.actors.core.gateway.Gateway;
 import com.offbynull.actors.core.gateways.timer.TimerGateway;
 import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.actors.core.shuttle.Shuttle;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import org.apache.commons.collections4.list.UnmodifiableList;
 import org.apache.commons.collections4.map.UnmodifiableMap;
@@ -95,6 +109,25 @@ import org.slf4j.LoggerFactory;
  * <li><b>Garbage collection pauses do not occur.</b> Remember that the simulator is is essentially mocking out time. As such, pauses caused
  * by the JVM running garbage collection are not reflected on to actors running in the simulation.</li>
  * </ol>
+ * <p>
+ * By default, actors are run one at a time on the thread calling {@link #process() }. Large simulations can instead run actors in parallel
+ * by passing a {@link ForkJoinPool} in to
+ * {@link #Simulator(java.time.Instant, com.offbynull.actors.core.simulator.ActorDurationCalculator, java.util.concurrent.ForkJoinPool) }.
+ * In parallel mode, messages that arrive at the same time to different actors are handed to those actors concurrently, and the effects
+ * of each actor's execution (outgoing messages, new actors, etc..) are then applied one at a time in the order the messages were queued.
+ * The outcome of a simulation is the same regardless of which mode it runs in, so long as actors don't share mutable state with each other.
+ * <p>
+ * Simulations can be recorded, verified, and resumed:
+ * <ul>
+ * <li>{@link #record(java.io.OutputStream) } writes every event processed to a compact binary log.</li>
+ * <li>{@link #verify(java.io.InputStream) } checks every event processed against a log written by a previous run, failing as soon as the
+ * simulation diverges from it. Use this to catch regressions in the protocols being simulated. Note that verifying still runs all actor
+ * logic -- the log is only used to check the results. Use snapshots to avoid re-running the start of a long simulation.</li>
+ * <li>{@link #snapshot(java.io.OutputStream) } writes the entire state of the simulation (all actors, timers, and pending events) and
+ * {@link #restore(java.io.InputStream, com.offbynull.actors.core.simulator.ActorDurationCalculator, java.util.concurrent.ForkJoinPool) }
+ * reads it back in to a new simulator. Long simulations can resume from a snapshot rather than restarting from the beginning. A restored
+ * simulator verifying against a log skips ahead to the point in the log where the snapshot was taken.</li>
+ * </ul>
  * @author Kasra Faghihi
  */
 public final class Simulator {
@@ -126,14 +159,18 @@ public final class Simulator {
     private static final Logger LOG = LoggerFactory.getLogger(Simulator.class);
     
     private final UnmodifiableMap<Class<? extends Event>, Consumer<Event>> eventHandlers;
-    private final PriorityQueue<Event> events;
-    private final Map<Address, Holder> holders;
+    private final EventQueue events;
+    private final AddressTrie<Holder> holders;
     private final ActorDurationCalculator actorDurationCalculator;
+    private final ForkJoinPool pool; // null if actors are to be run one at a time on the calling thread
     private Instant currentTime;
     private long nextSequenceNumber; // Each time an event created and added to the events collection, this sequence number is incremented
                                      // and used for the events sequence number. The sequence number is used to properly order order events
                                      // that trigger at the same time. That is, if two events trigger at the same time, they'll be returned
                                      // in the order they were added.
+    private long processedCount; // Number of events processed so far. Used to line up event logs with snapshots.
+    private DataOutputStream recordOut; // null if not recording
+    private DataInputStream verifyIn; // null if not verifying
     
     /**
      * Constructs a {@link Simulator} object which is set to run it's simulation as if it's {@code 1970-01-01T00:00:00Z}. Equivalent to
@@ -155,17 +192,31 @@ public final class Simulator {
 
     /**
      * Constructs a {@link Simulator} object which has customized delaying behaviour and is set to run it's simulation as if from some
-     * specific point in time.
+     * specific point in time. Equivalent to calling {@code new Simulator(startTime, actorDurationCalculator, null)}.
      * @param startTime start time of simulation
      * @param actorDurationCalculator determines the delay caused by an actor processing a message
      * @throws NullPointerException if any argument is {@code null}
      */
     public Simulator(Instant startTime, ActorDurationCalculator actorDurationCalculator) {
+        this(startTime, actorDurationCalculator, null);
+    }
+
+    /**
+     * Constructs a {@link Simulator} object which has customized delaying behaviour, is set to run it's simulation as if from some
+     * specific point in time, and runs actors that receive messages at the same time in parallel.
+     * <p>
+     * {@code actorDurationCalculator} is always invoked from the thread calling {@link #process() }, so it doesn't need to be thread-safe.
+     * @param startTime start time of simulation
+     * @param actorDurationCalculator determines the delay caused by an actor processing a message
+     * @param pool pool to run actors on ({@code null} to run actors one at a time on the thread calling {@link #process() })
+     * @throws NullPointerException if {@code startTime} or {@code actorDurationCalculator} is {@code null}
+     */
+    public Simulator(Instant startTime, ActorDurationCalculator actorDurationCalculator, ForkJoinPool pool) {
         Validate.notNull(startTime);
         Validate.notNull(actorDurationCalculator);
 
-        this.events = new PriorityQueue<>();
-        this.holders = new HashMap<>();
+        this.events = new EventQueue();
+        this.holders = new AddressTrie<>();
         this.currentTime = startTime;
         
         Map<Class<? extends Event>, Consumer<Event>> eventHandlers = new HashMap<>();
@@ -180,6 +231,7 @@ public final class Simulator {
         this.eventHandlers =
                 (UnmodifiableMap<Class<? extends Event>, Consumer<Event>>) UnmodifiableMap.unmodifiableMap(eventHandlers);
         this.actorDurationCalculator = actorDurationCalculator;
+        this.pool = pool;
     }
 
     /**
@@ -284,6 +336,145 @@ public final class Simulator {
         events.add(new CustomEvent(runnable, when, nextSequenceNumber++));
     }
 
+    /**
+     * Start recording events to a log. Every event processed from this point on is written to {@code out}, up until
+     * {@link #stopRecording() } is called. Message payloads are written using Java serialization -- payloads that can't be serialized are
+     * written as their class name.
+     * <p>
+     * {@code out} is not closed by this simulator.
+     * @param out stream to write log to
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if already recording
+     * @throws IOException if an IO error occurs
+     */
+    public void record(OutputStream out) throws IOException {
+        Validate.notNull(out);
+        Validate.validState(recordOut == null, "Already recording");
+        
+        recordOut = new DataOutputStream(out);
+        recordOut.writeInt(EventLogCodec.MAGIC);
+    }
+
+    /**
+     * Stop recording events and flush the log. Does nothing if not recording.
+     * @throws IOException if an IO error occurs
+     */
+    public void stopRecording() throws IOException {
+        if (recordOut == null) {
+            return;
+        }
+        
+        try {
+            recordOut.flush();
+        } finally {
+            recordOut = null;
+        }
+    }
+
+    /**
+     * Start verifying against a log written by {@link #record(java.io.OutputStream) }. Actors still run as normal, but every event
+     * processed from this point on is checked against the log, and {@link #process() } throws an exception as soon as an event doesn't
+     * match.
+     * Verifying stops once the end of the log is reached.
+     * <p>
+     * Message payloads match if they're equal (as per {@link Object#equals(java.lang.Object) }) to the payload deserialized from the log,
+     * or if they serialize to the same bytes as the payload in the log.
+     * <p>
+     * If this simulator was restored from a snapshot, the log entries for events processed before the snapshot was taken are skipped.
+     * <p>
+     * {@code in} is not closed by this simulator.
+     * @param in stream to read log from
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if already verifying
+     * @throws IOException if an IO error occurs, or if {@code in} isn't a log
+     */
+    public void verify(InputStream in) throws IOException {
+        Validate.notNull(in);
+        Validate.validState(verifyIn == null, "Already verifying");
+
+        DataInputStream dis = new DataInputStream(in.markSupported() ? in : new BufferedInputStream(in)); // need mark() to skip ahead
+        if (dis.readInt() != EventLogCodec.MAGIC) {
+            throw new IOException("Not an event log");
+        }
+        
+        // Skip ahead to the first event that hasn't been processed yet
+        while (true) {
+            dis.mark(Integer.MAX_VALUE);
+            byte[] record = readRecord(dis);
+            if (record == null) {
+                return; // nothing left to verify against
+            }
+            if (EventLogCodec.index(record) >= processedCount) {
+                break;
+            }
+        }
+        dis.reset();
+        
+        verifyIn = dis;
+    }
+
+    /**
+     * Write the state of this simulation to a stream. The state written includes the current time, all actors and timers, and all pending
+     * events. Use
+     * {@link #restore(java.io.InputStream, ActorDurationCalculator, java.util.concurrent.ForkJoinPool) } to read it back in.
+     * <p>
+     * Actors (and any messages or custom events pending) must be serializable.
+     * <p>
+     * {@code out} is not closed by this simulator.
+     * @param out stream to write to
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if an IO error occurs, or if something in the simulation isn't serializable
+     */
+    public void snapshot(OutputStream out) throws IOException {
+        Validate.notNull(out);
+
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(currentTime);
+        oos.writeLong(nextSequenceNumber);
+        oos.writeLong(processedCount);
+        oos.writeObject(new ArrayList<>(holders.values()));
+        oos.writeObject(events.toList());
+        oos.flush();
+    }
+
+    /**
+     * Create a {@link Simulator} from the state written by {@link #snapshot(java.io.OutputStream) }. The simulator returned continues from
+     * exactly where the snapshot was taken.
+     * <p>
+     * {@code in} is not closed by this method.
+     * @param in stream to read from
+     * @param actorDurationCalculator determines the delay caused by an actor processing a message
+     * @param pool pool to run actors on ({@code null} to run actors one at a time on the thread calling {@link #process() })
+     * @return new simulator
+     * @throws NullPointerException if {@code in} or {@code actorDurationCalculator} is {@code null}
+     * @throws IOException if an IO error occurs, or if {@code in} isn't a snapshot
+     */
+    public static Simulator restore(InputStream in, ActorDurationCalculator actorDurationCalculator, ForkJoinPool pool) throws IOException {
+        Validate.notNull(in);
+        Validate.notNull(actorDurationCalculator);
+        
+        ObjectInputStream ois = new ObjectInputStream(in);
+        try {
+            Instant time = (Instant) ois.readObject();
+            Simulator ret = new Simulator(time, actorDurationCalculator, pool);
+            ret.nextSequenceNumber = ois.readLong();
+            ret.processedCount = ois.readLong();
+            @SuppressWarnings("unchecked")
+            List<Holder> holders = (List<Holder>) ois.readObject();
+            for (Holder holder : holders) {
+                ret.holders.put(holder.getAddress(), holder);
+            }
+            @SuppressWarnings("unchecked")
+            List<Event> events = (List<Event>) ois.readObject();
+            for (Event event : events) {
+                ret.events.add(event);
+            }
+            return ret;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a snapshot", e);
+        }
+    }
+
     /**
      * Checks to see if this simulation is still running. If this method return {@code true}, it means that events are available for
      * processing. If this method returns {@code false}, it means that no more events are available for processing (the simulation has
@@ -297,12 +488,27 @@ public final class Simulator {
     /**
      * Process the next event. If this simulation has no more events left to process, this method throws an exception. Use
      * {@link #hasMore() } to determine if this method should be called.
+     * <p>
+     * If this simulator runs actors in parallel, the next event and the events that immediately follow it may be processed together (see
+     * class documentation).
      * @return the current time in the simulation
      * @throws IllegalStateException if no more events are left to process
      */
     public Instant process() {
+        Validate.validState(!events.isEmpty(), "No events left to process");
+        
+        if (pool != null) {
+            List<MessageEvent> batchEvents = new ArrayList<>();
+            List<ActorHolder> batchHolders = new ArrayList<>();
+            pollMessageBatch(batchEvents, batchHolders);
+            if (!batchEvents.isEmpty()) {
+                processMessageBatch(batchEvents, batchHolders);
+                return currentTime;
+            }
+        }
+        
         Event event = events.poll();
-        Validate.validState(event != null, "No events left to process");
+        logEvent(event);
 
         currentTime = event.getTriggerTime();
         
@@ -314,6 +520,112 @@ public final class Simulator {
         return currentTime;
     }
     
+    // Poll messages at the front of the queue that arrive at the same time to different actors. Polling stops at the first event that
+    // doesn't meet that criteria (e.g. a second message for an actor already in the batch), meaning the batch is always a run of events
+    // that would have been processed back-to-back anyways. The actors in the batch can't affect each other: anything an actor sends gets
+    // queued after the batch (it gets a higher sequence number), and the only holder an actor's execution can change is its own.
+    private void pollMessageBatch(List<MessageEvent> batchEvents, List<ActorHolder> batchHolders) {
+        Set<Holder> seenHolders = Collections.newSetFromMap(new IdentityHashMap<>());
+        Instant batchTime = events.peek().getTriggerTime();
+        while (!events.isEmpty()) {
+            Event event = events.peek();
+            if (!(event instanceof MessageEvent) || !event.getTriggerTime().equals(batchTime)) {
+                break;
+            }
+            
+            Holder holder = findHolder(((MessageEvent) event).getDestinationAddress());
+            if (!(holder instanceof ActorHolder) || !seenHolders.add(holder)) {
+                break;
+            }
+            
+            events.poll();
+            logEvent(event);
+            batchEvents.add((MessageEvent) event);
+            batchHolders.add((ActorHolder) holder);
+        }
+    }
+
+    private void processMessageBatch(List<MessageEvent> batchEvents, List<ActorHolder> batchHolders) {
+        currentTime = batchEvents.get(0).getTriggerTime();
+        LOG.debug("Processing {} events in parallel", batchEvents.size());
+        
+        // Run actors
+        List<FireResult> fireResults = new ArrayList<>(batchEvents.size());
+        if (batchEvents.size() == 1) { // not worth handing off to the pool
+            MessageEvent messageEvent = batchEvents.get(0);
+            fireResults.add(fireActor(batchHolders.get(0), messageEvent.getDestinationAddress(), messageEvent.getSourceAddress(),
+                    messageEvent.getMessage()));
+        } else {
+            List<Callable<FireResult>> tasks = new ArrayList<>(batchEvents.size());
+            for (int i = 0; i < batchEvents.size(); i++) {
+                MessageEvent messageEvent = batchEvents.get(i);
+                ActorHolder holder = batchHolders.get(i);
+                tasks.add(() -> fireActor(holder, messageEvent.getDestinationAddress(), messageEvent.getSourceAddress(),
+                        messageEvent.getMessage()));
+            }
+            
+            try {
+                for (Future<FireResult> future : pool.invokeAll(tasks)) {
+                    fireResults.add(future.get());
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ie);
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException(ee.getCause());
+            }
+        }
+        
+        // Apply the results of running the actors in the order that the messages were queued in
+        for (int i = 0; i < batchEvents.size(); i++) {
+            MessageEvent messageEvent = batchEvents.get(i);
+            LOG.debug("Processing event {}", messageEvent);
+            applyFireResult(batchHolders.get(i), messageEvent.getDestinationAddress(), messageEvent.getSourceAddress(),
+                    messageEvent.getMessage(), fireResults.get(i));
+        }
+    }
+    
+    private void logEvent(Event event) {
+        long index = processedCount;
+        processedCount++;
+        
+        if (recordOut == null && verifyIn == null) {
+            return;
+        }
+
+        byte[] record = EventLogCodec.encode(index, event);
+        try {
+            if (recordOut != null) {
+                recordOut.writeInt(record.length);
+                recordOut.write(record);
+            }
+            
+            if (verifyIn != null) {
+                byte[] expected = readRecord(verifyIn);
+                if (expected == null) {
+                    verifyIn = null; // end of log reached, stop verifying
+                } else if (!EventLogCodec.matches(expected, record, event)) {
+                    throw new IllegalStateException("Simulation diverged from log at event " + index + ": " + event);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+    }
+    
+    private static byte[] readRecord(DataInputStream dis) throws IOException {
+        int len;
+        try {
+            len = dis.readInt();
+        } catch (EOFException eofe) {
+            return null;
+        }
+        
+        byte[] record = new byte[len];
+        dis.readFully(record);
+        return record;
+    }
+    
     private void handleCustomEvent(Event event) {
         CustomEvent customEvent = (CustomEvent) event;
         Runnable runnable = customEvent.getRunnable();
@@ -371,16 +683,7 @@ public final class Simulator {
         
         // In addition to removing the actor, we need to remove all messages coming in to the actor. The actor has been removed, which means
         // that it'll never get a chance to receive these messages (we pretend that these messages were already in its receive queue).
-        Iterator<Event> eventsIt = events.iterator();
-        while (eventsIt.hasNext()) {
-            Event pendingEvent = eventsIt.next();
-            if (pendingEvent instanceof MessageEvent) {
-                MessageEvent messageEvent = (MessageEvent) pendingEvent;
-                if (addressObj.isPrefixOf(messageEvent.getDestinationAddress())) {
-                    eventsIt.remove();
-                }
-            }
-        }
+        events.removeMessagesTo(addressObj);
     }
 
     private void handleAddTimerEvent(Event event) {
@@ -411,16 +714,7 @@ public final class Simulator {
         
         // In addition to removing the timer, we need to remove all messages queued by the timer. The timer has been removed, which means
         // that it'll never get a chance to send these messages out.
-        Iterator<Event> eventsIt = events.iterator();
-        while (eventsIt.hasNext()) {
-            Event pendingEvent = eventsIt.next();
-            if (pendingEvent instanceof TimerTriggerEvent) {
-                TimerTriggerEvent timerTriggerEvent = (TimerTriggerEvent) pendingEvent;
-                if (addressObj.isPrefixOf(timerTriggerEvent.getSourceAddress())) {
-                    eventsIt.remove();
-                }
-            }
-        }
+        events.removeTimerTriggersFrom(addressObj);
     }
     
     private void validateAddressDoesNotConflict(Address address) {
@@ -435,17 +729,7 @@ public final class Simulator {
         Validate.notNull(address);
         Validate.isTrue(!address.isEmpty());
 
-        List<String> splitAddress = address.getElements();
-        
-        for (int i = address.size(); i >= 1; i--) {
-            Address testAddress = Address.of(splitAddress.subList(0, i));
-            Holder actorHolder = holders.get(testAddress);
-            if (actorHolder != null) {
-                return actorHolder;
-            }
-        }
-        
-        return null;
+        return holders.findLongestPrefix(address);
     }
     
     private void queueMessageFromMessageSource(
@@ -648,6 +932,12 @@ public final class Simulator {
     }
 
     private void processMessageToActor(ActorHolder destHolder, Address destination, Address source, Object message) {
+        FireResult fireResult = fireActor(destHolder, destination, source, message);
+        applyFireResult(destHolder, destination, source, message, fireResult);
+    }
+
+    // Only touches destHolder, so can be run in parallel for different holders
+    private FireResult fireActor(ActorHolder destHolder, Address destination, Address source, Object message) {
         // Earliest possible step time is the minimum point in time which the destination actor can have its onStep called again. That is,
         // the message being processed must be >= to the earliest possible step time. Otherwise, something has gone wrong. This is a sanity
         // check.
@@ -659,7 +949,6 @@ public final class Simulator {
         // test harness. In the real world, if an actor throws an exception, it'll get removed from the list of actors assigned to that
         // ActorRunner/ActorRunnable and no more execution is done on it.
         CoroutineRunner actorRunner = destHolder.getActorRunner();
-        Address address = destHolder.getAddress();
         SourceContext context = destHolder.getContext();
         Instant localActorTime = currentTime.plus(destHolder.getTimeOffset()); // This is the time as it appears to the actor. Clocks
                                                                                // between different machines are never going to be entirely
@@ -678,6 +967,15 @@ public final class Simulator {
         }
         Instant execEndTime = Instant.now();
         realExecDuration = Duration.between(execStartTime, execEndTime);
+        
+        return new FireResult(realExecDuration, stopped);
+    }
+
+    private void applyFireResult(ActorHolder destHolder, Address destination, Address source, Object message, FireResult fireResult) {
+        Address address = destHolder.getAddress();
+        SourceContext context = destHolder.getContext();
+        Duration realExecDuration = fireResult.realExecDuration;
+        boolean stopped = fireResult.stopped;
 
         // We've finished calling onStep(). Next, add the amount of time it took to do the processing of the message by onStep. This is a
         // calculated value. We have the real execution time, and we pass that in as a hint to the interface that does the calculations, but
@@ -718,56 +1016,19 @@ public final class Simulator {
         // Go through any messages queued to arrive at this actor before earliest possible onstep time. Reschedule each of those messages
         // such that they arrive at earliest possible on step time. Like the comment above says, it wouldn't make sense to call onStep()
         // before this time. We'd be going back in time if we did.
-        List<MessageEvent> messageEventsToReschedule = new LinkedList<>();
-        Iterator<Event> it = events.iterator();
-        while (it.hasNext()) {
-            Event event = it.next();
-            
-//          THE BLOCK BELOW HAS BEEN COMMENTED OUT BECAUSE IT IS INCORRECT. PriorityQueue.iterator() DOES NOT RETURN ELEMENTS IN ORDER. THIS
-//          IS A REMINDER NOT TO PUT IT BACK IN!!!! ANOTHER IF BLOCK WAS ADDED BELOW THAT WILL SKIP THE ENTRY VIA continue; RATHER THAN
-//          STOP THE LOOP VIA break;
-//            // Events queue is ordered. If the event we're looking at right now is >= to the earliest possible onstep time, it means that
-//            // this event and all events after it don't need to be rescheduled, so stop checking here.
-//            if (!earliestPossibleOnStepTime.isAfter(event.getTriggerTime())) {
-//                break;
-//            }
-
-            // If the event we're looking at right now is >= to the earliest possible onstep time, it means that this event doesn't need to
-            // be rescheduled, so skip this event and go to the next one.
-            if (!earliestPossibleOnStepTime.isAfter(event.getTriggerTime())) {
-                continue;
-            }
-
-            // We only care about MessageEvents because they're the ones that trigger calls to onStep(). If the event is a MessageEvent and
-            // the destination of that event is this actor, remove it from the events queue and add it to a temporary collection. All items
-            // in this temporary collection are going to be rescheduled such that they trigger at earliestPossibleOnStepTime and re-added
-            // to the events queue.
-            if (event instanceof MessageEvent) {
-                MessageEvent pendingMessageEvent = (MessageEvent) event;
-                if (pendingMessageEvent.getDestinationAddress().equals(address)) {
-                    MessageEvent updatedMessageEvent = new MessageEvent(
-                            pendingMessageEvent.getSourceAddress(),
-                            pendingMessageEvent.getDestinationAddress(),
-                            pendingMessageEvent.getMessage(),
-                            earliestPossibleOnStepTime,
-                            nextSequenceNumber++);
-                    messageEventsToReschedule.add(updatedMessageEvent);
-                    it.remove();
-                }
-            }
-        }
-
+        //
+        // Messages come back from the events queue in the order they were queued in, so they retain that order once rescheduled.
+        List<MessageEvent> messageEventsToReschedule = events.removeMessagesBefore(address, earliestPossibleOnStepTime);
         for (MessageEvent pendingMessageEvent : messageEventsToReschedule) {
             MessageEvent rescheduledMessageEvent = new MessageEvent(
                     pendingMessageEvent.getSourceAddress(),
                     pendingMessageEvent.getDestinationAddress(),
                     pendingMessageEvent.getMessage(),
-                    pendingMessageEvent.getTriggerTime(),
+                    earliestPossibleOnStepTime,
                     nextSequenceNumber++);
             events.add(rescheduledMessageEvent);
         }
         
-        
         if (stopped) {
             // Actor stopped or crashed. Remove it from the list of actors and stop processing. We do this here at the end of hte method
             // because the actor may have sent stuff out before it termianted. We want the stuff that was sent out to make it to its
@@ -775,4 +1036,14 @@ public final class Simulator {
             holders.remove(address);
         }
     }
+    
+    private static final class FireResult {
+        private final Duration realExecDuration;
+        private final boolean stopped;
+
+        FireResult(Duration realExecDuration, boolean stopped) {
+            this.realExecDuration = realExecDuration;
+            this.stopped = stopped;
+        }
+    }
 }
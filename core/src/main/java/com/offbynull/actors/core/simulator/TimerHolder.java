@@ -20,6 +20,9 @@ import com.offbynull.actors.core.shuttle.Address;
 import org.apache.commons.lang3.Validate;
 
 final class TimerHolder implements Holder {
+
+    private static final long serialVersionUID = 1L;
+
     private final Address address;
     
     public TimerHolder(Address address) {
@@ -22,6 +22,8 @@ import org.apache.commons.lang3.Validate;
 
 final class TimerTriggerEvent extends Event {
 
+    private static final long serialVersionUID = 1L;
+
     private final Address sourceAddress;
     private final Address destinationAddress;
     private final Object message;
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.trace;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * In-process collector of {@link TraceEvent}s. Decides which messages get traced (sampling), and keeps the most recent events in a bounded
+ * buffer so per-hop latencies of sampled messages can be reconstructed (see {@link #getTrace(long) }).
+ * <p>
+ * Only messages that have a {@link TraceContext} attached get traced. Messages without one pay for a single {@code null} check at each
+ * trace point. This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class TraceCollector {
+
+    private final double sampleRate;
+    private final int capacity;
+    private final ArrayDeque<TraceEvent> events; // guarded by this
+
+    /**
+     * Create a {@link TraceCollector} instance.
+     * @param sampleRate fraction of traces to sample (between {@code 0.0} and {@code 1.0})
+     * @param capacity maximum number of events to keep (once reached, oldest events are discarded)
+     * @return new trace collector
+     * @throws IllegalArgumentException if {@code sampleRate} isn't between {@code 0.0} and {@code 1.0}, or {@code capacity <= 0}
+     */
+    public static TraceCollector create(double sampleRate, int capacity) {
+        return new TraceCollector(sampleRate, capacity);
+    }
+
+    private TraceCollector(double sampleRate, int capacity) {
+        Validate.isTrue(sampleRate >= 0.0 && sampleRate <= 1.0);
+        Validate.isTrue(capacity > 0);
+        this.sampleRate = sampleRate;
+        this.capacity = capacity;
+        this.events = new ArrayDeque<>();
+    }
+
+    /**
+     * Start a new trace, subject to sampling. Attach the returned trace context to a message to have it traced.
+     * @return new trace context, or {@code null} if this trace wasn't sampled
+     */
+    public TraceContext startTrace() {
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        return new TraceContext(TraceContext.nextId(), TraceContext.nextId(), 0L, this);
+    }
+
+    void record(TraceContext trace, TracePoint point, Address address) {
+        TraceEvent event = new TraceEvent(trace.getTraceId(), trace.getSpanId(), trace.getParentSpanId(), point, address,
+                Thread.currentThread().getName(), System.nanoTime());
+        synchronized (this) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Get the events recorded for a trace, ordered by time. The difference in time between consecutive events of the same span is the
+     * latency of that hop.
+     * @param traceId trace id
+     * @return events for {@code traceId} (only events that are still being kept)
+     */
+    public List<TraceEvent> getTrace(long traceId) {
+        List<TraceEvent> ret = new ArrayList<>();
+        synchronized (this) {
+            for (TraceEvent event : events) {
+                if (event.getTraceId() == traceId) {
+                    ret.add(event);
+                }
+            }
+        }
+        ret.sort(Comparator.comparingLong(TraceEvent::getTime));
+        return ret;
+    }
+
+    /**
+     * Remove and return all events being kept.
+     * @return events, in the order they were recorded
+     */
+    public List<TraceEvent> drain() {
+        synchronized (this) {
+            List<TraceEvent> ret = new ArrayList<>(events);
+            events.clear();
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.trace;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Trace context attached to a sampled {@link com.offbynull.actors.core.shuttle.Message}. A trace is made up of spans: each message in
+ * a trace has its own span, and messages sent out by an actor while it processes a traced message get a child span (see
+ * {@link #child() }).
+ * <p>
+ * Trace contexts are created by {@link TraceCollector#startTrace() }, and record to the collector that created them. The reference to the
+ * collector isn't serialized -- a trace context that's been deserialized keeps its ids but doesn't record anything. This class is
+ * immutable.
+ * @author Kasra Faghihi
+ */
+public final class TraceContext implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long traceId;
+    private final long spanId;
+    private final long parentSpanId;
+    private final transient TraceCollector collector;
+
+    TraceContext(long traceId, long spanId, long parentSpanId, TraceCollector collector) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.collector = collector;
+    }
+
+    /**
+     * Get the trace id.
+     * @return trace id
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Get the span id.
+     * @return span id
+     */
+    public long getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Get the id of the parent span.
+     * @return parent span id, or {@code 0} if this is the first span in the trace
+     */
+    public long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Create a child span of this span (same trace id, new span id, parent span id set to this span's id).
+     * @return child trace context
+     */
+    public TraceContext child() {
+        return new TraceContext(traceId, nextId(), spanId, collector);
+    }
+
+    /**
+     * Record that the message this trace context is attached to was observed at some point. Does nothing if this trace context isn't
+     * associated with a collector.
+     * @param point point at which the message was observed
+     * @param address address of the message at that point (typically the destination address)
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public void record(TracePoint point, Address address) {
+        Validate.notNull(point);
+        Validate.notNull(address);
+        if (collector != null) {
+            collector.record(this, point, address);
+        }
+    }
+
+    static long nextId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0L); // 0 is reserved for "no parent"
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "TraceContext{" + "traceId=" + Long.toHexString(traceId) + ", spanId=" + Long.toHexString(spanId) + ", parentSpanId="
+                + Long.toHexString(parentSpanId) + '}';
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.trace;
+
+import com.offbynull.actors.core.shuttle.Address;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Observation of a traced message. This class is immutable.
+ * @author Kasra Faghihi
+ */
+public final class TraceEvent {
+
+    private final long traceId;
+    private final long spanId;
+    private final long parentSpanId;
+    private final TracePoint point;
+    private final Address address;
+    private final String thread;
+    private final long time;
+
+    TraceEvent(long traceId, long spanId, long parentSpanId, TracePoint point, Address address, String thread, long time) {
+        Validate.notNull(point);
+        Validate.notNull(address);
+        Validate.notNull(thread);
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.point = point;
+        this.address = address;
+        this.thread = thread;
+        this.time = time;
+    }
+
+    /**
+     * Get the trace id.
+     * @return trace id
+     */
+    public long getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Get the span id.
+     * @return span id
+     */
+    public long getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Get the parent span id.
+     * @return parent span id, or {@code 0} if the span is the first span in the trace
+     */
+    public long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Get the point at which the message was observed.
+     * @return trace point
+     */
+    public TracePoint getPoint() {
+        return point;
+    }
+
+    /**
+     * Get the address of the message when it was observed.
+     * @return address
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * Get the name of the thread that observed the message.
+     * @return thread name
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * Get the time the message was observed. Only comparable to other times from the same JVM.
+     * @return time (as returned by {@link System#nanoTime() })
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return "TraceEvent{" + "traceId=" + Long.toHexString(traceId) + ", spanId=" + Long.toHexString(spanId) + ", parentSpanId="
+                + Long.toHexString(parentSpanId) + ", point=" + point + ", address=" + address + ", thread=" + thread + ", time=" + time
+                + '}';
+    }
+}
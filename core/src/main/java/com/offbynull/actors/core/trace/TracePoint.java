@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.trace;
+
+/**
+ * Point at which a traced message was observed.
+ * @author Kasra Faghihi
+ */
+public enum TracePoint {
+    /**
+     * Message was handed to a shuttle.
+     */
+    SEND,
+    /**
+     * Message was pulled off a bus by the thread that's going to process it.
+     */
+    PULL,
+    /**
+     * Actor started processing the message.
+     */
+    FIRE_START,
+    /**
+     * Actor finished processing the message.
+     */
+    FIRE_END,
+    /**
+     * Gateway passed the message out (e.g. to a reader of a direct gateway, or back out of a timer gateway).
+     */
+    EGRESS
+}
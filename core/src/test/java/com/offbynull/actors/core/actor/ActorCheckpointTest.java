@@ -1,20 +1,29 @@
 
 package com.offbynull.actors.core.actor;
 
+import com.offbynull.actors.core.checkpoint.CachingCheckpointer;
 import com.offbynull.actors.core.checkpoint.FileSystemCheckpointer;
 import com.offbynull.actors.core.context.Context;
 import static com.offbynull.actors.core.context.Context.SuspendFlag.RELEASE;
 import com.offbynull.actors.core.context.ObjectStreamSerializer;
+import com.offbynull.actors.core.context.SourceContext;
 import com.offbynull.actors.core.gateways.direct.DirectGateway;
+import com.offbynull.actors.core.shuttle.Address;
 import com.offbynull.coroutines.user.Coroutine;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import com.offbynull.actors.core.checkpoint.Checkpointer;
@@ -266,4 +275,316 @@ public class ActorCheckpointTest {
             assertEquals("echo 1:hello", direct.readMessagePayloadOnly());
         }
     }
+
+    @Test(timeout = 5000L)
+    public void mustPassivateLeastRecentlyUsedActorsAndRestoreThem() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            int counter = 0;
+            while (true) {
+                cnt.suspend();
+
+                String msg = ctx.in();
+                ctx.out("echo " + ctx.self().getElement(1) + " " + counter + ":" + msg);
+                counter++;
+            }
+        };
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer, PassivationPolicy.create(2, null));
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            for (int i = 0; i < 4; i++) {
+                runner.addActor("actor" + i, actor, new Object());
+                assertEquals("ready", direct.readMessagePayloadOnly());
+            }
+
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 4; j++) {
+                    direct.writeMessage("runner:actor" + j, "hi");
+                    assertEquals("echo actor" + j + " " + i + ":hi", direct.readMessagePayloadOnly());
+                }
+            }
+
+            assertTrue(runner.getMetrics().snapshot().getCounters().get("actors.passivated") > 0L);
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustPassivateIdleActorsAndRestoreThem() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            int counter = 0;
+            while (true) {
+                cnt.suspend();
+
+                String msg = ctx.in();
+                ctx.out("echo " + counter + ":" + msg);
+                counter++;
+            }
+        };
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer,
+                        PassivationPolicy.create(Integer.MAX_VALUE, Duration.ofMillis(50L)));
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            runner.addActor("actor0", actor, new Object());
+            assertEquals("ready", direct.readMessagePayloadOnly());
+            
+            direct.writeMessage("runner:actor0", "hi");
+            assertEquals("echo 0:hi", direct.readMessagePayloadOnly());
+
+            while (runner.getMetrics().snapshot().getCounters().get("actors.passivated") == 0L) {
+                Thread.sleep(10L);
+            }
+            
+            direct.writeMessage("runner:actor0", "hello");
+            assertEquals("echo 1:hello", direct.readMessagePayloadOnly());
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustDeleteCheckpointWhenPassivatedActorRemoved() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            while (true) {
+                cnt.suspend();
+            }
+        };
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer,
+                        PassivationPolicy.create(Integer.MAX_VALUE, Duration.ofMillis(50L)));
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            runner.addActor("actor0", actor, new Object());
+            assertEquals("ready", direct.readMessagePayloadOnly());
+
+            while (runner.getMetrics().snapshot().getCounters().get("actors.passivated") == 0L) {
+                Thread.sleep(10L);
+            }
+            assertNotNull(checkpointer.restore(Address.of("runner", "actor0")));
+            
+            runner.removeActor("actor0");
+            while (checkpointer.restore(Address.of("runner", "actor0")) != null) {
+                Thread.sleep(10L);
+            }
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustKeepActorInMemoryWhenCheckpointFails() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            int counter = 0;
+            while (true) {
+                cnt.suspend();
+
+                String msg = ctx.in();
+                ctx.out("echo " + counter + ":" + msg);
+                counter++;
+
+                ctx.checkpoint(true);
+                ctx.mode(RELEASE);
+            }
+        };
+
+        try (Checkpointer checkpointer = CachingCheckpointer.create(new FailingCheckpointer(), new ObjectStreamSerializer(), 1024L * 1024L);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer);
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            runner.addActor("actor0", actor, new Object());
+            assertEquals("ready", direct.readMessagePayloadOnly());
+
+            // Once the cache sees the backing checkpointer failing, checkpoint requests are rejected -- the actor must stay in memory
+            // rather than be dropped
+            for (int i = 0; i < 10; i++) {
+                direct.writeMessage("runner:actor0", "hi");
+                assertEquals("echo " + i + ":hi", direct.readMessagePayloadOnly());
+                Thread.sleep(20L);
+            }
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustWarmUpCheckpointedActorsOnRestart() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            int counter = 0;
+            while (true) {
+                ctx.checkpoint(true);
+                ctx.mode(RELEASE);
+                cnt.suspend();
+
+                String msg = ctx.in();
+                ctx.out("echo " + ctx.self().getElement(1) + " " + counter + ":" + msg);
+                counter++;
+            }
+        };
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 2, checkpointer);
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            for (int i = 0; i < 3; i++) {
+                runner.addActor("actor" + i, actor, new Object());
+                assertEquals("ready", direct.readMessagePayloadOnly());
+                direct.writeMessage("runner:actor" + i, "hi");
+                assertEquals("echo actor" + i + " 0:hi", direct.readMessagePayloadOnly());
+            }
+        }
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 2, checkpointer);
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            assertEquals(3, (int) runner.warmUp(10, 2).get());
+            assertEquals(0, (int) runner.warmUp(10, 2).get()); // already in memory
+
+            for (int i = 0; i < 3; i++) {
+                direct.writeMessage("runner:actor" + i, "hello");
+                assertEquals("echo actor" + i + " 1:hello", direct.readMessagePayloadOnly());
+            }
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustNotWarmUpActorRemovedWhileRestoring() throws Exception {
+        Coroutine actor = (Serializable & Coroutine) cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            while (true) {
+                ctx.checkpoint(true);
+                ctx.mode(RELEASE);
+                cnt.suspend();
+
+                String msg = ctx.in();
+                ctx.out("echo " + msg);
+            }
+        };
+
+        try (Checkpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer);
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            runner.addActor("actor0", actor, new Object());
+            assertEquals("ready", direct.readMessagePayloadOnly());
+        }
+
+        CountDownLatch restoreGate = new CountDownLatch(1);
+        try (Checkpointer checkpointer = new GatedCheckpointer(FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath),
+                        restoreGate);
+                ActorRunner runner = ActorRunner.create("runner", 1, checkpointer);
+                DirectGateway direct = DirectGateway.create("direct");){
+            
+            runner.addOutgoingShuttle(direct.getIncomingShuttle());
+            direct.addOutgoingShuttle(runner.getIncomingShuttle());
+
+            // Actor gets removed while its warm-up restore is still blocked
+            CompletableFuture<Integer> warmedUp = runner.warmUp(Collections.singletonList(Address.of("runner", "actor0")), 1);
+            runner.removeActor("actor0");
+            assertEquals(0, (int) warmedUp.get());
+            restoreGate.countDown();
+
+            direct.writeMessage("runner:actor0", "hi");
+            assertNull(direct.readMessagePayloadOnly(500L, TimeUnit.MILLISECONDS));
+            assertNull(checkpointer.restore(Address.of("runner", "actor0")));
+        }
+    }
+
+    private static final class FailingCheckpointer implements Checkpointer {
+        @Override
+        public boolean save(SourceContext ctx) {
+            return false;
+        }
+
+        @Override
+        public SourceContext restore(Address address) {
+            throw new IllegalStateException("Storage unavailable");
+        }
+
+        @Override
+        public void delete(Address address) {
+            throw new IllegalStateException("Storage unavailable");
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+    }
+
+    private static final class GatedCheckpointer implements Checkpointer {
+        private final Checkpointer backing;
+        private final CountDownLatch restoreGate;
+
+        GatedCheckpointer(Checkpointer backing, CountDownLatch restoreGate) {
+            this.backing = backing;
+            this.restoreGate = restoreGate;
+        }
+
+        @Override
+        public boolean save(SourceContext ctx) {
+            return backing.save(ctx);
+        }
+
+        @Override
+        public SourceContext restore(Address address) {
+            try {
+                restoreGate.await();
+            } catch (InterruptedException ie) {
+                throw new IllegalStateException(ie);
+            }
+            return backing.restore(address);
+        }
+
+        @Override
+        public void delete(Address address) {
+            backing.delete(address);
+        }
+
+        @Override
+        public void close() throws Exception {
+            backing.close();
+        }
+    }
 }
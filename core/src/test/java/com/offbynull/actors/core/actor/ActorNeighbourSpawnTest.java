@@ -4,6 +4,8 @@ package com.offbynull.actors.core.actor;
 import com.offbynull.actors.core.context.Context;
 import com.offbynull.actors.core.gateways.direct.DirectGateway;
 import com.offbynull.coroutines.user.Coroutine;
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
 import org.junit.Test;
@@ -52,4 +54,39 @@ public class ActorNeighbourSpawnTest {
         assertEquals("ready from 0", direct.readMessagePayloadOnly());
         assertEquals("ready from 1", direct.readMessagePayloadOnly());
     }
+    
+    @Test(timeout = 2000L)
+    public void mustSpawnManyRootActorsWithPrimingMessagesFromAnotherRootActor() throws Exception {
+        Coroutine child = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            
+            ctx.out("direct", ctx.in());
+            cnt.suspend();
+            ctx.out("direct", ctx.in());
+        };
+        
+        Coroutine actor0 = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+
+            for (int i = 0; i < 10; i++) {
+                ctx.neighbour("child" + i, child, "first" + i, "second" + i);
+            }
+        };
+        
+        runner.addActor("actor0", actor0, new Object());
+        
+        
+        Set<Object> expected = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("first" + i);
+            expected.add("second" + i);
+        }
+        Set<Object> actual = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            actual.add(direct.readMessagePayloadOnly());
+        }
+        assertEquals(expected, actual);
+    }
 }
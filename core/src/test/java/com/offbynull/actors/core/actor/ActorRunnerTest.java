@@ -1,9 +1,16 @@
 package com.offbynull.actors.core.actor;
 
+import com.offbynull.actors.core.context.BatchedCreateActorCommand;
 import com.offbynull.actors.core.context.Context;
 import com.offbynull.coroutines.user.Continuation;
 import com.offbynull.actors.core.shuttles.test.CaptureShuttle;
 import com.offbynull.actors.core.shuttles.test.NullShuttle;
+import com.offbynull.actors.core.shuttle.Address;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
@@ -99,6 +106,112 @@ public class ActorRunnerTest {
         }
     }
 
+    @Test(timeout = 2000L)
+    public void mustAddBatchOfActorsAcrossThreads() throws Exception {
+        try (ActorRunner multiThreadedRunner = ActorRunner.create("local", 4)) {
+            int count = 1000;
+            CountDownLatch latch = new CountDownLatch(count);
+            
+            List<BatchedCreateActorCommand> actors = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = "actor" + i;
+                actors.add(new BatchedCreateActorCommand(
+                        id,
+                        (Continuation cnt) -> {
+                            Context ctx = (Context) cnt.getContext();
+                            assertEquals(ctx.self().getElement(1), ctx.in());
+                            latch.countDown();
+                        },
+                        id));
+            }
+            multiThreadedRunner.addActors(actors);
+            
+            latch.await();
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustRecordMetricsForProcessedMessages() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        fixture.addActor(
+                "actor",
+                (Continuation cnt) -> {
+                    latch.countDown();
+                },
+                new Object());
+        latch.await();
+        
+        while (fixture.getMetrics().snapshot().getCounters().get("messages.processed") != 1L) {
+            Thread.sleep(10L);
+        }
+        assertEquals(1L, fixture.getMetrics().snapshot().getHistograms().get("thread.0.fire.time").getCount());
+    }
+
+    @Test(timeout = 2000L)
+    public void mustDumpRecentEvents() throws Exception {
+        fixture.addActor(
+                "actor",
+                (Continuation cnt) -> {
+                    while (true) {
+                        cnt.suspend();
+                    }
+                },
+                new Object());
+        
+        Path file = Files.createTempFile(ActorRunnerTest.class.getSimpleName(), ".txt");
+        try {
+            String dump;
+            do {
+                Thread.sleep(10L);
+                fixture.dumpEvents(file);
+                dump = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } while (!dump.contains("ACTOR_FIRED actor"));
+            assertTrue(dump.contains("ACTOR_ADDED actor"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustReportHottestActorsWhenProfiling() throws Exception {
+        fixture.setProfiling(1);
+        fixture.addActor(
+                "busy",
+                (Continuation cnt) -> {
+                    Context ctx = (Context) cnt.getContext();
+                    ctx.out("local:idle", "hi");
+                    Thread.sleep(50L);
+                    cnt.suspend();
+                },
+                new Object());
+        fixture.addActor(
+                "idle",
+                (Continuation cnt) -> {
+                    while (true) {
+                        cnt.suspend();
+                    }
+                },
+                new Object());
+        
+        List<ActorProfile> hottest;
+        do {
+            Thread.sleep(10L);
+            hottest = fixture.hottest(2);
+        } while (hottest.size() < 2);
+        
+        assertEquals(Address.fromString("local:busy"), hottest.get(0).getAddress());
+        assertEquals(1L, hottest.get(0).getMessagesHandled());
+        assertEquals(1L, hottest.get(0).getMessagesEmitted());
+        assertTrue(hottest.get(0).getExecutionTime() >= TimeUnit.MILLISECONDS.toNanos(50L));
+        assertEquals(Address.fromString("local:idle"), hottest.get(1).getAddress());
+        assertEquals(1, fixture.hottest(1).size());
+        
+        fixture.setProfiling(0);
+        while (!fixture.hottest(2).isEmpty()) {
+            Thread.sleep(10L);
+        }
+    }
+
     @Test(timeout = 2000L)
     public void mustFailWhenAddingActorWithSameName() throws Exception {
         fixture.addActor("actor", cnt -> { /* do nothing */ });
@@ -0,0 +1,107 @@
+package com.offbynull.actors.core.actor;
+
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.coroutines.user.CoroutineRunner;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Compares ActorTable against the map of wrapper objects ActorRunnable used before it (an access-ordered LinkedHashMap of id -> wrapper
+// holding the context and last active time). Not run as part of the test suite. Run manually with a large enough heap, e.g.
+//
+//   java -Xmx4g -cp <test classpath> com.offbynull.actors.core.actor.ActorTableBenchmark 10000000
+//
+// All entries share the same context so that only the overhead of the table itself is measured.
+public final class ActorTableBenchmark {
+
+    private static final int LOOKUP_ROUNDS = 5;
+
+    private ActorTableBenchmark() {
+        // do nothing
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        SourceContext ctx = new SourceContext(new CoroutineRunner(cnt -> { }), Address.of("runner", "actor"));
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = "actor" + i;
+            ids[i].hashCode(); // addresses cache the hash codes of their elements, so do the same here
+        }
+        int[] lookupOrder = new int[count];
+        Random random = new Random(1L);
+        for (int i = 0; i < count; i++) {
+            lookupOrder[i] = random.nextInt(count);
+        }
+
+        System.out.println("Resident actors: " + count);
+
+        long baseline = usedMemory();
+        Map<String, Wrapper> map = new LinkedHashMap<>(16, 0.75f, true);
+        for (int i = 0; i < count; i++) {
+            map.put(ids[i], new Wrapper(ctx));
+        }
+        long mapBytes = usedMemory() - baseline;
+        report("LinkedHashMap+wrapper", mapBytes, count, timeMapLookups(map, ids, lookupOrder));
+        map = null;
+
+        for (boolean ordered : new boolean[] { true, false }) {
+            baseline = usedMemory();
+            ActorTable table = new ActorTable(ordered);
+            for (int i = 0; i < count; i++) {
+                table.add(ids[i], ctx, 0L);
+            }
+            long tableBytes = usedMemory() - baseline;
+            report("ActorTable(ordered=" + ordered + ")", tableBytes, count, timeTableLookups(table, ids, lookupOrder));
+        }
+    }
+
+    private static long timeMapLookups(Map<String, Wrapper> map, String[] ids, int[] lookupOrder) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int idx : lookupOrder) {
+                Wrapper wrapper = map.get(ids[idx]);
+                wrapper.lastActiveTime = idx;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static long timeTableLookups(ActorTable table, String[] ids, int[] lookupOrder) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int idx : lookupOrder) {
+                int slot = table.find(ids[idx]);
+                table.touchAt(slot, idx);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void report(String name, long bytes, int count, long lookupTime) {
+        System.out.printf("%-28s %8.1f bytes/actor %8.1f ns/lookup%n", name, (double) bytes / count, (double) lookupTime / count);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class Wrapper {
+        private final SourceContext context;
+        private long lastActiveTime;
+
+        Wrapper(SourceContext context) {
+            this.context = context;
+        }
+    }
+}
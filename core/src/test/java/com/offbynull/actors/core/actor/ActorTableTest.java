@@ -0,0 +1,108 @@
+package com.offbynull.actors.core.actor;
+
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.coroutines.user.CoroutineRunner;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ActorTableTest {
+
+    @Test
+    public void mustAddGetAndRemove() {
+        ActorTable fixture = new ActorTable(false);
+        SourceContext ctx = context("a");
+        
+        assertTrue(fixture.add("a", ctx, 0L));
+        assertFalse(fixture.add("a", context("a"), 0L));
+        assertSame(ctx, fixture.get("a"));
+        assertNull(fixture.get("b"));
+        assertEquals(1, fixture.size());
+        
+        assertSame(ctx, fixture.remove("a"));
+        assertNull(fixture.remove("a"));
+        assertFalse(fixture.contains("a"));
+        assertEquals(0, fixture.size());
+    }
+
+    @Test
+    public void mustMatchLinkedHashMapUnderRandomOperations() {
+        // ids built out of "Aa" and "BB" all have the same hash code, which makes for long probe sequences
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 8; j++) {
+                sb.append((i & (1 << j)) == 0 ? "Aa" : "BB");
+            }
+            ids.add(sb.toString());
+            ids.add("actor" + i);
+        }
+        
+        Random random = new Random(1L);
+        ActorTable fixture = new ActorTable(true);
+        LinkedHashMap<String, SourceContext> expected = new LinkedHashMap<>(16, 0.75f, true);
+        for (int i = 0; i < 50000; i++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1: {
+                    SourceContext ctx = context(id);
+                    boolean absent = !expected.containsKey(id);
+                    assertEquals(absent, fixture.add(id, ctx, i));
+                    if (absent) {
+                        expected.put(id, ctx);
+                    }
+                    break;
+                }
+                case 2: {
+                    assertSame(expected.remove(id), fixture.remove(id));
+                    break;
+                }
+                case 3: {
+                    int slot = fixture.find(id);
+                    SourceContext ctx = expected.get(id); // moves to most-recently-used end
+                    if (ctx == null) {
+                        assertEquals(ActorTable.NIL, slot);
+                    } else {
+                        assertSame(ctx, fixture.contextAt(slot));
+                        fixture.touchAt(slot, i);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException();
+            }
+            assertEquals(expected.size(), fixture.size());
+        }
+        
+        for (String id : ids) {
+            assertEquals(expected.containsKey(id), fixture.contains(id)); // get() on expected would change its order
+        }
+        
+        // Drain in least-recently-used order
+        Iterator<Entry<String, SourceContext>> it = expected.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<String, SourceContext> entry = it.next();
+            int slot = fixture.eldest();
+            assertEquals(entry.getKey(), fixture.idAt(slot));
+            assertSame(entry.getValue(), fixture.contextAt(slot));
+            fixture.removeAt(slot);
+        }
+        assertEquals(ActorTable.NIL, fixture.eldest());
+        assertEquals(0, fixture.size());
+    }
+    
+    private static SourceContext context(String id) {
+        return new SourceContext(new CoroutineRunner(cnt -> { }), Address.of("runner", id));
+    }
+}
@@ -0,0 +1,175 @@
+package com.offbynull.actors.core.checkpoint;
+
+import com.offbynull.actors.core.context.ObjectStreamSerializer;
+import com.offbynull.actors.core.context.Serializer;
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.coroutines.user.Coroutine;
+import com.offbynull.coroutines.user.CoroutineRunner;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+public class CachingCheckpointerTest {
+
+    @Test(timeout = 5000L)
+    public void mustRestoreFromCacheWithoutGoingToBacking() throws Exception {
+        MemoryCheckpointer backing = new MemoryCheckpointer();
+        backing.saveGate = new CountDownLatch(1); // hold up writes to backing, so backing can't be what's restoring
+        Address self = Address.fromString("test1:test2");
+        try (CachingCheckpointer fixture = CachingCheckpointer.create(backing, new ObjectStreamSerializer(), 1024L * 1024L)) {
+            assertTrue(fixture.save(createContext(self)));
+            
+            SourceContext ctxOut = fixture.restore(self);
+            assertEquals(self, ctxOut.self());
+            assertNull(fixture.restore(self)); // not loadable once restored
+            
+            backing.saveGate.countDown();
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustWriteBehindToBacking() throws Exception {
+        MemoryCheckpointer backing = new MemoryCheckpointer();
+        Address self1 = Address.fromString("test1:a");
+        Address self2 = Address.fromString("test1:b");
+        try (CachingCheckpointer fixture = CachingCheckpointer.create(backing, new ObjectStreamSerializer(), 1024L * 1024L)) {
+            fixture.save(createContext(self1));
+            fixture.save(createContext(self2));
+            fixture.delete(self2);
+        }
+        
+        assertTrue(backing.saved.containsKey(self1));
+        assertFalse(backing.saved.containsKey(self2));
+    }
+
+    @Test(timeout = 5000L)
+    public void mustEvictAndFallBackToBacking() throws Exception {
+        MemoryCheckpointer backing = new MemoryCheckpointer();
+        try (CachingCheckpointer fixture = CachingCheckpointer.create(backing, new ObjectStreamSerializer(), 0L)) {
+            for (int i = 0; i < 10; i++) {
+                fixture.save(createContext(Address.of("test1", "a" + i)));
+            }
+            
+            for (int i = 0; i < 10; i++) {
+                Address self = Address.of("test1", "a" + i);
+                assertEquals(self, fixture.restore(self).self());
+            }
+        }
+        
+        assertTrue(backing.restoreHits.get() > 0);
+    }
+    
+    @Test(timeout = 5000L)
+    public void mustKeepFailedSavesCachedAndReportFailureUntilBackingRecovers() throws Exception {
+        MemoryCheckpointer backing = new MemoryCheckpointer();
+        backing.failing = true;
+        Address self1 = Address.fromString("test1:a");
+        Address self2 = Address.fromString("test1:b");
+        try (CachingCheckpointer fixture = CachingCheckpointer.create(backing, new ObjectStreamSerializer(), 0L)) {
+            assertTrue(fixture.save(createContext(self1))); // failure not known yet, but held in the cache until written out
+            while (fixture.save(createContext(self2))) {
+                Thread.sleep(10L);
+            }
+            
+            backing.failing = false;
+            while (!fixture.save(createContext(self2))) {
+                Thread.sleep(10L);
+            }
+        }
+        
+        assertTrue(backing.saved.containsKey(self1));
+        assertTrue(backing.saved.containsKey(self2));
+    }
+
+    @Test(timeout = 5000L)
+    public void mustHandSerializedActorsToBackingWithoutReserializing() throws Exception {
+        Path tempPath = Files.createTempDirectory(CachingCheckpointerTest.class.getSimpleName());
+        try {
+            Address self = Address.fromString("test1:a");
+            CountingSerializer serializer = new CountingSerializer();
+            try (CachingCheckpointer fixture = CachingCheckpointer.create(
+                    FileSystemCheckpointer.create(new CountingSerializer(), tempPath), serializer, 0L)) {
+                assertTrue(fixture.save(createContext(self)));
+            }
+            assertEquals(1, serializer.serializeCount.get());
+            assertEquals(0, serializer.unserializeCount.get());
+            
+            try (FileSystemCheckpointer checkpointer = FileSystemCheckpointer.create(new ObjectStreamSerializer(), tempPath)) {
+                assertEquals(self, checkpointer.restore(self).self());
+            }
+        } finally {
+            FileUtils.deleteDirectory(tempPath.toFile());
+        }
+    }
+    
+    private static SourceContext createContext(Address self) {
+        return new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self);
+    }
+    
+    private static final class MemoryCheckpointer implements Checkpointer {
+        private final Map<Address, SourceContext> saved = new ConcurrentHashMap<>();
+        private final AtomicInteger restoreHits = new AtomicInteger();
+        private volatile CountDownLatch saveGate = new CountDownLatch(0);
+        private volatile boolean failing;
+
+        @Override
+        public boolean save(SourceContext ctx) {
+            try {
+                saveGate.await();
+            } catch (InterruptedException ie) {
+                throw new IllegalStateException(ie);
+            }
+            if (failing) {
+                return false;
+            }
+            saved.put(ctx.self(), ctx);
+            return true;
+        }
+
+        @Override
+        public SourceContext restore(Address address) {
+            SourceContext ret = saved.remove(address);
+            if (ret != null) {
+                restoreHits.incrementAndGet();
+            }
+            return ret;
+        }
+
+        @Override
+        public void delete(Address address) {
+            saved.remove(address);
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+    }
+    
+    private static final class CountingSerializer implements Serializer {
+        private final Serializer backing = new ObjectStreamSerializer();
+        private final AtomicInteger serializeCount = new AtomicInteger();
+        private final AtomicInteger unserializeCount = new AtomicInteger();
+
+        @Override
+        public byte[] serialize(SourceContext ctx) {
+            serializeCount.incrementAndGet();
+            return backing.serialize(ctx);
+        }
+
+        @Override
+        public SourceContext unserialize(byte[] data) {
+            unserializeCount.incrementAndGet();
+            return backing.unserialize(data);
+        }
+    }
+}
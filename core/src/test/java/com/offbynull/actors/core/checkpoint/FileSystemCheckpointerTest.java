@@ -1,5 +1,7 @@
 package com.offbynull.actors.core.checkpoint;
 
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.context.Context.CheckpointRestoreLogic;
 import com.offbynull.actors.core.context.ObjectStreamSerializer;
 import com.offbynull.actors.core.context.SourceContext;
 import com.offbynull.actors.core.shuttle.Address;
@@ -8,6 +10,8 @@ import com.offbynull.coroutines.user.CoroutineRunner;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Test;
@@ -42,5 +46,132 @@ public class FileSystemCheckpointerTest {
         SourceContext ctxOut = fixture.restore(self);
         assertEquals(ctxIn.self(), ctxOut.self());
     }
+
+    @Test
+    public void mustRecoverRunningActorsInParallel() throws Exception {
+        int count = 3000;
+        for (int i = 0; i < count; i++) {
+            Address self = Address.of("test1", "a" + i);
+            assertTrue(fixture.save(new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self)));
+            assertNotNull(fixture.restore(self)); // moves it to running/active
+        }
+        fixture.close();
+        
+        AtomicLong recovered = new AtomicLong();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 4, recovered::set);
+        assertEquals(count, recovered.get());
+        
+        for (int i = 0; i < count; i++) {
+            Address self = Address.of("test1", "a" + i);
+            assertEquals(self, fixture.restore(self).self());
+        }
+    }
+
+    @Test
+    public void mustSaveIncrementallyAndRebase() throws Exception {
+        fixture.close();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 1, x -> { }, 3);
+        
+        Address self = Address.fromString("test1:test2");
+        Path file = path.resolve("saved").resolve("test1%3Atest2");
+        SourceContext ctx = new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self);
+        ctx.checkpoint(new LargeState(new int[16384]));
+        assertTrue(fixture.save(ctx));
+        long baseSize = Files.size(file);
+        
+        // Only the changed chunk gets appended
+        for (int i = 1; i <= 3; i++) {
+            ctx = fixture.restore(self);
+            ((LargeState) ctx.checkpoint()).values[100] = i;
+            assertTrue(fixture.save(ctx));
+            assertTrue(Files.size(file) < baseSize + i * baseSize / 10);
+        }
+        assertTrue(Files.size(file) > baseSize);
+        
+        // Restarting must restore the latest state from the chain
+        fixture.close();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 1, x -> { }, 3);
+        ctx = fixture.restore(self);
+        assertEquals(3, ((LargeState) ctx.checkpoint()).values[100]);
+        
+        // Rebase once rebaseInterval deltas are chained
+        ((LargeState) ctx.checkpoint()).values[200] = 4;
+        assertTrue(fixture.save(ctx));
+        assertEquals(baseSize, Files.size(file));
+        
+        ctx = fixture.restore(self);
+        assertEquals(3, ((LargeState) ctx.checkpoint()).values[100]);
+        assertEquals(4, ((LargeState) ctx.checkpoint()).values[200]);
+    }
+
+    @Test
+    public void mustWorkOutDeltasFromChainOnDisk() throws Exception {
+        Address self = Address.fromString("test1:test2");
+        Path file = path.resolve("saved").resolve("test1%3Atest2");
+        SourceContext ctx = new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self);
+        ctx.checkpoint(new LargeState(new int[16384]));
+        assertTrue(fixture.save(ctx)); // saved in full, not as a chain
+        
+        // A delta can't be appended to a full save made without incremental checkpointing, so this must re-base
+        fixture.close();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 1, x -> { }, 3);
+        ctx = fixture.restore(self);
+        ((LargeState) ctx.checkpoint()).values[100] = 1;
+        assertTrue(fixture.save(ctx));
+        long baseSize = Files.size(file);
+        assertEquals(1, ((LargeState) fixture.restore(self).checkpoint()).values[100]);
+        
+        // A fresh instance has nothing in memory about the actor, but still only appends the changed chunk
+        fixture.close();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 1, x -> { }, 3);
+        ((LargeState) ctx.checkpoint()).values[100] = 2;
+        assertTrue(fixture.save(ctx));
+        assertTrue(Files.size(file) > baseSize);
+        assertTrue(Files.size(file) < baseSize + baseSize / 10);
+        assertEquals(2, ((LargeState) fixture.restore(self).checkpoint()).values[100]);
+    }
+
+    @Test
+    public void mustRestoreLastCompleteSaveIfIncrementalSaveTorn() throws Exception {
+        fixture.close();
+        fixture = FileSystemCheckpointer.create(new ObjectStreamSerializer(), path, true, 1, x -> { }, 3);
+        
+        Address self = Address.fromString("test1:test2");
+        Path file = path.resolve("saved").resolve("test1%3Atest2");
+        SourceContext ctx = new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self);
+        ctx.checkpoint(new LargeState(new int[16384]));
+        assertTrue(fixture.save(ctx));
+        long baseSize = Files.size(file);
+        
+        ctx = fixture.restore(self);
+        ((LargeState) ctx.checkpoint()).values[100] = 1;
+        assertTrue(fixture.save(ctx));
+        
+        byte[] data = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(data, data.length - 1));
+        
+        ctx = fixture.restore(self);
+        assertEquals(0, ((LargeState) ctx.checkpoint()).values[100]);
+        
+        // Next save must start a new chain rather than appending to the torn one
+        ((LargeState) ctx.checkpoint()).values[100] = 2;
+        assertTrue(fixture.save(ctx));
+        assertEquals(baseSize, Files.size(file));
+        assertEquals(2, ((LargeState) fixture.restore(self).checkpoint()).values[100]);
+    }
     
+    private static final class LargeState implements CheckpointRestoreLogic, Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] values;
+
+        LargeState(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public void perform(Context ctx) {
+            // do nothing
+        }
+    }
 }
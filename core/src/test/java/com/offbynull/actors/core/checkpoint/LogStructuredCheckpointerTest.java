@@ -0,0 +1,345 @@
+package com.offbynull.actors.core.checkpoint;
+
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.context.Context.CheckpointRestoreLogic;
+import com.offbynull.actors.core.context.ObjectStreamSerializer;
+import com.offbynull.actors.core.context.SourceContext;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.coroutines.user.Coroutine;
+import com.offbynull.coroutines.user.CoroutineRunner;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.WRITE;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+
+public class LogStructuredCheckpointerTest {
+    
+    public LogStructuredCheckpointer fixture;
+    public Path path;
+    public Path file;
+    
+    @Before
+    public void before() throws Exception {
+        path = Files.createTempDirectory("lsc_test");
+        file = path.resolve("actors.log");
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file);
+    }
+    
+    @After
+    public void after() throws Exception {
+        fixture.close();
+        FileUtils.deleteDirectory(path.toFile());
+    }
+
+    @Test
+    public void mustSaveAndRestoreContextOnlyOnce() throws Exception {
+        Address self = Address.fromString("test1:test2");
+        assertTrue(fixture.save(context(self, 1)));
+        
+        SourceContext ctxOut = fixture.restore(self);
+        assertEquals(self, ctxOut.self());
+        assertEquals(1, value(ctxOut));
+        
+        assertNull(fixture.restore(self));
+    }
+
+    @Test
+    public void mustNotRestoreDeletedContext() throws Exception {
+        Address self = Address.fromString("test1:test2");
+        assertTrue(fixture.save(context(self, 1)));
+        fixture.delete(self);
+        
+        assertNull(fixture.restore(self));
+    }
+
+    @Test
+    public void mustRestoreRunningActorsOnlyIfRequested() throws Exception {
+        Address self = Address.fromString("test1:test2");
+        assertTrue(fixture.save(context(self, 1)));
+        assertNotNull(fixture.restore(self));
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, false);
+        assertNull(fixture.restore(self));
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true);
+        assertEquals(1, value(fixture.restore(self)));
+    }
+
+    @Test
+    public void mustDiscardTornTransactionOnOpen() throws Exception {
+        Address self1 = Address.fromString("test1:a");
+        Address self2 = Address.fromString("test1:b");
+        assertTrue(fixture.save(context(self1, 1)));
+        assertTrue(fixture.save(context(self2, 2)));
+        fixture.close();
+        
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(channel.size() - 10L);
+        }
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file);
+        assertNull(fixture.restore(self2));
+        assertEquals(1, value(fixture.restore(self1)));
+        
+        assertTrue(fixture.save(context(self2, 3))); // must be able to append after the discarded transaction
+        fixture.close();
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file);
+        assertEquals(3, value(fixture.restore(self2)));
+    }
+
+    @Test
+    public void mustListByPrefix() throws Exception {
+        for (String str : Arrays.asList("a", "a:x", "a:y", "a:y:z", "ab:x", "b:x")) {
+            assertTrue(fixture.save(context(Address.fromString(str), 0)));
+        }
+        assertNotNull(fixture.restore(Address.fromString("a:x")));
+        
+        assertEquals(
+                Arrays.asList(Address.fromString("a"), Address.fromString("a:y"), Address.fromString("a:y:z")),
+                fixture.list(Address.fromString("a")));
+        assertEquals(6 - 1, fixture.list(Address.of()).size());
+    }
+
+    @Test(timeout = 10000L)
+    public void mustCompactAndKeepLatestValues() throws Exception {
+        fixture.close();
+        Files.delete(file);
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, 0L);
+        
+        Address self1 = Address.fromString("test1:a");
+        Address self2 = Address.fromString("test1:b");
+        assertTrue(fixture.save(context(self2, -1)));
+        assertNotNull(fixture.restore(self2)); // claimed entries must stay claimed through compaction
+        
+        assertTrue(fixture.save(context(self1, 0)));
+        long size = Files.size(file);
+        for (int i = 1; i < 100; i++) {
+            assertTrue(fixture.save(context(self1, i)));
+        }
+        while (Files.size(file) > 2L * size) { // compaction happens in the background
+            Thread.sleep(10L);
+        }
+        
+        assertNull(fixture.restore(self2));
+        assertEquals(99, value(fixture.restore(self1)));
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, false);
+        assertNull(fixture.restore(self1));
+        assertNull(fixture.restore(self2));
+    }
+
+    @Test(timeout = 10000L)
+    public void mustListMostRecentlySavedFirstThroughCompaction() throws Exception {
+        fixture.close();
+        Files.delete(file);
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, 0L);
+        
+        for (String str : Arrays.asList("test1:a", "test1:b", "test1:c", "test1:d")) {
+            assertTrue(fixture.save(context(Address.fromString(str), 0)));
+        }
+        long size = Files.size(file);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(fixture.save(context(Address.fromString("test1:b"), i))); // enough dead data to trigger compaction
+        }
+        while (Files.size(file) > 2L * size) { // compaction happens in the background
+            Thread.sleep(10L);
+        }
+        assertNotNull(fixture.restore(Address.fromString("test1:c")));
+        
+        assertEquals(
+                Arrays.asList(Address.fromString("test1:b"), Address.fromString("test1:d")),
+                fixture.listRecent(2));
+        assertEquals(
+                Arrays.asList(Address.fromString("test1:b"), Address.fromString("test1:d"), Address.fromString("test1:a")),
+                fixture.listRecent(10));
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, false);
+        assertEquals(
+                Arrays.asList(Address.fromString("test1:b"), Address.fromString("test1:d"), Address.fromString("test1:a")),
+                fixture.listRecent(10));
+    }
+
+    @Test(timeout = 10000L)
+    public void mustCommitConcurrentSaves() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Address self = Address.of("test1", "a" + i);
+                int value = i;
+                futures.add(executor.submit(() -> fixture.save(context(self, value))));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, value(fixture.restore(Address.of("test1", "a" + i))));
+        }
+    }
+    
+    @Test(timeout = 20000L)
+    public void mustKeepCommitsMadeWhileCompacting() throws Exception {
+        assertKeepsCommitsMadeWhileCompacting(LogStore.DEFAULT_MEMTABLE_LIMIT);
+    }
+    
+    @Test(timeout = 20000L)
+    public void mustKeepCommitsMadeWhileCompactingAndWritingOutIndex() throws Exception {
+        assertKeepsCommitsMadeWhileCompacting(4);
+    }
+    
+    @Test(timeout = 10000L)
+    public void mustKeepIndexOnDisk() throws Exception {
+        fixture.close();
+        Files.delete(file);
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, Long.MAX_VALUE, 4);
+        
+        List<Address> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Address self = Address.fromString(String.format("test1:a%03d", i));
+            assertTrue(fixture.save(context(self, i)));
+            if (i % 10 == 0) {
+                assertEquals(i, value(fixture.restore(self)));
+            } else if (i % 7 == 0) {
+                fixture.delete(self);
+            } else {
+                expected.add(self);
+            }
+        }
+        try (Stream<Path> indexFiles = Files.list(path.resolve("actors.log.index"))) {
+            assertTrue(indexFiles.anyMatch(p -> p.getFileName().toString().startsWith("segment-")));
+        }
+        
+        List<Address> recent = Arrays.asList(Address.fromString("test1:a499"), Address.fromString("test1:a498"),
+                Address.fromString("test1:a496"));
+        assertEquals(expected, fixture.list(Address.fromString("test1")));
+        assertEquals(recent, fixture.listRecent(3));
+        assertNull(fixture.restore(Address.fromString("test1:a010")));
+        assertNull(fixture.restore(Address.fromString("test1:a007")));
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, false, Long.MAX_VALUE, 4);
+        assertEquals(expected, fixture.list(Address.fromString("test1")));
+        assertEquals(recent, fixture.listRecent(3));
+        for (Address self : expected) {
+            assertEquals(Integer.parseInt(self.getElement(1).substring(1)), value(fixture.restore(self)));
+        }
+        assertNull(fixture.restore(Address.fromString("test1:a010")));
+        assertNull(fixture.restore(Address.fromString("test1:a007")));
+    }
+    
+    @Test(timeout = 10000L)
+    public void mustRebuildIndexIfMissing() throws Exception {
+        fixture.close();
+        Files.delete(file);
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, Long.MAX_VALUE, 4);
+        
+        for (int i = 0; i < 100; i++) {
+            assertTrue(fixture.save(context(Address.of("test1", "a" + i), i)));
+        }
+        assertNotNull(fixture.restore(Address.of("test1", "a5")));
+        fixture.close();
+        
+        FileUtils.deleteDirectory(path.resolve("actors.log.index").toFile());
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, false, Long.MAX_VALUE, 4);
+        assertEquals(Arrays.asList(Address.of("test1", "a99"), Address.of("test1", "a98")), fixture.listRecent(2));
+        assertNull(fixture.restore(Address.of("test1", "a5")));
+        for (int i = 0; i < 100; i++) {
+            if (i != 5) {
+                assertEquals(i, value(fixture.restore(Address.of("test1", "a" + i))));
+            }
+        }
+    }
+    
+    private void assertKeepsCommitsMadeWhileCompacting(int memtableLimit) throws Exception {
+        fixture.close();
+        Files.delete(file);
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, 0L, memtableLimit);
+        
+        // Each thread overwrites its own keys over and over, so compaction keeps getting triggered while other saves are going on
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        if (!fixture.save(context(Address.of("test1", "a" + thread + "_" + (i % 10)), i))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        for (int t = 0; t < 4; t++) {
+            for (int j = 0; j < 10; j++) {
+                Address self = Address.of("test1", "a" + t + "_" + j);
+                assertEquals(490 + j, value(fixture.restore(self)));
+            }
+        }
+        fixture.close();
+        
+        fixture = LogStructuredCheckpointer.create(new ObjectStreamSerializer(), file, true, 0L, memtableLimit);
+        for (int t = 0; t < 4; t++) {
+            for (int j = 0; j < 10; j++) {
+                Address self = Address.of("test1", "a" + t + "_" + j);
+                assertEquals(490 + j, value(fixture.restore(self)));
+            }
+        }
+    }
+    
+    private static SourceContext context(Address self, int value) {
+        SourceContext ctx = new SourceContext(new CoroutineRunner((Coroutine & Serializable) cnt -> {}), self);
+        ctx.checkpoint(new State(value));
+        return ctx;
+    }
+    
+    private static int value(SourceContext ctx) {
+        return ((State) ctx.checkpoint()).value;
+    }
+    
+    private static final class State implements CheckpointRestoreLogic, Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final int value;
+
+        State(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public void perform(Context ctx) {
+            // do nothing
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void mustReturnNullWhenEmpty() {
+        ConsistentHashRing ring = ConsistentHashRing.create(Arrays.asList(), 16);
+        assertNull(ring.locate("key"));
+    }
+
+    @Test
+    public void mustSpreadKeysAcrossNodes() {
+        ConsistentHashRing ring = ConsistentHashRing.create(Arrays.asList("a", "b", "c", "d"), 128);
+        
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            counts.merge(ring.locate("actor" + i), 1, Integer::sum);
+        }
+        
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("Uneven spread: " + counts, count > 1500 && count < 3500);
+        }
+    }
+
+    @Test
+    public void mustOnlyMoveKeysOfRemovedNode() {
+        ConsistentHashRing before = ConsistentHashRing.create(Arrays.asList("a", "b", "c", "d"), 128);
+        ConsistentHashRing after = ConsistentHashRing.create(Arrays.asList("a", "b", "d"), 128);
+        
+        for (int i = 0; i < 10000; i++) {
+            String key = "actor" + i;
+            String oldNode = before.locate(key);
+            String newNode = after.locate(key);
+            if (!oldNode.equals("c")) {
+                assertEquals(oldNode, newNode);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.cluster;
+
+import com.offbynull.actors.core.ActorSystem;
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.gateways.direct.DirectGateway;
+import com.offbynull.actors.core.gateways.tcp.TcpGateway;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.coroutines.user.Coroutine;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RoutingGatewayTest {
+
+    private static final Coroutine ECHOER = cnt -> {
+        Context ctx = (Context) cnt.getContext();
+        ctx.allow();
+
+        while (true) {
+            cnt.suspend();
+            ctx.out(ctx.self(), ctx.source(), ctx.self().toString());
+        }
+    };
+
+    @Test(timeout = 5000L)
+    public void mustRouteToActorsOnWhicheverNodeTheyArePlaced() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        TcpGateway tcpA = TcpGateway.create("tcp", "a", loopback);
+        TcpGateway tcpB = TcpGateway.create("tcp", "b", loopback);
+        tcpA.addRemote("b", tcpB.getLocalAddress());
+        tcpB.addRemote("a", tcpA.getLocalAddress());
+        
+        Directory directoryA = Directory.create();
+        directoryA.addNode("a", Address.of("runner"));
+        directoryA.addNode("b", Address.of("tcp", "b", "runner"));
+        Directory directoryB = Directory.create();
+        directoryB.addNode("a", Address.of("tcp", "a", "runner"));
+        directoryB.addNode("b", Address.of("runner"));
+        
+        // Find an actor id placed on each node
+        String idOnA = null;
+        String idOnB = null;
+        for (int i = 0; idOnA == null || idOnB == null; i++) {
+            String id = "echoer" + i;
+            assertEquals(directoryA.locateNode(id), directoryB.locateNode(id));
+            if (directoryA.locateNode(id).equals("a")) {
+                idOnA = id;
+            } else {
+                idOnB = id;
+            }
+        }
+
+        try (ActorSystem systemA = ActorSystem.builder()
+                        .withRunnerCoreCount(1)
+                        .withGateway(tcpA)
+                        .withGateway(RoutingGateway.create("cluster", directoryA))
+                        .withActor(idOnA, ECHOER, new Object())
+                        .build();
+                ActorSystem systemB = ActorSystem.builder()
+                        .withRunnerCoreCount(1)
+                        .withGateway(tcpB)
+                        .withGateway(RoutingGateway.create("cluster", directoryB))
+                        .withActor(idOnB, ECHOER, new Object())
+                        .build()) {
+            DirectGateway directA = systemA.getDirectGateway();
+            
+            assertEquals("runner:" + idOnA, ask(directA, "cluster:" + idOnA));
+            assertEquals("runner:" + idOnB, ask(directA, "cluster:" + idOnB));
+        }
+    }
+    
+    // Keep asking until there's a response -- the actor may not have finished starting up (allowing messages in) when the first message
+    // arrives
+    private static String ask(DirectGateway direct, String destination) throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                return direct.<String>ask(destination, "hi", 100L, TimeUnit.MILLISECONDS).get();
+            } catch (ExecutionException ee) {
+                if (!(ee.getCause() instanceof TimeoutException)) {
+                    throw ee;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mustDiscardCachedPlacementsWhenMembershipChanges() {
+        Directory directory = Directory.create();
+        directory.addNode("a", Address.of("runner"));
+        RoutingShuttle shuttle = new RoutingShuttle("cluster", directory, new HashMap<>());
+        
+        assertEquals(Address.of("runner", "worker"), shuttle.route("worker"));
+        
+        directory.removeNode("a");
+        directory.addNode("b", Address.of("tcp", "b", "runner"));
+        assertEquals(Address.of("tcp", "b", "runner", "worker"), shuttle.route("worker"));
+    }
+
+    @Test
+    public void mustTerminateWhenAddingOutgoingShuttleWithSameName() {
+        Directory directory = Directory.create();
+        directory.addNode("a", Address.of("runner"));
+        RoutingGateway gateway = RoutingGateway.create("cluster", directory);
+        
+        List<Message> sent = new ArrayList<>();
+        Shuttle runnerShuttle = new Shuttle() {
+            @Override
+            public String getPrefix() {
+                return "runner";
+            }
+
+            @Override
+            public void send(Collection<Message> messages) {
+                sent.addAll(messages);
+            }
+        };
+        gateway.addOutgoingShuttle(runnerShuttle);
+        gateway.addOutgoingShuttle(runnerShuttle);
+        
+        gateway.getIncomingShuttle().send(Collections.singletonList(new Message(Address.of("src"), Address.of("cluster", "worker"), "hi")));
+        assertTrue(sent.isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package com.offbynull.actors.core.context;
+
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.coroutines.user.Coroutine;
+import com.offbynull.coroutines.user.CoroutineRunner;
+import java.time.Instant;
+
+// Measures the memory retained by idle actors (actors sitting in memory waiting for their next message). Not run as part of the test
+// suite. Run manually with a large enough heap, e.g.
+//
+//   java -Xmx4g -cp <test classpath> com.offbynull.actors.core.context.SourceContextMemoryBenchmark 1000000
+public final class SourceContextMemoryBenchmark {
+
+    private SourceContextMemoryBenchmark() {
+        // do nothing
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Coroutine actor = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("runner:peer", "ready");
+            while (true) {
+                cnt.suspend();
+            }
+        };
+        Address[] addresses = new Address[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = Address.of("runner", "actor" + i);
+        }
+
+        System.out.println("Actors: " + count);
+
+        long baseline = usedMemory();
+        SourceContext[] contexts = new SourceContext[count];
+        for (int i = 0; i < count; i++) {
+            contexts[i] = create(actor, addresses[i]);
+        }
+        report("Created (not primed)", usedMemory() - baseline, count);
+
+        // Prime each actor, then drain what it sent out -- same as what ActorRunner does once an actor has processed a message
+        for (int i = 0; i < count; i++) {
+            SourceContext ctx = contexts[i];
+            SourceContext.fire(ctx, addresses[i], addresses[i], Instant.EPOCH, "prime");
+            ctx.copyAndClearOutgoingMessages();
+            ctx.copyAndClearNewRoots();
+        }
+        long idle = usedMemory() - baseline;
+        report("Idle (primed)", idle, count);
+        
+        System.out.println(contexts.length); // keep contexts reachable until measured
+        contexts = null;
+
+        // For comparison, the memory retained by the same number of bare suspended coroutines (no context) -- this part is owned by the
+        // coroutines library, not by SourceContext
+        Coroutine bareActor = cnt -> {
+            while (true) {
+                cnt.suspend();
+            }
+        };
+        baseline = usedMemory();
+        CoroutineRunner[] runners = new CoroutineRunner[count];
+        for (int i = 0; i < count; i++) {
+            runners[i] = new CoroutineRunner(bareActor);
+            runners[i].execute();
+        }
+        long bare = usedMemory() - baseline;
+        report("Bare coroutine (primed)", bare, count);
+        report("Context overhead", idle - bare, count);
+
+        System.out.println(runners.length); // keep runners reachable until measured
+    }
+
+    private static SourceContext create(Coroutine actor, Address self) {
+        CoroutineRunner runner = new CoroutineRunner(actor);
+        SourceContext ctx = new SourceContext(runner, self);
+        runner.setContext(ctx.toNormalContext());
+        return ctx;
+    }
+
+    private static void report(String name, long bytes, int count) {
+        System.out.printf("%-24s %8.1f bytes/actor%n", name, (double) bytes / count);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,9 +1,15 @@
 package com.offbynull.actors.core.context;
 
+import com.offbynull.actors.core.context.Context.SuspendFlag;
+import com.offbynull.coroutines.user.Coroutine;
 import com.offbynull.coroutines.user.CoroutineRunner;
 import com.offbynull.actors.core.shuttle.Address;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -67,5 +73,99 @@ public class SourceContextTest {
         assertEquals(Address.fromString("test3"), outgoingMsgs.get(2).getDestination());
         assertEquals("3", outgoingMsgs.get(2).getMessage());
     }
+
+    @Test
+    public void mustRouteDirectlyToDeepChildAndStopRoutingOnceChildFinishes() {
+        List<String> fired = new ArrayList<>();
+        Coroutine leaf = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            cnt.suspend();
+            fired.add(ctx.self() + " " + ctx.in());
+        };
+        Coroutine[] node = new Coroutine[1];
+        node[0] = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            if (ctx.self().size() < 4) {
+                ctx.child("c", ctx.self().size() < 3 ? node[0] : leaf, "prime");
+            }
+            while (true) {
+                cnt.suspend();
+                fired.add(ctx.self() + " " + ctx.in());
+            }
+        };
+        
+        SourceContext root = createRoot(node[0]);
+        fireAll(root);
+        
+        Address leafAddr = Address.fromString("self:c:c:c");
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), leafAddr, Instant.EPOCH, "hi"));
+        assertEquals(Arrays.asList("self:c:c:c hi"), fired);
+        
+        // leaf finished so it's gone -- further messages must go nowhere
+        assertFalse(root.getChildContext("c").getChildContext("c").isChild("c"));
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), leafAddr, Instant.EPOCH, "hi"));
+        assertEquals(Arrays.asList("self:c:c:c hi"), fired);
+        
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), Address.fromString("self:c:c"), Instant.EPOCH, "hello"));
+        assertEquals(Arrays.asList("self:c:c:c hi", "self:c:c hello"), fired);
+    }
+
+    @Test
+    public void mustRouteThroughInterceptingAncestor() {
+        List<String> fired = new ArrayList<>();
+        Coroutine child = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            while (true) {
+                cnt.suspend();
+                fired.add(ctx.self() + " " + ctx.in());
+            }
+        };
+        Coroutine parent = cnt -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.child("c", child, "prime");
+            cnt.suspend();
+            
+            ctx.intercept(true);
+            while (true) {
+                cnt.suspend();
+                fired.add(ctx.self() + " " + ctx.in());
+                ctx.mode(SuspendFlag.FORWARD_AND_RELEASE);
+            }
+        };
+        
+        SourceContext root = createRoot(parent);
+        fireAll(root);
+        
+        Address childAddr = Address.fromString("self:c");
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), childAddr, Instant.EPOCH, "1"));
+        assertEquals(Arrays.asList("self:c 1"), fired);
+        
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), Address.fromString("self"), Instant.EPOCH, "start"));
+        fired.clear();
+        assertFalse(SourceContext.fire(root, Address.fromString("src"), childAddr, Instant.EPOCH, "2"));
+        assertEquals(Arrays.asList("self 2", "self:c 2"), fired);
+    }
+    
+    private static SourceContext createRoot(Coroutine actor) {
+        Address self = Address.fromString("self");
+        CoroutineRunner runner = new CoroutineRunner(actor);
+        SourceContext ctx = new SourceContext(runner, self);
+        runner.setContext(ctx);
+        ctx.out(self, self, "prime");
+        return ctx;
+    }
     
+    private static void fireAll(SourceContext root) {
+        // deliver priming messages (children prime themselves as they're created)
+        List<BatchedOutgoingMessage> outs;
+        while (!(outs = root.copyAndClearOutgoingMessages()).isEmpty()) {
+            for (BatchedOutgoingMessage out : outs) {
+                SourceContext.fire(root, out.getSource(), out.getDestination(), Instant.EPOCH, out.getMessage());
+            }
+        }
+    }
 }
@@ -4,6 +4,18 @@ import com.offbynull.coroutines.user.Coroutine;
 import com.offbynull.actors.core.actor.ActorRunner;
 import com.offbynull.actors.core.context.Context;
 import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -36,4 +48,224 @@ public class DirectGatewayTest {
             Assert.assertEquals("echotest", directGateway.readMessages().get(0).getMessage());
         }
     }
+
+    @Test(timeout = 2000L)
+    public void mustCompleteAskWithResponse() throws Exception {
+        Coroutine echoerActor = (cnt) -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+            
+            while (true) {
+                cnt.suspend();
+                ctx.out(ctx.source(), ctx.in());
+            }
+        };
+
+        try (ActorRunner actorRunner = ActorRunner.create("actors", 1);
+                DirectGateway directGateway = DirectGateway.create("direct")) {            
+            directGateway.addOutgoingShuttle(actorRunner.getIncomingShuttle());
+            actorRunner.addOutgoingShuttle(directGateway.getIncomingShuttle());
+
+            actorRunner.addActor("echoer", echoerActor, new Object());
+            Assert.assertEquals("ready", directGateway.readMessagePayloadOnly());
+
+            CompletableFuture<String> future1 = directGateway.ask("actors:echoer", "echotest1", 1L, TimeUnit.MINUTES);
+            CompletableFuture<String> future2 = directGateway.ask("actors:echoer", "echotest2", 1L, TimeUnit.MINUTES);
+            Assert.assertEquals("echotest2", future2.get());
+            Assert.assertEquals("echotest1", future1.get());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustTimeoutAskWithNoResponse() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            CompletableFuture<String> future = directGateway.ask("actors:missing", "echotest", 100L, TimeUnit.MILLISECONDS);
+            try {
+                future.get();
+                Assert.fail();
+            } catch (ExecutionException ee) {
+                Assert.assertTrue(ee.getCause() instanceof TimeoutException);
+            }
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustAcceptTimeoutsTooLargeForADeadline() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            directGateway.addOutgoingShuttle(directGateway.getIncomingShuttle()); // loop back, so the gateway answers its own asks
+            
+            CompletableFuture<String> future = directGateway.ask("direct:echoer", "echotest", Long.MAX_VALUE, TimeUnit.DAYS);
+            Message request = directGateway.readMessage();
+            directGateway.writeMessage(request.getDestinationAddress(), request.getSourceAddress(), "echo");
+            Assert.assertEquals("echo", future.get());
+            
+            DirectChannel channel = directGateway.openChannel(Long.MAX_VALUE, TimeUnit.DAYS);
+            directGateway.writeMessage(Address.fromString("direct:sender"), channel.getAddress(), "hi");
+            Assert.assertEquals("hi", channel.readMessagePayloadOnly());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustCancelAskOnClosedGateway() throws Exception {
+        DirectGateway directGateway = DirectGateway.create("direct");
+        directGateway.close();
+        
+        CompletableFuture<String> future = directGateway.ask("actors:echoer", "echotest", 1L, TimeUnit.MINUTES);
+        Assert.assertTrue(future.isCancelled());
+    }
+
+    @Test(timeout = 2000L, expected = IllegalArgumentException.class)
+    public void mustRejectWritesFromReservedSuffix() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            directGateway.writeMessage("direct:$ask0", "actors:echoer", "echotest");
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustPassIncomingMessagesToSubscribedListener() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            LinkedBlockingQueue<Message> received = new LinkedBlockingQueue<>();
+            Consumer<Message> listener = received::add;
+            
+            directGateway.subscribe(listener);
+            directGateway.getIncomingShuttle().send(new Message(Address.of("src"), Address.of("direct"), "hi"));
+            Assert.assertEquals("hi", received.take().getMessage());
+
+            directGateway.unsubscribe(listener);
+            directGateway.getIncomingShuttle().send(new Message(Address.of("src"), Address.of("direct"), "bye"));
+            Assert.assertEquals("bye", directGateway.readMessagePayloadOnly());
+            Assert.assertTrue(received.isEmpty());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustRouteMessagesToTheChannelTheyWereSentTo() throws Exception {
+        Coroutine echoerActor = (cnt) -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+            
+            while (true) {
+                cnt.suspend();
+                ctx.out(ctx.source(), ctx.in());
+            }
+        };
+
+        try (ActorRunner actorRunner = ActorRunner.create("actors", 1);
+                DirectGateway directGateway = DirectGateway.create("direct")) {            
+            directGateway.addOutgoingShuttle(actorRunner.getIncomingShuttle());
+            actorRunner.addOutgoingShuttle(directGateway.getIncomingShuttle());
+
+            actorRunner.addActor("echoer", echoerActor, new Object());
+            Assert.assertEquals("ready", directGateway.readMessagePayloadOnly());
+
+            try (DirectChannel channel1 = directGateway.openChannel();
+                    DirectChannel channel2 = directGateway.openChannel()) {
+                channel1.writeMessage("actors:echoer", "echotest1");
+                channel2.writeMessage("actors:echoer", "echotest2");
+                Assert.assertEquals("echotest2", channel2.readMessagePayloadOnly());
+                Assert.assertEquals("echotest1", channel1.readMessagePayloadOnly());
+            }
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustNotRouteUserPickedSuffixesToChannels() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct");
+                DirectChannel channel = directGateway.openChannel()) {
+            Assert.assertTrue(channel.getAddress().getElement(1).startsWith("$"));
+            
+            directGateway.getIncomingShuttle().send(new Message(Address.of("src"), Address.of("direct", "channel0"), "hi"));
+            Assert.assertEquals("hi", directGateway.readMessagePayloadOnly());
+            Assert.assertNull(channel.readMessage(0L, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustStopRoutingToChannelOnceExpired() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            DirectChannel channel = directGateway.openChannel(100L, TimeUnit.MILLISECONDS);
+            Thread.sleep(200L);
+            
+            directGateway.getIncomingShuttle().send(new Message(Address.of("src"), channel.getAddress(), "hi"));
+            Assert.assertEquals("hi", directGateway.readMessagePayloadOnly());
+            Assert.assertNull(channel.readMessage(0L, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustWriteBulkMessagesAsOneBatchPerOutgoingShuttle() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            LinkedBlockingQueue<Collection<Message>> batchesA = new LinkedBlockingQueue<>();
+            LinkedBlockingQueue<Collection<Message>> batchesB = new LinkedBlockingQueue<>();
+            directGateway.addOutgoingShuttle(new CapturingShuttle("a", batchesA));
+            directGateway.addOutgoingShuttle(new CapturingShuttle("b", batchesB));
+
+            directGateway.writeMessages(Arrays.asList(
+                    new Message(Address.of("direct"), Address.of("a", "1"), "a1"),
+                    new Message(Address.of("direct"), Address.of("b", "1"), "b1"),
+                    new Message(Address.of("direct"), Address.of("a", "2"), "a2"),
+                    new Message(Address.of("direct"), Address.of("missing"), "x")));
+
+            Assert.assertEquals(1, batchesA.size());
+            Assert.assertEquals(1, batchesB.size());
+            Assert.assertEquals(Arrays.asList("a1", "a2"), payloads(batchesA.take()));
+            Assert.assertEquals(Arrays.asList("b1"), payloads(batchesB.take()));
+
+            directGateway.removeOutgoingShuttle("a");
+            directGateway.writeMessage("a:1", "dropped");
+            Assert.assertTrue(batchesA.isEmpty());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustTerminateWhenAddingOutgoingShuttleWithSameName() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            LinkedBlockingQueue<Collection<Message>> batches = new LinkedBlockingQueue<>();
+            directGateway.addOutgoingShuttle(new CapturingShuttle("a", batches));
+            directGateway.addOutgoingShuttle(new CapturingShuttle("a", batches));
+
+            directGateway.writeMessage("a:1", "dropped");
+            Assert.assertTrue(batches.isEmpty());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustTerminateWhenRemovingOutgoingShuttleThatDoesntExist() throws Exception {
+        try (DirectGateway directGateway = DirectGateway.create("direct")) {
+            LinkedBlockingQueue<Collection<Message>> batches = new LinkedBlockingQueue<>();
+            directGateway.addOutgoingShuttle(new CapturingShuttle("a", batches));
+            directGateway.removeOutgoingShuttle("missing");
+
+            directGateway.writeMessage("a:1", "dropped");
+            Assert.assertTrue(batches.isEmpty());
+        }
+    }
+
+    private static List<Object> payloads(Collection<Message> messages) {
+        List<Object> ret = new ArrayList<>();
+        messages.forEach(m -> ret.add(m.getMessage()));
+        return ret;
+    }
+
+    private static final class CapturingShuttle implements Shuttle {
+        private final String prefix;
+        private final LinkedBlockingQueue<Collection<Message>> batches;
+
+        CapturingShuttle(String prefix, LinkedBlockingQueue<Collection<Message>> batches) {
+            this.prefix = prefix;
+            this.batches = batches;
+        }
+
+        @Override
+        public String getPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public void send(Collection<Message> messages) {
+            batches.add(new ArrayList<>(messages));
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.actor.ActorRunner;
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.coroutines.user.Coroutine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class LogGatewayTest {
+
+    @Test(timeout = 2000L)
+    public void mustPassEnabledRecordsToSinkInBatches() throws Exception {
+        LinkedBlockingQueue<List<LogRecord>> batches = new LinkedBlockingQueue<>();
+        LogSink sink = new LogSink() {
+            @Override
+            public boolean isEnabled(Type type) {
+                return type != Type.DEBUG;
+            }
+
+            @Override
+            public void write(List<LogRecord> records) {
+                batches.add(new ArrayList<>(records));
+            }
+        };
+
+        try (LogGateway fixture = LogGateway.create("log", sink)) {
+            Address src = Address.fromString("actor:a");
+            Address dst = Address.fromString("log");
+            fixture.getIncomingShuttle().send(Arrays.asList(
+                    new Message(src, dst, LogMessage.info("one {}", 1)),
+                    new Message(src, dst, LogMessage.debug("two {}", 2)),
+                    new Message(src, dst, LogMessage.error("three {}", 3))));
+
+            List<LogRecord> batch = batches.take();
+            assertEquals(2, batch.size());
+            assertEquals(Type.INFO, batch.get(0).getType());
+            assertEquals("one {}", batch.get(0).getMessage());
+            assertEquals(Arrays.asList("1"), batch.get(0).getArguments());
+            assertEquals(src, batch.get(0).getSource());
+            assertEquals(Type.ERROR, batch.get(1).getType());
+            assertEquals(Arrays.asList("3"), batch.get(1).getArguments());
+        }
+    }
+
+    @Test(timeout = 2000L)
+    public void mustNotSendLogMessagesForLevelsDisabledBySink() throws Exception {
+        LogSink sink = new LogSink() {
+            @Override
+            public boolean isEnabled(Type type) {
+                return type.compareTo(Type.INFO) >= 0;
+            }
+
+            @Override
+            public void write(List<LogRecord> records) {
+                // do nothing
+            }
+        };
+
+        LinkedBlockingQueue<Message> sent = new LinkedBlockingQueue<>();
+        Shuttle logShuttle = new Shuttle() {
+            @Override
+            public String getPrefix() {
+                return "log";
+            }
+
+            @Override
+            public void send(Collection<Message> messages) {
+                sent.addAll(messages);
+            }
+        };
+
+        try (LogGateway fixture = LogGateway.create("log", sink);
+                ActorRunner runner = ActorRunner.create("actors", 1)) {
+            LogLevelFilter filter = fixture.getLogLevelFilter();
+            while (filter.isEnabled(Type.DEBUG)) { // wait for gateway to publish sink's levels
+                Thread.sleep(10L);
+            }
+            assertTrue(filter.isEnabled(Type.INFO));
+
+            runner.addOutgoingShuttle(logShuttle);
+            runner.setLogLevelFilter(filter);
+            runner.addActor("logger", (Coroutine) cnt -> {
+                Context ctx = (Context) cnt.getContext();
+                ctx.logDebug("debug {}", 1);
+                ctx.logInfo("info {}", 2);
+                ctx.logTrace("trace {}", 3);
+                ctx.logError("error {}", 4);
+            }, new Object());
+
+            assertEquals(Arrays.asList("2"), ((LogMessage) sent.take().getMessage()).getArguments());
+            assertEquals(Arrays.asList("4"), ((LogMessage) sent.take().getMessage()).getArguments());
+            assertTrue(sent.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.offbynull.actors.core.gateways.log;
+
+import com.offbynull.actors.core.gateways.log.LogMessage.Type;
+import com.offbynull.actors.core.shuttle.Address;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class RingFileLogSinkTest {
+
+    private Path path;
+    private Path file;
+
+    @Before
+    public void before() throws Exception {
+        path = Files.createTempDirectory("rfls_test");
+        file = path.resolve("log.ring");
+    }
+
+    @After
+    public void after() throws Exception {
+        FileUtils.deleteDirectory(path.toFile());
+    }
+
+    @Test
+    public void mustWriteAndReadBackRecords() throws Exception {
+        try (RingFileLogSink fixture = RingFileLogSink.create(file, 4096, Type.DEBUG)) {
+            assertFalse(fixture.isEnabled(Type.TRACE));
+            assertTrue(fixture.isEnabled(Type.DEBUG));
+            assertTrue(fixture.isEnabled(Type.ERROR));
+
+            fixture.write(Arrays.asList(
+                    record(1L, "hello {}", "world"),
+                    record(2L, "no args")));
+        }
+
+        List<LogRecord> records = RingFileLogSink.read(file);
+        assertEquals(2, records.size());
+        assertEquals(1L, records.get(0).getTime());
+        assertEquals(Address.fromString("actor:a"), records.get(0).getSource());
+        assertEquals(Type.INFO, records.get(0).getType());
+        assertEquals("hello {}", records.get(0).getMessage());
+        assertEquals(Arrays.asList("world"), records.get(0).getArguments());
+        assertEquals(2L, records.get(1).getTime());
+        assertEquals(Collections.emptyList(), records.get(1).getArguments());
+    }
+
+    @Test
+    public void mustOverwriteOldestRecordsWhenFull() throws Exception {
+        try (RingFileLogSink fixture = RingFileLogSink.create(file, 256, Type.TRACE)) {
+            for (long i = 0L; i < 100L; i++) {
+                fixture.write(Arrays.asList(record(i, "msg {}", "arg" + i)));
+            }
+        }
+
+        List<LogRecord> records = RingFileLogSink.read(file);
+        assertFalse(records.isEmpty());
+        assertTrue(records.size() < 100);
+        for (int i = 0; i < records.size(); i++) {
+            long expected = 100L - records.size() + i;
+            assertEquals(expected, records.get(i).getTime());
+            assertEquals(Arrays.asList("arg" + expected), records.get(i).getArguments());
+        }
+    }
+
+    @Test
+    public void mustAppendToExistingRingFile() throws Exception {
+        try (RingFileLogSink fixture = RingFileLogSink.create(file, 4096, Type.TRACE)) {
+            fixture.write(Arrays.asList(record(1L, "first")));
+        }
+        try (RingFileLogSink fixture = RingFileLogSink.create(file, 4096, Type.TRACE)) {
+            fixture.write(Arrays.asList(record(2L, "second")));
+        }
+
+        List<LogRecord> records = RingFileLogSink.read(file);
+        assertEquals(2, records.size());
+        assertEquals("first", records.get(0).getMessage());
+        assertEquals("second", records.get(1).getMessage());
+    }
+
+    private static LogRecord record(long time, String message, String... args) {
+        return new LogRecord(time, Address.fromString("actor:a"), Type.INFO, message, Arrays.asList(args));
+    }
+}
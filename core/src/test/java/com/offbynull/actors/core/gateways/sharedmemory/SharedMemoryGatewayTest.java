@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.sharedmemory;
+
+import com.offbynull.actors.core.ActorSystem;
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.gateways.direct.DirectGateway;
+import com.offbynull.actors.core.gateways.tcp.ObjectStreamPayloadSerializer;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.actors.core.shuttle.Shuttle;
+import com.offbynull.coroutines.user.Coroutine;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedMemoryGatewayTest {
+
+    private static final Coroutine ECHOER = cnt -> {
+        Context ctx = (Context) cnt.getContext();
+        ctx.allow();
+
+        while (true) {
+            cnt.suspend();
+            ctx.out(ctx.self(), ctx.source(), ctx.in());
+        }
+    };
+    
+    private Path directory;
+    
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+    }
+    
+    @After
+    public void after() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test(timeout = 5000L)
+    public void mustSendAndReceiveBetweenActorSystems() throws Exception {
+        Path aToB = directory.resolve("a_to_b");
+        Path bToA = directory.resolve("b_to_a");
+        
+        // Small ring so that it wraps around and fills up
+        SharedMemoryGateway gatewayA = SharedMemoryGateway.create("shm", aToB, bToA, 4096, new ObjectStreamPayloadSerializer());
+        SharedMemoryGateway gatewayB = SharedMemoryGateway.create("shm", bToA, aToB, 4096, new ObjectStreamPayloadSerializer());
+
+        try (ActorSystem systemA = ActorSystem.builder().withRunnerCoreCount(1).withGateway(gatewayA).build();
+                ActorSystem systemB = ActorSystem.builder()
+                        .withRunnerCoreCount(1)
+                        .withGateway(gatewayB)
+                        .withActor("echoer", ECHOER, new Object())
+                        .build()) {
+            DirectGateway directA = systemA.getDirectGateway();
+            
+            // Keep pinging until there's a response -- the echoer drops messages until it's done starting up (allowing messages in)
+            long pings = 0L;
+            do {
+                directA.writeMessage("direct:tester", "shm:runner:echoer", "ping");
+                pings++;
+            } while (directA.readMessage(100L, TimeUnit.MILLISECONDS) == null);
+            
+            for (int i = 0; i < 1000; i++) {
+                directA.writeMessage("direct:tester", "shm:runner:echoer", i);
+            }
+            
+            for (int i = 0; i < 1000; i++) {
+                Message message = directA.readMessage();
+                if ("ping".equals(message.getMessage())) { // late response to a ping
+                    i--;
+                    continue;
+                }
+                assertEquals("shm:runner:echoer", message.getSourceAddress().toString());
+                assertEquals("direct:tester", message.getDestinationAddress().toString());
+                assertEquals(i, (int) message.getMessage());
+            }
+            
+            assertEquals(1000L + pings, gatewayA.getMetrics().snapshot().getCounters().get("messages.sent").longValue());
+            assertEquals(1000L + pings, gatewayB.getMetrics().snapshot().getCounters().get("messages.received").longValue());
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustSkipCorruptRecords() throws Exception {
+        Path aToB = directory.resolve("a_to_b");
+        Path bToA = directory.resolve("b_to_a");
+        
+        ObjectStreamPayloadSerializer serializer = new ObjectStreamPayloadSerializer();
+        LinkedBlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        try (MappedRing ringA = MappedRing.open(aToB, 4096);
+                SharedMemoryGateway gatewayB = SharedMemoryGateway.create("shm", bToA, aToB, 4096, serializer)) {
+            gatewayB.addOutgoingShuttle(new Shuttle() {
+                @Override
+                public String getPrefix() {
+                    return "x";
+                }
+
+                @Override
+                public void send(Collection<Message> messages) {
+                    received.addAll(messages);
+                }
+            });
+            
+            ByteBuffer hugeCount = ByteBuffer.allocate(4);
+            hugeCount.putInt(Integer.MAX_VALUE).flip();
+            ringA.offer(hugeCount);
+            
+            ByteBuffer truncated = ByteBuffer.allocate(8);
+            truncated.putInt(1).putInt(100).flip();
+            ringA.offer(truncated);
+            
+            ringA.offer(RecordCodec.encode(Address.of("src"), Address.of("x", "y"), serializer.serialize("hi"), ByteBuffer.allocate(256)));
+            
+            Message message = received.take();
+            assertEquals("shm:src", message.getSourceAddress().toString());
+            assertEquals("hi", message.getMessage());
+            assertEquals(2L, gatewayB.getMetrics().snapshot().getCounters().get("messages.dropped").longValue());
+        }
+    }
+}
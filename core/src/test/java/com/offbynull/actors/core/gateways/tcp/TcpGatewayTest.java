@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.gateways.tcp;
+
+import com.offbynull.actors.core.ActorSystem;
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.gateways.direct.DirectGateway;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.coroutines.user.Coroutine;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TcpGatewayTest {
+
+    private static final Coroutine ECHOER = cnt -> {
+        Context ctx = (Context) cnt.getContext();
+        ctx.allow();
+
+        while (true) {
+            cnt.suspend();
+            ctx.out(ctx.self(), ctx.source(), ctx.in());
+        }
+    };
+
+    @Test(timeout = 5000L)
+    public void mustSendAndReceiveBetweenActorSystems() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        TcpGateway gatewayA = TcpGateway.create("tcp", "a", loopback);
+        TcpGateway gatewayB = TcpGateway.create("tcp", "b", loopback);
+        gatewayA.addRemote("b", gatewayB.getLocalAddress());
+        gatewayB.addRemote("a", gatewayA.getLocalAddress());
+
+        try (ActorSystem systemA = ActorSystem.builder().withRunnerCoreCount(1).withGateway(gatewayA).build();
+                ActorSystem systemB = ActorSystem.builder()
+                        .withRunnerCoreCount(1)
+                        .withGateway(gatewayB)
+                        .withActor("echoer", ECHOER, new Object())
+                        .build()) {
+            DirectGateway directA = systemA.getDirectGateway();
+            
+            // Keep pinging until there's a response -- the echoer drops messages until it's done starting up (allowing messages in)
+            long pings = 0L;
+            do {
+                directA.writeMessage("direct:tester", "tcp:b:runner:echoer", "ping");
+                pings++;
+            } while (directA.readMessage(100L, TimeUnit.MILLISECONDS) == null);
+            
+            for (int i = 0; i < 100; i++) {
+                directA.writeMessage("direct:tester", "tcp:b:runner:echoer", i);
+            }
+            
+            for (int i = 0; i < 100; i++) {
+                Message message = directA.readMessage();
+                if ("ping".equals(message.getMessage())) { // late response to a ping
+                    i--;
+                    continue;
+                }
+                assertEquals("tcp:b:runner:echoer", message.getSourceAddress().toString());
+                assertEquals("direct:tester", message.getDestinationAddress().toString());
+                assertEquals(i, (int) message.getMessage());
+            }
+            
+            assertEquals(100L + pings, gatewayA.getMetrics().snapshot().getCounters().get("messages.sent").longValue());
+            assertEquals(100L + pings, gatewayB.getMetrics().snapshot().getCounters().get("messages.received").longValue());
+            assertEquals(0L, gatewayA.getMetrics().snapshot().getCounters().get("reconnects").longValue());
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustSendAndReceiveAfterRemoteRemovedAndAddedAgain() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        TcpGateway gatewayA = TcpGateway.create("tcp", "a", loopback);
+        TcpGateway gatewayB = TcpGateway.create("tcp", "b", loopback);
+        gatewayA.addRemote("b", gatewayB.getLocalAddress());
+        gatewayB.addRemote("a", gatewayA.getLocalAddress());
+
+        try (ActorSystem systemA = ActorSystem.builder().withRunnerCoreCount(1).withGateway(gatewayA).build();
+                ActorSystem systemB = ActorSystem.builder()
+                        .withRunnerCoreCount(1)
+                        .withGateway(gatewayB)
+                        .withActor("echoer", ECHOER, new Object())
+                        .build()) {
+            DirectGateway directA = systemA.getDirectGateway();
+            
+            // Keep pinging until there's a response -- the echoer drops messages until it's done starting up (allowing messages in)
+            do {
+                directA.writeMessage("direct:tester", "tcp:b:runner:echoer", "ping");
+            } while (directA.readMessage(100L, TimeUnit.MILLISECONDS) == null);
+            for (int i = 0; i < 10; i++) {
+                directA.writeMessage("direct:tester", "tcp:b:runner:echoer", i);
+            }
+            
+            // Re-adding the remote starts sequencing over -- messages sent after must not be mistaken for ones already delivered
+            gatewayA.removeRemote("b");
+            gatewayA.addRemote("b", gatewayB.getLocalAddress());
+            directA.writeMessage("direct:tester", "tcp:b:runner:echoer", "after");
+            
+            while (true) {
+                Object response = directA.readMessagePayloadOnly();
+                if ("after".equals(response)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 5000L)
+    public void mustResendBufferedMessagesOnceRemoteBecomesReachable() throws Exception {
+        InetSocketAddress addressB;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) { // find free port
+            addressB = (InetSocketAddress) serverSocket.getLocalSocketAddress();
+        }
+        
+        TcpGateway gatewayA = TcpGateway.create("tcp", "a", new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        gatewayA.addRemote("b", addressB);
+
+        try (ActorSystem systemA = ActorSystem.builder().withRunnerCoreCount(1).withGateway(gatewayA).build()) {
+            DirectGateway directA = systemA.getDirectGateway();
+            directA.writeMessage("direct:tester", "tcp:b:runner:echoer", "hi");
+            
+            Thread.sleep(200L); // give gateway a chance to fail connecting
+            
+            TcpGateway gatewayB = TcpGateway.create("tcp", "b", addressB);
+            gatewayB.addRemote("a", gatewayA.getLocalAddress());
+            try (ActorSystem systemB = ActorSystem.builder()
+                    .withRunnerCoreCount(1)
+                    .withGateway(gatewayB)
+                    .withActor("echoer", ECHOER, new Object())
+                    .build()) {
+                assertEquals("hi", directA.readMessagePayloadOnly());
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.offbynull.actors.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void mustMapEveryBucketIndexBackToRangeContainingValue() {
+        long[] values = { 0L, 1L, 31L, 32L, 33L, 1000L, 123456789L, Long.MAX_VALUE };
+        for (long value : values) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(index < Histogram.BUCKET_COUNT);
+            assertTrue(Histogram.lowestValue(index) <= value);
+            assertTrue(Histogram.highestValue(index) >= value);
+        }
+    }
+
+    @Test
+    public void mustReportPercentilesWithinPrecision() {
+        Histogram fixture = new Histogram();
+        for (long i = 1L; i <= 10000L; i++) {
+            fixture.record(i);
+        }
+
+        HistogramSnapshot snapshot = fixture.snapshot();
+        assertEquals(10000L, snapshot.getCount());
+        assertEquals(1L, snapshot.getMin());
+        assertEquals(10000L, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertEquals(5000.0, snapshot.getValueAtPercentile(50.0), 5000.0 * 0.07);
+        assertEquals(9900.0, snapshot.getValueAtPercentile(99.0), 9900.0 * 0.07);
+        assertEquals(10000L, snapshot.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void mustReportZerosWhenEmpty() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+        assertEquals(0L, snapshot.getCount());
+        assertEquals(0L, snapshot.getMin());
+        assertEquals(0L, snapshot.getMax());
+        assertEquals(0L, snapshot.getValueAtPercentile(99.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustFailOnNegativeValue() {
+        new Histogram().record(-1L);
+    }
+}
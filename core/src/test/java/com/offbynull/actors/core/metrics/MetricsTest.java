@@ -0,0 +1,60 @@
+package com.offbynull.actors.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void mustIncludeAllMetricsInSnapshot() {
+        Metrics fixture = Metrics.create();
+        AtomicLong gaugeValue = new AtomicLong(5L);
+
+        fixture.counter("counter").add(3L);
+        fixture.counter("counter").increment();
+        fixture.gauge("gauge", gaugeValue::get);
+        fixture.histogram("histogram").record(10L);
+
+        MetricsSnapshot snapshot = fixture.snapshot();
+        assertEquals(4L, (long) snapshot.getCounters().get("counter"));
+        assertEquals(5L, (long) snapshot.getGauges().get("gauge"));
+        assertEquals(1L, snapshot.getHistograms().get("histogram").getCount());
+
+        gaugeValue.set(6L);
+        assertEquals(6L, (long) fixture.snapshot().getGauges().get("gauge"));
+    }
+
+    @Test
+    public void mustReturnSameMetricForSameName() {
+        Metrics fixture = Metrics.create();
+        assertSame(fixture.counter("a"), fixture.counter("a"));
+        assertSame(fixture.histogram("b"), fixture.histogram("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustFailWhenNameRegisteredToDifferentType() {
+        Metrics fixture = Metrics.create();
+        fixture.counter("a");
+        fixture.histogram("a");
+    }
+
+    @Test
+    public void mustExposeMetricsOverJmx() throws Exception {
+        Metrics fixture = Metrics.create();
+        fixture.counter("counter").add(7L);
+        fixture.histogram("histogram").record(100L);
+
+        ObjectName name = fixture.registerMBean("com.offbynull.actors:type=MetricsTest");
+        try {
+            assertEquals(7L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "counter"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "histogram.count"));
+            assertEquals(100L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "histogram.max"));
+        } finally {
+            Metrics.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.simulator;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.util.Arrays;
+import java.util.HashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class AddressTrieTest {
+
+    @Test
+    public void mustFindLongestPrefix() {
+        AddressTrie<String> fixture = new AddressTrie<>();
+        fixture.put(Address.of("a"), "a");
+        fixture.put(Address.of("a", "b", "c"), "abc");
+
+        assertEquals("a", fixture.findLongestPrefix(Address.of("a")));
+        assertEquals("a", fixture.findLongestPrefix(Address.of("a", "b")));
+        assertEquals("abc", fixture.findLongestPrefix(Address.of("a", "b", "c")));
+        assertEquals("abc", fixture.findLongestPrefix(Address.of("a", "b", "c", "d")));
+        assertNull(fixture.findLongestPrefix(Address.of("b")));
+    }
+
+    @Test
+    public void mustRemoveAndPrune() {
+        AddressTrie<String> fixture = new AddressTrie<>();
+        fixture.put(Address.of("a", "b", "c"), "abc");
+
+        assertNull(fixture.remove(Address.of("a", "b")));
+        assertEquals("abc", fixture.remove(Address.of("a", "b", "c")));
+        assertNull(fixture.get(Address.of("a", "b", "c")));
+        assertNull(fixture.findLongestPrefix(Address.of("a", "b", "c")));
+    }
+
+    @Test
+    public void mustRemoveAllWithPrefix() {
+        AddressTrie<String> fixture = new AddressTrie<>();
+        fixture.put(Address.of("a"), "a");
+        fixture.put(Address.of("a", "b"), "ab");
+        fixture.put(Address.of("a", "c"), "ac");
+        fixture.put(Address.of("b"), "b");
+
+        assertEquals(new HashSet<>(Arrays.asList("ab")), new HashSet<>(fixture.removeAllWithPrefix(Address.of("a", "b"))));
+        assertEquals(new HashSet<>(Arrays.asList("a", "ac")), new HashSet<>(fixture.removeAllWithPrefix(Address.of("a"))));
+        assertNull(fixture.get(Address.of("a", "c")));
+        assertEquals("b", fixture.get(Address.of("b")));
+    }
+}
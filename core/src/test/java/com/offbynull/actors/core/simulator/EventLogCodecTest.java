@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.actors.core.simulator;
+
+import com.offbynull.actors.core.shuttle.Address;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class EventLogCodecTest {
+
+    @Test
+    public void mustMatchEqualPayloadsThatSerializeDifferently() {
+        HashMap<String, Integer> small = new HashMap<>();
+        HashMap<String, Integer> large = new HashMap<>(1024); // capacity is serialized, so bytes differ even though maps are equal
+        for (int i = 0; i < 10; i++) {
+            small.put("key" + i, i);
+            large.put("key" + i, i);
+        }
+        
+        byte[] expected = EventLogCodec.encode(5L, messageEvent("a", small));
+        MessageEvent event = messageEvent("a", large);
+        byte[] record = EventLogCodec.encode(5L, event);
+        
+        assertFalse(Arrays.equals(expected, record));
+        assertTrue(EventLogCodec.matches(expected, record, event));
+    }
+
+    @Test
+    public void mustNotMatchDifferentPayloads() {
+        byte[] expected = EventLogCodec.encode(5L, messageEvent("a", 1));
+        MessageEvent event = messageEvent("a", 2);
+        
+        assertFalse(EventLogCodec.matches(expected, EventLogCodec.encode(5L, event), event));
+    }
+
+    @Test
+    public void mustNotMatchEqualPayloadsWithDifferentAddresses() {
+        byte[] expected = EventLogCodec.encode(5L, messageEvent("a", 1));
+        MessageEvent event = messageEvent("b", 1);
+        
+        assertFalse(EventLogCodec.matches(expected, EventLogCodec.encode(5L, event), event));
+    }
+    
+    private static MessageEvent messageEvent(String destination, Object payload) {
+        return new MessageEvent(Address.of("src"), Address.of(destination), payload, Instant.ofEpochMilli(10L), 3L);
+    }
+}
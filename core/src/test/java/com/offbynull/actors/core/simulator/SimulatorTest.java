@@ -3,12 +3,18 @@ package com.offbynull.actors.core.simulator;
 import com.offbynull.coroutines.user.Coroutine;
 import com.offbynull.actors.core.context.Context;
 import com.offbynull.actors.core.shuttle.Address;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -508,4 +514,140 @@ public class SimulatorTest {
             fixture.process();
         }
     }
+    @Test(timeout = 10000L)
+    public void mustProduceSameResultsWhenRunningActorsInParallel() {
+        Map<String, List<String>> sequentialResults = runRing(null);
+        
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, List<String>> parallelResults = runRing(pool);
+            assertEquals(sequentialResults, parallelResults);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    // Ring of actors that pass messages to each other (directly and through a timer), each recording what it sees
+    private Map<String, List<String>> runRing(ForkJoinPool pool) {
+        int count = 50;
+        Map<String, List<String>> results = new ConcurrentHashMap<>();
+        
+        Coroutine actor = (cnt) -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            
+            String self = ctx.self().toString();
+            int next = (Integer.parseInt(self.substring(5)) + 1) % count;
+            List<String> result = new ArrayList<>();
+            results.put(self, result);
+
+            while (true) {
+                Object in = ctx.in();
+                result.add(ctx.time().toEpochMilli() + " " + ctx.source() + " " + (in instanceof Integer ? in : "priming"));
+                if (ctx.in() instanceof Integer && (Integer) ctx.in() < 20) {
+                    int value = ctx.in();
+                    if (ctx.source().toString().startsWith("timer")) {
+                        ctx.out("actor" + next, value + 1);
+                    } else {
+                        ctx.out("timer:" + (value % 3), value + 1);
+                    }
+                }
+                cnt.suspend();
+            }
+        };
+
+        Simulator fixture = new Simulator(Instant.ofEpochMilli(0L), (src, dst, msg, real) -> Duration.ofMillis(dst.toString().length() % 3),
+                pool);
+        fixture.addTimer("timer", Instant.ofEpochMilli(0L));
+        for (int i = 0; i < count; i++) {
+            fixture.addActor("actor" + i, actor, Duration.ZERO, Instant.ofEpochMilli(0L), new Object(), 0);
+        }
+
+        while (fixture.hasMore()) {
+            fixture.process();
+        }
+        
+        return results;
+    }
+
+    @Test(timeout = 10000L)
+    public void mustResumeFromSnapshotAndVerifyAgainstLog() throws Exception {
+        Simulator fixture = new Simulator();
+        setupSerializableRing(fixture, 1);
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        fixture.record(log);
+        int total = 0;
+        while (fixture.hasMore()) {
+            if (total == 40) {
+                fixture.snapshot(snapshot);
+            }
+            fixture.process();
+            total++;
+        }
+        fixture.stopRecording();
+
+        Simulator restored = Simulator.restore(new ByteArrayInputStream(snapshot.toByteArray()), new SimpleActorDurationCalculator(),
+                null);
+        restored.verify(new ByteArrayInputStream(log.toByteArray()));
+        int remaining = 0;
+        while (restored.hasMore()) {
+            restored.process(); // throws if diverges from log
+            remaining++;
+        }
+        
+        assertEquals(total - 40, remaining);
+    }
+
+    @Test(timeout = 10000L)
+    public void mustFailVerifyWhenSimulationDiverges() throws Exception {
+        Simulator original = new Simulator();
+        setupSerializableRing(original, 1);
+        
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        original.record(log);
+        while (original.hasMore()) {
+            original.process();
+        }
+        original.stopRecording();
+        
+        Simulator fixture = new Simulator();
+        setupSerializableRing(fixture, 2);
+        fixture.verify(new ByteArrayInputStream(log.toByteArray()));
+
+        exception.expect(IllegalStateException.class);
+        while (fixture.hasMore()) {
+            fixture.process();
+        }
+    }
+    
+    // Ring of actors that pass a counter to each other through a timer
+    private void setupSerializableRing(Simulator fixture, int step) {
+        int count = 5;
+        Coroutine actor = (Serializable & Coroutine) (cnt) -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+
+            String self = ctx.self().toString();
+            int next = (Integer.parseInt(self.substring(5)) + 1) % count;
+
+            while (true) {
+                if (ctx.in() instanceof Integer && (Integer) ctx.in() < 30) {
+                    int value = ctx.in();
+                    if (ctx.source().toString().startsWith("timer")) {
+                        ctx.out("actor" + next, value + step);
+                    } else {
+                        ctx.out("timer:5", value + step);
+                    }
+                }
+                cnt.suspend();
+            }
+        };
+
+        fixture.addTimer("timer", Instant.ofEpochMilli(0L));
+        for (int i = 0; i < count; i++) {
+            fixture.addActor("actor" + i, actor, Duration.ZERO, Instant.ofEpochMilli(0L), "start", 0);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package com.offbynull.actors.core.trace;
+
+import com.offbynull.actors.core.actor.ActorRunner;
+import com.offbynull.actors.core.context.Context;
+import com.offbynull.actors.core.gateways.direct.DirectGateway;
+import com.offbynull.actors.core.shuttle.Address;
+import com.offbynull.actors.core.shuttle.Message;
+import com.offbynull.coroutines.user.Coroutine;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TraceCollectorTest {
+
+    @Test
+    public void mustNotStartTracesWhenNotSampled() {
+        TraceCollector fixture = TraceCollector.create(0.0, 10);
+        assertNull(fixture.startTrace());
+    }
+
+    @Test
+    public void mustDiscardOldestEventsWhenFull() {
+        TraceCollector fixture = TraceCollector.create(1.0, 2);
+        TraceContext trace = fixture.startTrace();
+        trace.record(TracePoint.SEND, Address.of("a"));
+        trace.record(TracePoint.PULL, Address.of("b"));
+        trace.record(TracePoint.FIRE_START, Address.of("c"));
+
+        List<TraceEvent> events = fixture.drain();
+        assertEquals(2, events.size());
+        assertEquals(TracePoint.PULL, events.get(0).getPoint());
+        assertEquals(TracePoint.FIRE_START, events.get(1).getPoint());
+        assertTrue(fixture.drain().isEmpty());
+    }
+
+    @Test(timeout = 2000L)
+    public void mustTraceMessageThroughActorAndBack() throws Exception {
+        Coroutine echoerActor = (cnt) -> {
+            Context ctx = (Context) cnt.getContext();
+            ctx.allow();
+            ctx.out("direct", "ready");
+
+            while (true) {
+                cnt.suspend();
+                ctx.out(ctx.source(), ctx.in());
+            }
+        };
+
+        TraceCollector fixture = TraceCollector.create(1.0, 100);
+        try (ActorRunner actorRunner = ActorRunner.create("actors", 1);
+                DirectGateway directGateway = DirectGateway.create("direct")) {
+            directGateway.addOutgoingShuttle(actorRunner.getIncomingShuttle());
+            actorRunner.addOutgoingShuttle(directGateway.getIncomingShuttle());
+
+            actorRunner.addActor("echoer", echoerActor, new Object());
+            assertEquals("ready", directGateway.readMessagePayloadOnly());
+
+            directGateway.setTraceCollector(fixture);
+            directGateway.writeMessage("actors:echoer", "hi");
+            Message response = directGateway.readMessages().get(0);
+            assertEquals("hi", response.getMessage());
+
+            TraceContext responseTrace = response.getTrace();
+            assertNotNull(responseTrace);
+
+            List<TracePoint> requestPoints = new ArrayList<>();
+            List<TracePoint> responsePoints = new ArrayList<>();
+            for (TraceEvent event : fixture.getTrace(responseTrace.getTraceId())) {
+                if (event.getSpanId() == responseTrace.getParentSpanId()) {
+                    requestPoints.add(event.getPoint());
+                } else if (event.getSpanId() == responseTrace.getSpanId()) {
+                    responsePoints.add(event.getPoint());
+                }
+            }
+
+            assertTrue(requestPoints.contains(TracePoint.SEND));
+            assertTrue(requestPoints.contains(TracePoint.PULL));
+            assertTrue(requestPoints.contains(TracePoint.FIRE_START));
+            assertTrue(requestPoints.contains(TracePoint.FIRE_END));
+            assertTrue(responsePoints.contains(TracePoint.SEND));
+            assertTrue(responsePoints.contains(TracePoint.PULL));
+            assertTrue(responsePoints.contains(TracePoint.EGRESS));
+        }
+    }
+}